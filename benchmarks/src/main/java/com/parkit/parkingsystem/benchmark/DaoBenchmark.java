@@ -0,0 +1,234 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDao;
+import com.parkit.parkingsystem.dao.TicketDao;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Measures the DAO operations against an in-memory database holding a
+ * history of closed tickets.
+ *
+ * @author Laura
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend =
+    "-Dlog4j.configurationFile=log4j2-benchmark.properties")
+public class DaoBenchmark {
+
+  /**
+   * Number of car spots of the lot, one per benchmark thread at most.
+   */
+  private static final int CAR_SPOTS = 64;
+
+  /**
+   * Number of distinct registration numbers in the ticket history.
+   */
+  private static final int PLATES = 1000;
+
+  /**
+   * SQL query to create a closed ticket.
+   */
+  private static final String SAVE_CLOSED_TICKET = "insert into ticket("
+      + "PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, "
+      + "PARKING_TYPE) values(?, ?, 1.5, ?, ?, 'CAR')";
+
+  /**
+   * Database and DAOs shared by every benchmark thread.
+   */
+  @State(Scope.Benchmark)
+  public static class DataBase {
+
+    /**
+     * Number of closed tickets in the history.
+     */
+    @Param({"10000"})
+    private int historySize;
+
+    /**
+     * In-memory database configuration.
+     */
+    private EmbeddedDataBaseConfig dataBaseConfig;
+
+    /**
+     * ParkingSpotDao under measure.
+     */
+    private ParkingSpotDao parkingSpotDao;
+
+    /**
+     * TicketDao under measure.
+     */
+    private TicketDao ticketDao;
+
+    /**
+     * Creates the database, its spots and its ticket history.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+      dataBaseConfig = new EmbeddedDataBaseConfig("dao" + System.nanoTime());
+      dataBaseConfig.prepare(CAR_SPOTS, 0);
+      parkingSpotDao = new ParkingSpotDao();
+      parkingSpotDao.setDataBaseConfig(dataBaseConfig);
+      ticketDao = new TicketDao();
+      ticketDao.setDataBaseConfig(dataBaseConfig);
+
+      LocalDateTime outTime = LocalDateTime.now();
+      try (Connection con = dataBaseConfig.getConnection();
+           PreparedStatement ps = con.prepareStatement(SAVE_CLOSED_TICKET)) {
+        for (int i = 0; i < historySize; i++) {
+          ps.setInt(1, i % CAR_SPOTS + 1);
+          ps.setString(2, plate(i % PLATES));
+          ps.setTimestamp(3, Timestamp.valueOf(outTime.minusHours(i + 1)));
+          ps.setTimestamp(4, Timestamp.valueOf(outTime.minusHours(i)));
+          ps.addBatch();
+        }
+        ps.executeBatch();
+      }
+    }
+
+    /**
+     * Closes the connection pool.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      dataBaseConfig.shutdown();
+    }
+  }
+
+  /**
+   * Spot and plate owned by one benchmark thread.
+   */
+  @State(Scope.Thread)
+  public static class Gate {
+
+    /**
+     * Parking spot claimed and released by this thread.
+     */
+    private ParkingSpot parkingSpot;
+
+    /**
+     * Registration number looked up by this thread.
+     */
+    private String vehicleRegNumber;
+
+    /**
+     * Ticket saved by this thread.
+     */
+    private Ticket ticket;
+
+    /**
+     * Gives each thread its own spot and plate.
+     *
+     * @param threadParams the benchmark thread parameters
+     */
+    @Setup(Level.Trial)
+    public void setUp(final ThreadParams threadParams) {
+      int index = threadParams.getThreadIndex();
+      parkingSpot = new ParkingSpot(index % CAR_SPOTS + 1, ParkingType.CAR,
+          true);
+      vehicleRegNumber = plate(index);
+      ticket = new Ticket(0, parkingSpot, "GATE" + index, 0,
+          LocalDateTime.now(), null);
+    }
+  }
+
+  /**
+   * Builds the registration number of a plate index.
+   *
+   * @param index the plate index
+   * @return a registration number of 8 characters at most
+   */
+  private static String plate(final int index) {
+    return "HIS" + index;
+  }
+
+  /**
+   * Looks up the latest ticket of a registration number.
+   *
+   * @param dataBase the shared database
+   * @param gate the thread state
+   * @return the ticket found
+   */
+  @Benchmark
+  public Ticket getTicket(final DataBase dataBase, final Gate gate) {
+    return dataBase.ticketDao.getTicket(gate.vehicleRegNumber);
+  }
+
+  /**
+   * Checks whether a registration number is a recurring user.
+   *
+   * @param dataBase the shared database
+   * @param gate the thread state
+   * @return the recurring user status
+   */
+  @Benchmark
+  public boolean isRecurringUser(final DataBase dataBase, final Gate gate) {
+    return dataBase.ticketDao.isRecurringUser(gate.vehicleRegNumber);
+  }
+
+  /**
+   * Finds the next available car spot.
+   *
+   * @param dataBase the shared database
+   * @return the spot number
+   */
+  @Benchmark
+  public int getNextAvailableSpot(final DataBase dataBase) {
+    return dataBase.parkingSpotDao.getNextAvailableSpot(ParkingType.CAR);
+  }
+
+  /**
+   * Claims a spot then gives it back.
+   *
+   * @param dataBase the shared database
+   * @param gate the thread state
+   * @return true if both updates succeeded
+   */
+  @Benchmark
+  public boolean claimAndReleaseSpot(final DataBase dataBase,
+                                     final Gate gate) {
+    boolean claimed = dataBase.parkingSpotDao.claimParking(gate.parkingSpot);
+    gate.parkingSpot.setAvailable(true);
+    return dataBase.parkingSpotDao.updateParking(gate.parkingSpot) && claimed;
+  }
+
+  /**
+   * Saves a ticket then closes it.
+   *
+   * @param dataBase the shared database
+   * @param gate the thread state
+   * @return true if both statements succeeded
+   */
+  @Benchmark
+  public boolean saveAndUpdateTicket(final DataBase dataBase,
+                                     final Gate gate) {
+    gate.ticket.setOutTime(null);
+    boolean saved = dataBase.ticketDao.saveTicket(gate.ticket);
+    gate.ticket.setOutTime(gate.ticket.getInTime().plusHours(1));
+    gate.ticket.setPrice(1.5);
+    return dataBase.ticketDao.updateTicket(gate.ticket) && saved;
+  }
+}
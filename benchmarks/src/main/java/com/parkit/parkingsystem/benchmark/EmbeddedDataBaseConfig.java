@@ -0,0 +1,52 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDao;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Connects benchmarks to an in-memory H2 database running in MySQL mode,
+ * migrated with the application scripts.
+ *
+ * @author Laura
+ */
+public class EmbeddedDataBaseConfig extends DataBaseConfig {
+
+  /**
+   * Constructor of class EmbeddedDataBaseConfig.
+   *
+   * @param name name of the in-memory database, unique per benchmark
+   */
+  public EmbeddedDataBaseConfig(final String name) {
+    super(H2_DRIVER, "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1"
+        + H2_OPTIONS, "sa", "");
+  }
+
+  /**
+   * Migrates the schema and creates the parking spots, cars first.
+   *
+   * @param carSpots number of car spots
+   * @param bikeSpots number of bike spots
+   */
+  public void prepare(final int carSpots, final int bikeSpots)
+      throws ClassNotFoundException, SQLException, IOException {
+    new SchemaMigrator(this).migrate();
+
+    List<ParkingSpot> parkingSpots = new ArrayList<>();
+    for (int number = 1; number <= carSpots + bikeSpots; number++) {
+      parkingSpots.add(new ParkingSpot(number, number <= carSpots
+          ? ParkingType.CAR : ParkingType.BIKE, true));
+    }
+    ParkingSpotDao parkingSpotDao = new ParkingSpotDao();
+    parkingSpotDao.setDataBaseConfig(this);
+    if (!parkingSpotDao.saveParkingSpots(parkingSpots)) {
+      throw new SQLException("Unable to create the parking spots");
+    }
+  }
+}
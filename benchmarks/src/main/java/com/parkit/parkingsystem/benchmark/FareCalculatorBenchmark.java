@@ -0,0 +1,121 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.TariffSchedule;
+import com.parkit.parkingsystem.util.FareCalculatorUtil;
+import java.time.LocalDateTime;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the fare calculation of a ticket.
+ *
+ * @author Laura
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend =
+    "-Dlog4j.configurationFile=log4j2-benchmark.properties")
+@State(Scope.Thread)
+public class FareCalculatorBenchmark {
+
+  /**
+   * Parking duration of the ticket in minutes.
+   */
+  @Param({"20", "90", "1500"})
+  private int minutes;
+
+  /**
+   * Type of the parked vehicle.
+   */
+  @Param({"CAR", "BIKE"})
+  private ParkingType parkingType;
+
+  /**
+   * Ticket of which fare is calculated.
+   */
+  private Ticket ticket;
+
+  /**
+   * Tariff schedule with peak, weekend and overnight bands and a daily cap.
+   */
+  private TariffSchedule tariffSchedule;
+
+  /**
+   * Creates the ticket of the parking duration and the tariff schedule.
+   */
+  @Setup
+  public void setUp() {
+    LocalDateTime outTime = LocalDateTime.now();
+    ticket = new Ticket(1, new ParkingSpot(1, parkingType, false), "AB125XY",
+        0, outTime.minusMinutes(minutes), outTime);
+
+    Properties tariff = new Properties();
+    tariff.setProperty("tariff.CAR.band.1", "MON-FRI 08:00-19:00 250");
+    tariff.setProperty("tariff.CAR.band.2", "MON-SUN 22:00-06:00 80");
+    tariff.setProperty("tariff.CAR.band.3", "SAT,SUN 08:00-22:00 100");
+    tariff.setProperty("tariff.CAR.cap", "2000");
+    tariff.setProperty("tariff.BIKE.band.1", "MON-FRI 08:00-19:00 150");
+    tariff.setProperty("tariff.BIKE.cap", "1000");
+    tariffSchedule = TariffSchedule.parse(tariff);
+  }
+
+  /**
+   * Calculates the fare of a new user.
+   *
+   * @return the fare
+   */
+  @Benchmark
+  public double fare() {
+    return FareCalculatorUtil.getCalculatedFare(ticket, 0);
+  }
+
+  /**
+   * Calculates the fare of a recurring user.
+   *
+   * @return the fare
+   */
+  @Benchmark
+  public double fareWithDiscount() {
+    return FareCalculatorUtil.getCalculatedFare(ticket, Fare.DISCOUNT);
+  }
+
+  /**
+   * Calculates the fare of a recurring user in cents with the banded
+   * tariff schedule.
+   *
+   * @return the fare in cents
+   */
+  @Benchmark
+  public long scheduledFareInCentsWithDiscount() {
+    return tariffSchedule.getCalculatedFareInCents(parkingType,
+        ticket.getInTime(), ticket.getOutTime(), Fare.DISCOUNT);
+  }
+
+  /**
+   * Calculates the fare of a recurring user in cents.
+   *
+   * @return the fare in cents
+   */
+  @Benchmark
+  public long fareInCentsWithDiscount() {
+    return FareCalculatorUtil.getCalculatedFareInCents(parkingType,
+        ticket.getInTime(), ticket.getOutTime(), Fare.DISCOUNT);
+  }
+}
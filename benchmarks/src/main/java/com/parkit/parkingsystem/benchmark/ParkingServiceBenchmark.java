@@ -0,0 +1,154 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.OpenTicketIndex;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ParkingSpotAllocator;
+import com.parkit.parkingsystem.service.RecurringUserCache;
+import com.parkit.parkingsystem.storage.DataBaseStorageEngine;
+import com.parkit.parkingsystem.storage.InMemoryStorageEngine;
+import com.parkit.parkingsystem.storage.StorageEngine;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Measures full entry and exit cycles through a ParkingService shared by
+ * every gate, against an in-memory database or the memory storage engine,
+ * the latter giving the ceiling of the service without any I/O. Run with -t
+ * to choose the number of gates served at once.
+ *
+ * @author Laura
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend =
+    "-Dlog4j.configurationFile=log4j2-benchmark.properties")
+public class ParkingServiceBenchmark {
+
+  /**
+   * Number of car spots of the lot, one per benchmark thread at most.
+   */
+  private static final int CAR_SPOTS = 64;
+
+  /**
+   * Database and service shared by every gate.
+   */
+  @State(Scope.Benchmark)
+  public static class Lot {
+
+    /**
+     * Tells if the allocator, caches and unit of work are used, as wired by
+     * the interactive shell, or if every lookup goes to the database.
+     */
+    @Param({"false", "true"})
+    private boolean inMemory;
+
+    /**
+     * Storage engine of the tickets and spots: database or memory.
+     */
+    @Param({"database", "memory"})
+    private String storage;
+
+    /**
+     * Storage engine shared by the gates.
+     */
+    private StorageEngine storageEngine;
+
+    /**
+     * Service shared by the gates.
+     */
+    private ParkingService parkingService;
+
+    /**
+     * Creates the storage and the shared components.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+      if ("memory".equals(storage)) {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int number = 1; number <= CAR_SPOTS; number++) {
+          parkingSpots.add(new ParkingSpot(number, ParkingType.CAR, true));
+        }
+        storageEngine = new InMemoryStorageEngine(parkingSpots, null, 0);
+      } else {
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig(
+            "service" + System.nanoTime());
+        dataBaseConfig.prepare(CAR_SPOTS, 0);
+        storageEngine = new DataBaseStorageEngine(dataBaseConfig);
+      }
+
+      parkingService = new ParkingService(storageEngine
+          .getParkingSpotRepository(), storageEngine.getTicketRepository());
+
+      if (inMemory) {
+        parkingService.setDataBaseConfig(storageEngine.getDataBaseConfig());
+        parkingService.setParkingSpotAllocator(new ParkingSpotAllocator(
+            storageEngine.getParkingSpotRepository().getParkingSpots()));
+        parkingService.setRecurringUserCache(new RecurringUserCache());
+        parkingService.setOpenTicketIndex(new OpenTicketIndex());
+      }
+    }
+
+    /**
+     * Closes the storage engine.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      storageEngine.close();
+    }
+  }
+
+  /**
+   * A gate with its own vehicle.
+   */
+  @State(Scope.Thread)
+  public static class Gate {
+
+    /**
+     * Registration number of the vehicle of the gate.
+     */
+    private String vehicleRegNumber;
+
+    /**
+     * Gives each gate its own vehicle.
+     *
+     * @param threadParams the benchmark thread parameters
+     */
+    @Setup(Level.Trial)
+    public void setUp(final ThreadParams threadParams) {
+      vehicleRegNumber = "GATE" + threadParams.getThreadIndex();
+    }
+  }
+
+  /**
+   * Parks a car then takes it out.
+   *
+   * @param lot the shared lot
+   * @param gate the thread state
+   * @return the outcome of the exit
+   */
+  @Benchmark
+  public ParkingResult entryExitCycle(final Lot lot, final Gate gate) {
+    lot.parkingService.enter(gate.vehicleRegNumber, ParkingType.CAR);
+    return lot.parkingService.exit(gate.vehicleRegNumber);
+  }
+}
@@ -1,6 +1,27 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.api.GateHttpServer;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.dao.JournalDao;
+import com.parkit.parkingsystem.journal.GateJournal;
+import com.parkit.parkingsystem.journal.JournalFlusher;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.service.EventLogReplayer;
+import com.parkit.parkingsystem.service.FacilityRouter;
+import com.parkit.parkingsystem.service.FareAuditor;
+import com.parkit.parkingsystem.service.GroupCommitTicketWriter;
 import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ParkingServiceFactory;
+import com.parkit.parkingsystem.service.TicketArchiver;
+import com.parkit.parkingsystem.storage.StorageEngine;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -16,6 +37,74 @@ public final class App {
    */
   private static final Logger LOGGER = LogManager.getLogger("App");
 
+  /**
+   * Option starting a replay of a gate event log instead of the menu.
+   */
+  private static final String REPLAY_OPTION = "--replay";
+
+  /**
+   * Option starting an audit of the fares of the closed tickets instead of
+   * the menu.
+   */
+  private static final String AUDIT_OPTION = "--audit";
+
+  /**
+   * Option archiving the tickets closed before the archive horizon instead
+   * of the menu.
+   */
+  private static final String ARCHIVE_OPTION = "--archive";
+
+  /**
+   * Option starting the HTTP gate API instead of the menu.
+   */
+  private static final String HTTP_OPTION = "--http";
+
+  /**
+   * Option of the HTTP gate API recording gate events in a journal, followed
+   * by the directory of the journal.
+   */
+  private static final String JOURNAL_OPTION = "--journal";
+
+  /**
+   * Size of each segment file of the gate journal.
+   */
+  private static final int JOURNAL_SEGMENT_BYTES = 1 << 20;
+
+  /**
+   * Maximum number of journal records applied to the database at once.
+   */
+  private static final int JOURNAL_BATCH_SIZE = 256;
+
+  /**
+   * Time waited before applying again journal records the database refused.
+   */
+  private static final long JOURNAL_RETRY_DELAY_MILLIS = 1000;
+
+  /**
+   * Number of gate requests handled at once by the HTTP API.
+   */
+  private static final int HTTP_WORKERS = 8;
+
+  /**
+   * Seconds an idle gate connection is kept alive.
+   */
+  private static final int HTTP_IDLE_TIMEOUT = 30;
+
+  /**
+   * Seconds allowed to read a gate request or write its response.
+   */
+  private static final int HTTP_REQUEST_TIMEOUT = 10;
+
+  /**
+   * Maximum number of ticket writes of the HTTP API committed together.
+   */
+  private static final int GROUP_COMMIT_SIZE = 64;
+
+  /**
+   * Time a group of ticket writes waits for more writes.
+   */
+  private static final long GROUP_COMMIT_DELAY_MILLIS = 2;
+
   /**
    * Empty constructor of class App.
    */
@@ -25,10 +114,172 @@ public final class App {
   /**
    * Starts Park'it application.
    *
-   * @param args no argument
+   * @param args no argument for the interactive menu, or --replay followed
+   *     by the path of a gate event log to replay, or --audit followed by
+   *     the path of the fare mismatch report to write, or --archive, or
+   *     --http followed by the port of the gate API, then optionally
+   *     --journal followed by the directory of its journal
    */
   public static void main(final String[] args) {
     LOGGER.info("Initializing Parking System");
-    InteractiveShell.loadInterface();
+    // Metrics can be read with any JMX console whatever the front end
+    MetricsRegistry.getDefault().registerMBeans(
+        ManagementFactory.getPlatformMBeanServer());
+
+    if (args.length == 2 && REPLAY_OPTION.equals(args[0])) {
+      EventLogReplayer.replayFile(args[1]);
+    } else if (args.length == 2 && AUDIT_OPTION.equals(args[0])) {
+      FareAuditor.auditToFile(args[1]);
+    } else if (args.length == 1 && ARCHIVE_OPTION.equals(args[0])) {
+      TicketArchiver.archiveNow();
+    } else if (args.length == 2 && HTTP_OPTION.equals(args[0])) {
+      startGateApi(args[1], null);
+    } else if (args.length == 4 && HTTP_OPTION.equals(args[0])
+        && JOURNAL_OPTION.equals(args[2])) {
+      startGateApi(args[1], args[3]);
+    } else {
+      InteractiveShell.loadInterface();
+    }
+  }
+
+  /**
+   * Starts the HTTP gate API on the configured facilities, each with the
+   * ticket archive of its database if its storage engine is a database,
+   * stopped with the JVM.
+   *
+   * @param port the port to listen on
+   * @param journalDirectory the directory of the gate journal, or null to
+   *     write the gate events to the database directly
+   */
+  private static void startGateApi(final String port,
+                                   final String journalDirectory) {
+    FacilityRouter facilityRouter;
+    try {
+      facilityRouter = FacilityRouter.load(
+          FacilityRouter.FACILITIES_RESOURCE);
+    } catch (Exception e) {
+      LOGGER.error("Unable to load the facility settings", e);
+      return;
+    }
+    // The writers of the facilities are closed from the last one opened,
+    // the storage engines of the router last
+    Deque<AutoCloseable> writers = new ArrayDeque<>();
+    writers.push(facilityRouter);
+
+    try {
+      boolean singleFacility = facilityRouter.getFacilityIds().size() == 1;
+      for (String facilityId : facilityRouter.getFacilityIds()) {
+        // A single facility keeps its journal in the directory itself
+        openFacility(facilityRouter, facilityId, journalDirectory == null
+            || singleFacility ? journalDirectory : Paths.get(
+                journalDirectory, facilityId).toString(), writers);
+      }
+
+      GateHttpServer gateHttpServer = new GateHttpServer(facilityRouter,
+          new InetSocketAddress(Integer.parseInt(port)), HTTP_WORKERS,
+          HTTP_IDLE_TIMEOUT, HTTP_REQUEST_TIMEOUT);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        gateHttpServer.stop();
+        close(writers.toArray(new AutoCloseable[0]));
+      }));
+      gateHttpServer.start();
+    } catch (Exception e) {
+      LOGGER.error("Unable to start the gate API", e);
+      close(writers.toArray(new AutoCloseable[0]));
+    }
+  }
+
+  /**
+   * Opens a facility of the gate API: applies the journal left by the
+   * previous run, then creates the service of the facility, writing
+   * through the journal or through a group commit writer, and starts the
+   * ticket archive of its database.
+   *
+   * @param facilityRouter the router of the facilities
+   * @param facilityId the id of the facility
+   * @param journalDirectory the directory of the journal of the facility,
+   *     or null to write the gate events to the database directly
+   * @param writers the writers opened so far, to which the writers of the
+   *     facility are pushed as soon as opened
+   */
+  private static void openFacility(final FacilityRouter facilityRouter,
+                                   final String facilityId,
+                                   final String journalDirectory,
+                                   final Deque<AutoCloseable> writers)
+      throws ClassNotFoundException, SQLException, IOException,
+      InterruptedException {
+    StorageEngine storageEngine = facilityRouter.getStorageEngine(facilityId);
+    // Null for the memory engine, which needs no journal, group or archive
+    DataBaseConfig dataBaseConfig = storageEngine.getDataBaseConfig();
+    GateJournal gateJournal = null;
+    JournalFlusher journalFlusher = null;
+
+    if (journalDirectory != null) {
+      if (dataBaseConfig == null) {
+        throw new IllegalStateException("The gate journal needs the "
+            + "database storage engine");
+      }
+      // Records left by the previous run reach the database before it is
+      // loaded by the service
+      gateJournal = new GateJournal(Paths.get(journalDirectory),
+          JOURNAL_SEGMENT_BYTES, false);
+      writers.push(gateJournal);
+      JournalDao journalDao = new JournalDao();
+      journalDao.setDataBaseConfig(dataBaseConfig);
+      journalFlusher = new JournalFlusher(gateJournal, dataBaseConfig,
+          storageEngine.getParkingSpotRepository(),
+          storageEngine.getTicketRepository(), journalDao,
+          JOURNAL_BATCH_SIZE, JOURNAL_RETRY_DELAY_MILLIS);
+      writers.push(journalFlusher);
+      // Pending fares of the previous run are priced without the service
+      journalFlusher.setExitPricer(ParkingServiceFactory.createPricing(
+          storageEngine)::priceExit);
+      if (!journalFlusher.recover()) {
+        throw new IllegalStateException("Unable to apply the journal "
+            + "left by the previous run of facility " + facilityId);
+      }
+    }
+
+    ParkingService parkingService = facilityRouter.open(facilityId);
+    if (journalFlusher != null) {
+      parkingService.setGateJournal(gateJournal);
+      journalFlusher.setExitPricer(parkingService::priceExit);
+      journalFlusher.start();
+    } else if (dataBaseConfig != null) {
+      // Gates served at once share the commits of their tickets
+      GroupCommitTicketWriter ticketWriter = new GroupCommitTicketWriter(
+          dataBaseConfig, storageEngine.getTicketRepository(),
+          storageEngine.getParkingSpotRepository(), GROUP_COMMIT_SIZE,
+          GROUP_COMMIT_DELAY_MILLIS);
+      writers.push(ticketWriter);
+      parkingService.setTicketWriter(ticketWriter);
+    }
+
+    if (dataBaseConfig != null) {
+      // Closed tickets leave the ticket table in the background
+      TicketArchiver ticketArchiver = TicketArchiver.load(
+          TicketArchiver.ARCHIVE_RESOURCE, dataBaseConfig);
+      writers.push(ticketArchiver);
+      ticketArchiver.start();
+    }
+  }
+
+  /**
+   * Closes the writers of the gate API, then its storage engine, in order,
+   * skipping the null ones.
+   *
+   * @param writers the writers to close
+   */
+  private static void close(final AutoCloseable... writers) {
+    for (AutoCloseable writer : writers) {
+      if (writer == null) {
+        continue;
+      }
+      try {
+        writer.close();
+      } catch (Exception e) {
+        LOGGER.error("Unable to close " + writer, e);
+      }
+    }
   }
 }
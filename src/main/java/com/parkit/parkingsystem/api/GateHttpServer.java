@@ -0,0 +1,644 @@
+package com.parkit.parkingsystem.api;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.model.ParkingResult;
+import com.parkit.parkingsystem.service.FacilityRouter;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.JsonUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Exposes the gates of the parking over HTTP, with JSON bodies, on the
+ * HTTP server shipped with the JDK.
+ *
+ * <ul>
+ *   <li>POST /entry {"plate": "AB125XY", "type": "CAR"}</li>
+ *   <li>POST /exit {"plate": "AB125XY"}</li>
+ *   <li>GET /quote?plate=AB125XY</li>
+ *   <li>GET /occupancy</li>
+ *   <li>GET /metrics, in the Prometheus text format</li>
+ * </ul>
+ *
+ * <p>A server of several facilities also needs the facility of each gate
+ * request, in the body of entries and exits ({"facility": "north", ...})
+ * and in the query string of quotes and occupancy (?facility=north).
+ *
+ * @author Laura
+ */
+public class GateHttpServer {
+
+  /**
+   * GateHttpServer logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger(
+      "GateHttpServer");
+
+  /**
+   * Status code of a vehicle that entered.
+   */
+  private static final int CREATED = 201;
+
+  /**
+   * Largest request body accepted, in bytes.
+   */
+  private static final int MAX_BODY_SIZE = 4096;
+
+  /**
+   * Licence plate numbers accepted, in the error messages.
+   */
+  private static final String PLATE_RULE = "A plate of at most "
+      + ParkingService.MAX_VEHICLE_REG_NUMBER_LENGTH
+      + " letters, digits, spaces or hyphens";
+
+  /**
+   * Seconds given to the requests in progress when the server stops.
+   */
+  private static final int STOP_DELAY = 1;
+
+  /**
+   * Content type of the metrics, version 0.0.4 of the Prometheus text
+   * format.
+   */
+  private static final String PROMETHEUS_CONTENT_TYPE =
+      "text/plain; version=0.0.4; charset=utf-8";
+
+  /**
+   * Gives the service of the facility of a request, null if unknown.
+   */
+  private final Function<String, ParkingService> parkingServices;
+
+  /**
+   * Underlying JDK server.
+   */
+  private final HttpServer server;
+
+  /**
+   * Workers handling the requests.
+   */
+  private final ExecutorService executor;
+
+  /**
+   * Constructor of class GateHttpServer for a single facility.
+   *
+   * @param service the service the gate requests are passed to
+   * @param address the address to listen on, port 0 for any free port
+   * @param workers the number of requests handled at once
+   * @param idleSeconds the time an idle keep-alive connection stays open
+   * @param timeoutSeconds the time allowed to read a request or write a
+   *     response, 0 for no limit
+   * @throws IOException if the address cannot be bound
+   */
+  public GateHttpServer(final ParkingService service,
+                        final InetSocketAddress address, final int workers,
+                        final int idleSeconds, final int timeoutSeconds)
+      throws IOException {
+    this(facilityId -> facilityId == null ? service : null, address, workers,
+        idleSeconds, timeoutSeconds);
+  }
+
+  /**
+   * Constructor of class GateHttpServer for the facilities of a router.
+   *
+   * @param facilityRouter the router the gate requests are passed to, its
+   *     facilities opened
+   * @param address the address to listen on, port 0 for any free port
+   * @param workers the number of requests handled at once
+   * @param idleSeconds the time an idle keep-alive connection stays open
+   * @param timeoutSeconds the time allowed to read a request or write a
+   *     response, 0 for no limit
+   * @throws IOException if the address cannot be bound
+   */
+  public GateHttpServer(final FacilityRouter facilityRouter,
+                        final InetSocketAddress address, final int workers,
+                        final int idleSeconds, final int timeoutSeconds)
+      throws IOException {
+    this(facilityRouter::findParkingService, address, workers, idleSeconds,
+        timeoutSeconds);
+  }
+
+  /**
+   * Constructor of class GateHttpServer. The keep-alive and timeout
+   * settings are read by the JDK when its first server is created, so they
+   * are shared by every server of the JVM.
+   *
+   * @param services gives the service of a facility id, or of the only
+   *     facility for a null id
+   * @param address the address to listen on, port 0 for any free port
+   * @param workers the number of requests handled at once
+   * @param idleSeconds the time an idle keep-alive connection stays open
+   * @param timeoutSeconds the time allowed to read a request or write a
+   *     response, 0 for no limit
+   * @throws IOException if the address cannot be bound
+   */
+  private GateHttpServer(final Function<String, ParkingService> services,
+                         final InetSocketAddress address, final int workers,
+                         final int idleSeconds, final int timeoutSeconds)
+      throws IOException {
+    if (workers < 1) {
+      throw new IllegalArgumentException("At least one worker is required");
+    }
+
+    System.setProperty("sun.net.httpserver.idleInterval",
+        String.valueOf(idleSeconds));
+    if (timeoutSeconds > 0) {
+      System.setProperty("sun.net.httpserver.maxReqTime",
+          String.valueOf(timeoutSeconds));
+      System.setProperty("sun.net.httpserver.maxRspTime",
+          String.valueOf(timeoutSeconds));
+    }
+
+    this.parkingServices = services;
+    this.server = HttpServer.create(address, 0);
+    this.executor = Executors.newFixedThreadPool(workers, new WorkerFactory());
+
+    server.createContext("/entry", new RouteHandler("POST") {
+      @Override
+      protected void serve(final HttpExchange exchange) throws IOException {
+        handleEntry(exchange);
+      }
+    });
+    server.createContext("/exit", new RouteHandler("POST") {
+      @Override
+      protected void serve(final HttpExchange exchange) throws IOException {
+        handleExit(exchange);
+      }
+    });
+    server.createContext("/quote", new RouteHandler("GET") {
+      @Override
+      protected void serve(final HttpExchange exchange) throws IOException {
+        handleQuote(exchange);
+      }
+    });
+    server.createContext("/occupancy", new RouteHandler("GET") {
+      @Override
+      protected void serve(final HttpExchange exchange) throws IOException {
+        handleOccupancy(exchange);
+      }
+    });
+    server.createContext("/metrics", new RouteHandler("GET") {
+      @Override
+      protected void serve(final HttpExchange exchange) throws IOException {
+        send(exchange, HttpURLConnection.HTTP_OK, PROMETHEUS_CONTENT_TYPE,
+            MetricsRegistry.getDefault().scrape());
+      }
+    });
+    server.setExecutor(executor);
+  }
+
+  /**
+   * Starts accepting requests.
+   */
+  public void start() {
+    server.start();
+    LOGGER.info("Gate API listening on port " + getPort());
+  }
+
+  /**
+   * Stops accepting requests, lets the ones in progress finish, then stops
+   * the workers.
+   */
+  public void stop() {
+    server.stop(STOP_DELAY);
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(STOP_DELAY, TimeUnit.SECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    LOGGER.info("Gate API stopped");
+  }
+
+  /**
+   * Getter of the port the server listens on.
+   *
+   * @return the bound port
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Parks the vehicle described by the request body.
+   *
+   * @param exchange the request and its response
+   */
+  private void handleEntry(final HttpExchange exchange) throws IOException {
+    Map<String, String> body = readBody(exchange);
+    if (body == null) {
+      return;
+    }
+
+    String vehicleRegNumber = body.get("plate");
+    ParkingType parkingType = parseParkingType(body.get("type"));
+    if (!isValidPlate(vehicleRegNumber) || parkingType == null) {
+      sendError(exchange, HttpURLConnection.HTTP_BAD_REQUEST,
+          PLATE_RULE + " and a type (CAR or BIKE) are required");
+      return;
+    }
+    ParkingService parkingService = getParkingService(exchange,
+        body.get("facility"));
+    if (parkingService == null) {
+      return;
+    }
+
+    sendResult(exchange, parkingService.enter(vehicleRegNumber.trim(),
+        parkingType));
+  }
+
+  /**
+   * Takes out the vehicle described by the request body.
+   *
+   * @param exchange the request and its response
+   */
+  private void handleExit(final HttpExchange exchange) throws IOException {
+    Map<String, String> body = readBody(exchange);
+    if (body == null) {
+      return;
+    }
+
+    String vehicleRegNumber = body.get("plate");
+    if (!isValidPlate(vehicleRegNumber)) {
+      sendError(exchange, HttpURLConnection.HTTP_BAD_REQUEST,
+          PLATE_RULE + " is required");
+      return;
+    }
+    ParkingService parkingService = getParkingService(exchange,
+        body.get("facility"));
+    if (parkingService == null) {
+      return;
+    }
+
+    sendResult(exchange, parkingService.exit(vehicleRegNumber.trim()));
+  }
+
+  /**
+   * Gives the fare the vehicle of the query string would pay now.
+   *
+   * @param exchange the request and its response
+   */
+  private void handleQuote(final HttpExchange exchange) throws IOException {
+    String vehicleRegNumber = getQueryParameter(exchange, "plate");
+    if (!isValidPlate(vehicleRegNumber)) {
+      sendError(exchange, HttpURLConnection.HTTP_BAD_REQUEST,
+          PLATE_RULE + " is required");
+      return;
+    }
+    ParkingService parkingService = getParkingService(exchange,
+        getQueryParameter(exchange, "facility"));
+    if (parkingService == null) {
+      return;
+    }
+
+    sendResult(exchange, parkingService.quote(vehicleRegNumber.trim()));
+  }
+
+  /**
+   * Gives the number of free and total spots of each vehicle type.
+   *
+   * @param exchange the request and its response
+   */
+  private void handleOccupancy(final HttpExchange exchange)
+      throws IOException {
+    ParkingService parkingService = getParkingService(exchange,
+        getQueryParameter(exchange, "facility"));
+    if (parkingService == null) {
+      return;
+    }
+
+    StringBuilder json = new StringBuilder("{");
+    for (ParkingType parkingType : ParkingType.values()) {
+      if (json.length() > 1) {
+        json.append(',');
+      }
+      json.append(JsonUtil.quote(parkingType.name())).append(":{")
+          .append("\"available\":")
+          .append(parkingService.countParkingSpots(parkingType, true))
+          .append(",\"total\":")
+          .append(parkingService.countParkingSpots(parkingType, false))
+          .append('}');
+    }
+
+    send(exchange, HttpURLConnection.HTTP_OK, json.append('}').toString());
+  }
+
+  /**
+   * Gets the service of the facility of a request, answering 400 if no
+   * facility is given while several are served, 404 if it is unknown.
+   *
+   * @param exchange the request and its response
+   * @param facilityId the facility read from the request, or null
+   * @return the service of the facility, null if an error was sent
+   */
+  private ParkingService getParkingService(final HttpExchange exchange,
+                                           final String facilityId)
+      throws IOException {
+    ParkingService parkingService = parkingServices.apply(facilityId);
+    if (parkingService == null && facilityId == null) {
+      sendError(exchange, HttpURLConnection.HTTP_BAD_REQUEST,
+          "A facility is required");
+    } else if (parkingService == null) {
+      sendError(exchange, HttpURLConnection.HTTP_NOT_FOUND,
+          "Unknown facility");
+    }
+    return parkingService;
+  }
+
+  /**
+   * Reads the request body as a flat JSON object, answering 400 if it is
+   * too large or malformed.
+   *
+   * @param exchange the request and its response
+   * @return the values by name, null if an error was sent
+   */
+  private Map<String, String> readBody(final HttpExchange exchange)
+      throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    byte[] buffer = new byte[MAX_BODY_SIZE];
+
+    try (InputStream input = exchange.getRequestBody()) {
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        body.write(buffer, 0, read);
+        if (body.size() > MAX_BODY_SIZE) {
+          sendError(exchange, HttpURLConnection.HTTP_BAD_REQUEST,
+              "Request body too large");
+          return null;
+        }
+      }
+    }
+
+    try {
+      return JsonUtil.parseObject(new String(body.toByteArray(),
+          StandardCharsets.UTF_8));
+    } catch (IllegalArgumentException e) {
+      sendError(exchange, HttpURLConnection.HTTP_BAD_REQUEST,
+          e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Gets a parameter of the request query string.
+   *
+   * @param exchange the request
+   * @param name the name of the parameter
+   * @return the decoded value, null if absent
+   */
+  private static String getQueryParameter(final HttpExchange exchange,
+                                          final String name)
+      throws IOException {
+    String query = exchange.getRequestURI().getRawQuery();
+    if (query == null) {
+      return null;
+    }
+
+    for (String parameter : query.split("&")) {
+      int separator = parameter.indexOf('=');
+      if (separator > 0 && name.equals(parameter.substring(0, separator))) {
+        return URLDecoder.decode(parameter.substring(separator + 1),
+            StandardCharsets.UTF_8.name());
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Tells if the given licence plate number can be used, so that a plate
+   * the ticket table cannot store is turned away before it reaches the
+   * service.
+   *
+   * @param vehicleRegNumber the licence plate number read from the request
+   * @return true if, once trimmed, it is a valid licence plate number
+   */
+  private static boolean isValidPlate(final String vehicleRegNumber) {
+    return vehicleRegNumber != null && ParkingService
+        .isValidVehicleRegNumber(vehicleRegNumber.trim());
+  }
+
+  /**
+   * Reads a vehicle type, whatever its case.
+   *
+   * @param type the type read from the request
+   * @return the vehicle type, null if unknown
+   */
+  private static ParkingType parseParkingType(final String type) {
+    if (type == null) {
+      return null;
+    }
+    try {
+      return ParkingType.valueOf(type.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Sends the outcome of an entry, exit or quote with its status code.
+   *
+   * @param exchange the request and its response
+   * @param result the outcome given by the service
+   */
+  private static void sendResult(final HttpExchange exchange,
+                                 final ParkingResult result)
+      throws IOException {
+    StringBuilder json = new StringBuilder("{\"status\":")
+        .append(JsonUtil.quote(result.getStatus().name()))
+        .append(",\"plate\":")
+        .append(JsonUtil.quote(result.getVehicleRegNumber()));
+
+    if (result.getParkingSpot() != null) {
+      json.append(",\"spot\":").append(result.getParkingSpot().getNumber());
+    }
+    if (result.getInTime() != null) {
+      json.append(",\"inTime\":").append(JsonUtil.quote(result.getInTime()
+          .toString()));
+    }
+    if (result.getOutTime() != null) {
+      json.append(",\"outTime\":").append(JsonUtil.quote(result.getOutTime()
+          .toString()));
+      json.append(",\"fare\":").append(result.isFarePending() ? "null"
+          : String.valueOf(result.getFare()));
+    }
+    if (result.isSuccess()) {
+      json.append(",\"recurringUser\":").append(result.isRecurringUser());
+    }
+
+    send(exchange, getStatusCode(result.getStatus()), json.append('}')
+        .toString());
+  }
+
+  /**
+   * Maps an outcome of the service to an HTTP status code.
+   *
+   * @param status the outcome given by the service
+   * @return the HTTP status code
+   */
+  private static int getStatusCode(final ParkingResult.Status status) {
+    switch (status) {
+      case PARKED:
+        return CREATED;
+      case EXITED:
+      case QUOTED:
+        return HttpURLConnection.HTTP_OK;
+      case NO_SPOT_AVAILABLE:
+      case ALREADY_PARKED:
+        return HttpURLConnection.HTTP_CONFLICT;
+      case INVALID_PLATE:
+        return HttpURLConnection.HTTP_BAD_REQUEST;
+      case TICKET_NOT_FOUND:
+        return HttpURLConnection.HTTP_NOT_FOUND;
+      default:
+        return HttpURLConnection.HTTP_INTERNAL_ERROR;
+    }
+  }
+
+  /**
+   * Sends an error message.
+   *
+   * @param exchange the request and its response
+   * @param statusCode the HTTP status code
+   * @param message the description of the error
+   */
+  private static void sendError(final HttpExchange exchange,
+                                final int statusCode, final String message)
+      throws IOException {
+    send(exchange, statusCode, "{\"error\":" + JsonUtil.quote(message) + "}");
+  }
+
+  /**
+   * Sends a JSON response with its length, so that the connection can be
+   * kept alive for the next request of the gate.
+   *
+   * @param exchange the request and its response
+   * @param statusCode the HTTP status code
+   * @param json the response body
+   */
+  private static void send(final HttpExchange exchange, final int statusCode,
+                           final String json) throws IOException {
+    send(exchange, statusCode, "application/json; charset=utf-8", json);
+  }
+
+  /**
+   * Sends a response with its length.
+   *
+   * @param exchange the request and its response
+   * @param statusCode the HTTP status code
+   * @param contentType the media type of the body
+   * @param text the response body
+   */
+  private static void send(final HttpExchange exchange, final int statusCode,
+                           final String contentType, final String text)
+      throws IOException {
+    byte[] body = text.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    exchange.sendResponseHeaders(statusCode, body.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(body);
+    }
+  }
+
+  /**
+   * Handler of one endpoint, answering 405 to the other methods and 500 to
+   * unexpected errors.
+   */
+  private abstract static class RouteHandler implements HttpHandler {
+
+    /**
+     * HTTP method accepted by the endpoint.
+     */
+    private final String method;
+
+    /**
+     * Constructor of class RouteHandler.
+     *
+     * @param acceptedMethod the HTTP method accepted by the endpoint
+     */
+    RouteHandler(final String acceptedMethod) {
+      this.method = acceptedMethod;
+    }
+
+    /**
+     * Checks the method then serves the request.
+     *
+     * @param exchange the request and its response
+     */
+    @Override
+    public void handle(final HttpExchange exchange) throws IOException {
+      try {
+        if (!method.equals(exchange.getRequestMethod())) {
+          exchange.getResponseHeaders().set("Allow", method);
+          sendError(exchange, HttpURLConnection.HTTP_BAD_METHOD,
+              "Method not allowed");
+          return;
+        }
+        serve(exchange);
+      } catch (Exception e) {
+        LOGGER.error("Unable to process gate request "
+            + exchange.getRequestURI(), e);
+        // Nothing can be sent once the response headers are gone
+        if (exchange.getResponseCode() == -1) {
+          sendError(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR,
+              "Unexpected error");
+        }
+      } finally {
+        exchange.close();
+      }
+    }
+
+    /**
+     * Serves a request of the accepted method.
+     *
+     * @param exchange the request and its response
+     */
+    protected abstract void serve(HttpExchange exchange) throws IOException;
+  }
+
+  /**
+   * Creates the named worker threads of the server.
+   */
+  private static final class WorkerFactory implements ThreadFactory {
+
+    /**
+     * Number of the next worker.
+     */
+    private final AtomicInteger nextNumber = new AtomicInteger(1);
+
+    /**
+     * Creates a worker thread.
+     *
+     * @param task the task of the worker
+     * @return the worker thread
+     */
+    @Override
+    public Thread newThread(final Runnable task) {
+      Thread worker = new Thread(task, "gate-http-"
+          + nextNumber.getAndIncrement());
+      worker.setDaemon(true);
+      return worker;
+    }
+  }
+}
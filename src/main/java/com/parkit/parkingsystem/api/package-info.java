@@ -0,0 +1,6 @@
+/**
+ * Contains the network front ends of the application.
+ *
+ * @author laura
+ */
+package com.parkit.parkingsystem.api;
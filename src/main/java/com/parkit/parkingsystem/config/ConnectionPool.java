@@ -0,0 +1,783 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Bounded pool of reusable database connections.
+ * Connections handed out are proxies: closing them gives the physical
+ * connection back to the pool instead of closing the socket. Likewise,
+ * each physical connection keeps the statements prepared on it open:
+ * closing a prepared statement gives it back to its connection, so that
+ * preparing the same SQL again reuses it instead of parsing it again.
+ *
+ * @author Laura
+ */
+public class ConnectionPool implements AutoCloseable {
+
+  /**
+   * ConnectionPool logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger("ConnectionPool");
+
+  /**
+   * Time waited for a free connection.
+   */
+  private static final LatencyHistogram WAIT_TIME = MetricsRegistry
+      .getDefault().histogram("parkit_pool_wait_seconds",
+          "Time waited for a free pooled connection in seconds");
+
+  /**
+   * Number of borrows given up for lack of a free connection.
+   */
+  private static final Counter BORROW_TIMEOUTS = MetricsRegistry
+      .getDefault().counter("parkit_pool_timeouts_total",
+          "Number of borrows finding no free pooled connection in time");
+
+  /**
+   * Number of prepared statements reused instead of prepared again.
+   */
+  private static final Counter STATEMENT_CACHE_HITS = MetricsRegistry
+      .getDefault().counter("parkit_statement_cache_hits_total",
+          "Number of prepared statements reused from their connection");
+
+  /**
+   * Number of statements prepared for lack of one to reuse.
+   */
+  private static final Counter STATEMENT_CACHE_MISSES = MetricsRegistry
+      .getDefault().counter("parkit_statement_cache_misses_total",
+          "Number of statements prepared on their connection");
+
+  /**
+   * Maximum number of prepared statements kept open per connection, the
+   * least recently used being closed first.
+   */
+  private static final int STATEMENT_CACHE_SIZE = 64;
+
+  /**
+   * Idle connections unused for longer than this are validated before
+   * being handed out again.
+   */
+  private static final long VALIDATION_INTERVAL_MILLIS = 500;
+
+  /**
+   * Maximum time in seconds allowed for a connection validation.
+   */
+  private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+  /**
+   * Delay between two housekeeping runs (eviction and leak detection).
+   */
+  private static final long HOUSEKEEPING_PERIOD_MILLIS = 30000;
+
+  /**
+   * SQL state class of connection errors.
+   */
+  private static final String CONNECTION_ERROR_STATE = "08";
+
+  /**
+   * Opens a physical connection to the database.
+   */
+  @FunctionalInterface
+  public interface ConnectionFactory {
+
+    /**
+     * Opens a new physical connection.
+     *
+     * @return a new Connection instance
+     */
+    Connection create() throws ClassNotFoundException, SQLException;
+  }
+
+  /**
+   * Factory used to open physical connections.
+   */
+  private final ConnectionFactory connectionFactory;
+
+  /**
+   * Number of connections the pool tries to keep open.
+   */
+  private final int minSize;
+
+  /**
+   * Maximum number of connections borrowed at the same time.
+   */
+  private final int maxSize;
+
+  /**
+   * Idle time after which a connection above minSize is closed.
+   */
+  private final long idleTimeoutMillis;
+
+  /**
+   * Maximum time a caller waits for a connection.
+   */
+  private final long borrowTimeoutMillis;
+
+  /**
+   * Borrow time after which a connection is reported as leaked,
+   * 0 disables leak detection.
+   */
+  private final long leakThresholdMillis;
+
+  /**
+   * Idle connections, most recently used first.
+   */
+  private final BlockingDeque<PooledConnection> idleConnections =
+      new LinkedBlockingDeque<>();
+
+  /**
+   * Connections currently borrowed.
+   */
+  private final Set<PooledConnection> borrowedConnections =
+      ConcurrentHashMap.newKeySet();
+
+  /**
+   * Permits limiting the number of borrowed connections to maxSize.
+   */
+  private final Semaphore permits;
+
+  /**
+   * Runs idle eviction, minimum size top-up and leak detection.
+   */
+  private final ScheduledExecutorService housekeeper;
+
+  /**
+   * Tells if the pool was shut down.
+   */
+  private volatile boolean closed;
+
+  /**
+   * Constructor of class ConnectionPool.
+   * Initialize the pool settings and starts the housekeeping task.
+   *
+   * @param factory the factory opening physical connections
+   * @param min number of connections kept open
+   * @param max maximum number of borrowed connections
+   * @param idleTimeout idle time in ms before closing a surplus connection
+   * @param borrowTimeout maximum wait in ms for a free connection
+   * @param leakThreshold borrow time in ms before reporting a leak,
+   *     0 to disable leak detection
+   */
+  public ConnectionPool(final ConnectionFactory factory, final int min,
+                        final int max, final long idleTimeout,
+                        final long borrowTimeout, final long leakThreshold) {
+    if (min < 0 || max < 1 || min > max) {
+      throw new IllegalArgumentException("Invalid pool size: min=" + min
+          + ", max=" + max);
+    }
+    this.connectionFactory = factory;
+    this.minSize = min;
+    this.maxSize = max;
+    this.idleTimeoutMillis = idleTimeout;
+    this.borrowTimeoutMillis = borrowTimeout;
+    this.leakThresholdMillis = leakThreshold;
+    this.permits = new Semaphore(max, true);
+    this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "connection-pool-housekeeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    housekeeper.scheduleWithFixedDelay(this::housekeep, 0,
+        HOUSEKEEPING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Borrows a connection from the pool, opening a new one if no idle
+   * connection is available. The returned connection must be closed to be
+   * given back to the pool.
+   *
+   * @return a pooled Connection instance
+   */
+  public Connection borrow() throws ClassNotFoundException, SQLException {
+    if (closed) {
+      throw new SQLException("Connection pool is closed");
+    }
+
+    long start = System.nanoTime();
+    try {
+      boolean acquired = permits.tryAcquire(borrowTimeoutMillis,
+          TimeUnit.MILLISECONDS);
+      WAIT_TIME.recordSince(start);
+      if (!acquired) {
+        BORROW_TIMEOUTS.increment();
+        throw new SQLTimeoutException("No connection available after "
+            + borrowTimeoutMillis + " ms (max pool size " + maxSize + ")");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a connection", e);
+    }
+
+    try {
+      PooledConnection pooled = takeIdleConnection();
+      if (pooled == null) {
+        pooled = new PooledConnection(connectionFactory.create());
+      }
+      pooled.markBorrowed(leakThresholdMillis > 0 && LOGGER.isDebugEnabled());
+      borrowedConnections.add(pooled);
+      return pooled.newHandle();
+    } catch (ClassNotFoundException | SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Takes the most recently used idle connection, discarding those which
+   * fail validation.
+   *
+   * @return a valid idle connection or null if none is available
+   */
+  private PooledConnection takeIdleConnection() {
+    PooledConnection pooled;
+
+    while ((pooled = idleConnections.pollFirst()) != null) {
+      if (System.currentTimeMillis() - pooled.lastUsed
+          < VALIDATION_INTERVAL_MILLIS || isValid(pooled)) {
+        return pooled;
+      }
+      LOGGER.debug("Discarding invalid pooled connection");
+      closeQuietly(pooled);
+    }
+
+    return null;
+  }
+
+  /**
+   * Checks that a connection is still usable.
+   *
+   * @param pooled the connection to check
+   * @return true if the connection answered in time
+   */
+  private boolean isValid(final PooledConnection pooled) {
+    try {
+      return pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Gives a borrowed connection back to the pool. Pending transactions are
+   * rolled back and broken connections are closed.
+   *
+   * @param pooled the connection given back
+   */
+  private void release(final PooledConnection pooled) {
+    borrowedConnections.remove(pooled);
+
+    try {
+      boolean reusable = !closed && !pooled.broken
+          && !pooled.connection.isClosed();
+      if (reusable && !pooled.connection.getAutoCommit()) {
+        pooled.connection.rollback();
+        pooled.connection.setAutoCommit(true);
+      }
+      if (reusable) {
+        pooled.lastUsed = System.currentTimeMillis();
+        idleConnections.offerFirst(pooled);
+      } else {
+        closeQuietly(pooled);
+      }
+    } catch (SQLException e) {
+      LOGGER.debug("Discarding connection that failed to reset", e);
+      closeQuietly(pooled);
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * Closes surplus idle connections, opens connections up to minSize and
+   * reports connections borrowed for too long.
+   */
+  private void housekeep() {
+    try {
+      long now = System.currentTimeMillis();
+
+      Iterator<PooledConnection> iterator = idleConnections
+          .descendingIterator();
+      while (iterator.hasNext() && getTotalCount() > minSize) {
+        PooledConnection pooled = iterator.next();
+        if (now - pooled.lastUsed > idleTimeoutMillis
+            && idleConnections.remove(pooled)) {
+          LOGGER.debug("Evicting idle connection");
+          closeQuietly(pooled);
+        }
+      }
+
+      while (!closed && getTotalCount() < minSize) {
+        idleConnections.offerLast(new PooledConnection(
+            connectionFactory.create()));
+      }
+
+      if (leakThresholdMillis > 0) {
+        for (PooledConnection pooled : borrowedConnections) {
+          if (!pooled.leakReported
+              && now - pooled.borrowedAt > leakThresholdMillis) {
+            pooled.leakReported = true;
+            LOGGER.warn("Possible connection leak: connection borrowed by "
+                + "thread {} for {} ms", pooled.borrower, now
+                - pooled.borrowedAt, pooled.borrowSite);
+          }
+        }
+      }
+    } catch (Exception e) {
+      LOGGER.error("Error during connection pool housekeeping", e);
+    }
+  }
+
+  /**
+   * Getter of the number of idle connections.
+   *
+   * @return the number of open connections waiting to be borrowed
+   */
+  public int getIdleCount() {
+    return idleConnections.size();
+  }
+
+  /**
+   * Getter of the number of borrowed connections.
+   *
+   * @return the number of connections currently in use
+   */
+  public int getActiveCount() {
+    return borrowedConnections.size();
+  }
+
+  /**
+   * Getter of the number of open connections.
+   *
+   * @return the number of idle and borrowed connections
+   */
+  private int getTotalCount() {
+    return idleConnections.size() + borrowedConnections.size();
+  }
+
+  /**
+   * Shuts down the pool and closes idle connections. Borrowed connections
+   * are closed when given back.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    housekeeper.shutdownNow();
+
+    PooledConnection pooled;
+    while ((pooled = idleConnections.pollFirst()) != null) {
+      closeQuietly(pooled);
+    }
+  }
+
+  /**
+   * Closes a physical connection and the statements it kept, ignoring
+   * errors.
+   *
+   * @param pooled the connection to close
+   */
+  private static void closeQuietly(final PooledConnection pooled) {
+    pooled.closeStatements();
+    try {
+      pooled.connection.close();
+    } catch (SQLException e) {
+      LOGGER.debug("Error closing pooled connection", e);
+    }
+  }
+
+  /**
+   * A physical connection and its pool bookkeeping.
+   */
+  private final class PooledConnection {
+
+    /**
+     * The physical connection.
+     */
+    private final Connection connection;
+
+    /**
+     * Time at which the connection was last given back.
+     */
+    private volatile long lastUsed = System.currentTimeMillis();
+
+    /**
+     * Time at which the connection was borrowed.
+     */
+    private volatile long borrowedAt;
+
+    /**
+     * Name of the thread which borrowed the connection, kept for leak
+     * reports.
+     */
+    private volatile String borrower;
+
+    /**
+     * Stack trace of the borrower, kept for leak reports when the pool
+     * logger is at debug level, null otherwise.
+     */
+    private volatile Throwable borrowSite;
+
+    /**
+     * Tells if a leak was already reported for the current borrow.
+     */
+    private volatile boolean leakReported;
+
+    /**
+     * Tells if a connection error occurred while borrowed.
+     */
+    private volatile boolean broken;
+
+    /**
+     * Prepared statements given back, by SQL and generated keys flag, the
+     * least recently used first.
+     */
+    private final Map<String, PreparedStatement> statements =
+        new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Tells if the statements were closed with the connection, so that
+     * statements given back later are closed too.
+     */
+    private boolean statementsClosed;
+
+    /**
+     * Constructor of class PooledConnection.
+     *
+     * @param con the physical connection
+     */
+    private PooledConnection(final Connection con) {
+      this.connection = con;
+    }
+
+    /**
+     * Takes a statement given back for the same SQL, so that it is not
+     * handed out twice.
+     *
+     * @param key the SQL and generated keys flag of the statement
+     * @return the PreparedStatement instance, or null if none is kept
+     */
+    private synchronized PreparedStatement takeStatement(final String key) {
+      return statements.remove(key);
+    }
+
+    /**
+     * Keeps a statement for the next borrower preparing its SQL, closing
+     * it instead if one is already kept or the connection is closed. The
+     * least recently used statement is closed beyond the cache size.
+     *
+     * @param key the SQL and generated keys flag of the statement
+     * @param statement the statement given back, its parameters cleared
+     */
+    private void giveBackStatement(final String key,
+                                   final PreparedStatement statement) {
+      List<PreparedStatement> evicted = new ArrayList<>();
+      synchronized (this) {
+        if (statementsClosed || statements.containsKey(key)) {
+          evicted.add(statement);
+        } else {
+          statements.put(key, statement);
+          Iterator<PreparedStatement> iterator = statements.values()
+              .iterator();
+          while (statements.size() > STATEMENT_CACHE_SIZE) {
+            evicted.add(iterator.next());
+            iterator.remove();
+          }
+        }
+      }
+      evicted.forEach(ConnectionPool::closeQuietly);
+    }
+
+    /**
+     * Closes the statements kept, before the connection is closed.
+     */
+    private void closeStatements() {
+      List<PreparedStatement> kept;
+      synchronized (this) {
+        statementsClosed = true;
+        kept = new ArrayList<>(statements.values());
+        statements.clear();
+      }
+      kept.forEach(ConnectionPool::closeQuietly);
+    }
+
+    /**
+     * Records the borrow time and the borrowing thread. Capturing the stack
+     * trace of the borrower costs more than the borrow itself, so it is
+     * only done when asked for.
+     *
+     * @param trackBorrower true to record the borrower stack trace
+     */
+    private void markBorrowed(final boolean trackBorrower) {
+      borrowedAt = System.currentTimeMillis();
+      borrower = Thread.currentThread().getName();
+      borrowSite = trackBorrower ? new Throwable("Connection borrowed here")
+          : null;
+      leakReported = false;
+    }
+
+    /**
+     * Creates the proxy handed out to the borrower.
+     *
+     * @return a Connection proxy whose close() gives the connection back
+     */
+    private Connection newHandle() {
+      return (Connection) Proxy.newProxyInstance(
+          ConnectionPool.class.getClassLoader(),
+          new Class<?>[] {Connection.class}, new Handle(this));
+    }
+  }
+
+  /**
+   * Invocation handler of a borrowed connection proxy.
+   */
+  private final class Handle implements InvocationHandler {
+
+    /**
+     * The pooled connection behind this handle.
+     */
+    private final PooledConnection pooled;
+
+    /**
+     * Tells if the borrower already closed this handle.
+     */
+    private boolean handleClosed;
+
+    /**
+     * Constructor of class Handle.
+     *
+     * @param pooledConnection the pooled connection behind this handle
+     */
+    private Handle(final PooledConnection pooledConnection) {
+      this.pooled = pooledConnection;
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method,
+                         final Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!handleClosed) {
+            handleClosed = true;
+            release(pooled);
+          }
+          return null;
+
+        case "isClosed":
+          return handleClosed || pooled.connection.isClosed();
+
+        case "equals":
+          return proxy == args[0];
+
+        case "hashCode":
+          return System.identityHashCode(proxy);
+
+        case "toString":
+          return "Pooled" + pooled.connection;
+
+        default:
+          break;
+      }
+
+      if (handleClosed) {
+        throw new SQLException("Connection is closed");
+      }
+
+      if ("prepareStatement".equals(method.getName()) && (args.length == 1
+          || args.length == 2 && method.getParameterTypes()[1] == int.class)) {
+        return prepareStatement(method, args);
+      }
+      return invokeOn(pooled, pooled.connection, method, args);
+    }
+
+    /**
+     * Reuses the statement kept for the SQL, or prepares it.
+     *
+     * @param method prepareStatement(sql) or prepareStatement(sql,
+     *     autoGeneratedKeys)
+     * @param args the SQL and, if given, the generated keys flag
+     * @return a PreparedStatement proxy whose close() gives the statement
+     *     back to the connection
+     */
+    private PreparedStatement prepareStatement(final Method method,
+                                               final Object[] args)
+        throws Throwable {
+      String key = args.length == 1 ? (String) args[0]
+          : args[1] + ":" + args[0];
+
+      PreparedStatement statement = pooled.takeStatement(key);
+      if (statement != null) {
+        STATEMENT_CACHE_HITS.increment();
+      } else {
+        STATEMENT_CACHE_MISSES.increment();
+        statement = (PreparedStatement) invokeOn(pooled, pooled.connection,
+            method, args);
+      }
+
+      return (PreparedStatement) Proxy.newProxyInstance(
+          ConnectionPool.class.getClassLoader(),
+          new Class<?>[] {PreparedStatement.class},
+          new StatementHandle(pooled, key, statement));
+    }
+  }
+
+  /**
+   * Invocation handler of a prepared statement proxy.
+   */
+  private final class StatementHandle implements InvocationHandler {
+
+    /**
+     * The pooled connection the statement was prepared on.
+     */
+    private final PooledConnection pooled;
+
+    /**
+     * The SQL and generated keys flag of the statement.
+     */
+    private final String key;
+
+    /**
+     * The physical statement.
+     */
+    private final PreparedStatement statement;
+
+    /**
+     * Tells if the borrower already closed this handle.
+     */
+    private boolean handleClosed;
+
+    /**
+     * Constructor of class StatementHandle.
+     *
+     * @param pooledConnection the connection the statement was prepared on
+     * @param statementKey the SQL and generated keys flag of the statement
+     * @param physicalStatement the physical statement
+     */
+    private StatementHandle(final PooledConnection pooledConnection,
+                            final String statementKey,
+                            final PreparedStatement physicalStatement) {
+      this.pooled = pooledConnection;
+      this.key = statementKey;
+      this.statement = physicalStatement;
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method,
+                         final Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!handleClosed) {
+            handleClosed = true;
+            giveBack();
+          }
+          return null;
+
+        case "isClosed":
+          return handleClosed || statement.isClosed();
+
+        case "equals":
+          return proxy == args[0];
+
+        case "hashCode":
+          return System.identityHashCode(proxy);
+
+        case "toString":
+          return "Pooled" + statement;
+
+        default:
+          break;
+      }
+
+      if (handleClosed) {
+        throw new SQLException("Statement is closed");
+      }
+
+      return invokeOn(pooled, statement, method, args);
+    }
+
+    /**
+     * Clears the parameters and batch of the statement and gives it back
+     * to its connection, or closes it if the connection broke or the
+     * statement cannot be cleared.
+     */
+    private void giveBack() {
+      if (pooled.broken) {
+        closeQuietly(statement);
+        return;
+      }
+
+      try {
+        statement.clearParameters();
+        statement.clearBatch();
+        statement.clearWarnings();
+      } catch (SQLException e) {
+        LOGGER.debug("Closing statement that failed to reset", e);
+        closeQuietly(statement);
+        return;
+      }
+      pooled.giveBackStatement(key, statement);
+    }
+  }
+
+  /**
+   * Calls a method on a physical connection or statement, marking the
+   * connection broken if the call fails on a connection error.
+   *
+   * @param pooled the pooled connection called or whose statement is called
+   * @param target the physical connection or statement
+   * @param method the method called
+   * @param args the arguments of the call
+   * @return the result of the call
+   */
+  private static Object invokeOn(final PooledConnection pooled,
+                                 final Object target, final Method method,
+                                 final Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException && ((SQLException) cause)
+          .getSQLState() != null && ((SQLException) cause).getSQLState()
+          .startsWith(CONNECTION_ERROR_STATE)) {
+        pooled.broken = true;
+      }
+      throw cause;
+    }
+  }
+
+  /**
+   * Closes a physical statement, ignoring errors.
+   *
+   * @param statement the statement to close
+   */
+  private static void closeQuietly(final PreparedStatement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      LOGGER.debug("Error closing prepared statement", e);
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package com.parkit.parkingsystem.config;
 
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
@@ -8,7 +10,9 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * Creates a connection to database.
+ * Creates a connection to database: the production MySQL database by
+ * default, or any database of a JDBC driver and URL, such as an embedded
+ * H2 database running in the application process.
  *
  * @author Laura
  */
@@ -20,20 +24,314 @@ public class DataBaseConfig {
   private static final Logger LOGGER = LogManager.getLogger("DataBaseConfig");
 
   /**
-   * Establishes a connection to MySQL database.
+   * JDBC driver of MySQL.
+   */
+  public static final String MYSQL_DRIVER = "com.mysql.cj.jdbc.Driver";
+
+  /**
+   * JDBC driver of the embedded H2 database.
+   */
+  public static final String H2_DRIVER = "org.h2.Driver";
+
+  /**
+   * Options of every embedded H2 database: MySQL compatibility, so that the
+   * queries of DataBaseConstants and the migration scripts run unchanged,
+   * and no closing by H2 on JVM exit, as the database is closed with the
+   * connection pool once the shutdown hooks of the application are done.
+   */
+  public static final String H2_OPTIONS =
+      ";MODE=MySQL;DB_CLOSE_ON_EXIT=FALSE";
+
+  /**
+   * URL of the production MySQL database. Cursor fetch makes a statement
+   * with a fetch size read its rows by batches instead of loading the whole
+   * result in memory.
+   */
+  private static final String PROD_URL = "jdbc:mysql://localhost:3306/prod?"
+      + "serverTimezone=Europe/Paris&useCursorFetch=true";
+
+  /**
+   * Number of connections kept open in the pool.
+   */
+  private static final int POOL_MIN_SIZE = 2;
+
+  /**
+   * Maximum number of connections borrowed at the same time.
+   */
+  private static final int POOL_MAX_SIZE = 10;
+
+  /**
+   * Idle time (10 minutes) after which a surplus connection is closed.
+   */
+  private static final long POOL_IDLE_TIMEOUT_MILLIS = 600000;
+
+  /**
+   * Maximum wait for a free connection.
+   */
+  private static final long POOL_BORROW_TIMEOUT_MILLIS = 5000;
+
+  /**
+   * Borrow time after which a connection is reported as leaked.
+   */
+  private static final long POOL_LEAK_THRESHOLD_MILLIS = 60000;
+
+  /**
+   * Pool of connections, created on first use.
+   */
+  private volatile ConnectionPool connectionPool;
+
+  /**
+   * Class name of the JDBC driver, loaded before connecting since the
+   * driver lists of an assembled jar may not name every driver.
+   */
+  private final String driver;
+
+  /**
+   * JDBC URL of the database.
+   */
+  private final String url;
+
+  /**
+   * User connecting to the database.
+   */
+  private final String user;
+
+  /**
+   * Password of the user.
+   */
+  private final String password;
+
+  /**
+   * Name of this database among the replicas of a primary, labelling the
+   * metrics of its pool, null for a primary database.
+   */
+  private String replicaName;
+
+  /**
+   * Monitor of the read replicas of this database, null if it has none.
+   */
+  private volatile ReplicaMonitor replicaMonitor;
+
+  /**
+   * Constructor of class DataBaseConfig for the production MySQL database.
+   */
+  public DataBaseConfig() {
+    this(MYSQL_DRIVER, PROD_URL, "root", "rootroot");
+  }
+
+  /**
+   * Constructor of class DataBaseConfig.
+   *
+   * @param jdbcDriver the class name of the JDBC driver
+   * @param jdbcUrl the JDBC URL of the database
+   * @param dbUser the user connecting to the database
+   * @param dbPassword the password of the user
+   */
+  public DataBaseConfig(final String jdbcDriver, final String jdbcUrl,
+                        final String dbUser, final String dbPassword) {
+    this.driver = jdbcDriver;
+    this.url = jdbcUrl;
+    this.user = dbUser;
+    this.password = dbPassword;
+  }
+
+  /**
+   * Creates the configuration of an embedded H2 database in MySQL
+   * compatibility mode, run in the application process.
+   *
+   * @param file the path of the database file, without its .mv.db
+   *     extension, or null to keep the database in memory until the JVM
+   *     stops
+   * @return the DataBaseConfig instance
+   */
+  public static DataBaseConfig embedded(final String file) {
+    String location = file != null ? "file:" + Paths.get(file)
+        .toAbsolutePath() : "mem:parkit;DB_CLOSE_DELAY=-1";
+    return new DataBaseConfig(H2_DRIVER, "jdbc:h2:" + location + H2_OPTIONS,
+        "sa", "");
+  }
+
+  /**
+   * Borrows a connection to the database from the connection pool.
+   * Closing the returned connection gives it back to the pool.
    *
    * @return a Connection instance
    */
   public Connection getConnection() throws ClassNotFoundException,
       SQLException {
+    return getConnectionPool().borrow();
+  }
+
+  /**
+   * Borrows a connection to a read replica of this database within the
+   * tolerated lag, for history reads that may miss the latest writes.
+   *
+   * @return a Connection instance, or null if no replica is set, within
+   *     the tolerated lag or able to give a connection
+   */
+  public Connection getReplicaConnection() {
+    ReplicaMonitor monitor = replicaMonitor;
+    DataBaseConfig replica = monitor != null ? monitor.pickReplica() : null;
+    if (replica == null) {
+      return null;
+    }
+
+    try {
+      return replica.getConnection();
+    } catch (ClassNotFoundException | SQLException e) {
+      LOGGER.warn("Unable to read a replica, reading the primary", e);
+      monitor.markUnavailable(replica);
+      return null;
+    }
+  }
+
+  /**
+   * Setter of the monitor of the read replicas of this database. Once set,
+   * history reads go to the replicas within the tolerated lag after the
+   * monitor is started, and the monitor is closed with this database.
+   *
+   * @param monitor the monitor of the replicas, or null to read this
+   *     database only
+   */
+  public void setReplicaMonitor(final ReplicaMonitor monitor) {
+    this.replicaMonitor = monitor;
+  }
+
+  /**
+   * Getter of the monitor of the read replicas of this database.
+   *
+   * @return the ReplicaMonitor instance, or null if it has no replica
+   */
+  public ReplicaMonitor getReplicaMonitor() {
+    return replicaMonitor;
+  }
+
+  /**
+   * Setter of the name of this database among the replicas of a primary.
+   *
+   * @param name the name labelling the metrics of its pool
+   */
+  void setReplicaName(final String name) {
+    this.replicaName = name;
+  }
+
+  /**
+   * Starts a unit of work on a connection borrowed from the pool.
+   *
+   * @return a UnitOfWork instance, to be closed once done
+   */
+  public UnitOfWork beginUnitOfWork() throws ClassNotFoundException,
+      SQLException {
+    Connection connection = getConnection();
+
+    try {
+      return new UnitOfWork(connection);
+    } catch (SQLException e) {
+      connection.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Getter of the connection pool, created on first call.
+   *
+   * @return the ConnectionPool instance of this configuration
+   */
+  public ConnectionPool getConnectionPool() {
+    ConnectionPool pool = connectionPool;
+
+    if (pool == null) {
+      synchronized (this) {
+        pool = connectionPool;
+        if (pool == null) {
+          pool = new ConnectionPool(this::openConnection, POOL_MIN_SIZE,
+              POOL_MAX_SIZE, POOL_IDLE_TIMEOUT_MILLIS,
+              POOL_BORROW_TIMEOUT_MILLIS, POOL_LEAK_THRESHOLD_MILLIS);
+          exportPoolMetrics(pool, replicaName);
+          connectionPool = pool;
+        }
+      }
+    }
+
+    return pool;
+  }
+
+  /**
+   * Exports the connection counts of a new pool, replacing those of the
+   * pool created before for the same database. Each database is labelled
+   * with its URL, so that the pools of several facilities are told apart.
+   *
+   * @param pool the connection pool created
+   * @param replica the name of the replica of the pool, null for a primary
+   */
+  private void exportPoolMetrics(final ConnectionPool pool,
+                                 final String replica) {
+    MetricsRegistry registry = MetricsRegistry.getDefault();
+    String help = "Number of open pooled connections";
+    String database = getDatabaseName();
+    if (replica == null) {
+      registry.gauge("parkit_pool_connections", help, pool::getIdleCount,
+          "state", "idle", "database", database);
+      registry.gauge("parkit_pool_connections", help, pool::getActiveCount,
+          "state", "active", "database", database);
+    } else {
+      registry.gauge("parkit_pool_connections", help, pool::getIdleCount,
+          "state", "idle", "database", database, "replica", replica);
+      registry.gauge("parkit_pool_connections", help, pool::getActiveCount,
+          "state", "active", "database", database, "replica", replica);
+    }
+  }
+
+  /**
+   * Gets the name of the database labelling the metrics of its pool: its
+   * JDBC URL without the credentials or options it may carry.
+   *
+   * @return the JDBC URL of the database, up to its options
+   */
+  private String getDatabaseName() {
+    String name = url.split("[;?]", 2)[0];
+    int hostStart = name.indexOf("//");
+    int credentialsEnd = name.indexOf('@');
+    if (hostStart >= 0 && credentialsEnd > hostStart) {
+      name = name.substring(0, hostStart + 2)
+          + name.substring(credentialsEnd + 1);
+    }
+    return name;
+  }
+
+  /**
+   * Establishes a new physical connection to the database. MySQL prepares
+   * statements on the server, so that the statements kept open by the
+   * connection pool are parsed once per connection on both sides.
+   *
+   * @return a Connection instance
+   */
+  protected Connection openConnection() throws ClassNotFoundException,
+      SQLException {
     LOGGER.debug("Create DB connection");
-    Class.forName("com.mysql.cj.jdbc.Driver");
+    Class.forName(driver);
 
     Properties info = new Properties();
-    info.put("user", "root");
-    info.put("password", "rootroot");
+    info.put("user", user);
+    info.put("password", password);
+    if (MYSQL_DRIVER.equals(driver)) {
+      info.put("useServerPrepStmts", "true");
+    }
 
-    return DriverManager.getConnection("jdbc:mysql://localhost:3306/prod?"
-    + "serverTimezone=Europe/Paris", info);
+    return DriverManager.getConnection(url, info);
+  }
+
+  /**
+   * Closes the monitor of the replicas, if any, then the connection pool,
+   * if it was created.
+   */
+  public synchronized void shutdown() {
+    if (replicaMonitor != null) {
+      replicaMonitor.close();
+    }
+    if (connectionPool != null) {
+      connectionPool.close();
+      connectionPool = null;
+    }
   }
 }
@@ -0,0 +1,236 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.DataBaseConstants;
+import com.parkit.parkingsystem.constants.DataBaseParameters;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Measures how far the read replicas of a primary database lag behind it,
+ * and picks a replica within the tolerated lag for history reads. At each
+ * check, a heartbeat is written on the primary with the clock of the
+ * primary, then read back on each replica: the lag of a replica is the
+ * time between the heartbeat of the primary and the one it has received,
+ * whatever the replication used. A replica that cannot be read is not
+ * picked until a later check reads it again.
+ *
+ * @author Laura
+ */
+public class ReplicaMonitor implements AutoCloseable {
+
+  /**
+   * ReplicaMonitor logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger("ReplicaMonitor");
+
+  /**
+   * Lag of a replica not measured yet or that could not be read.
+   */
+  private static final long UNKNOWN_LAG = Long.MAX_VALUE;
+
+  /**
+   * Milliseconds in a second, for the exported lags.
+   */
+  private static final double MILLIS_PER_SECOND = 1000.0;
+
+  /**
+   * Configuration of the primary database.
+   */
+  private final DataBaseConfig primary;
+
+  /**
+   * Configurations of the read replicas.
+   */
+  private final List<DataBaseConfig> replicas;
+
+  /**
+   * Largest lag of a replica still read, in milliseconds.
+   */
+  private final long maxLagMillis;
+
+  /**
+   * Time between two checks, in milliseconds.
+   */
+  private final long periodMillis;
+
+  /**
+   * Lag of each replica measured by the last check, in milliseconds.
+   */
+  private final AtomicLongArray lagMillis;
+
+  /**
+   * Index of the next replica tried, so that reads are spread over the
+   * replicas in turn.
+   */
+  private final AtomicInteger nextReplica = new AtomicInteger();
+
+  /**
+   * Thread running the checks, null while stopped.
+   */
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * Constructor of class ReplicaMonitor. Replicas are not read until a
+   * first check has measured their lag.
+   *
+   * @param primaryConfig the configuration of the primary database
+   * @param replicaConfigs the configurations of the read replicas
+   * @param maxLag the largest lag of a replica still read, in milliseconds
+   * @param period the time between two checks, in milliseconds
+   */
+  public ReplicaMonitor(final DataBaseConfig primaryConfig,
+                        final List<DataBaseConfig> replicaConfigs,
+                        final long maxLag, final long period) {
+    this.primary = primaryConfig;
+    this.replicas = new ArrayList<>(replicaConfigs);
+    this.maxLagMillis = maxLag;
+    this.periodMillis = period;
+    this.lagMillis = new AtomicLongArray(replicas.size());
+
+    MetricsRegistry registry = MetricsRegistry.getDefault();
+    for (int i = 0; i < replicas.size(); i++) {
+      int index = i;
+      String name = "replica" + (i + 1);
+      replicas.get(i).setReplicaName(name);
+      lagMillis.set(i, UNKNOWN_LAG);
+      registry.gauge("parkit_replica_lag_seconds", "Lag of a read replica "
+          + "behind the primary database, NaN if unknown", () -> {
+            long lag = lagMillis.get(index);
+            return lag == UNKNOWN_LAG ? Double.NaN : lag / MILLIS_PER_SECOND;
+          }, "replica", name);
+    }
+  }
+
+  /**
+   * Starts checking the replicas at a fixed period, from now.
+   */
+  public synchronized void start() {
+    if (scheduler != null) {
+      return;
+    }
+
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "replica-monitor");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(this::check, 0, periodMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Writes a heartbeat on the primary database, then measures the lag of
+   * each replica. If the primary cannot be written, the lags of the last
+   * check are kept.
+   */
+  public void check() {
+    long primaryBeat;
+    try (Connection con = primary.getConnection()) {
+      try (PreparedStatement ps = con.prepareStatement(DataBaseConstants
+          .UPDATE_REPLICATION_HEARTBEAT)) {
+        ps.executeUpdate();
+      }
+      primaryBeat = readHeartbeat(con);
+    } catch (Exception ex) {
+      LOGGER.error("Unable to write the replication heartbeat", ex);
+      return;
+    }
+
+    for (int i = 0; i < replicas.size(); i++) {
+      try (Connection con = replicas.get(i).getConnection()) {
+        lagMillis.set(i, Math.max(0, primaryBeat - readHeartbeat(con)));
+      } catch (Exception ex) {
+        LOGGER.warn("Unable to read the replication heartbeat of replica {}",
+            i + 1, ex);
+        lagMillis.set(i, UNKNOWN_LAG);
+      }
+    }
+  }
+
+  /**
+   * Reads the replication heartbeat of a database.
+   *
+   * @param con a connection to the database
+   * @return the time of the heartbeat, in milliseconds of the primary clock
+   */
+  private static long readHeartbeat(final Connection con)
+      throws SQLException {
+    try (PreparedStatement ps = con.prepareStatement(DataBaseConstants
+        .GET_REPLICATION_HEARTBEAT);
+         ResultSet rs = ps.executeQuery()) {
+      if (!rs.next()) {
+        throw new SQLException("No replication heartbeat");
+      }
+      return rs.getTimestamp(DataBaseParameters.ONE).getTime();
+    }
+  }
+
+  /**
+   * Picks the next replica within the tolerated lag, in turn.
+   *
+   * @return the configuration of the replica, or null if every replica
+   *     lags too far behind or could not be read
+   */
+  public DataBaseConfig pickReplica() {
+    int start = nextReplica.getAndIncrement();
+
+    for (int i = 0; i < replicas.size(); i++) {
+      int index = Math.floorMod(start + i, replicas.size());
+      if (lagMillis.get(index) <= maxLagMillis) {
+        return replicas.get(index);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Stops reading a replica that failed to give a connection, until the
+   * next check reads it again.
+   *
+   * @param replica the configuration of the replica
+   */
+  public void markUnavailable(final DataBaseConfig replica) {
+    int index = replicas.indexOf(replica);
+    if (index >= 0) {
+      lagMillis.set(index, UNKNOWN_LAG);
+    }
+  }
+
+  /**
+   * Getter of the lag of a replica measured by the last check.
+   *
+   * @param index the index of the replica, from 0
+   * @return the lag in milliseconds, Long.MAX_VALUE if unknown
+   */
+  public long getLagMillis(final int index) {
+    return lagMillis.get(index);
+  }
+
+  /**
+   * Stops the checks and closes the connection pools of the replicas,
+   * which are no longer read until the monitor is started again.
+   */
+  @Override
+  public synchronized void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+    for (int i = 0; i < replicas.size(); i++) {
+      lagMillis.set(i, UNKNOWN_LAG);
+      replicas.get(i).shutdown();
+    }
+  }
+}
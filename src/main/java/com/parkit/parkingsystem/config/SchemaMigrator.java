@@ -0,0 +1,208 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.DataBaseConstants;
+import com.parkit.parkingsystem.constants.DataBaseParameters;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Brings the database schema up to date by applying, in order, the
+ * migration scripts not yet recorded in the schema_version table.
+ * Scripts are named V{version}__{description}.sql and stored under
+ * db/migration in the classpath.
+ *
+ * @author Laura
+ */
+public class SchemaMigrator {
+
+  /**
+   * SchemaMigrator logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger("SchemaMigrator");
+
+  /**
+   * Classpath folder of the migration scripts.
+   */
+  private static final String MIGRATION_PATH = "db/migration/";
+
+  /**
+   * Migration scripts, in version order.
+   */
+  private static final String[] MIGRATIONS = {
+      "V1__baseline.sql",
+      "V2__hot_path_indexes.sql",
+      "V3__ticket_parking_type.sql",
+      "V4__open_ticket_index.sql",
+      "V5__journal_checkpoint.sql",
+      "V6__ticket_archive.sql",
+      "V7__replication_heartbeat.sql"
+  };
+
+  /**
+   * Configuration of the database to migrate.
+   */
+  private final DataBaseConfig dataBaseConfig;
+
+  /**
+   * Constructor of class SchemaMigrator.
+   *
+   * @param config configuration of the database to migrate
+   */
+  public SchemaMigrator(final DataBaseConfig config) {
+    this.dataBaseConfig = config;
+  }
+
+  /**
+   * Applies every migration newer than the current schema version.
+   *
+   * @return the schema version once migrated
+   */
+  public int migrate() throws ClassNotFoundException, SQLException,
+      IOException {
+    try (Connection con = dataBaseConfig.getConnection()) {
+      try (Statement statement = con.createStatement()) {
+        statement.execute(DataBaseConstants.CREATE_SCHEMA_VERSION);
+      }
+
+      int currentVersion = getCurrentVersion(con);
+
+      for (String migration : MIGRATIONS) {
+        int version = getVersion(migration);
+        if (version > currentVersion) {
+          apply(con, migration, version);
+          currentVersion = version;
+        }
+      }
+
+      LOGGER.info("Database schema is at version " + currentVersion);
+      return currentVersion;
+    }
+  }
+
+  /**
+   * Reads the latest applied migration version.
+   *
+   * @param con the connection to the database
+   * @return the current schema version, 0 if no migration was applied
+   */
+  private int getCurrentVersion(final Connection con) throws SQLException {
+    try (PreparedStatement ps = con.prepareStatement(DataBaseConstants
+            .GET_SCHEMA_VERSION);
+         ResultSet rs = ps.executeQuery()) {
+      return rs.next() ? rs.getInt(DataBaseParameters.ONE) : 0;
+    }
+  }
+
+  /**
+   * Runs the statements of a migration script and records its version.
+   * Statements and version are committed together when the database
+   * supports transactional schema changes.
+   *
+   * @param con the connection to the database
+   * @param migration the migration script name
+   * @param version the migration version
+   */
+  private void apply(final Connection con, final String migration,
+                     final int version) throws SQLException, IOException {
+    LOGGER.info("Applying schema migration " + migration);
+    con.setAutoCommit(false);
+
+    try {
+      try (Statement statement = con.createStatement()) {
+        for (String sql : readStatements(MIGRATION_PATH + migration)) {
+          statement.execute(sql);
+        }
+      }
+
+      try (PreparedStatement ps = con.prepareStatement(DataBaseConstants
+          .SAVE_SCHEMA_VERSION)) {
+        ps.setInt(DataBaseParameters.ONE, version);
+        ps.setString(DataBaseParameters.TWO, getDescription(migration));
+        ps.setObject(DataBaseParameters.THREE, LocalDateTime.now());
+        ps.executeUpdate();
+      }
+
+      con.commit();
+    } catch (SQLException | IOException e) {
+      con.rollback();
+      throw e;
+    } finally {
+      con.setAutoCommit(true);
+    }
+  }
+
+  /**
+   * Reads the statements of a script, ignoring comment lines. Statements
+   * end with a semicolon at the end of a line.
+   *
+   * @param resource the classpath location of the script
+   * @return the statements of the script
+   */
+  static List<String> readStatements(final String resource)
+      throws IOException {
+    List<String> statements = new ArrayList<>();
+    InputStream input = SchemaMigrator.class.getClassLoader()
+        .getResourceAsStream(resource);
+
+    if (input == null) {
+      throw new IOException("Migration script not found: " + resource);
+    }
+
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+        input, StandardCharsets.UTF_8))) {
+      StringBuilder statement = new StringBuilder();
+      String line;
+
+      while ((line = reader.readLine()) != null) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+          continue;
+        }
+        statement.append(trimmed);
+        if (trimmed.endsWith(";")) {
+          statement.setLength(statement.length() - 1);
+          statements.add(statement.toString());
+          statement.setLength(0);
+        } else {
+          statement.append(' ');
+        }
+      }
+    }
+
+    return statements;
+  }
+
+  /**
+   * Extracts the version from a migration script name.
+   *
+   * @param migration the migration script name
+   * @return the version number
+   */
+  private static int getVersion(final String migration) {
+    return Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+  }
+
+  /**
+   * Extracts the description from a migration script name.
+   *
+   * @param migration the migration script name
+   * @return the description, with underscores replaced by spaces
+   */
+  private static String getDescription(final String migration) {
+    return migration.substring(migration.indexOf("__") + 2,
+        migration.lastIndexOf('.')).replace('_', ' ');
+  }
+}
@@ -0,0 +1,105 @@
+package com.parkit.parkingsystem.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs several DAO operations on one connection and in one transaction.
+ * DAO methods given a unit of work use its connection instead of borrowing
+ * their own, and nothing is written until commit() is called. Closing a
+ * unit of work that was not committed rolls it back.
+ *
+ * @author Laura
+ */
+public class UnitOfWork implements AutoCloseable {
+
+  /**
+   * UnitOfWork logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger("UnitOfWork");
+
+  /**
+   * The connection running the transaction.
+   */
+  private final Connection connection;
+
+  /**
+   * View of the connection handed to DAOs, which ignores close().
+   */
+  private final Connection sharedConnection;
+
+  /**
+   * Tells if the transaction was committed.
+   */
+  private boolean committed;
+
+  /**
+   * Constructor of class UnitOfWork.
+   * Starts a transaction on the given connection.
+   *
+   * @param con the connection running the transaction, closed with the
+   *     unit of work
+   */
+  public UnitOfWork(final Connection con) throws SQLException {
+    this.connection = con;
+    this.sharedConnection = (Connection) Proxy.newProxyInstance(
+        UnitOfWork.class.getClassLoader(), new Class<?>[] {Connection.class},
+        (proxy, method, args) -> {
+          if ("close".equals(method.getName())) {
+            return null;
+          }
+          try {
+            return method.invoke(con, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+        });
+    con.setAutoCommit(false);
+  }
+
+  /**
+   * Getter of the connection of this unit of work. Closing it has no effect,
+   * the connection stays open until the unit of work is closed.
+   *
+   * @return the Connection running the transaction
+   */
+  public Connection getConnection() {
+    return sharedConnection;
+  }
+
+  /**
+   * Commits every operation done in this unit of work.
+   */
+  public void commit() throws SQLException {
+    connection.commit();
+    committed = true;
+  }
+
+  /**
+   * Rolls back every operation done in this unit of work.
+   */
+  public void rollback() throws SQLException {
+    connection.rollback();
+  }
+
+  /**
+   * Rolls back the transaction if it was not committed and closes the
+   * connection.
+   */
+  @Override
+  public void close() throws SQLException {
+    try {
+      if (!committed) {
+        LOGGER.debug("Rolling back uncommitted unit of work");
+        connection.rollback();
+      }
+      connection.setAutoCommit(true);
+    } finally {
+      connection.close();
+    }
+  }
+}
@@ -20,36 +20,201 @@ public final class DataBaseConstants {
   public static final String GET_NEXT_PARKING_SPOT = "select "
       + "min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
 
+  /**
+   * SQL query to get every parking spot with its availability.
+   */
+  public static final String GET_PARKING_SPOTS = "select PARKING_NUMBER, "
+      + "AVAILABLE, TYPE from parking order by PARKING_NUMBER";
+
+  /**
+   * SQL query to add a parking spot to the lot.
+   */
+  public static final String SAVE_PARKING_SPOT = "insert into parking("
+      + "PARKING_NUMBER, AVAILABLE, TYPE) values(?,?,?)";
+
   /**
    * SQL query to update availability of a parking spot.
    */
   public static final String UPDATE_PARKING_SPOT = "update parking set "
       + "available = ? where PARKING_NUMBER = ?";
 
+  /**
+   * SQL query to mark a parking spot as taken only if it is still available.
+   */
+  public static final String CLAIM_PARKING_SPOT = "update parking set "
+      + "available = false where PARKING_NUMBER = ? and available = true";
+
   /**
    * SQL query to save a ticket in database.
    */
   public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, "
-      + "VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
+      + "VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE) "
+      + "values(?,?,?,?,?,?)";
 
   /**
-   * SQL query to update a ticket in database.
+   * SQL query to close a ticket in database, only if it is still open.
    */
   public static final String UPDATE_TICKET = "update ticket set PRICE=?, "
-      + "OUT_TIME=? where ID=?";
+      + "OUT_TIME=? where ID=? and OUT_TIME is null";
 
   /**
    * SQL query to get a ticket of database.
    */
-  public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID,"
-      + " t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where "
-      + "p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order "
-      + " by t.OUT_TIME limit 1";
+  public static final String GET_TICKET = "select PARKING_NUMBER, ID, PRICE,"
+      + " IN_TIME, OUT_TIME, PARKING_TYPE from ticket where "
+      + "VEHICLE_REG_NUMBER=? order by OUT_TIME limit 1";
+
+  /**
+   * SQL query to get every ticket of a vehicle still in the parking.
+   */
+  public static final String GET_OPEN_TICKETS = "select PARKING_NUMBER, ID, "
+      + "PRICE, IN_TIME, OUT_TIME, PARKING_TYPE, VEHICLE_REG_NUMBER from "
+      + "ticket where OUT_TIME is null";
+
+  /**
+   * SQL query to get every ticket of a vehicle that left the parking.
+   */
+  public static final String GET_CLOSED_TICKETS = "select PARKING_NUMBER, "
+      + "ID, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE, VEHICLE_REG_NUMBER from "
+      + "ticket where OUT_TIME is not null";
 
   /**
    * SQL query to count ticket with the same registration number in database.
    */
-  public static final String GET_TICKET_COUNT = "select count(t.ID) from "
-      + "ticket t,parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and "
-      + "t.VEHICLE_REG_NUMBER=? and OUT_TIME is not null";
+  public static final String GET_TICKET_COUNT = "select count(ID) from "
+      + "ticket where VEHICLE_REG_NUMBER=? and OUT_TIME is not null";
+
+  /**
+   * SQL query to get the closed tickets that left before a given time,
+   * oldest first.
+   */
+  public static final String GET_TICKETS_TO_ARCHIVE = "select "
+      + "PARKING_NUMBER, ID, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE, "
+      + "VEHICLE_REG_NUMBER from ticket where OUT_TIME is not null and "
+      + "OUT_TIME < ? order by OUT_TIME limit ?";
+
+  /**
+   * SQL query to delete a closed ticket moved to the archive.
+   */
+  public static final String DELETE_ARCHIVED_TICKET = "delete from ticket "
+      + "where ID = ? and OUT_TIME is not null";
+
+  /**
+   * Name of the archive table of a month, given as yyyymm.
+   */
+  public static final String TICKET_ARCHIVE_TABLE = "ticket_archive_%d";
+
+  /**
+   * SQL query to create the archive table of a month, named after
+   * TICKET_ARCHIVE_TABLE.
+   */
+  public static final String CREATE_TICKET_ARCHIVE = "create table if not "
+      + "exists %s(ID int PRIMARY KEY, PARKING_NUMBER int NOT NULL, "
+      + "VEHICLE_REG_NUMBER varchar(10) NOT NULL, PRICE double, IN_TIME "
+      + "DATETIME NOT NULL, OUT_TIME DATETIME NOT NULL, PARKING_TYPE "
+      + "varchar(10) NOT NULL, INDEX(VEHICLE_REG_NUMBER, OUT_TIME))";
+
+  /**
+   * SQL query to save a ticket in the archive table of a month.
+   */
+  public static final String SAVE_ARCHIVED_TICKET = "insert into %s(ID, "
+      + "PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, "
+      + "PARKING_TYPE) values(?,?,?,?,?,?,?)";
+
+  /**
+   * SQL query to get the latest ticket of a vehicle in the archive table
+   * of a month.
+   */
+  public static final String GET_ARCHIVED_TICKET = "select PARKING_NUMBER, "
+      + "ID, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE from %s where "
+      + "VEHICLE_REG_NUMBER=? order by OUT_TIME desc limit 1";
+
+  /**
+   * SQL query to get every ticket of the archive table of a month.
+   */
+  public static final String GET_ARCHIVED_TICKETS = "select PARKING_NUMBER, "
+      + "ID, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE, VEHICLE_REG_NUMBER "
+      + "from %s";
+
+  /**
+   * SQL query to get the months having an archive table, in order.
+   */
+  public static final String GET_ARCHIVE_MONTHS = "select MONTH from "
+      + "ticket_archive_month order by MONTH";
+
+  /**
+   * SQL query to record the archive table of a month.
+   */
+  public static final String SAVE_ARCHIVE_MONTH = "insert into "
+      + "ticket_archive_month(MONTH, TICKET_COUNT) values(?, 0)";
+
+  /**
+   * SQL query to add tickets to the count of the archive table of a month.
+   */
+  public static final String UPDATE_ARCHIVE_MONTH = "update "
+      + "ticket_archive_month set TICKET_COUNT = TICKET_COUNT + ? where "
+      + "MONTH = ?";
+
+  /**
+   * SQL query to get the archived history of a vehicle.
+   */
+  public static final String GET_TICKET_HISTORY = "select ARCHIVED_COUNT, "
+      + "LAST_OUT_TIME from ticket_history where VEHICLE_REG_NUMBER = ?";
+
+  /**
+   * SQL query to add archived tickets to the history of a vehicle.
+   */
+  public static final String UPDATE_TICKET_HISTORY = "update ticket_history "
+      + "set ARCHIVED_COUNT = ARCHIVED_COUNT + ?, LAST_OUT_TIME = "
+      + "greatest(LAST_OUT_TIME, ?) where VEHICLE_REG_NUMBER = ?";
+
+  /**
+   * SQL query to start the archived history of a vehicle.
+   */
+  public static final String SAVE_TICKET_HISTORY = "insert into "
+      + "ticket_history(ARCHIVED_COUNT, LAST_OUT_TIME, VEHICLE_REG_NUMBER) "
+      + "values(?,?,?)";
+
+  /**
+   * SQL query to create the table recording applied schema migrations.
+   */
+  public static final String CREATE_SCHEMA_VERSION = "create table if not "
+      + "exists schema_version(VERSION int PRIMARY KEY, DESCRIPTION "
+      + "varchar(100) NOT NULL, INSTALLED_ON DATETIME NOT NULL)";
+
+  /**
+   * SQL query to get the latest applied schema migration.
+   */
+  public static final String GET_SCHEMA_VERSION = "select max(VERSION) from "
+      + "schema_version";
+
+  /**
+   * SQL query to record an applied schema migration.
+   */
+  public static final String SAVE_SCHEMA_VERSION = "insert into "
+      + "schema_version(VERSION, DESCRIPTION, INSTALLED_ON) values(?,?,?)";
+
+  /**
+   * SQL query to get the sequence of the last journal record applied.
+   */
+  public static final String GET_JOURNAL_CHECKPOINT = "select "
+      + "APPLIED_SEQUENCE from journal_checkpoint where ID = 1";
+
+  /**
+   * SQL query to save the sequence of the last journal record applied.
+   */
+  public static final String UPDATE_JOURNAL_CHECKPOINT = "update "
+      + "journal_checkpoint set APPLIED_SEQUENCE = ? where ID = 1";
+
+  /**
+   * SQL query to write the replication heartbeat with the database clock.
+   */
+  public static final String UPDATE_REPLICATION_HEARTBEAT = "update "
+      + "replication_heartbeat set BEAT = current_timestamp(3) where ID = 1";
+
+  /**
+   * SQL query to get the replication heartbeat.
+   */
+  public static final String GET_REPLICATION_HEARTBEAT = "select BEAT from "
+      + "replication_heartbeat where ID = 1";
 }
@@ -48,4 +48,9 @@ public final class DataBaseParameters {
    * Parameter 6.
    */
   public static final int SIX = 6;
+
+  /**
+   * Parameter 7.
+   */
+  public static final int SEVEN = 7;
 }
@@ -0,0 +1,133 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.DataBaseConstants;
+import com.parkit.parkingsystem.constants.DataBaseParameters;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.TimedOperation;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Contains methods that allow interaction between the system and the
+ * database(journal_checkpoint table of the prod DB).
+ *
+ * @author Laura
+ */
+public class JournalDao {
+
+  /**
+   * JournalDao logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger("JournalDao");
+
+  /**
+   * Latency and failures of getAppliedSequence.
+   */
+  private static final TimedOperation GET_APPLIED_SEQUENCE_CALLS =
+      timed("getAppliedSequence");
+
+  /**
+   * Latency and failures of updateAppliedSequence.
+   */
+  private static final TimedOperation UPDATE_APPLIED_SEQUENCE_CALLS =
+      timed("updateAppliedSequence");
+
+  /**
+   * Creates a dataBaseConfig instance to connect with the Prod DataBase.
+   */
+  private DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+  /**
+   * Setter of a DataBaseConfig object.
+   *
+   * @param config the dataBaseConfig instance to set
+   */
+  public void setDataBaseConfig(final DataBaseConfig config) {
+    this.dataBaseConfig = config;
+  }
+
+  /**
+   * Gets the metrics of a method of this DAO.
+   *
+   * @param operation the name of the method
+   * @return the TimedOperation instance of the method
+   */
+  private static TimedOperation timed(final String operation) {
+    return MetricsRegistry.getDefault().timedOperation("parkit_dao",
+        "database calls", "dao", "JournalDao", "operation", operation);
+  }
+
+  /**
+   * Gets the connection of the given unit of work, or borrows a connection
+   * of its own if there is none.
+   *
+   * @param unitOfWork the current unit of work, or null
+   * @return a Connection instance, to be closed once done
+   */
+  private Connection getConnection(final UnitOfWork unitOfWork)
+      throws ClassNotFoundException, SQLException {
+    return unitOfWork != null ? unitOfWork.getConnection()
+        : dataBaseConfig.getConnection();
+  }
+
+  /**
+   * Gets the sequence of the last gate journal record applied to the
+   * database.
+   *
+   * @return the sequence, or -1 if it could not be read
+   */
+  public long getAppliedSequence() {
+    long start = System.nanoTime();
+    try (Connection con = dataBaseConfig.getConnection();
+         PreparedStatement ps = con.prepareStatement(DataBaseConstants
+            .GET_JOURNAL_CHECKPOINT);
+         ResultSet rs = ps.executeQuery()) {
+
+      if (rs.next()) {
+        return rs.getLong(DataBaseParameters.ONE);
+      }
+    } catch (Exception ex) {
+      LOGGER.error("Error fetching journal checkpoint", ex);
+      GET_APPLIED_SEQUENCE_CALLS.failed();
+    } finally {
+      GET_APPLIED_SEQUENCE_CALLS.stop(start);
+    }
+
+    return -1;
+  }
+
+  /**
+   * Saves the sequence of the last gate journal record applied, within the
+   * unit of work applying the records.
+   *
+   * @param sequence the sequence of the last record applied
+   * @param unitOfWork the unit of work applying the records
+   * @return true if the sequence was saved
+   */
+  public boolean updateAppliedSequence(final long sequence,
+                                       final UnitOfWork unitOfWork) {
+    long start = System.nanoTime();
+    try (Connection con = getConnection(unitOfWork);
+         PreparedStatement ps = con.prepareStatement(DataBaseConstants
+            .UPDATE_JOURNAL_CHECKPOINT)) {
+      ps.setLong(DataBaseParameters.ONE, sequence);
+
+      if (ps.executeUpdate() == 1) {
+        return true;
+      }
+    } catch (Exception ex) {
+      LOGGER.error("Error saving journal checkpoint", ex);
+      UPDATE_APPLIED_SEQUENCE_CALLS.failed();
+    } finally {
+      UPDATE_APPLIED_SEQUENCE_CALLS.stop(start);
+    }
+
+    return false;
+  }
+}
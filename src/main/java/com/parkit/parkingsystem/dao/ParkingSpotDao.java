@@ -1,13 +1,19 @@
 package com.parkit.parkingsystem.dao;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.DataBaseConstants;
 import com.parkit.parkingsystem.constants.DataBaseParameters;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.TimedOperation;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -17,13 +23,43 @@ import org.apache.logging.log4j.Logger;
  *
  * @author Laura
  */
-public class ParkingSpotDao {
+public class ParkingSpotDao implements ParkingSpotRepository {
 
   /**
    * ParkingSpotDao logger.
    */
   private static final Logger LOGGER = LogManager.getLogger("ParkingSpotDao");
 
+  /**
+   * Latency and failures of getNextAvailableSpot.
+   */
+  private static final TimedOperation GET_NEXT_AVAILABLE_SPOT_CALLS =
+      timed("getNextAvailableSpot");
+
+  /**
+   * Latency and failures of getParkingSpots.
+   */
+  private static final TimedOperation GET_PARKING_SPOTS_CALLS =
+      timed("getParkingSpots");
+
+  /**
+   * Latency and failures of saveParkingSpots.
+   */
+  private static final TimedOperation SAVE_PARKING_SPOTS_CALLS =
+      timed("saveParkingSpots");
+
+  /**
+   * Latency and failures of updateParking.
+   */
+  private static final TimedOperation UPDATE_PARKING_CALLS =
+      timed("updateParking");
+
+  /**
+   * Latency and failures of claimParking.
+   */
+  private static final TimedOperation CLAIM_PARKING_CALLS =
+      timed("claimParking");
+
   /**
    * Creates a dataBaseConfig instance to connect with the Prod DataBase.
    */
@@ -38,6 +74,30 @@ public class ParkingSpotDao {
     this.dataBaseConfig = config;
   }
 
+  /**
+   * Gets the metrics of a method of this DAO.
+   *
+   * @param operation the name of the method
+   * @return the TimedOperation instance of the method
+   */
+  private static TimedOperation timed(final String operation) {
+    return MetricsRegistry.getDefault().timedOperation("parkit_dao",
+        "database calls", "dao", "ParkingSpotDao", "operation", operation);
+  }
+
+  /**
+   * Gets the connection of the given unit of work, or borrows a connection
+   * of its own if there is none.
+   *
+   * @param unitOfWork the current unit of work, or null
+   * @return a Connection instance, to be closed once done
+   */
+  private Connection getConnection(final UnitOfWork unitOfWork)
+      throws ClassNotFoundException, SQLException {
+    return unitOfWork != null ? unitOfWork.getConnection()
+        : dataBaseConfig.getConnection();
+  }
+
   /**
    * Checks in database whether there is an available parking spot for the given
    * vehicle type.
@@ -46,8 +106,26 @@ public class ParkingSpotDao {
    * @return the available parking spot number or -1 if no parking spot
    *     is available for this type of vehicle
    */
+  @Override
   public int getNextAvailableSpot(final ParkingType parkingType) {
-    try (Connection con = dataBaseConfig.getConnection();
+    return getNextAvailableSpot(parkingType, null);
+  }
+
+  /**
+   * Checks in database whether there is an available parking spot for the given
+   * vehicle type, within the given unit of work.
+   *
+   * @param parkingType the user's vehicle type (bike or car)
+   * @param unitOfWork the unit of work to run in, null to use a connection
+   *     of its own
+   * @return the available parking spot number or -1 if no parking spot
+   *     is available for this type of vehicle
+   */
+  @Override
+  public int getNextAvailableSpot(final ParkingType parkingType,
+                                  final UnitOfWork unitOfWork) {
+    long start = System.nanoTime();
+    try (Connection con = getConnection(unitOfWork);
          PreparedStatement ps = con.prepareStatement(DataBaseConstants
             .GET_NEXT_PARKING_SPOT)) {
       ps.setString(DataBaseParameters.ONE, parkingType.toString());
@@ -59,11 +137,80 @@ public class ParkingSpotDao {
       }
     } catch (Exception ex) {
       LOGGER.error("Error fetching next available spot", ex);
+      GET_NEXT_AVAILABLE_SPOT_CALLS.failed();
+    } finally {
+      GET_NEXT_AVAILABLE_SPOT_CALLS.stop(start);
     }
 
     return -1;
   }
 
+  /**
+   * Retrieves every parking spot of the lot with its current availability.
+   *
+   * @return the parking spots ordered by number, or an empty list if the
+   *     spots could not be fetched
+   */
+  @Override
+  public List<ParkingSpot> getParkingSpots() {
+    List<ParkingSpot> parkingSpots = new ArrayList<>();
+    long start = System.nanoTime();
+
+    try (Connection con = dataBaseConfig.getConnection();
+         PreparedStatement ps = con.prepareStatement(DataBaseConstants
+            .GET_PARKING_SPOTS);
+         ResultSet rs = ps.executeQuery()) {
+
+      while (rs.next()) {
+        parkingSpots.add(new ParkingSpot(rs.getInt(DataBaseParameters.ONE),
+            ParkingType.valueOf(rs.getString(DataBaseParameters.THREE)),
+            rs.getBoolean(DataBaseParameters.TWO)));
+      }
+    } catch (Exception ex) {
+      LOGGER.error("Error fetching parking spots", ex);
+      GET_PARKING_SPOTS_CALLS.failed();
+      parkingSpots.clear();
+    } finally {
+      GET_PARKING_SPOTS_CALLS.stop(start);
+    }
+
+    return parkingSpots;
+  }
+
+  /**
+   * Adds parking spots to the lot, in a single transaction, such as the lot
+   * of a database just created.
+   *
+   * @param parkingSpots the parking spots to add
+   * @return true if every parking spot was added
+   *     false if none was added
+   */
+  public boolean saveParkingSpots(final List<ParkingSpot> parkingSpots) {
+    long start = System.nanoTime();
+
+    try (UnitOfWork unitOfWork = dataBaseConfig.beginUnitOfWork();
+         PreparedStatement ps = unitOfWork.getConnection().prepareStatement(
+            DataBaseConstants.SAVE_PARKING_SPOT)) {
+      for (ParkingSpot parkingSpot : parkingSpots) {
+        ps.setInt(DataBaseParameters.ONE, parkingSpot.getNumber());
+        ps.setBoolean(DataBaseParameters.TWO, parkingSpot.isAvailable());
+        ps.setString(DataBaseParameters.THREE, parkingSpot.getParkingType()
+            .name());
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      unitOfWork.commit();
+      return true;
+    } catch (Exception ex) {
+      LOGGER.error("Error saving parking spots", ex);
+      SAVE_PARKING_SPOTS_CALLS.failed();
+    } finally {
+      SAVE_PARKING_SPOTS_CALLS.stop(start);
+    }
+
+    return false;
+  }
+
   /**
    * Updates the availability of a parking spot.
    *
@@ -71,9 +218,26 @@ public class ParkingSpotDao {
    * @return true if the parking spot was updated successfully
    *     false if the update failed
    */
+  @Override
   public boolean updateParking(final ParkingSpot parkingSpot) {
+    return updateParking(parkingSpot, null);
+  }
 
-    try (Connection con = dataBaseConfig.getConnection();
+  /**
+   * Updates the availability of a parking spot within the given unit of work.
+   *
+   * @param parkingSpot the parking spot that will be updated
+   * @param unitOfWork the unit of work to run in, null to use a connection
+   *     of its own
+   * @return true if the parking spot was updated successfully
+   *     false if the update failed
+   */
+  @Override
+  public boolean updateParking(final ParkingSpot parkingSpot,
+                               final UnitOfWork unitOfWork) {
+    long start = System.nanoTime();
+
+    try (Connection con = getConnection(unitOfWork);
          PreparedStatement ps = con.prepareStatement(DataBaseConstants
             .UPDATE_PARKING_SPOT)) {
       ps.setBoolean(DataBaseParameters.ONE, parkingSpot.isAvailable());
@@ -84,8 +248,57 @@ public class ParkingSpotDao {
       }
     } catch (Exception ex) {
       LOGGER.error("Error updating parking info", ex);
+      UPDATE_PARKING_CALLS.failed();
+    } finally {
+      UPDATE_PARKING_CALLS.stop(start);
     }
 
     return false;
   }
+
+  /**
+   * Marks a parking spot as taken if it is still available. The check and
+   * the update are done by a single conditional statement, so two gates
+   * claiming the same spot at once cannot both succeed.
+   *
+   * @param parkingSpot the parking spot to claim
+   * @return true if the parking spot was claimed
+   *     false if it was already taken or the update failed
+   */
+  @Override
+  public boolean claimParking(final ParkingSpot parkingSpot) {
+    return Boolean.TRUE.equals(claimParking(parkingSpot, null));
+  }
+
+  /**
+   * Marks a parking spot as taken if it is still available, within the given
+   * unit of work.
+   *
+   * @param parkingSpot the parking spot to claim
+   * @param unitOfWork the unit of work to run in, null to use a connection
+   *     of its own
+   * @return true if the parking spot was claimed
+   *     false if it was already taken
+   *     null if the update failed
+   */
+  @Override
+  public Boolean claimParking(final ParkingSpot parkingSpot,
+                              final UnitOfWork unitOfWork) {
+    long start = System.nanoTime();
+
+    try (Connection con = getConnection(unitOfWork);
+         PreparedStatement ps = con.prepareStatement(DataBaseConstants
+            .CLAIM_PARKING_SPOT)) {
+      ps.setInt(DataBaseParameters.ONE, parkingSpot.getNumber());
+
+      return ps.executeUpdate() == 1;
+    } catch (Exception ex) {
+      LOGGER.error("Error claiming parking spot", ex);
+      CLAIM_PARKING_CALLS.failed();
+    } finally {
+      CLAIM_PARKING_CALLS.stop(start);
+    }
+
+    return null;
+  }
 }
@@ -0,0 +1,87 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import java.util.List;
+
+/**
+ * Stores the parking spots of the lot and their availability, whatever the
+ * storage engine. Methods given a unit of work run in its transaction when
+ * the engine has transactions, and ignore it otherwise.
+ *
+ * @author Laura
+ */
+public interface ParkingSpotRepository {
+
+  /**
+   * Checks whether there is an available parking spot for the given vehicle
+   * type.
+   *
+   * @param parkingType the user's vehicle type (bike or car)
+   * @return the lowest available parking spot number or -1 if no parking
+   *     spot is available for this type of vehicle
+   */
+  int getNextAvailableSpot(ParkingType parkingType);
+
+  /**
+   * Checks whether there is an available parking spot for the given vehicle
+   * type, within the given unit of work.
+   *
+   * @param parkingType the user's vehicle type (bike or car)
+   * @param unitOfWork the unit of work to run in, or null
+   * @return the lowest available parking spot number or -1 if no parking
+   *     spot is available for this type of vehicle
+   */
+  int getNextAvailableSpot(ParkingType parkingType, UnitOfWork unitOfWork);
+
+  /**
+   * Retrieves every parking spot of the lot with its current availability.
+   *
+   * @return the parking spots ordered by number, or an empty list if the
+   *     spots could not be fetched
+   */
+  List<ParkingSpot> getParkingSpots();
+
+  /**
+   * Updates the availability of a parking spot.
+   *
+   * @param parkingSpot the parking spot that will be updated
+   * @return true if the parking spot was updated successfully
+   *     false if the update failed
+   */
+  boolean updateParking(ParkingSpot parkingSpot);
+
+  /**
+   * Updates the availability of a parking spot within the given unit of
+   * work.
+   *
+   * @param parkingSpot the parking spot that will be updated
+   * @param unitOfWork the unit of work to run in, or null
+   * @return true if the parking spot was updated successfully
+   *     false if the update failed
+   */
+  boolean updateParking(ParkingSpot parkingSpot, UnitOfWork unitOfWork);
+
+  /**
+   * Marks a parking spot as taken if it is still available. Two gates
+   * claiming the same spot at once cannot both succeed.
+   *
+   * @param parkingSpot the parking spot to claim
+   * @return true if the parking spot was claimed
+   *     false if it was already taken or the update failed
+   */
+  boolean claimParking(ParkingSpot parkingSpot);
+
+  /**
+   * Marks a parking spot as taken if it is still available, within the
+   * given unit of work.
+   *
+   * @param parkingSpot the parking spot to claim
+   * @param unitOfWork the unit of work to run in, or null
+   * @return true if the parking spot was claimed
+   *     false if it was already taken
+   *     null if the update failed
+   */
+  Boolean claimParking(ParkingSpot parkingSpot, UnitOfWork unitOfWork);
+}
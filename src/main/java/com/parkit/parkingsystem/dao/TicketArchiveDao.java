@@ -0,0 +1,379 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.DataBaseConstants;
+import com.parkit.parkingsystem.constants.DataBaseParameters;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.TimedOperation;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Contains methods that move the closed tickets of the ticket table to the
+ * monthly archive tables of the prod DB, and keep the archived history of
+ * each vehicle (ticket_archive_month and ticket_history tables).
+ *
+ * @author Laura
+ */
+public class TicketArchiveDao {
+
+  /**
+   * TicketArchiveDao logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger(
+      "TicketArchiveDao");
+
+  /**
+   * Factor of the year in the number of a month, yyyymm.
+   */
+  private static final int MONTHS_FACTOR = 100;
+
+  /**
+   * Latency and failures of getTicketsToArchive.
+   */
+  private static final TimedOperation GET_TICKETS_TO_ARCHIVE_CALLS =
+      timed("getTicketsToArchive");
+
+  /**
+   * Latency and failures of getArchiveMonths.
+   */
+  private static final TimedOperation GET_ARCHIVE_MONTHS_CALLS =
+      timed("getArchiveMonths");
+
+  /**
+   * Latency and failures of createArchive.
+   */
+  private static final TimedOperation CREATE_ARCHIVE_CALLS =
+      timed("createArchive");
+
+  /**
+   * Latency and failures of archiveTickets.
+   */
+  private static final TimedOperation ARCHIVE_TICKETS_CALLS =
+      timed("archiveTickets");
+
+  /**
+   * Creates a dataBaseConfig instance to connect with the Prod DataBase.
+   */
+  private DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+  /**
+   * Setter of a DataBaseConfig object.
+   *
+   * @param config the dataBaseConfig instance to set
+   */
+  public void setDataBaseConfig(final DataBaseConfig config) {
+    this.dataBaseConfig = config;
+  }
+
+  /**
+   * Gets the metrics of a method of this DAO.
+   *
+   * @param operation the name of the method
+   * @return the TimedOperation instance of the method
+   */
+  private static TimedOperation timed(final String operation) {
+    return MetricsRegistry.getDefault().timedOperation("parkit_dao",
+        "database calls", "dao", "TicketArchiveDao", "operation", operation);
+  }
+
+  /**
+   * Numbers a month as yyyymm, as saved in the ticket_archive_month table.
+   *
+   * @param month the month
+   * @return the number of the month
+   */
+  public static int toMonthNumber(final YearMonth month) {
+    return month.getYear() * MONTHS_FACTOR + month.getMonthValue();
+  }
+
+  /**
+   * Reads a month numbered as yyyymm.
+   *
+   * @param monthNumber the number of the month
+   * @return the month
+   */
+  public static YearMonth toMonth(final int monthNumber) {
+    return YearMonth.of(monthNumber / MONTHS_FACTOR,
+        monthNumber % MONTHS_FACTOR);
+  }
+
+  /**
+   * Gives the name of the archive table of a month. Built from numbers
+   * only, it is safe to put in a query.
+   *
+   * @param month the month the archived tickets left the parking
+   * @return the name of the table
+   */
+  public static String getArchiveTable(final YearMonth month) {
+    return String.format(DataBaseConstants.TICKET_ARCHIVE_TABLE,
+        toMonthNumber(month));
+  }
+
+  /**
+   * Retrieves the oldest closed tickets of the ticket table that left
+   * before the given time.
+   *
+   * @param closedBefore the time before which tickets are archived
+   * @param limit the maximum number of tickets retrieved
+   * @return the tickets in out-time order, or null if they could not be
+   *     fetched
+   */
+  public List<Ticket> getTicketsToArchive(final LocalDateTime closedBefore,
+                                          final int limit) {
+    long start = System.nanoTime();
+    try (Connection con = dataBaseConfig.getConnection();
+         PreparedStatement ps = con.prepareStatement(DataBaseConstants
+            .GET_TICKETS_TO_ARCHIVE)) {
+      ps.setObject(DataBaseParameters.ONE, closedBefore);
+      ps.setInt(DataBaseParameters.TWO, limit);
+
+      List<Ticket> tickets = new ArrayList<>();
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          ParkingSpot spot = new ParkingSpot(rs.getInt(
+              DataBaseParameters.ONE), ParkingType.valueOf(rs.getString(
+              DataBaseParameters.SIX)), true);
+          tickets.add(new Ticket(rs.getInt(DataBaseParameters.TWO), spot,
+              rs.getString(DataBaseParameters.SEVEN),
+              rs.getDouble(DataBaseParameters.THREE),
+              rs.getTimestamp(DataBaseParameters.FOUR).toLocalDateTime(),
+              rs.getTimestamp(DataBaseParameters.FIVE).toLocalDateTime()));
+        }
+      }
+      return tickets;
+    } catch (Exception ex) {
+      LOGGER.error("Error fetching tickets to archive", ex);
+      GET_TICKETS_TO_ARCHIVE_CALLS.failed();
+    } finally {
+      GET_TICKETS_TO_ARCHIVE_CALLS.stop(start);
+    }
+
+    return null;
+  }
+
+  /**
+   * Retrieves the months having an archive table.
+   *
+   * @return the months in order, or null if they could not be fetched
+   */
+  public List<YearMonth> getArchiveMonths() {
+    long start = System.nanoTime();
+    try (Connection con = dataBaseConfig.getConnection();
+         PreparedStatement ps = con.prepareStatement(DataBaseConstants
+            .GET_ARCHIVE_MONTHS);
+         ResultSet rs = ps.executeQuery()) {
+      List<YearMonth> months = new ArrayList<>();
+      while (rs.next()) {
+        months.add(toMonth(rs.getInt(DataBaseParameters.ONE)));
+      }
+      return months;
+    } catch (Exception ex) {
+      LOGGER.error("Error fetching archive months", ex);
+      GET_ARCHIVE_MONTHS_CALLS.failed();
+    } finally {
+      GET_ARCHIVE_MONTHS_CALLS.stop(start);
+    }
+
+    return null;
+  }
+
+  /**
+   * Creates the archive table of a month and records it. Schema changes
+   * commit on their own, so this runs outside of any unit of work.
+   *
+   * @param month the month the archived tickets left the parking
+   * @return true if the table was created and recorded
+   */
+  public boolean createArchive(final YearMonth month) {
+    long start = System.nanoTime();
+    try (Connection con = dataBaseConfig.getConnection()) {
+      try (Statement statement = con.createStatement()) {
+        statement.execute(String.format(DataBaseConstants
+            .CREATE_TICKET_ARCHIVE, getArchiveTable(month)));
+      }
+
+      try (PreparedStatement ps = con.prepareStatement(DataBaseConstants
+          .SAVE_ARCHIVE_MONTH)) {
+        ps.setInt(DataBaseParameters.ONE, toMonthNumber(month));
+        return ps.executeUpdate() == 1;
+      }
+    } catch (Exception ex) {
+      LOGGER.error("Error creating archive of " + month, ex);
+      CREATE_ARCHIVE_CALLS.failed();
+    } finally {
+      CREATE_ARCHIVE_CALLS.stop(start);
+    }
+
+    return false;
+  }
+
+  /**
+   * Moves closed tickets of the ticket table to the archive table of their
+   * month and adds them to the history of their vehicle, within the given
+   * unit of work.
+   *
+   * @param month the month the tickets left the parking
+   * @param tickets the closed tickets of that month
+   * @param unitOfWork the unit of work to run in
+   * @return true if every ticket was moved, false if the unit of work must
+   *     be rolled back
+   */
+  public boolean archiveTickets(final YearMonth month,
+                                final List<Ticket> tickets,
+                                final UnitOfWork unitOfWork) {
+    long start = System.nanoTime();
+    Connection con = unitOfWork.getConnection();
+
+    try {
+      try (PreparedStatement ps = con.prepareStatement(String.format(
+          DataBaseConstants.SAVE_ARCHIVED_TICKET, getArchiveTable(month)))) {
+        for (Ticket ticket : tickets) {
+          ps.setInt(DataBaseParameters.ONE, ticket.getId());
+          ps.setInt(DataBaseParameters.TWO, ticket.getParkingSpot()
+              .getNumber());
+          ps.setString(DataBaseParameters.THREE, ticket.getVehicleRegNumber());
+          ps.setDouble(DataBaseParameters.FOUR, ticket.getPrice());
+          ps.setObject(DataBaseParameters.FIVE, ticket.getInTime());
+          ps.setObject(DataBaseParameters.SIX, ticket.getOutTime());
+          ps.setString(DataBaseParameters.SEVEN, ticket.getParkingSpot()
+              .getParkingType().toString());
+          ps.addBatch();
+        }
+        ps.executeBatch();
+      }
+
+      try (PreparedStatement ps = con.prepareStatement(DataBaseConstants
+          .DELETE_ARCHIVED_TICKET)) {
+        for (Ticket ticket : tickets) {
+          ps.setInt(DataBaseParameters.ONE, ticket.getId());
+          ps.addBatch();
+        }
+        for (boolean deleted : isRowUpdated(ps.executeBatch())) {
+          if (!deleted) {
+            LOGGER.error("Ticket to archive changed meanwhile, archive of "
+                + month + " rolled back");
+            return false;
+          }
+        }
+      }
+
+      try (PreparedStatement ps = con.prepareStatement(DataBaseConstants
+          .UPDATE_ARCHIVE_MONTH)) {
+        ps.setInt(DataBaseParameters.ONE, tickets.size());
+        ps.setInt(DataBaseParameters.TWO, toMonthNumber(month));
+        if (ps.executeUpdate() != 1) {
+          LOGGER.error("No archive recorded for " + month);
+          return false;
+        }
+      }
+
+      saveHistory(con, tickets);
+      return true;
+    } catch (Exception ex) {
+      LOGGER.error("Error archiving tickets of " + month, ex);
+      ARCHIVE_TICKETS_CALLS.failed();
+    } finally {
+      ARCHIVE_TICKETS_CALLS.stop(start);
+    }
+
+    return false;
+  }
+
+  /**
+   * Adds archived tickets to the history of their vehicles, starting the
+   * history of the vehicles archived for the first time.
+   *
+   * @param con the connection of the current unit of work
+   * @param tickets the tickets archived
+   */
+  private static void saveHistory(final Connection con,
+                                  final List<Ticket> tickets)
+      throws SQLException {
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    Map<String, LocalDateTime> lastOutTimes = new LinkedHashMap<>();
+    for (Ticket ticket : tickets) {
+      counts.merge(ticket.getVehicleRegNumber(), 1, Integer::sum);
+      lastOutTimes.merge(ticket.getVehicleRegNumber(), ticket.getOutTime(),
+          (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    List<String> vehicles = new ArrayList<>(counts.keySet());
+    boolean[] updated;
+    try (PreparedStatement ps = con.prepareStatement(DataBaseConstants
+        .UPDATE_TICKET_HISTORY)) {
+      for (String vehicle : vehicles) {
+        setHistoryParameters(ps, vehicle, counts.get(vehicle),
+            lastOutTimes.get(vehicle));
+        ps.addBatch();
+      }
+      updated = isRowUpdated(ps.executeBatch());
+    }
+
+    try (PreparedStatement ps = con.prepareStatement(DataBaseConstants
+        .SAVE_TICKET_HISTORY)) {
+      boolean inserted = false;
+      for (int i = 0; i < vehicles.size(); i++) {
+        if (!updated[i]) {
+          String vehicle = vehicles.get(i);
+          setHistoryParameters(ps, vehicle, counts.get(vehicle),
+              lastOutTimes.get(vehicle));
+          ps.addBatch();
+          inserted = true;
+        }
+      }
+      if (inserted) {
+        ps.executeBatch();
+      }
+    }
+  }
+
+  /**
+   * Sets the parameters of the history update or insert statement.
+   *
+   * @param ps the statement prepared with UPDATE_TICKET_HISTORY or
+   *     SAVE_TICKET_HISTORY
+   * @param vehicleRegNumber the vehicle registration number
+   * @param count the number of tickets archived
+   * @param lastOutTime the latest out-time of the tickets archived
+   */
+  private static void setHistoryParameters(final PreparedStatement ps,
+                                           final String vehicleRegNumber,
+                                           final int count,
+                                           final LocalDateTime lastOutTime)
+      throws SQLException {
+    ps.setInt(DataBaseParameters.ONE, count);
+    ps.setObject(DataBaseParameters.TWO, lastOutTime);
+    ps.setString(DataBaseParameters.THREE, vehicleRegNumber);
+  }
+
+  /**
+   * Reads the update counts of a JDBC batch.
+   *
+   * @param updateCounts the counts returned by executeBatch
+   * @return for each statement, true if it changed a row
+   */
+  private static boolean[] isRowUpdated(final int[] updateCounts) {
+    boolean[] updated = new boolean[updateCounts.length];
+    for (int i = 0; i < updateCounts.length; i++) {
+      updated[i] = updateCounts[i] == 1
+          || updateCounts[i] == Statement.SUCCESS_NO_INFO;
+    }
+    return updated;
+  }
+}
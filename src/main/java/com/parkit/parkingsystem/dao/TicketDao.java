@@ -1,15 +1,24 @@
 package com.parkit.parkingsystem.dao;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.DataBaseConstants;
 import com.parkit.parkingsystem.constants.DataBaseParameters;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.TimedOperation;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -19,13 +28,58 @@ import org.apache.logging.log4j.Logger;
  *
  * @author Laura
  */
-public class  TicketDao {
+public class TicketDao implements TicketRepository {
 
   /**
    * TicketDao logger.
    */
   private static final Logger LOGGER = LogManager.getLogger("TicketDao");
 
+  /**
+   * Latency and failures of saveTicket.
+   */
+  private static final TimedOperation SAVE_TICKET_CALLS = timed("saveTicket");
+
+  /**
+   * Latency and failures of saveTickets.
+   */
+  private static final TimedOperation SAVE_TICKETS_CALLS = timed("saveTickets");
+
+  /**
+   * Latency and failures of getTicket.
+   */
+  private static final TimedOperation GET_TICKET_CALLS = timed("getTicket");
+
+  /**
+   * Latency and failures of getOpenTickets.
+   */
+  private static final TimedOperation GET_OPEN_TICKETS_CALLS =
+      timed("getOpenTickets");
+
+  /**
+   * Latency and failures of streamClosedTickets.
+   */
+  private static final TimedOperation STREAM_CLOSED_TICKETS_CALLS =
+      timed("streamClosedTickets");
+
+  /**
+   * Latency and failures of updateTicket.
+   */
+  private static final TimedOperation UPDATE_TICKET_CALLS =
+      timed("updateTicket");
+
+  /**
+   * Latency and failures of updateTickets.
+   */
+  private static final TimedOperation UPDATE_TICKETS_CALLS =
+      timed("updateTickets");
+
+  /**
+   * Latency and failures of isRecurringUser.
+   */
+  private static final TimedOperation IS_RECURRING_USER_CALLS =
+      timed("isRecurringUser");
+
   /**
    * Creates a dataBaseConfig instance to connect with the Prod DataBase.
    */
@@ -40,6 +94,44 @@ public class  TicketDao {
     this.dataBaseConfig = config;
   }
 
+  /**
+   * Gets the metrics of a method of this DAO.
+   *
+   * @param operation the name of the method
+   * @return the TimedOperation instance of the method
+   */
+  private static TimedOperation timed(final String operation) {
+    return MetricsRegistry.getDefault().timedOperation("parkit_dao",
+        "database calls", "dao", "TicketDao", "operation", operation);
+  }
+
+  /**
+   * Gets the connection of the given unit of work, or borrows a connection
+   * of its own if there is none.
+   *
+   * @param unitOfWork the current unit of work, or null
+   * @return a Connection instance, to be closed once done
+   */
+  private Connection getConnection(final UnitOfWork unitOfWork)
+      throws ClassNotFoundException, SQLException {
+    return unitOfWork != null ? unitOfWork.getConnection()
+        : dataBaseConfig.getConnection();
+  }
+
+  /**
+   * Borrows a connection to a read replica for a history read, which may
+   * miss the writes of the tolerated replica lag, or gets the connection of
+   * the given unit of work or of its own if no replica can be read.
+   *
+   * @param unitOfWork the current unit of work, or null
+   * @return a Connection instance, to be closed once done
+   */
+  private Connection getHistoryConnection(final UnitOfWork unitOfWork)
+      throws ClassNotFoundException, SQLException {
+    Connection con = dataBaseConfig.getReplicaConnection();
+    return con != null ? con : getConnection(unitOfWork);
+  }
+
   /**
    * Saves given ticket to database.
    *
@@ -47,28 +139,132 @@ public class  TicketDao {
    * @return true if ticket was saved successfully
    *     false if the saving process failed
    */
+  @Override
   public boolean saveTicket(final Ticket ticket) {
+    return saveTicket(ticket, null);
+  }
 
-    try (Connection con = dataBaseConfig.getConnection();
+  /**
+   * Saves given ticket to database within the given unit of work. The ID
+   * generated by the database is set on the ticket.
+   *
+   * @param ticket the ticket to be saved
+   * @param unitOfWork the unit of work to run in, null to use a connection
+   *     of its own
+   * @return true if ticket was saved successfully
+   *     false if the saving process failed
+   */
+  @Override
+  public boolean saveTicket(final Ticket ticket, final UnitOfWork unitOfWork) {
+    long start = System.nanoTime();
+
+    try (Connection con = getConnection(unitOfWork);
          PreparedStatement ps = con.prepareStatement(DataBaseConstants
-            .SAVE_TICKET)) {
-      // PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-      ps.setInt(DataBaseParameters.ONE, ticket.getParkingSpot().getNumber());
-      ps.setString(DataBaseParameters.TWO, ticket.getVehicleRegNumber());
-      ps.setDouble(DataBaseParameters.THREE, ticket.getPrice());
-      ps.setObject(DataBaseParameters.FOUR, ticket.getInTime());
-      ps.setObject(DataBaseParameters.FIVE, ticket.getOutTime());
-
-      if (ps.execute()) {
+            .SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)) {
+      setSaveParameters(ps, ticket);
+
+      if (ps.executeUpdate() == 1) {
+        // Knowing its ID, the ticket can be closed without reading it back
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+          if (keys.next()) {
+            ticket.setId(keys.getInt(DataBaseParameters.ONE));
+          }
+        }
         return true;
       }
     } catch (Exception ex) {
       LOGGER.error("Error saving ticket", ex);
+      SAVE_TICKET_CALLS.failed();
+    } finally {
+      SAVE_TICKET_CALLS.stop(start);
     }
 
     return false;
   }
 
+  /**
+   * Saves the given tickets to database in one JDBC batch, within the given
+   * unit of work. The IDs generated by the database are set on the tickets.
+   *
+   * @param tickets the tickets to be saved
+   * @param unitOfWork the unit of work to run in
+   * @return for each ticket, true if it was saved
+   * @throws SQLException if the batch failed, left to the caller to tell a
+   *     rejected ticket from a lost connection
+   */
+  @Override
+  public boolean[] saveTickets(final List<Ticket> tickets,
+                               final UnitOfWork unitOfWork)
+      throws SQLException {
+    long start = System.nanoTime();
+    try (Connection con = getConnection(unitOfWork);
+         PreparedStatement ps = con.prepareStatement(DataBaseConstants
+            .SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)) {
+      for (Ticket ticket : tickets) {
+        setSaveParameters(ps, ticket);
+        ps.addBatch();
+      }
+
+      boolean[] saved = isRowUpdated(ps.executeBatch());
+      try (ResultSet keys = ps.getGeneratedKeys()) {
+        // Keys are given back in insertion order, one per saved row
+        for (int i = 0; i < tickets.size(); i++) {
+          if (saved[i] && keys.next()) {
+            tickets.get(i).setId(keys.getInt(DataBaseParameters.ONE));
+          } else {
+            saved[i] = false;
+          }
+        }
+      }
+      return saved;
+    } catch (ClassNotFoundException ex) {
+      LOGGER.error("Error saving ticket batch", ex);
+      SAVE_TICKETS_CALLS.failed();
+      throw new SQLException("Database driver not found", ex);
+    } catch (SQLException ex) {
+      LOGGER.error("Error saving ticket batch", ex);
+      SAVE_TICKETS_CALLS.failed();
+      throw ex;
+    } finally {
+      SAVE_TICKETS_CALLS.stop(start);
+    }
+  }
+
+  /**
+   * Sets the parameters of the ticket insert statement.
+   *
+   * @param ps the statement prepared with SAVE_TICKET
+   * @param ticket the ticket to be saved
+   */
+  private static void setSaveParameters(final PreparedStatement ps,
+                                        final Ticket ticket)
+      throws SQLException {
+    // PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME,
+    // PARKING_TYPE)
+    ps.setInt(DataBaseParameters.ONE, ticket.getParkingSpot().getNumber());
+    ps.setString(DataBaseParameters.TWO, ticket.getVehicleRegNumber());
+    ps.setDouble(DataBaseParameters.THREE, ticket.getPrice());
+    ps.setObject(DataBaseParameters.FOUR, ticket.getInTime());
+    ps.setObject(DataBaseParameters.FIVE, ticket.getOutTime());
+    ps.setString(DataBaseParameters.SIX, ticket.getParkingSpot()
+        .getParkingType().toString());
+  }
+
+  /**
+   * Reads the update counts of a JDBC batch.
+   *
+   * @param updateCounts the counts returned by executeBatch
+   * @return for each statement, true if it changed a row
+   */
+  private static boolean[] isRowUpdated(final int[] updateCounts) {
+    boolean[] updated = new boolean[updateCounts.length];
+    for (int i = 0; i < updateCounts.length; i++) {
+      updated[i] = updateCounts[i] == 1
+          || updateCounts[i] == Statement.SUCCESS_NO_INFO;
+    }
+    return updated;
+  }
+
   /**
    * Retrieves the latest ticket saved in database with the given
    *   licence plate number.
@@ -76,36 +272,220 @@ public class  TicketDao {
    * @param vehicleRegNumber the user's vehicle registration number
    * @return the ticket found in database
    */
+  @Override
   public Ticket getTicket(final String vehicleRegNumber) {
+    return getTicket(vehicleRegNumber, null);
+  }
+
+  /**
+   * Retrieves the latest ticket saved in database with the given
+   *   licence plate number, within the given unit of work. When every
+   *   ticket of the vehicle was archived, its latest archived ticket is
+   *   given.
+   *
+   * @param vehicleRegNumber the user's vehicle registration number
+   * @param unitOfWork the unit of work to run in, null to use a connection
+   *     of its own
+   * @return the ticket found in database
+   */
+  @Override
+  public Ticket getTicket(final String vehicleRegNumber,
+                          final UnitOfWork unitOfWork) {
     Ticket ticket = null;
+    long start = System.nanoTime();
+    try (Connection con = getConnection(unitOfWork)) {
+      try (PreparedStatement ps = con.prepareStatement(DataBaseConstants
+          .GET_TICKET)) {
+        //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+        ps.setString(DataBaseParameters.ONE, vehicleRegNumber);
+        ticket = readTicket(ps, vehicleRegNumber);
+      }
+
+      if (ticket == null) {
+        ticket = getArchivedTicket(con, vehicleRegNumber);
+      }
+    } catch (Exception ex) {
+      LOGGER.error("Error getting ticket", ex);
+      GET_TICKET_CALLS.failed();
+    } finally {
+      GET_TICKET_CALLS.stop(start);
+    }
+
+    return ticket;
+  }
+
+  /**
+   * Reads the first ticket returned by a query of the ticket columns.
+   *
+   * @param ps the statement prepared with GET_TICKET or GET_ARCHIVED_TICKET
+   * @param vehicleRegNumber the user's vehicle registration number
+   * @return the ticket read, or null if the query returned none
+   */
+  private static Ticket readTicket(final PreparedStatement ps,
+                                   final String vehicleRegNumber)
+      throws SQLException {
+    try (ResultSet rs = ps.executeQuery()) {
+      if (!rs.next()) {
+        return null;
+      }
+
+      Ticket ticket = new Ticket();
+      ParkingSpot spot = new ParkingSpot(rs.getInt(DataBaseParameters.ONE),
+          ParkingType.valueOf(rs.getString(DataBaseParameters.SIX)), false);
+      ticket.setParkingSpot(spot);
+      ticket.setId(rs.getInt(DataBaseParameters.TWO));
+      ticket.setVehicleRegNumber(vehicleRegNumber);
+      ticket.setPrice(rs.getDouble(DataBaseParameters.THREE));
+      ticket.setInTime(rs.getTimestamp(DataBaseParameters.FOUR)
+          .toLocalDateTime());
+      Timestamp outTime = rs.getTimestamp(DataBaseParameters.FIVE);
+      ticket.setOutTime(outTime != null ? outTime.toLocalDateTime() : null);
+      return ticket;
+    }
+  }
+
+  /**
+   * Retrieves the latest archived ticket of a vehicle, from the archive
+   * table of the month its history says it last left.
+   *
+   * @param con the connection of the current lookup
+   * @param vehicleRegNumber the user's vehicle registration number
+   * @return the ticket found in the archive, or null if none was archived
+   */
+  private static Ticket getArchivedTicket(final Connection con,
+                                          final String vehicleRegNumber)
+      throws SQLException {
+    YearMonth month;
+    try (PreparedStatement ps = con.prepareStatement(DataBaseConstants
+        .GET_TICKET_HISTORY)) {
+      ps.setString(DataBaseParameters.ONE, vehicleRegNumber);
+      try (ResultSet rs = ps.executeQuery()) {
+        if (!rs.next()) {
+          return null;
+        }
+        month = YearMonth.from(rs.getTimestamp(DataBaseParameters.TWO)
+            .toLocalDateTime());
+      }
+    }
+
+    try (PreparedStatement ps = con.prepareStatement(String.format(
+        DataBaseConstants.GET_ARCHIVED_TICKET, TicketArchiveDao
+            .getArchiveTable(month)))) {
+      ps.setString(DataBaseParameters.ONE, vehicleRegNumber);
+      return readTicket(ps, vehicleRegNumber);
+    }
+  }
+
+  /**
+   * Retrieves the tickets of every vehicle still in the parking.
+   *
+   * @return the open tickets, or an empty list if the tickets could not be
+   *     fetched
+   */
+  @Override
+  public List<Ticket> getOpenTickets() {
+    List<Ticket> tickets = new ArrayList<>();
+    long start = System.nanoTime();
 
     try (Connection con = dataBaseConfig.getConnection();
          PreparedStatement ps = con.prepareStatement(DataBaseConstants
-            .GET_TICKET)) {
-      //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-      ps.setString(DataBaseParameters.ONE, vehicleRegNumber);
+            .GET_OPEN_TICKETS);
+         ResultSet rs = ps.executeQuery()) {
 
-      try (ResultSet rs = ps.executeQuery()) {
+      while (rs.next()) {
+        ParkingSpot spot = new ParkingSpot(rs.getInt(DataBaseParameters.ONE),
+            ParkingType.valueOf(rs.getString(DataBaseParameters.SIX)), false);
+        tickets.add(new Ticket(rs.getInt(DataBaseParameters.TWO), spot,
+            rs.getString(DataBaseParameters.SEVEN),
+            rs.getDouble(DataBaseParameters.THREE),
+            rs.getTimestamp(DataBaseParameters.FOUR).toLocalDateTime(), null));
+      }
+    } catch (Exception ex) {
+      LOGGER.error("Error fetching open tickets", ex);
+      GET_OPEN_TICKETS_CALLS.failed();
+      tickets.clear();
+    } finally {
+      GET_OPEN_TICKETS_CALLS.stop(start);
+    }
+
+    return tickets;
+  }
+
+  /**
+   * Reads every closed ticket, those of the ticket table then those of each
+   * archive table, with forward-only cursors fetching a bounded number of
+   * rows at a time, so that the whole history can be read whatever its
+   * size. A ticket archived while the ticket table is read may be given
+   * twice. The tickets are read from a replica if one is within the
+   * tolerated lag.
+   *
+   * @param fetchSize the number of rows fetched from the database at once
+   * @param action the action given each ticket, in no particular order
+   * @return true if every closed ticket was read
+   */
+  @Override
+  public boolean streamClosedTickets(final int fetchSize,
+                                     final Consumer<Ticket> action) {
+    long start = System.nanoTime();
+    try (Connection con = getHistoryConnection(null)) {
+      streamTickets(con, DataBaseConstants.GET_CLOSED_TICKETS, fetchSize,
+          action);
 
-        if (rs.next()) {
-          ticket = new Ticket();
-          ParkingSpot spot = new ParkingSpot(rs.getInt(DataBaseParameters.ONE),
-              ParkingType.valueOf(rs.getString(DataBaseParameters.SIX)), false);
-          ticket.setParkingSpot(spot);
-          ticket.setId(rs.getInt(DataBaseParameters.TWO));
-          ticket.setVehicleRegNumber(vehicleRegNumber);
-          ticket.setPrice(rs.getDouble(DataBaseParameters.THREE));
-          ticket.setInTime(rs.getTimestamp(DataBaseParameters.FOUR)
-              .toLocalDateTime());
-          Timestamp outTime = rs.getTimestamp(DataBaseParameters.FIVE);
-          ticket.setOutTime(outTime != null ? outTime.toLocalDateTime() : null);
+      List<YearMonth> months = new ArrayList<>();
+      try (PreparedStatement ps = con.prepareStatement(DataBaseConstants
+          .GET_ARCHIVE_MONTHS);
+           ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          months.add(TicketArchiveDao.toMonth(rs.getInt(
+              DataBaseParameters.ONE)));
         }
       }
+      for (YearMonth month : months) {
+        streamTickets(con, String.format(DataBaseConstants
+            .GET_ARCHIVED_TICKETS, TicketArchiveDao.getArchiveTable(month)),
+            fetchSize, action);
+      }
+      return true;
     } catch (Exception ex) {
-      LOGGER.error("Error getting ticket", ex);
+      LOGGER.error("Error streaming closed tickets", ex);
+      STREAM_CLOSED_TICKETS_CALLS.failed();
+    } finally {
+      STREAM_CLOSED_TICKETS_CALLS.stop(start);
     }
 
-    return ticket;
+    return false;
+  }
+
+  /**
+   * Reads the closed tickets returned by a query with a forward-only
+   * cursor.
+   *
+   * @param con the connection of the stream
+   * @param sql the query of the ticket columns and registration number
+   * @param fetchSize the number of rows fetched from the database at once
+   * @param action the action given each ticket
+   */
+  private static void streamTickets(final Connection con, final String sql,
+                                    final int fetchSize,
+                                    final Consumer<Ticket> action)
+      throws SQLException {
+    try (PreparedStatement ps = con.prepareStatement(sql,
+        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+      ps.setFetchSize(fetchSize);
+
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          ParkingSpot spot = new ParkingSpot(rs.getInt(
+              DataBaseParameters.ONE), ParkingType.valueOf(rs.getString(
+              DataBaseParameters.SIX)), true);
+          action.accept(new Ticket(rs.getInt(DataBaseParameters.TWO), spot,
+              rs.getString(DataBaseParameters.SEVEN),
+              rs.getDouble(DataBaseParameters.THREE),
+              rs.getTimestamp(DataBaseParameters.FOUR).toLocalDateTime(),
+              rs.getTimestamp(DataBaseParameters.FIVE).toLocalDateTime()));
+        }
+      }
+    }
   }
 
   /**
@@ -115,52 +495,162 @@ public class  TicketDao {
    * @return true if the ticket was updated successfully
    *     false if the updating process failed
    */
+  @Override
   public boolean updateTicket(final Ticket ticket) {
-    try (Connection con = dataBaseConfig.getConnection();
+    return updateTicket(ticket, null);
+  }
+
+  /**
+   * Updates given ticket with the price and outTime, within the given unit
+   * of work.
+   *
+   * @param ticket the ticket that should be updated
+   * @param unitOfWork the unit of work to run in, null to use a connection
+   *     of its own
+   * @return true if the ticket was updated successfully
+   *     false if the updating process failed
+   */
+  @Override
+  public boolean updateTicket(final Ticket ticket,
+                              final UnitOfWork unitOfWork) {
+    long start = System.nanoTime();
+    try (Connection con = getConnection(unitOfWork);
          PreparedStatement ps = con.prepareStatement(DataBaseConstants
             .UPDATE_TICKET)) {
-      ps.setDouble(DataBaseParameters.ONE, ticket.getPrice());
-      ps.setObject(DataBaseParameters.TWO, ticket.getOutTime());
-      ps.setInt(DataBaseParameters.THREE, ticket.getId());
+      setUpdateParameters(ps, ticket);
 
       if (ps.executeUpdate() == 1) {
         return true;
       }
     } catch (Exception ex) {
       LOGGER.error("Error updating ticket", ex);
+      UPDATE_TICKET_CALLS.failed();
+    } finally {
+      UPDATE_TICKET_CALLS.stop(start);
     }
 
     return false;
   }
 
+  /**
+   * Updates the given tickets with their price and outTime in one JDBC
+   * batch, within the given unit of work. A ticket already closed is not
+   * updated.
+   *
+   * @param tickets the tickets that should be updated
+   * @param unitOfWork the unit of work to run in
+   * @return for each ticket, true if it was updated
+   * @throws SQLException if the batch failed, left to the caller to tell a
+   *     rejected ticket from a lost connection
+   */
+  @Override
+  public boolean[] updateTickets(final List<Ticket> tickets,
+                                 final UnitOfWork unitOfWork)
+      throws SQLException {
+    long start = System.nanoTime();
+    try (Connection con = getConnection(unitOfWork);
+         PreparedStatement ps = con.prepareStatement(DataBaseConstants
+            .UPDATE_TICKET)) {
+      for (Ticket ticket : tickets) {
+        setUpdateParameters(ps, ticket);
+        ps.addBatch();
+      }
+
+      return isRowUpdated(ps.executeBatch());
+    } catch (ClassNotFoundException ex) {
+      LOGGER.error("Error updating ticket batch", ex);
+      UPDATE_TICKETS_CALLS.failed();
+      throw new SQLException("Database driver not found", ex);
+    } catch (SQLException ex) {
+      LOGGER.error("Error updating ticket batch", ex);
+      UPDATE_TICKETS_CALLS.failed();
+      throw ex;
+    } finally {
+      UPDATE_TICKETS_CALLS.stop(start);
+    }
+  }
+
+  /**
+   * Sets the parameters of the ticket update statement.
+   *
+   * @param ps the statement prepared with UPDATE_TICKET
+   * @param ticket the ticket that should be updated
+   */
+  private static void setUpdateParameters(final PreparedStatement ps,
+                                          final Ticket ticket)
+      throws SQLException {
+    ps.setDouble(DataBaseParameters.ONE, ticket.getPrice());
+    ps.setObject(DataBaseParameters.TWO, ticket.getOutTime());
+    ps.setInt(DataBaseParameters.THREE, ticket.getId());
+  }
+
   /**
    * Checks if the incoming user had already used the parking.
    *
    * @param vehicleRegNumber the user's vehicle registration number
    * @return true if the user had already used the parking
-   *     false if the user enters the parking for the first time
+   *     false if the user enters the parking for the first time or if
+   *     the tickets of the user could not be read
    */
+  @Override
   public boolean isRecurringUser(final String vehicleRegNumber) {
-    try (Connection con = dataBaseConfig.getConnection();
-         PreparedStatement ps = con.prepareStatement(DataBaseConstants
-            .GET_TICKET_COUNT)) {
-      ps.setString(DataBaseParameters.ONE, vehicleRegNumber);
+    return Boolean.TRUE.equals(isRecurringUser(vehicleRegNumber, null));
+  }
 
-      try (ResultSet rs = ps.executeQuery()) {
-        /* If the count is equal or greater than 1 it means the user had
-           already used the parking before.
-           If it is equal to 0 then the user has entered the parking for the
-           first time, but has not yet exited. */
-        if (rs.next() && rs.getInt(DataBaseParameters.ONE) >= 1) {
-          return true;
-        } else {
-          LOGGER.debug("No ticket found with this registration number");
+  /**
+   * Checks if the incoming user had already used the parking, within the
+   * given unit of work. The archived history of the vehicle is read only
+   * when the ticket table holds no closed ticket of it. Both are read from a
+   * replica instead if one is within the tolerated lag, a ticket closed
+   * within the lag being missed.
+   *
+   * @param vehicleRegNumber the user's vehicle registration number
+   * @param unitOfWork the unit of work to run in, null to use a connection
+   *     of its own
+   * @return true if the user had already used the parking
+   *     false if the user enters the parking for the first time
+   *     null if the tickets of the user could not be read
+   */
+  @Override
+  public Boolean isRecurringUser(final String vehicleRegNumber,
+                                 final UnitOfWork unitOfWork) {
+    long start = System.nanoTime();
+    try (Connection con = getHistoryConnection(unitOfWork)) {
+      try (PreparedStatement ps = con.prepareStatement(DataBaseConstants
+          .GET_TICKET_COUNT)) {
+        ps.setString(DataBaseParameters.ONE, vehicleRegNumber);
+
+        try (ResultSet rs = ps.executeQuery()) {
+          /* If the count is equal or greater than 1 it means the user had
+             already used the parking before.
+             If it is equal to 0 then the user has entered the parking for
+             the first time, but has not yet exited. */
+          if (rs.next() && rs.getInt(DataBaseParameters.ONE) >= 1) {
+            return true;
+          }
         }
       }
+
+      // Tickets closed before the archive horizon only count in the history
+      try (PreparedStatement ps = con.prepareStatement(DataBaseConstants
+          .GET_TICKET_HISTORY)) {
+        ps.setString(DataBaseParameters.ONE, vehicleRegNumber);
+
+        try (ResultSet rs = ps.executeQuery()) {
+          if (rs.next() && rs.getInt(DataBaseParameters.ONE) >= 1) {
+            return true;
+          }
+        }
+      }
+      LOGGER.debug("No ticket found with this registration number");
+      return false;
     } catch (Exception ex) {
       LOGGER.error("Error checking ticket", ex);
+      IS_RECURRING_USER_CALLS.failed();
+    } finally {
+      IS_RECURRING_USER_CALLS.stop(start);
     }
 
-    return false;
+    return null;
   }
 }
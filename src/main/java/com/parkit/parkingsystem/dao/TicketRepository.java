@@ -0,0 +1,137 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.model.Ticket;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Stores the tickets of the parking, whatever the storage engine. Methods
+ * given a unit of work run in its transaction when the engine has
+ * transactions, and ignore it otherwise.
+ *
+ * @author Laura
+ */
+public interface TicketRepository {
+
+  /**
+   * Saves given ticket.
+   *
+   * @param ticket the ticket to be saved
+   * @return true if ticket was saved successfully
+   *     false if the saving process failed
+   */
+  boolean saveTicket(Ticket ticket);
+
+  /**
+   * Saves given ticket within the given unit of work. The ID given by the
+   * storage is set on the ticket.
+   *
+   * @param ticket the ticket to be saved
+   * @param unitOfWork the unit of work to run in, or null
+   * @return true if ticket was saved successfully
+   *     false if the saving process failed
+   */
+  boolean saveTicket(Ticket ticket, UnitOfWork unitOfWork);
+
+  /**
+   * Saves the given tickets at once, within the given unit of work. The IDs
+   * given by the storage are set on the tickets.
+   *
+   * @param tickets the tickets to be saved
+   * @param unitOfWork the unit of work to run in, or null
+   * @return for each ticket, true if it was saved
+   * @throws SQLException if the whole save failed
+   */
+  boolean[] saveTickets(List<Ticket> tickets, UnitOfWork unitOfWork)
+      throws SQLException;
+
+  /**
+   * Retrieves the latest ticket saved with the given licence plate number.
+   *
+   * @param vehicleRegNumber the user's vehicle registration number
+   * @return the ticket found, or null
+   */
+  Ticket getTicket(String vehicleRegNumber);
+
+  /**
+   * Retrieves the latest ticket saved with the given licence plate number,
+   * within the given unit of work.
+   *
+   * @param vehicleRegNumber the user's vehicle registration number
+   * @param unitOfWork the unit of work to run in, or null
+   * @return the ticket found, or null
+   */
+  Ticket getTicket(String vehicleRegNumber, UnitOfWork unitOfWork);
+
+  /**
+   * Retrieves the tickets of every vehicle still in the parking.
+   *
+   * @return the open tickets, or an empty list if the tickets could not be
+   *     fetched
+   */
+  List<Ticket> getOpenTickets();
+
+  /**
+   * Reads every closed ticket, whatever the size of the history.
+   *
+   * @param fetchSize the number of tickets read from the storage at once
+   * @param action the action given each ticket, in no particular order
+   * @return true if every closed ticket was read
+   */
+  boolean streamClosedTickets(int fetchSize, Consumer<Ticket> action);
+
+  /**
+   * Updates given ticket with the price and outTime.
+   *
+   * @param ticket the ticket that should be updated
+   * @return true if the ticket was updated successfully
+   *     false if the updating process failed
+   */
+  boolean updateTicket(Ticket ticket);
+
+  /**
+   * Updates given ticket with the price and outTime, within the given unit
+   * of work. A ticket already closed is not updated.
+   *
+   * @param ticket the ticket that should be updated
+   * @param unitOfWork the unit of work to run in, or null
+   * @return true if the ticket was updated successfully
+   *     false if the updating process failed
+   */
+  boolean updateTicket(Ticket ticket, UnitOfWork unitOfWork);
+
+  /**
+   * Updates the given tickets with their price and outTime at once, within
+   * the given unit of work. A ticket already closed is not updated.
+   *
+   * @param tickets the tickets that should be updated
+   * @param unitOfWork the unit of work to run in, or null
+   * @return for each ticket, true if it was updated
+   * @throws SQLException if the whole update failed
+   */
+  boolean[] updateTickets(List<Ticket> tickets, UnitOfWork unitOfWork)
+      throws SQLException;
+
+  /**
+   * Checks if the incoming user had already used the parking.
+   *
+   * @param vehicleRegNumber the user's vehicle registration number
+   * @return true if the user had already used the parking
+   *     false if the user enters the parking for the first time
+   */
+  boolean isRecurringUser(String vehicleRegNumber);
+
+  /**
+   * Checks if the incoming user had already used the parking, within the
+   * given unit of work.
+   *
+   * @param vehicleRegNumber the user's vehicle registration number
+   * @param unitOfWork the unit of work to run in, or null
+   * @return true if the user had already used the parking
+   *     false if the user enters the parking for the first time
+   *     null if the tickets of the user could not be read
+   */
+  Boolean isRecurringUser(String vehicleRegNumber, UnitOfWork unitOfWork);
+}
@@ -0,0 +1,466 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.model.Ticket;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Append-only journal of gate events, stored in memory-mapped segment
+ * files. A record is durable as soon as it is copied to the mapped segment,
+ * which survives a crash of the application; it is also forced to disk when
+ * the journal is opened with syncOnAppend, to survive a power loss.
+ *
+ * <p>Each record is framed by its length and CRC32, so that a record torn
+ * by a crash is detected and dropped when the journal is reopened. Records
+ * not yet applied to the database are kept in memory for the flusher; the
+ * sequence of the last applied record is saved in a checkpoint file, and
+ * segments holding only applied records are deleted. Records the database
+ * rejects for good are moved to a dead letter file, framed the same way.
+ *
+ * @author Laura
+ */
+public class GateJournal implements AutoCloseable {
+
+  /**
+   * GateJournal logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger("GateJournal");
+
+  /**
+   * Size of the frame of a record: length and CRC32 of its payload.
+   */
+  private static final int HEADER_SIZE = Integer.BYTES * 2;
+
+  /**
+   * Name of the file holding the sequence of the last applied record.
+   */
+  private static final String CHECKPOINT_FILE = "checkpoint";
+
+  /**
+   * Prefix of the segment file names, followed by their first sequence.
+   */
+  private static final String SEGMENT_PREFIX = "segment-";
+
+  /**
+   * Suffix of the segment file names.
+   */
+  private static final String SEGMENT_SUFFIX = ".journal";
+
+  /**
+   * Name of the file of the records the database rejected for good.
+   */
+  private static final String DEAD_LETTER_FILE = "dead-letters";
+
+  /**
+   * Directory of the journal files.
+   */
+  private final Path directory;
+
+  /**
+   * Size of each segment file in bytes.
+   */
+  private final int segmentSize;
+
+  /**
+   * Tells if each record is forced to disk once appended.
+   */
+  private final boolean syncOnAppend;
+
+  /**
+   * Segment files by first sequence, the last one being written.
+   */
+  private final TreeMap<Long, Path> segments = new TreeMap<>();
+
+  /**
+   * Records not yet applied to the database, in sequence order.
+   */
+  private final BlockingQueue<JournalRecord> pending =
+      new LinkedBlockingQueue<>();
+
+  /**
+   * Mapped segment being written.
+   */
+  private MappedByteBuffer segment;
+
+  /**
+   * Sequence given to the next appended record.
+   */
+  private long nextSequence;
+
+  /**
+   * Sequence of the last record applied to the database.
+   */
+  private volatile long flushedSequence;
+
+  /**
+   * Constructor of class GateJournal. Opens the journal stored in the
+   * given directory, or creates it, and loads the records not yet applied
+   * to the database.
+   *
+   * @param journalDirectory the directory of the journal files
+   * @param segmentBytes the size of each segment file in bytes
+   * @param sync true to force each record to disk once appended
+   * @throws IOException if the journal files cannot be read or created
+   */
+  public GateJournal(final Path journalDirectory, final int segmentBytes,
+                     final boolean sync) throws IOException {
+    this.directory = journalDirectory;
+    this.segmentSize = segmentBytes;
+    this.syncOnAppend = sync;
+
+    Files.createDirectories(directory);
+    flushedSequence = readCheckpoint();
+    nextSequence = flushedSequence + 1;
+    recover();
+  }
+
+  /**
+   * Appends a gate event to the journal.
+   *
+   * @param type the kind of gate event
+   * @param ticket the ticket of the vehicle after the event
+   * @return the record appended, with its sequence
+   * @throws IOException if the record cannot be written
+   */
+  public synchronized JournalRecord append(final JournalRecord.Type type,
+                                           final Ticket ticket)
+      throws IOException {
+    JournalRecord record = new JournalRecord(nextSequence, type, ticket);
+    byte[] payload = record.encode();
+
+    if (HEADER_SIZE + payload.length > segmentSize) {
+      throw new IOException("Journal record larger than a segment");
+    }
+    if (segment.remaining() < HEADER_SIZE + payload.length) {
+      openSegment(nextSequence);
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    int start = segment.position();
+    // The length is written last, a record is never seen half written
+    segment.position(start + Integer.BYTES);
+    segment.putInt((int) crc.getValue());
+    segment.put(payload);
+    segment.putInt(start, payload.length);
+    if (syncOnAppend) {
+      segment.force();
+    }
+
+    nextSequence++;
+    pending.add(record);
+    return record;
+  }
+
+  /**
+   * Takes the next records to apply to the database, waiting for one if
+   * there is none.
+   *
+   * @param maxRecords the maximum number of records to take
+   * @param timeoutMillis the maximum wait for a first record
+   * @return the records in sequence order, empty if none arrived in time
+   */
+  public List<JournalRecord> takePending(final int maxRecords,
+                                         final long timeoutMillis)
+      throws InterruptedException {
+    List<JournalRecord> records = new ArrayList<>();
+    JournalRecord first = pending.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+
+    if (first != null) {
+      records.add(first);
+      pending.drainTo(records, maxRecords - 1);
+    }
+    return records;
+  }
+
+  /**
+   * Records that every record up to the given sequence is applied to the
+   * database, then deletes the segments holding only applied records. The
+   * next record appended follows the given sequence if it is not already
+   * further.
+   *
+   * @param sequence the sequence of the last applied record
+   * @throws IOException if the checkpoint cannot be saved
+   */
+  public synchronized void markFlushed(final long sequence)
+      throws IOException {
+    Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+    Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+    Files.write(temporary, ByteBuffer.allocate(Long.BYTES).putLong(sequence)
+        .array());
+    Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    flushedSequence = sequence;
+    if (sequence >= nextSequence) {
+      // The database is ahead of the journal, which must number after it
+      nextSequence = sequence + 1;
+      openSegment(nextSequence);
+    }
+
+    // A segment is applied once the next one starts after the checkpoint
+    while (segments.size() > 1) {
+      Map.Entry<Long, Path> oldest = segments.firstEntry();
+      if (segments.higherKey(oldest.getKey()) - 1 > sequence) {
+        break;
+      }
+      Files.deleteIfExists(oldest.getValue());
+      segments.remove(oldest.getKey());
+    }
+  }
+
+  /**
+   * Appends a record the database rejected for good to the dead letter
+   * file, forced to disk, so that it can be fixed and applied by hand.
+   *
+   * @param record the record rejected
+   * @throws IOException if the record cannot be written
+   */
+  public synchronized void deadLetter(final JournalRecord record)
+      throws IOException {
+    byte[] payload = record.encode();
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+    frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+    frame.flip();
+
+    try (FileChannel channel = FileChannel.open(directory.resolve(
+        DEAD_LETTER_FILE), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      while (frame.hasRemaining()) {
+        channel.write(frame);
+      }
+      channel.force(false);
+    }
+  }
+
+  /**
+   * Reads the records moved to the dead letter file. Anything after a torn
+   * or corrupt record is ignored.
+   *
+   * @return the records in the order they were rejected
+   * @throws IOException if the dead letter file cannot be read
+   */
+  public synchronized List<JournalRecord> getDeadLetters()
+      throws IOException {
+    List<JournalRecord> records = new ArrayList<>();
+    Path file = directory.resolve(DEAD_LETTER_FILE);
+    if (!Files.exists(file)) {
+      return records;
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+    while (buffer.remaining() >= HEADER_SIZE) {
+      int length = buffer.getInt();
+      int storedCrc = buffer.getInt();
+      if (length <= 0 || length > buffer.remaining()) {
+        break;
+      }
+      byte[] payload = new byte[length];
+      buffer.get(payload);
+      CRC32 crc = new CRC32();
+      crc.update(payload);
+      if ((int) crc.getValue() != storedCrc) {
+        LOGGER.warn("Dead letter file truncated after " + records.size()
+            + " records");
+        break;
+      }
+      records.add(JournalRecord.decode(ByteBuffer.wrap(payload)));
+    }
+    return records;
+  }
+
+  /**
+   * Getter of flushedSequence.
+   *
+   * @return the sequence of the last record applied to the database
+   */
+  public long getFlushedSequence() {
+    return flushedSequence;
+  }
+
+  /**
+   * Getter of the number of records not yet applied to the database.
+   *
+   * @return the number of pending records
+   */
+  public int getPendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Forces the segment being written to disk.
+   */
+  @Override
+  public synchronized void close() {
+    if (segment != null) {
+      segment.force();
+    }
+  }
+
+  /**
+   * Reads every segment in order, loads the records not yet applied and
+   * opens the last segment after its last valid record. Anything after the
+   * first torn or corrupt record is dropped.
+   */
+  private void recover() throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+        SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+            name.length() - SEGMENT_SUFFIX.length())), file);
+      }
+    }
+
+    long expected = segments.isEmpty() ? nextSequence : segments.firstKey();
+    boolean truncated = false;
+    List<Path> unreachable = new ArrayList<>();
+    for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+      if (truncated || entry.getKey() != expected) {
+        LOGGER.warn("Dropping journal segment " + entry.getValue()
+            + " written after a corrupt record");
+        unreachable.add(entry.getValue());
+        truncated = true;
+        continue;
+      }
+
+      segment = map(entry.getValue());
+      expected = readSegment(expected);
+      // A record left unread hides the records written after it
+      truncated = segment.remaining() >= HEADER_SIZE
+          && segment.getInt(segment.position()) != 0;
+    }
+    for (Path file : unreachable) {
+      Files.delete(file);
+    }
+    segments.values().removeAll(unreachable);
+
+    if (pending.isEmpty()) {
+      // Every record on disk is applied, the journal starts over
+      for (Path file : segments.values()) {
+        Files.delete(file);
+      }
+      segments.clear();
+      segment = null;
+      openSegment(nextSequence);
+    } else {
+      // Clear a torn record left at the end of the segment to write to
+      for (int i = segment.position(); i < segment.limit(); i++) {
+        segment.put(i, (byte) 0);
+      }
+      nextSequence = expected;
+    }
+
+    LOGGER.info("Journal opened with " + pending.size()
+        + " records to apply");
+  }
+
+  /**
+   * Reads the valid records of the mapped segment, leaving its position
+   * after the last one.
+   *
+   * @param firstSequence the sequence expected for the first record
+   * @return the sequence expected for the record following the segment
+   */
+  private long readSegment(final long firstSequence) {
+    long expected = firstSequence;
+
+    while (segment.remaining() >= HEADER_SIZE) {
+      int start = segment.position();
+      int length = segment.getInt(start);
+      if (length <= 0 || length > segment.remaining() - HEADER_SIZE) {
+        break;
+      }
+
+      byte[] payload = new byte[length];
+      int storedCrc = segment.getInt(start + Integer.BYTES);
+      segment.position(start + HEADER_SIZE);
+      segment.get(payload);
+      CRC32 crc = new CRC32();
+      crc.update(payload);
+
+      JournalRecord record = null;
+      if ((int) crc.getValue() == storedCrc) {
+        try {
+          record = JournalRecord.decode(ByteBuffer.wrap(payload));
+        } catch (IllegalArgumentException e) {
+          LOGGER.warn("Unreadable journal record", e);
+        }
+      }
+      if (record == null || record.getSequence() != expected) {
+        LOGGER.warn("Journal truncated at record " + expected);
+        segment.position(start);
+        break;
+      }
+
+      if (record.getSequence() > flushedSequence) {
+        pending.add(record);
+      }
+      expected++;
+    }
+
+    return expected;
+  }
+
+  /**
+   * Creates and maps a new segment to write to.
+   *
+   * @param firstSequence the sequence of the first record of the segment
+   */
+  private void openSegment(final long firstSequence) throws IOException {
+    if (segment != null) {
+      segment.force();
+    }
+
+    Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX,
+        firstSequence, SEGMENT_SUFFIX));
+    segment = map(file);
+    segments.put(firstSequence, file);
+  }
+
+  /**
+   * Maps a segment file, creating it if needed.
+   *
+   * @param file the segment file
+   * @return the mapped segment, positioned at its start
+   */
+  private MappedByteBuffer map(final Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file,
+        StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      // The mapping stays valid once the channel is closed
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+  }
+
+  /**
+   * Reads the sequence of the last record applied to the database.
+   *
+   * @return the sequence saved in the checkpoint file, 0 if none
+   */
+  private long readCheckpoint() throws IOException {
+    Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+    if (!Files.exists(checkpoint)) {
+      return 0;
+    }
+    return ByteBuffer.wrap(Files.readAllBytes(checkpoint)).getLong();
+  }
+}
@@ -0,0 +1,490 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.dao.JournalDao;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToDoubleBiFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+/**
+ * Applies the records of the gate journal to the database, in order, in
+ * the background. A batch of records is applied in one transaction and
+ * retried while the database cannot be reached, so that gates keep working
+ * while the database is slow or unreachable. The sequence of the last record
+ * applied is saved in the same transaction, so that records replayed after
+ * a crash are applied exactly once.
+ *
+ * <p>A refused batch is applied again one record at a time. A record still
+ * refused alone while the database answers is retried a few times with a
+ * growing delay, then moved to the dead letters of the journal and skipped,
+ * so that a record the database rejects for good never blocks the others.
+ *
+ * @author Laura
+ */
+public class JournalFlusher implements AutoCloseable {
+
+  /**
+   * JournalFlusher logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger("JournalFlusher");
+
+  /**
+   * Time the flusher waits for a record before checking if it must stop.
+   */
+  private static final long IDLE_POLL_MILLIS = 100;
+
+  /**
+   * Number of times a record is refused alone, while the database answers,
+   * before it is moved to the dead letters.
+   */
+  private static final int MAX_RECORD_ATTEMPTS = 3;
+
+  /**
+   * Longest time waited before retrying refused records.
+   */
+  private static final long MAX_RETRY_DELAY_MILLIS = 60_000;
+
+  /**
+   * Number of journal records moved to the dead letters.
+   */
+  private static final Counter DEAD_LETTERS = MetricsRegistry.getDefault()
+      .counter("parkit_journal_dead_letters_total",
+          "Number of journal records the database rejected for good");
+
+  /**
+   * Number of times journal records were refused by the database.
+   */
+  private static final Counter REFUSALS = MetricsRegistry.getDefault()
+      .counter("parkit_journal_refusals_total",
+          "Number of times journal records were refused by the database");
+
+  /**
+   * Journal whose records are applied.
+   */
+  private final GateJournal journal;
+
+  /**
+   * Configuration giving the connection of each batch.
+   */
+  private final DataBaseConfig dataBaseConfig;
+
+  /**
+   * Repository of the spots taken and freed.
+   */
+  private final ParkingSpotRepository parkingSpotDao;
+
+  /**
+   * Repository of the tickets opened and closed.
+   */
+  private final TicketRepository ticketDao;
+
+  /**
+   * JournalDao saving the sequence of the last record applied.
+   */
+  private final JournalDao journalDao;
+
+  /**
+   * Maximum number of records applied in one transaction.
+   */
+  private final int batchSize;
+
+  /**
+   * Time waited before retrying a batch the database refused.
+   */
+  private final long retryDelayMillis;
+
+  /**
+   * Computes the fare of the exits journaled with a pending fare, null
+   * until set.
+   */
+  private volatile ToDoubleBiFunction<Ticket, UnitOfWork> exitPricer;
+
+  /**
+   * Sequence of the last record applied to the database, -1 until read.
+   */
+  private volatile long appliedSequence = -1;
+
+  /**
+   * Sequence of the last record refused alone, -1 if none.
+   */
+  private long refusedSequence = -1;
+
+  /**
+   * Number of times the record of refusedSequence was refused alone.
+   */
+  private int refusedAttempts;
+
+  /**
+   * Sequence of the last record written to the dead letters, -1 if none.
+   */
+  private long deadLetterSequence = -1;
+
+  /**
+   * Thread applying the records, null until started.
+   */
+  private Thread flusher;
+
+  /**
+   * Tells if the flusher must keep waiting for records.
+   */
+  private volatile boolean running;
+
+  /**
+   * Constructor of class JournalFlusher.
+   *
+   * @param gateJournal the journal whose records are applied
+   * @param config the configuration giving the connection of each batch
+   * @param daoParkingSpot the repository of the spots taken and freed
+   * @param daoTicket the repository of the tickets opened and closed
+   * @param daoJournal the JournalDao saving the last record applied
+   * @param maxBatchSize the maximum number of records applied at once
+   * @param retryDelay the time first waited before retrying a refused
+   *     batch, doubled at each refusal
+   */
+  public JournalFlusher(final GateJournal gateJournal,
+                        final DataBaseConfig config,
+                        final ParkingSpotRepository daoParkingSpot,
+                        final TicketRepository daoTicket,
+                        final JournalDao daoJournal, final int maxBatchSize,
+                        final long retryDelay) {
+    this.journal = gateJournal;
+    this.dataBaseConfig = config;
+    this.parkingSpotDao = daoParkingSpot;
+    this.ticketDao = daoTicket;
+    this.journalDao = daoJournal;
+    this.batchSize = maxBatchSize;
+    this.retryDelayMillis = retryDelay;
+  }
+
+  /**
+   * Setter of the pricer of the exits journaled with a pending fare.
+   *
+   * @param pricer computes the fare of a closed ticket within the unit of
+   *     work applying its exit
+   */
+  public void setExitPricer(final ToDoubleBiFunction<Ticket, UnitOfWork>
+                                pricer) {
+    this.exitPricer = pricer;
+  }
+
+  /**
+   * Applies every record left unapplied by the previous run, before the
+   * service loads its state from the database. Records the database
+   * rejects for good are moved to the dead letters.
+   *
+   * @return true if every record was applied or moved, false if the
+   *     database cannot be reached
+   * @throws IOException if the journal checkpoint cannot be saved
+   */
+  public boolean recover() throws InterruptedException, IOException {
+    appliedSequence = journalDao.getAppliedSequence();
+    if (appliedSequence < 0) {
+      return false;
+    }
+
+    long firstSequence = appliedSequence;
+    List<JournalRecord> records = Collections.emptyList();
+    long delay = retryDelayMillis;
+
+    while (!records.isEmpty() || journal.getPendingCount() > 0) {
+      if (records.isEmpty()) {
+        records = journal.takePending(batchSize, 0);
+        continue;
+      }
+
+      records = flush(records);
+      if (records.isEmpty()) {
+        delay = retryDelayMillis;
+      } else if (!isDataBaseReachable()) {
+        return false;
+      } else {
+        Thread.sleep(delay);
+        delay = nextDelay(delay);
+      }
+    }
+    long recovered = appliedSequence - firstSequence;
+
+    if (appliedSequence > journal.getFlushedSequence()) {
+      // A journal recreated empty would reuse sequences already applied
+      journal.markFlushed(appliedSequence);
+    }
+    if (recovered > 0) {
+      LOGGER.info("Recovered " + recovered + " journal records");
+    }
+    return true;
+  }
+
+  /**
+   * Starts applying the records appended to the journal. Call recover
+   * first.
+   */
+  public synchronized void start() {
+    if (appliedSequence < 0) {
+      throw new IllegalStateException("Journal not recovered");
+    }
+    running = true;
+    flusher = new Thread(this::flushLoop, "journal-flusher");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  /**
+   * Applies the records already appended, then stops. Records the database
+   * refuses by then are applied at the next start.
+   */
+  @Override
+  public synchronized void close() {
+    running = false;
+    if (flusher == null) {
+      return;
+    }
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Applies the records in batches until the flusher is closed and the
+   * journal has no record left. Refused records are retried with a delay
+   * doubled at each refusal.
+   */
+  private void flushLoop() {
+    List<JournalRecord> records = Collections.emptyList();
+    long delay = retryDelayMillis;
+
+    try {
+      while (running || journal.getPendingCount() > 0
+          || !records.isEmpty()) {
+        if (records.isEmpty()) {
+          records = journal.takePending(batchSize, IDLE_POLL_MILLIS);
+          continue;
+        }
+
+        records = flush(records);
+        if (records.isEmpty()) {
+          delay = retryDelayMillis;
+        } else if (!running) {
+          LOGGER.warn("Journal records left to apply at next start");
+          return;
+        } else {
+          LOGGER.error("Journal record {} refused, retrying in {} ms",
+              Unbox.box(records.get(0).getSequence()), Unbox.box(delay));
+          Thread.sleep(delay);
+          delay = nextDelay(delay);
+        }
+      }
+    } catch (InterruptedException e) {
+      LOGGER.error("Journal flusher interrupted", e);
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Gets the delay to wait after a refusal following the given one.
+   *
+   * @param delay the delay waited after the previous refusal
+   * @return the doubled delay, bounded
+   */
+  private long nextDelay(final long delay) {
+    return Math.max(retryDelayMillis, Math.min(delay * 2,
+        MAX_RETRY_DELAY_MILLIS));
+  }
+
+  /**
+   * Applies records in one batch, then one at a time from the first one if
+   * the batch is refused, and moves the refused record to the dead letters
+   * once it was refused alone too many times while the database answers.
+   *
+   * @param records the records in sequence order
+   * @return the records left to apply, starting with the refused one, empty
+   *     if every record was applied or moved
+   */
+  private List<JournalRecord> flush(final List<JournalRecord> records) {
+    if (apply(records)) {
+      return Collections.emptyList();
+    }
+    REFUSALS.increment();
+
+    int refused = 0;
+    if (records.size() > 1) {
+      while (refused < records.size()
+          && apply(records.subList(refused, refused + 1))) {
+        refused++;
+      }
+      if (refused == records.size()) {
+        return Collections.emptyList();
+      }
+    }
+
+    List<JournalRecord> left = records.subList(refused, records.size());
+    JournalRecord record = left.get(0);
+    if (!isDataBaseReachable()) {
+      // Not the fault of the record, retried however long it takes
+      return left;
+    }
+    if (record.getSequence() != refusedSequence) {
+      refusedSequence = record.getSequence();
+      refusedAttempts = 0;
+    }
+    if (++refusedAttempts < MAX_RECORD_ATTEMPTS || !deadLetter(record)) {
+      return left;
+    }
+    return left.subList(1, left.size());
+  }
+
+  /**
+   * Tells if the database answers, to tell a record it rejects from a
+   * database that cannot be reached.
+   *
+   * @return true if the database answers
+   */
+  private boolean isDataBaseReachable() {
+    return journalDao.getAppliedSequence() >= 0;
+  }
+
+  /**
+   * Moves a record to the dead letters of the journal, then saves its
+   * sequence as applied so that the next records are applied.
+   *
+   * @param record the record rejected for good
+   * @return true if the record was moved
+   */
+  private boolean deadLetter(final JournalRecord record) {
+    long sequence = record.getSequence();
+
+    try (UnitOfWork unitOfWork = dataBaseConfig.beginUnitOfWork()) {
+      // Written once, even if the sequence cannot be saved at first
+      if (sequence > deadLetterSequence) {
+        journal.deadLetter(record);
+        deadLetterSequence = sequence;
+      }
+      if (!journalDao.updateAppliedSequence(sequence, unitOfWork)) {
+        return false;
+      }
+      unitOfWork.commit();
+      appliedSequence = sequence;
+      journal.markFlushed(sequence);
+    } catch (Exception e) {
+      LOGGER.error("Unable to skip journal record " + sequence, e);
+      return false;
+    }
+
+    DEAD_LETTERS.increment();
+    LOGGER.error("Journal record {} for vehicle {} rejected {} times, "
+        + "moved to the dead letters", Unbox.box(sequence),
+        record.getTicket().getVehicleRegNumber(),
+        Unbox.box(refusedAttempts));
+    return true;
+  }
+
+  /**
+   * Applies records in one transaction with the sequence of the last one,
+   * then saves them as applied in the journal. Records already applied
+   * before a crash are skipped.
+   *
+   * @param records the records in sequence order
+   * @return true if every record was applied
+   */
+  private boolean apply(final List<JournalRecord> records) {
+    long lastSequence = records.get(records.size() - 1).getSequence();
+
+    try (UnitOfWork unitOfWork = dataBaseConfig.beginUnitOfWork()) {
+      for (JournalRecord record : records) {
+        if (record.getSequence() <= appliedSequence) {
+          continue;
+        }
+        boolean applied = record.getType() == JournalRecord.Type.ENTRY
+            ? applyEntry(record.getTicket(), unitOfWork)
+            : applyExit(record.getTicket(), unitOfWork);
+        if (!applied) {
+          LOGGER.error("Unable to apply journal record {}",
+              Unbox.box(record.getSequence()));
+          return false;
+        }
+      }
+
+      if (lastSequence > appliedSequence) {
+        if (!journalDao.updateAppliedSequence(lastSequence, unitOfWork)) {
+          return false;
+        }
+        unitOfWork.commit();
+        appliedSequence = lastSequence;
+      }
+      journal.markFlushed(lastSequence);
+      return true;
+    } catch (Exception e) {
+      LOGGER.error("Unable to apply journal records", e);
+      return false;
+    }
+  }
+
+  /**
+   * Takes the spot of an entry and saves its ticket.
+   *
+   * @param ticket the ticket opened by the entry
+   * @param unitOfWork the transaction of the batch
+   * @return true if the entry is applied
+   */
+  private boolean applyEntry(final Ticket ticket,
+                             final UnitOfWork unitOfWork) {
+    ParkingSpot parkingSpot = ticket.getParkingSpot();
+    parkingSpot.setAvailable(false);
+    return parkingSpotDao.updateParking(parkingSpot, unitOfWork)
+        && ticketDao.saveTicket(ticket, unitOfWork);
+  }
+
+  /**
+   * Closes the open ticket of an exit with its fare, computed first if it
+   * is pending, and frees its spot.
+   *
+   * @param ticket the ticket closed by the exit
+   * @param unitOfWork the transaction of the batch
+   * @return true if the exit is applied
+   */
+  private boolean applyExit(final Ticket ticket,
+                            final UnitOfWork unitOfWork) {
+    // No ticket means a failed read, or an entry moved to the dead letters
+    // which makes the exit rejected for good too
+    Ticket open = ticketDao.getTicket(ticket.getVehicleRegNumber(),
+        unitOfWork);
+    if (open == null) {
+      return false;
+    }
+    if (open.getOutTime() != null) {
+      // Retrying cannot fix a database changed behind the journal
+      LOGGER.error("No open ticket to close for vehicle {}, exit skipped",
+          ticket.getVehicleRegNumber());
+      return true;
+    }
+
+    open.setOutTime(ticket.getOutTime());
+    if (Double.isNaN(ticket.getPrice())) {
+      ToDoubleBiFunction<Ticket, UnitOfWork> pricer = exitPricer;
+      if (pricer == null) {
+        LOGGER.error("No pricer for the pending fare of vehicle {}",
+            ticket.getVehicleRegNumber());
+        return false;
+      }
+      open.setPrice(pricer.applyAsDouble(open, unitOfWork));
+    } else {
+      open.setPrice(ticket.getPrice());
+    }
+    ParkingSpot parkingSpot = ticket.getParkingSpot();
+    parkingSpot.setAvailable(true);
+    return ticketDao.updateTicket(open, unitOfWork)
+        && parkingSpotDao.updateParking(parkingSpot, unitOfWork);
+  }
+}
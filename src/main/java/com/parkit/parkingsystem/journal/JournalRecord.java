@@ -0,0 +1,195 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * A vehicle entry or exit recorded in the gate journal, with the state of
+ * its ticket at that time.
+ *
+ * @author Laura
+ */
+public class JournalRecord {
+
+  /**
+   * Kind of gate event.
+   */
+  public enum Type {
+    /**
+     * A vehicle entered: its spot is taken and its ticket opened.
+     */
+    ENTRY,
+    /**
+     * A vehicle exited: its ticket is closed and its spot freed.
+     */
+    EXIT
+  }
+
+  /**
+   * Price of an exit journaled before its fare could be computed, left to
+   * the flusher. Tested with Double.isNaN.
+   */
+  public static final double PRICE_PENDING = Double.NaN;
+
+  /**
+   * Size of the fixed fields of an encoded record: sequence, type, parking
+   * number, parking type, in-time, out-time flag and time, price and plate
+   * length.
+   */
+  private static final int FIXED_SIZE = Long.BYTES + 1 + Integer.BYTES + 1
+      + Long.BYTES + Integer.BYTES + 1 + Long.BYTES + Integer.BYTES
+      + Double.BYTES + Short.BYTES;
+
+  /**
+   * Position of the record in the journal, set when appended.
+   */
+  private final long sequence;
+
+  /**
+   * Kind of gate event.
+   */
+  private final Type type;
+
+  /**
+   * State of the ticket when the event was recorded.
+   */
+  private final Ticket ticket;
+
+  /**
+   * Constructor of class JournalRecord.
+   *
+   * @param position the position of the record in the journal
+   * @param eventType the kind of gate event
+   * @param eventTicket the ticket of the vehicle, copied
+   */
+  public JournalRecord(final long position, final Type eventType,
+                       final Ticket eventTicket) {
+    this.sequence = position;
+    this.type = eventType;
+    this.ticket = copy(eventTicket);
+  }
+
+  /**
+   * Copies a ticket and its spot.
+   *
+   * @param ticket the ticket to copy
+   * @return the copy
+   */
+  private static Ticket copy(final Ticket ticket) {
+    ParkingSpot spot = ticket.getParkingSpot();
+    return new Ticket(ticket.getId(), new ParkingSpot(spot.getNumber(),
+        spot.getParkingType(), spot.isAvailable()),
+        ticket.getVehicleRegNumber(), ticket.getPrice(), ticket.getInTime(),
+        ticket.getOutTime());
+  }
+
+  /**
+   * Getter of sequence.
+   *
+   * @return the position of the record in the journal
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Getter of type.
+   *
+   * @return the kind of gate event
+   */
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Getter of ticket.
+   *
+   * @return a copy of the ticket when the event was recorded
+   */
+  public Ticket getTicket() {
+    return copy(ticket);
+  }
+
+  /**
+   * Encodes the record.
+   *
+   * @return the encoded record
+   */
+  byte[] encode() {
+    byte[] plate = ticket.getVehicleRegNumber().getBytes(
+        StandardCharsets.UTF_8);
+    ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + plate.length);
+    LocalDateTime outTime = ticket.getOutTime();
+
+    buffer.putLong(sequence);
+    buffer.put((byte) type.ordinal());
+    buffer.putInt(ticket.getParkingSpot().getNumber());
+    buffer.put((byte) ticket.getParkingSpot().getParkingType().ordinal());
+    putTime(buffer, ticket.getInTime());
+    buffer.put((byte) (outTime != null ? 1 : 0));
+    putTime(buffer, outTime != null ? outTime : ticket.getInTime());
+    buffer.putDouble(ticket.getPrice());
+    buffer.putShort((short) plate.length);
+    buffer.put(plate);
+
+    return buffer.array();
+  }
+
+  /**
+   * Decodes a record.
+   *
+   * @param buffer the buffer holding the encoded record
+   * @return the decoded record
+   * @throws IllegalArgumentException if the record is malformed
+   */
+  static JournalRecord decode(final ByteBuffer buffer) {
+    try {
+      long sequence = buffer.getLong();
+      Type type = Type.values()[buffer.get()];
+      int parkingNumber = buffer.getInt();
+      ParkingType parkingType = ParkingType.values()[buffer.get()];
+      LocalDateTime inTime = getTime(buffer);
+      boolean exited = buffer.get() == 1;
+      LocalDateTime outTime = getTime(buffer);
+      double price = buffer.getDouble();
+      byte[] plate = new byte[buffer.getShort()];
+      buffer.get(plate);
+
+      Ticket ticket = new Ticket(0, new ParkingSpot(parkingNumber,
+          parkingType, type == Type.EXIT), new String(plate,
+          StandardCharsets.UTF_8), price, inTime, exited ? outTime : null);
+      return new JournalRecord(sequence, type, ticket);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Malformed journal record", e);
+    }
+  }
+
+  /**
+   * Writes a time as UTC epoch seconds and nanoseconds.
+   *
+   * @param buffer the buffer to write to
+   * @param time the time to write
+   */
+  private static void putTime(final ByteBuffer buffer,
+                              final LocalDateTime time) {
+    buffer.putLong(time.toEpochSecond(ZoneOffset.UTC));
+    buffer.putInt(time.getNano());
+  }
+
+  /**
+   * Reads a time written by putTime.
+   *
+   * @param buffer the buffer to read from
+   * @return the time read
+   */
+  private static LocalDateTime getTime(final ByteBuffer buffer) {
+    long epochSecond = buffer.getLong();
+    return LocalDateTime.ofEpochSecond(epochSecond, buffer.getInt(),
+        ZoneOffset.UTC);
+  }
+}
@@ -0,0 +1,6 @@
+/**
+ * Contains classes of the write-ahead journal of gate events.
+ *
+ * @author laura
+ */
+package com.parkit.parkingsystem.journal;
@@ -0,0 +1,65 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of events since the start, incremented by many threads without
+ * contention.
+ *
+ * @author Laura
+ */
+public class Counter extends Metric implements CounterMBean {
+
+  /**
+   * Number of events.
+   */
+  private final LongAdder count = new LongAdder();
+
+  /**
+   * Constructor of class Counter.
+   *
+   * @param name the name of the counter, ending with _total
+   * @param help the description of the counter
+   * @param labels the names and values of the labels, one after the other
+   */
+  public Counter(final String name, final String help,
+                 final String... labels) {
+    super(name, help, labels);
+  }
+
+  /**
+   * Counts one event.
+   */
+  public void increment() {
+    count.increment();
+  }
+
+  /**
+   * Counts several events.
+   *
+   * @param events the number of events
+   */
+  public void add(final long events) {
+    count.add(events);
+  }
+
+  @Override
+  public long getCount() {
+    return count.sum();
+  }
+
+  @Override
+  String getType() {
+    return "counter";
+  }
+
+  @Override
+  Class<?> getMBeanInterface() {
+    return CounterMBean.class;
+  }
+
+  @Override
+  void appendSamples(final StringBuilder out) {
+    appendSample(out, "", null, getCount());
+  }
+}
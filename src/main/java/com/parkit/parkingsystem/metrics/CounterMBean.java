@@ -0,0 +1,16 @@
+package com.parkit.parkingsystem.metrics;
+
+/**
+ * JMX view of a counter.
+ *
+ * @author Laura
+ */
+public interface CounterMBean {
+
+  /**
+   * Getter of the count.
+   *
+   * @return the number of events counted since the start
+   */
+  long getCount();
+}
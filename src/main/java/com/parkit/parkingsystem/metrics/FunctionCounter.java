@@ -0,0 +1,52 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Counter read from a component keeping its own count, such as the hits of
+ * a cache.
+ *
+ * @author Laura
+ */
+public class FunctionCounter extends Metric implements CounterMBean {
+
+  /**
+   * Source of the count.
+   */
+  private final LongSupplier source;
+
+  /**
+   * Constructor of class FunctionCounter.
+   *
+   * @param name the name of the counter, ending with _total
+   * @param help the description of the counter
+   * @param countSource the source of the count, read on every export
+   * @param labels the names and values of the labels, one after the other
+   */
+  public FunctionCounter(final String name, final String help,
+                         final LongSupplier countSource,
+                         final String... labels) {
+    super(name, help, labels);
+    this.source = countSource;
+  }
+
+  @Override
+  public long getCount() {
+    return source.getAsLong();
+  }
+
+  @Override
+  String getType() {
+    return "counter";
+  }
+
+  @Override
+  Class<?> getMBeanInterface() {
+    return CounterMBean.class;
+  }
+
+  @Override
+  void appendSamples(final StringBuilder out) {
+    appendSample(out, "", null, getCount());
+  }
+}
@@ -0,0 +1,51 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Value read from the application whenever the gauge is exported, such as
+ * the number of idle connections.
+ *
+ * @author Laura
+ */
+public class Gauge extends Metric implements GaugeMBean {
+
+  /**
+   * Source of the value.
+   */
+  private final DoubleSupplier source;
+
+  /**
+   * Constructor of class Gauge.
+   *
+   * @param name the name of the gauge
+   * @param help the description of the gauge
+   * @param valueSource the source of the value, read on every export
+   * @param labels the names and values of the labels, one after the other
+   */
+  public Gauge(final String name, final String help,
+               final DoubleSupplier valueSource, final String... labels) {
+    super(name, help, labels);
+    this.source = valueSource;
+  }
+
+  @Override
+  public double getValue() {
+    return source.getAsDouble();
+  }
+
+  @Override
+  String getType() {
+    return "gauge";
+  }
+
+  @Override
+  Class<?> getMBeanInterface() {
+    return GaugeMBean.class;
+  }
+
+  @Override
+  void appendSamples(final StringBuilder out) {
+    appendSample(out, "", null, getValue());
+  }
+}
@@ -0,0 +1,16 @@
+package com.parkit.parkingsystem.metrics;
+
+/**
+ * JMX view of a gauge.
+ *
+ * @author Laura
+ */
+public interface GaugeMBean {
+
+  /**
+   * Getter of the value.
+   *
+   * @return the current value
+   */
+  double getValue();
+}
@@ -0,0 +1,252 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of the latencies of an operation since the start. Latencies
+ * are counted in log-linear buckets: each power of two of nanoseconds is
+ * split in 8 buckets, so that a percentile is known within 12.5% with a
+ * fixed array of counters and no allocation per recording.
+ *
+ * <p>Exported to Prometheus as a summary of seconds, the highest latency
+ * being given as quantile 1.
+ *
+ * @author Laura
+ */
+public class LatencyHistogram extends Metric implements LatencyHistogramMBean {
+
+  /**
+   * Number of bits of a latency kept below its highest bit.
+   */
+  private static final int SUB_BUCKET_BITS = 3;
+
+  /**
+   * Number of buckets of each power of two.
+   */
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Number of buckets covering every positive long.
+   */
+  private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS)
+      * SUB_BUCKETS;
+
+  /**
+   * Quantiles exported to Prometheus.
+   */
+  private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+  /**
+   * Nanoseconds in one millisecond.
+   */
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS
+      .toNanos(1);
+
+  /**
+   * Nanoseconds in one second.
+   */
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * Number of latencies recorded in each bucket.
+   */
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+  /**
+   * Sum of the latencies recorded, in nanoseconds.
+   */
+  private final LongAdder totalNanos = new LongAdder();
+
+  /**
+   * Highest latency recorded, in nanoseconds.
+   */
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  /**
+   * Constructor of class LatencyHistogram.
+   *
+   * @param name the name of the histogram, ending with _seconds
+   * @param help the description of the histogram
+   * @param labels the names and values of the labels, one after the other
+   */
+  public LatencyHistogram(final String name, final String help,
+                          final String... labels) {
+    super(name, help, labels);
+  }
+
+  /**
+   * Records the latency of an operation.
+   *
+   * @param nanos the latency in nanoseconds, negative values counting as 0
+   */
+  public void record(final long nanos) {
+    long latency = Math.max(0, nanos);
+    buckets.incrementAndGet(getBucket(latency));
+    totalNanos.add(latency);
+
+    long max = maxNanos.get();
+    while (latency > max && !maxNanos.compareAndSet(max, latency)) {
+      max = maxNanos.get();
+    }
+  }
+
+  /**
+   * Records the latency of an operation which has just ended.
+   *
+   * @param startNanos the System.nanoTime() read when the operation began
+   */
+  public void recordSince(final long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Gives the bucket counting a latency.
+   *
+   * @param nanos the latency in nanoseconds, positive
+   * @return the index of the bucket
+   */
+  static int getBucket(final long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return (int) nanos;
+    }
+    int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos)
+        - SUB_BUCKET_BITS;
+    return ((shift + 1) << SUB_BUCKET_BITS)
+        + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  /**
+   * Gives the highest latency counted by a bucket.
+   *
+   * @param bucket the index of the bucket
+   * @return the upper bound of the bucket in nanoseconds
+   */
+  static long getUpperBound(final int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+    long subBucket = bucket & (SUB_BUCKETS - 1);
+    // Wraps to Long.MAX_VALUE for the last bucket
+    return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+  }
+
+  /**
+   * Copies the bucket counts, which may be updated during the copy.
+   *
+   * @return the count of each bucket
+   */
+  private long[] snapshot() {
+    long[] counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets.get(i);
+    }
+    return counts;
+  }
+
+  /**
+   * Gives a percentile of a copy of the buckets.
+   *
+   * @param counts the count of each bucket
+   * @param total the sum of the counts
+   * @param quantile the quantile, between 0 and 1
+   * @return the percentile in nanoseconds, 0 without latency
+   */
+  private long getPercentile(final long[] counts, final long total,
+                             final double quantile) {
+    if (total == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(quantile * total));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(getUpperBound(i), maxNanos.get());
+      }
+    }
+    return maxNanos.get();
+  }
+
+  /**
+   * Gives a percentile of the latencies recorded.
+   *
+   * @param quantile the quantile, between 0 and 1
+   * @return the percentile in nanoseconds, within 12.5%, 0 without latency
+   */
+  public long getPercentileNanos(final double quantile) {
+    long[] counts = snapshot();
+    long total = 0;
+    for (long count : counts) {
+      total += count;
+    }
+    return getPercentile(counts, total, quantile);
+  }
+
+  @Override
+  public long getCount() {
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      total += buckets.get(i);
+    }
+    return total;
+  }
+
+  @Override
+  public double getMeanMillis() {
+    long count = getCount();
+    return count == 0 ? 0 : totalNanos.sum() / NANOS_PER_MILLI / count;
+  }
+
+  @Override
+  public double getP50Millis() {
+    return getPercentileNanos(QUANTILES[0]) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getP95Millis() {
+    return getPercentileNanos(QUANTILES[1]) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getP99Millis() {
+    return getPercentileNanos(QUANTILES[2]) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getMaxMillis() {
+    return maxNanos.get() / NANOS_PER_MILLI;
+  }
+
+  @Override
+  String getType() {
+    return "summary";
+  }
+
+  @Override
+  Class<?> getMBeanInterface() {
+    return LatencyHistogramMBean.class;
+  }
+
+  @Override
+  void appendSamples(final StringBuilder out) {
+    long[] counts = snapshot();
+    long total = 0;
+    for (long count : counts) {
+      total += count;
+    }
+
+    for (double quantile : QUANTILES) {
+      appendSample(out, "", "quantile=\"" + quantile + "\"",
+          getPercentile(counts, total, quantile) / NANOS_PER_SECOND);
+    }
+    appendSample(out, "", "quantile=\"1.0\"",
+        maxNanos.get() / NANOS_PER_SECOND);
+    appendSample(out, "_sum", null, totalNanos.sum() / NANOS_PER_SECOND);
+    appendSample(out, "_count", null, total);
+  }
+}
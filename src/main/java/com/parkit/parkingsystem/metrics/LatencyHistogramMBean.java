@@ -0,0 +1,51 @@
+package com.parkit.parkingsystem.metrics;
+
+/**
+ * JMX view of a latency histogram, in milliseconds.
+ *
+ * @author Laura
+ */
+public interface LatencyHistogramMBean {
+
+  /**
+   * Getter of the number of operations recorded.
+   *
+   * @return the number of operations since the start
+   */
+  long getCount();
+
+  /**
+   * Getter of the mean latency.
+   *
+   * @return the mean latency in milliseconds, 0 without operation
+   */
+  double getMeanMillis();
+
+  /**
+   * Getter of the median latency.
+   *
+   * @return the 50th percentile in milliseconds
+   */
+  double getP50Millis();
+
+  /**
+   * Getter of the 95th percentile latency.
+   *
+   * @return the 95th percentile in milliseconds
+   */
+  double getP95Millis();
+
+  /**
+   * Getter of the 99th percentile latency.
+   *
+   * @return the 99th percentile in milliseconds
+   */
+  double getP99Millis();
+
+  /**
+   * Getter of the highest latency.
+   *
+   * @return the highest latency in milliseconds
+   */
+  double getMaxMillis();
+}
@@ -0,0 +1,179 @@
+package com.parkit.parkingsystem.metrics;
+
+/**
+ * Named measure of the application, identified by its name and labels as
+ * in the Prometheus text format.
+ *
+ * @author Laura
+ */
+public abstract class Metric {
+
+  /**
+   * Name of the metric, shared by every metric of the family.
+   */
+  private final String name;
+
+  /**
+   * Description of the metric family.
+   */
+  private final String help;
+
+  /**
+   * Names and values of the labels, one after the other.
+   */
+  private final String[] labels;
+
+  /**
+   * Labels rendered in the Prometheus text format, without braces.
+   */
+  private final String labelText;
+
+  /**
+   * Constructor of class Metric.
+   *
+   * @param metricName the name of the metric family
+   * @param description the description of the metric family
+   * @param labelPairs the names and values of the labels, one after the
+   *     other
+   * @throws IllegalArgumentException if a label has no value
+   */
+  protected Metric(final String metricName, final String description,
+                   final String... labelPairs) {
+    if (labelPairs.length % 2 != 0) {
+      throw new IllegalArgumentException("Label " + labelPairs[labelPairs
+          .length - 1] + " of metric " + metricName + " has no value");
+    }
+
+    this.name = metricName;
+    this.help = description;
+    this.labels = labelPairs.clone();
+    this.labelText = renderLabels(labelPairs);
+  }
+
+  /**
+   * Renders labels in the Prometheus text format.
+   *
+   * @param labelPairs the names and values of the labels
+   * @return the labels separated by commas, without braces
+   */
+  private static String renderLabels(final String[] labelPairs) {
+    StringBuilder text = new StringBuilder();
+
+    for (int i = 0; i < labelPairs.length; i += 2) {
+      if (text.length() > 0) {
+        text.append(',');
+      }
+      text.append(labelPairs[i]).append("=\"");
+      for (char c : labelPairs[i + 1].toCharArray()) {
+        if (c == '\\' || c == '"') {
+          text.append('\\').append(c);
+        } else if (c == '\n') {
+          text.append("\\n");
+        } else {
+          text.append(c);
+        }
+      }
+      text.append('"');
+    }
+
+    return text.toString();
+  }
+
+  /**
+   * Getter of name.
+   *
+   * @return the name of the metric family
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Getter of help.
+   *
+   * @return the description of the metric family
+   */
+  public String getHelp() {
+    return help;
+  }
+
+  /**
+   * Getter of labels.
+   *
+   * @return the names and values of the labels, one after the other
+   */
+  public String[] getLabels() {
+    return labels.clone();
+  }
+
+  /**
+   * Getter of the key identifying the metric in its registry.
+   *
+   * @return the name followed by the labels
+   */
+  String getKey() {
+    return name + '{' + labelText + '}';
+  }
+
+  /**
+   * Gives the key identifying a metric in its registry.
+   *
+   * @param metricName the name of the metric
+   * @param labelPairs the names and values of its labels, one after the
+   *     other
+   * @return the name followed by the labels
+   */
+  static String getKey(final String metricName,
+                       final String... labelPairs) {
+    return metricName + '{' + renderLabels(labelPairs) + '}';
+  }
+
+  /**
+   * Getter of the type of the metric in the Prometheus text format.
+   *
+   * @return counter, gauge or summary
+   */
+  abstract String getType();
+
+  /**
+   * Getter of the interface exposing the metric as an MBean.
+   *
+   * @return the MBean interface implemented by the metric
+   */
+  abstract Class<?> getMBeanInterface();
+
+  /**
+   * Appends the samples of the metric in the Prometheus text format.
+   *
+   * @param out the text to append to
+   */
+  abstract void appendSamples(StringBuilder out);
+
+  /**
+   * Appends one sample in the Prometheus text format.
+   *
+   * @param out the text to append to
+   * @param suffix the suffix of the sample name, empty for none
+   * @param extraLabel an additional label rendered as name="value", or
+   *     null for none
+   * @param value the value of the sample
+   */
+  protected void appendSample(final StringBuilder out, final String suffix,
+                              final String extraLabel, final double value) {
+    out.append(name).append(suffix);
+    if (!labelText.isEmpty() || extraLabel != null) {
+      out.append('{').append(labelText);
+      if (extraLabel != null) {
+        out.append(labelText.isEmpty() ? "" : ",").append(extraLabel);
+      }
+      out.append('}');
+    }
+    out.append(' ');
+    if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      out.append((long) value);
+    } else {
+      out.append(value);
+    }
+    out.append('\n');
+  }
+}
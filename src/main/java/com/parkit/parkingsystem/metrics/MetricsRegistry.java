@@ -0,0 +1,337 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Holds the metrics of the application, exports them as MBeans once
+ * registered with an MBean server, and dumps them in the Prometheus text
+ * format on demand.
+ *
+ * <p>Like loggers, metrics are usually created once per class from the
+ * default registry and kept in static fields, so that recording them costs
+ * no lookup.
+ *
+ * @author Laura
+ */
+public class MetricsRegistry implements MetricsRegistryMBean {
+
+  /**
+   * MetricsRegistry logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger(
+      "MetricsRegistry");
+
+  /**
+   * JMX domain of the MBeans of the metrics.
+   */
+  public static final String JMX_DOMAIN = "com.parkit.parkingsystem";
+
+  /**
+   * Registry shared by the application.
+   */
+  private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+  /**
+   * Metrics by name and labels, sorted so that each family is contiguous.
+   */
+  private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+  /**
+   * Type of each metric family.
+   */
+  private final Map<String, String> familyTypes = new ConcurrentHashMap<>();
+
+  /**
+   * Server the metrics are exported to, null until registered.
+   */
+  private MBeanServer mBeanServer;
+
+  /**
+   * Getter of the registry shared by the application.
+   *
+   * @return the default MetricsRegistry instance
+   */
+  public static MetricsRegistry getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Gets the latency histogram of the given name and labels, creating it
+   * on first call.
+   *
+   * @param name the name of the histogram, ending with _seconds
+   * @param help the description of the histogram
+   * @param labels the names and values of the labels, one after the other
+   * @return the LatencyHistogram instance
+   * @throws IllegalArgumentException if the name is used by another type
+   */
+  public LatencyHistogram histogram(final String name, final String help,
+                                    final String... labels) {
+    return getOrAdd(new LatencyHistogram(name, help, labels),
+        LatencyHistogram.class);
+  }
+
+  /**
+   * Gets the counter of the given name and labels, creating it on first
+   * call.
+   *
+   * @param name the name of the counter, ending with _total
+   * @param help the description of the counter
+   * @param labels the names and values of the labels, one after the other
+   * @return the Counter instance
+   * @throws IllegalArgumentException if the name is used by another type
+   */
+  public Counter counter(final String name, final String help,
+                         final String... labels) {
+    return getOrAdd(new Counter(name, help, labels), Counter.class);
+  }
+
+  /**
+   * Registers a counter read from a component keeping its own count,
+   * replacing the one of the same name and labels.
+   *
+   * @param name the name of the counter, ending with _total
+   * @param help the description of the counter
+   * @param source the source of the count
+   * @param labels the names and values of the labels, one after the other
+   * @return the FunctionCounter instance
+   * @throws IllegalArgumentException if the name is used by another type
+   */
+  public FunctionCounter counter(final String name, final String help,
+                                 final LongSupplier source,
+                                 final String... labels) {
+    FunctionCounter counter = new FunctionCounter(name, help, source, labels);
+    replace(counter);
+    return counter;
+  }
+
+  /**
+   * Registers a gauge, replacing the one of the same name and labels.
+   *
+   * @param name the name of the gauge
+   * @param help the description of the gauge
+   * @param source the source of the value
+   * @param labels the names and values of the labels, one after the other
+   * @return the Gauge instance
+   * @throws IllegalArgumentException if the name is used by another type
+   */
+  public Gauge gauge(final String name, final String help,
+                     final DoubleSupplier source, final String... labels) {
+    Gauge gauge = new Gauge(name, help, source, labels);
+    replace(gauge);
+    return gauge;
+  }
+
+  /**
+   * Gets the latency histogram and failure counter of an operation,
+   * named family_seconds and family_errors_total.
+   *
+   * @param family the prefix of the metric names
+   * @param operations the operations timed, in plural, used in the
+   *     descriptions
+   * @param labels the names and values of the labels, one after the other
+   * @return the TimedOperation instance
+   */
+  public TimedOperation timedOperation(final String family,
+                                       final String operations,
+                                       final String... labels) {
+    return new TimedOperation(histogram(family + "_seconds", "Latency of "
+        + operations + " in seconds", labels), counter(family
+        + "_errors_total", "Number of failed " + operations, labels));
+  }
+
+  /**
+   * Gets the metric of the same key as the given one, adding the given one
+   * if there is none.
+   *
+   * @param metric the metric to add if missing
+   * @param type the class of the metric
+   * @param <T> the type of the metric
+   * @return the metric registered
+   */
+  private <T extends Metric> T getOrAdd(final T metric, final Class<T> type) {
+    checkFamilyType(metric);
+    Metric registered = metrics.get(metric.getKey());
+    if (registered == null) {
+      synchronized (this) {
+        registered = metrics.putIfAbsent(metric.getKey(), metric);
+        if (registered == null) {
+          export(metric);
+          return metric;
+        }
+      }
+    }
+
+    if (!type.isInstance(registered)) {
+      throw new IllegalArgumentException("Metric " + metric.getKey()
+          + " is already registered as a " + registered.getType());
+    }
+    return type.cast(registered);
+  }
+
+  /**
+   * Adds a metric, replacing the one of the same key.
+   *
+   * @param metric the metric to add
+   */
+  private synchronized void replace(final Metric metric) {
+    checkFamilyType(metric);
+    metrics.put(metric.getKey(), metric);
+    export(metric);
+  }
+
+  /**
+   * Checks that a metric has the type of its family.
+   *
+   * @param metric the metric to check
+   * @throws IllegalArgumentException if the family has another type
+   */
+  private void checkFamilyType(final Metric metric) {
+    String type = familyTypes.putIfAbsent(metric.getName(), metric.getType());
+    if (type != null && !type.equals(metric.getType())) {
+      throw new IllegalArgumentException("Metric " + metric.getName()
+          + " is already registered as a " + type);
+    }
+  }
+
+  /**
+   * Exports every metric, and the registry itself, as MBeans of the given
+   * server. Metrics created afterwards are exported when they are created.
+   *
+   * @param server the server to export to, usually the platform server
+   */
+  public synchronized void registerMBeans(final MBeanServer server) {
+    mBeanServer = server;
+    try {
+      ObjectName name = new ObjectName(JMX_DOMAIN + ":type=MetricsRegistry");
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(toMBean(this, MetricsRegistryMBean.class), name);
+    } catch (JMException e) {
+      LOGGER.warn("Unable to export the metrics registry over JMX", e);
+    }
+
+    for (Metric metric : metrics.values()) {
+      export(metric);
+    }
+  }
+
+  /**
+   * Exports a metric as an MBean, replacing the MBean of the same name, if
+   * the registry is registered with a server.
+   *
+   * @param metric the metric to export
+   */
+  private void export(final Metric metric) {
+    if (mBeanServer == null) {
+      return;
+    }
+
+    try {
+      ObjectName name = getObjectName(metric);
+      if (mBeanServer.isRegistered(name)) {
+        mBeanServer.unregisterMBean(name);
+      }
+      mBeanServer.registerMBean(toMBean(metric, metric.getMBeanInterface()),
+          name);
+    } catch (JMException e) {
+      LOGGER.warn("Unable to export metric " + metric.getKey()
+          + " over JMX", e);
+    }
+  }
+
+  /**
+   * Wraps an object in an MBean exposing the given interface only.
+   *
+   * @param implementation the object exported
+   * @param mbeanInterface the interface implemented by the object
+   * @return the StandardMBean instance
+   */
+  @SuppressWarnings("unchecked")
+  private static StandardMBean toMBean(final Object implementation,
+                                       final Class<?> mbeanInterface)
+      throws NotCompliantMBeanException {
+    return new StandardMBean(implementation, (Class<Object>) mbeanInterface);
+  }
+
+  /**
+   * Builds the JMX name of a metric: its name as type, then its labels.
+   *
+   * @param metric the metric
+   * @return the ObjectName of the metric
+   */
+  private static ObjectName getObjectName(final Metric metric)
+      throws JMException {
+    StringBuilder name = new StringBuilder(JMX_DOMAIN).append(":type=")
+        .append(metric.getName());
+    String[] labels = metric.getLabels();
+    for (int i = 0; i < labels.length; i += 2) {
+      name.append(',').append(labels[i]).append('=')
+          .append(quoteIfNeeded(labels[i + 1]));
+    }
+    return new ObjectName(name.toString());
+  }
+
+  /**
+   * Quotes a value of a JMX name if it holds a reserved character.
+   *
+   * @param value the label value
+   * @return the value, quoted if needed
+   */
+  private static String quoteIfNeeded(final String value) {
+    for (char c : value.toCharArray()) {
+      if (",=:\"*?\n".indexOf(c) >= 0) {
+        return ObjectName.quote(value);
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Getter of a metric.
+   *
+   * @param name the name of the metric
+   * @param labels the names and values of its labels, one after the other
+   * @return the metric, or null if it is not registered
+   */
+  public Metric getMetric(final String name, final String... labels) {
+    return metrics.get(Metric.getKey(name, labels));
+  }
+
+  @Override
+  public int getMetricCount() {
+    return metrics.size();
+  }
+
+  @Override
+  public String scrape() {
+    StringBuilder out = new StringBuilder();
+    String family = null;
+
+    for (Metric metric : metrics.values()) {
+      if (!metric.getName().equals(family)) {
+        family = metric.getName();
+        out.append("# HELP ").append(family).append(' ')
+            .append(metric.getHelp().replace("\\", "\\\\")
+                .replace("\n", "\\n")).append('\n');
+        out.append("# TYPE ").append(family).append(' ')
+            .append(metric.getType()).append('\n');
+      }
+      metric.appendSamples(out);
+    }
+
+    return out.toString();
+  }
+}
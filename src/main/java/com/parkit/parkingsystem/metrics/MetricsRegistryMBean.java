@@ -0,0 +1,23 @@
+package com.parkit.parkingsystem.metrics;
+
+/**
+ * JMX view of a metrics registry.
+ *
+ * @author Laura
+ */
+public interface MetricsRegistryMBean {
+
+  /**
+   * Getter of the number of metrics registered.
+   *
+   * @return the number of metrics
+   */
+  int getMetricCount();
+
+  /**
+   * Dumps every metric in the Prometheus text format.
+   *
+   * @return the text exposition of the metrics
+   */
+  String scrape();
+}
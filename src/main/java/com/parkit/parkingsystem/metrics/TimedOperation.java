@@ -0,0 +1,66 @@
+package com.parkit.parkingsystem.metrics;
+
+/**
+ * Latency histogram and failure counter of one operation, such as a DAO
+ * method.
+ *
+ * @author Laura
+ */
+public class TimedOperation {
+
+  /**
+   * Latencies of the operation, failed or not.
+   */
+  private final LatencyHistogram latency;
+
+  /**
+   * Number of failures of the operation.
+   */
+  private final Counter errors;
+
+  /**
+   * Constructor of class TimedOperation.
+   *
+   * @param latencyHistogram the latencies of the operation
+   * @param errorCounter the number of failures of the operation
+   */
+  public TimedOperation(final LatencyHistogram latencyHistogram,
+                        final Counter errorCounter) {
+    this.latency = latencyHistogram;
+    this.errors = errorCounter;
+  }
+
+  /**
+   * Records the latency of the operation which has just ended.
+   *
+   * @param startNanos the System.nanoTime() read when the operation began
+   */
+  public void stop(final long startNanos) {
+    latency.recordSince(startNanos);
+  }
+
+  /**
+   * Counts a failure of the operation.
+   */
+  public void failed() {
+    errors.increment();
+  }
+
+  /**
+   * Getter of latency.
+   *
+   * @return the latencies of the operation
+   */
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  /**
+   * Getter of errors.
+   *
+   * @return the number of failures of the operation
+   */
+  public Counter getErrors() {
+    return errors;
+  }
+}
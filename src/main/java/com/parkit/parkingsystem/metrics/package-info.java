@@ -0,0 +1,7 @@
+/**
+ * Contains classes of the latency histograms, counters and gauges exported
+ * over JMX and in the Prometheus text format.
+ *
+ * @author laura
+ */
+package com.parkit.parkingsystem.metrics;
@@ -0,0 +1,137 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * A vehicle passing a gate, as recorded in a gate event log.
+ * Events are written one per line: timestamp, ENTRY or EXIT, licence plate
+ * and, for entries, vehicle type, separated by commas. For example:
+ * {@code 2020-06-01T08:00:00,ENTRY,AB125XY,CAR}.
+ *
+ * @author Laura
+ */
+public class GateEvent {
+
+  /**
+   * Direction of a vehicle passing a gate.
+   */
+  public enum Direction {
+    /**
+     * Vehicle entering the parking.
+     */
+    ENTRY,
+    /**
+     * Vehicle exiting the parking.
+     */
+    EXIT
+  }
+
+  /**
+   * Minimum number of fields of an event line.
+   */
+  private static final int MIN_FIELDS = 3;
+
+  /**
+   * Time at which the vehicle passed the gate.
+   */
+  private final LocalDateTime time;
+
+  /**
+   * Direction of the vehicle.
+   */
+  private final Direction direction;
+
+  /**
+   * Licence plate number of the vehicle.
+   */
+  private final String vehicleRegNumber;
+
+  /**
+   * Type of the vehicle, null if not recorded.
+   */
+  private final ParkingType parkingType;
+
+  /**
+   * Constructor of class GateEvent.
+   *
+   * @param eventTime time at which the vehicle passed the gate
+   * @param way direction of the vehicle
+   * @param regNumber licence plate number of the vehicle
+   * @param type type of the vehicle, null if not recorded
+   */
+  public GateEvent(final LocalDateTime eventTime, final Direction way,
+                   final String regNumber, final ParkingType type) {
+    this.time = eventTime;
+    this.direction = way;
+    this.vehicleRegNumber = regNumber;
+    this.parkingType = type;
+  }
+
+  /**
+   * Parses a line of a gate event log.
+   *
+   * @param line the event line
+   * @return the GateEvent instance
+   * @throws IllegalArgumentException if the line is not a valid event
+   */
+  public static GateEvent parse(final String line) {
+    String[] fields = line.split(",");
+
+    if (fields.length < MIN_FIELDS) {
+      throw new IllegalArgumentException("Invalid gate event: " + line);
+    }
+
+    try {
+      Direction direction = Direction.valueOf(fields[1].trim());
+      ParkingType parkingType = fields.length > MIN_FIELDS
+          ? ParkingType.valueOf(fields[MIN_FIELDS].trim()) : null;
+
+      if (direction == Direction.ENTRY && parkingType == null) {
+        throw new IllegalArgumentException("Missing vehicle type: " + line);
+      }
+
+      return new GateEvent(LocalDateTime.parse(fields[0].trim()), direction,
+          fields[2].trim(), parkingType);
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid gate event: " + line, e);
+    }
+  }
+
+  /**
+   * Getter of time.
+   *
+   * @return the time at which the vehicle passed the gate
+   */
+  public LocalDateTime getTime() {
+    return time;
+  }
+
+  /**
+   * Getter of direction.
+   *
+   * @return the direction of the vehicle
+   */
+  public Direction getDirection() {
+    return direction;
+  }
+
+  /**
+   * Getter of vehicleRegNumber.
+   *
+   * @return the licence plate number of the vehicle
+   */
+  public String getVehicleRegNumber() {
+    return vehicleRegNumber;
+  }
+
+  /**
+   * Getter of parkingType.
+   *
+   * @return the type of the vehicle, null if not recorded
+   */
+  public ParkingType getParkingType() {
+    return parkingType;
+  }
+}
@@ -0,0 +1,205 @@
+package com.parkit.parkingsystem.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of a vehicle entry or exit, as given back to the gate.
+ *
+ * @author Laura
+ */
+public class ParkingResult {
+
+  /**
+   * Outcome of an entry or exit.
+   */
+  public enum Status {
+    /**
+     * The vehicle entered and its ticket was saved.
+     */
+    PARKED,
+    /**
+     * The vehicle exited and its ticket was closed.
+     */
+    EXITED,
+    /**
+     * The fare to pay if the vehicle exited now was computed.
+     */
+    QUOTED,
+    /**
+     * No spot is available for this type of vehicle.
+     */
+    NO_SPOT_AVAILABLE,
+    /**
+     * The vehicle already has an open ticket.
+     */
+    ALREADY_PARKED,
+    /**
+     * No open ticket was found for the vehicle.
+     */
+    TICKET_NOT_FOUND,
+    /**
+     * The licence plate number is blank, too long for the ticket table or
+     * has characters no plate has.
+     */
+    INVALID_PLATE,
+    /**
+     * The entry or exit could not be saved.
+     */
+    FAILED
+  }
+
+  /**
+   * Outcome of the entry or exit.
+   */
+  private final Status status;
+
+  /**
+   * Licence plate number of the vehicle.
+   */
+  private final String vehicleRegNumber;
+
+  /**
+   * Parking spot of the vehicle, null if none was given.
+   */
+  private final ParkingSpot parkingSpot;
+
+  /**
+   * Time at which the vehicle entered, null if unknown.
+   */
+  private final LocalDateTime inTime;
+
+  /**
+   * Time at which the vehicle exited, null if it did not exit.
+   */
+  private final LocalDateTime outTime;
+
+  /**
+   * Fare to pay, 0 until the vehicle exits.
+   */
+  private final double fare;
+
+  /**
+   * Tells if the user had already used the parking.
+   */
+  private final boolean recurringUser;
+
+  /**
+   * Constructor of class ParkingResult for a successful entry or exit.
+   *
+   * @param outcome the outcome of the entry or exit
+   * @param ticket the ticket saved or closed
+   * @param recurring tells if the user had already used the parking
+   */
+  public ParkingResult(final Status outcome, final Ticket ticket,
+                       final boolean recurring) {
+    this.status = outcome;
+    this.vehicleRegNumber = ticket.getVehicleRegNumber();
+    this.parkingSpot = ticket.getParkingSpot();
+    this.inTime = ticket.getInTime();
+    this.outTime = ticket.getOutTime();
+    this.fare = ticket.getPrice();
+    this.recurringUser = recurring;
+  }
+
+  /**
+   * Constructor of class ParkingResult for an entry or exit that did not
+   * happen.
+   *
+   * @param outcome the reason why the entry or exit did not happen
+   * @param regNumber the licence plate number of the vehicle
+   */
+  public ParkingResult(final Status outcome, final String regNumber) {
+    this.status = outcome;
+    this.vehicleRegNumber = regNumber;
+    this.parkingSpot = null;
+    this.inTime = null;
+    this.outTime = null;
+    this.fare = 0;
+    this.recurringUser = false;
+  }
+
+  /**
+   * Tells if the vehicle entered or exited.
+   *
+   * @return true if the status is PARKED, EXITED or QUOTED
+   */
+  public boolean isSuccess() {
+    return status == Status.PARKED || status == Status.EXITED
+        || status == Status.QUOTED;
+  }
+
+  /**
+   * Getter of status.
+   *
+   * @return the outcome of the entry or exit
+   */
+  public Status getStatus() {
+    return status;
+  }
+
+  /**
+   * Getter of vehicleRegNumber.
+   *
+   * @return the licence plate number of the vehicle
+   */
+  public String getVehicleRegNumber() {
+    return vehicleRegNumber;
+  }
+
+  /**
+   * Getter of parkingSpot.
+   *
+   * @return the parking spot of the vehicle, null if none was given
+   */
+  public ParkingSpot getParkingSpot() {
+    return parkingSpot;
+  }
+
+  /**
+   * Getter of inTime.
+   *
+   * @return the time at which the vehicle entered, null if unknown
+   */
+  public LocalDateTime getInTime() {
+    return inTime;
+  }
+
+  /**
+   * Getter of outTime.
+   *
+   * @return the time at which the vehicle exited or was quoted, null if it
+   *     did not exit
+   */
+  public LocalDateTime getOutTime() {
+    return outTime;
+  }
+
+  /**
+   * Getter of fare.
+   *
+   * @return the fare to pay, 0 until the vehicle exits, NaN if it is
+   *     computed later
+   */
+  public double getFare() {
+    return fare;
+  }
+
+  /**
+   * Tells if the fare of an exit is computed later, once the user could be
+   * looked up.
+   *
+   * @return true if the fare is not known yet
+   */
+  public boolean isFarePending() {
+    return Double.isNaN(fare);
+  }
+
+  /**
+   * Getter of recurringUser.
+   *
+   * @return true if the user had already used the parking
+   */
+  public boolean isRecurringUser() {
+    return recurringUser;
+  }
+}
@@ -0,0 +1,111 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A period of the week during which a vehicle type is charged a given
+ * hourly rate, e.g. car peak hours from Monday to Friday.
+ *
+ * @author Laura
+ */
+public class TariffBand {
+
+  /**
+   * The vehicle type charged.
+   */
+  private final ParkingType parkingType;
+
+  /**
+   * The days on which the band starts.
+   */
+  private final Set<DayOfWeek> days;
+
+  /**
+   * The time the band starts on each of its days.
+   */
+  private final LocalTime startTime;
+
+  /**
+   * The time the band ends, on the next day if not after the start time.
+   */
+  private final LocalTime endTime;
+
+  /**
+   * The rate per hour in cents.
+   */
+  private final long centsPerHour;
+
+  /**
+   * Constructor of class TariffBand.
+   *
+   * @param type the vehicle type charged
+   * @param bandDays the days on which the band starts
+   * @param start the time the band starts on each of its days
+   * @param end the time the band ends, on the next day if not after the
+   *     start time (00:00 for the end of the day)
+   * @param rate the rate per hour in cents
+   */
+  public TariffBand(final ParkingType type, final Set<DayOfWeek> bandDays,
+                    final LocalTime start, final LocalTime end,
+                    final long rate) {
+    if (rate < 0) {
+      throw new IllegalArgumentException("Negative tariff rate: " + rate);
+    }
+    this.parkingType = type;
+    this.days = Collections.unmodifiableSet(EnumSet.copyOf(bandDays));
+    this.startTime = start;
+    this.endTime = end;
+    this.centsPerHour = rate;
+  }
+
+  /**
+   * Getter of parkingType.
+   *
+   * @return the vehicle type charged
+   */
+  public ParkingType getParkingType() {
+    return parkingType;
+  }
+
+  /**
+   * Getter of days.
+   *
+   * @return the days on which the band starts
+   */
+  public Set<DayOfWeek> getDays() {
+    return days;
+  }
+
+  /**
+   * Getter of startTime.
+   *
+   * @return the time the band starts on each of its days
+   */
+  public LocalTime getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * Getter of endTime.
+   *
+   * @return the time the band ends, on the next day if not after the start
+   *     time
+   */
+  public LocalTime getEndTime() {
+    return endTime;
+  }
+
+  /**
+   * Getter of centsPerHour.
+   *
+   * @return the rate per hour in cents
+   */
+  public long getCentsPerHour() {
+    return centsPerHour;
+  }
+}
@@ -0,0 +1,202 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.GateEvent;
+import com.parkit.parkingsystem.model.ParkingResult;
+import com.parkit.parkingsystem.storage.StorageEngine;
+import com.parkit.parkingsystem.storage.StorageEngineFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.config.Configurator;
+
+/**
+ * Replays a gate event log through the parking service as fast as
+ * possible, using the event timestamps as the clock of the tickets.
+ *
+ * @author Laura
+ */
+public class EventLogReplayer {
+
+  /**
+   * EventLogReplayer logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger(
+      "EventLogReplayer");
+
+  /**
+   * Initial capacity of the latency array.
+   */
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /**
+   * Clock set to the time of the event being replayed.
+   */
+  private final ReplayClock clock = new ReplayClock();
+
+  /**
+   * Service the events are replayed through.
+   */
+  private final ParkingService parkingService;
+
+  /**
+   * Constructor of class EventLogReplayer.
+   *
+   * @param storageEngine the storage engine to replay on, opened by this
+   *     call
+   */
+  public EventLogReplayer(final StorageEngine storageEngine)
+      throws ClassNotFoundException, SQLException, IOException {
+    this.parkingService = ParkingServiceFactory.create(null, storageEngine);
+    parkingService.setClock(clock);
+  }
+
+  /**
+   * Replays the gate event log stored in the given file against the
+   * configured storage engine, then logs the throughput and latencies.
+   *
+   * @param path the path of the event log
+   */
+  public static void replayFile(final String path) {
+    // One line per vehicle would cost more than the replay itself
+    Configurator.setLevel("ParkingService", Level.WARN);
+    StorageEngine storageEngine;
+    try {
+      storageEngine = StorageEngineFactory.load(
+          StorageEngineFactory.STORAGE_RESOURCE);
+    } catch (Exception e) {
+      LOGGER.error("Unable to load the storage settings", e);
+      return;
+    }
+
+    try (BufferedReader events = Files.newBufferedReader(Paths.get(path),
+        StandardCharsets.UTF_8)) {
+      ReplayReport report = new EventLogReplayer(storageEngine)
+          .replay(events);
+
+      LOGGER.info("Replayed " + report.getEventCount() + " events in "
+          + report.getElapsedMillis() + " ms, " + report.getRejectedCount()
+          + " rejected by the service, " + report.getInvalidCount()
+          + " invalid lines skipped");
+      LOGGER.info(String.format("Throughput: %.1f events/s",
+          report.getThroughput()));
+      LOGGER.info("Latency (us): p50=" + report.getLatencyPercentile(50)
+          + " p90=" + report.getLatencyPercentile(90)
+          + " p99=" + report.getLatencyPercentile(99)
+          + " max=" + report.getLatencyPercentile(100));
+    } catch (Exception e) {
+      LOGGER.error("Unable to replay gate event log " + path, e);
+    } finally {
+      storageEngine.close();
+    }
+  }
+
+  /**
+   * Replays every event of the given log. Empty lines and lines starting
+   * with # are ignored, invalid lines are skipped.
+   *
+   * @param events the reader of the event log
+   * @return the throughput and latencies of the replay
+   */
+  public ReplayReport replay(final BufferedReader events) throws IOException {
+    long[] latencies = new long[INITIAL_CAPACITY];
+    int count = 0;
+    int rejected = 0;
+    int invalid = 0;
+    long start = System.nanoTime();
+    String line;
+
+    while ((line = events.readLine()) != null) {
+      String trimmed = line.trim();
+      if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+        continue;
+      }
+
+      GateEvent event;
+      try {
+        event = GateEvent.parse(trimmed);
+      } catch (IllegalArgumentException e) {
+        LOGGER.warn("Skipping invalid gate event: " + trimmed);
+        invalid++;
+        continue;
+      }
+
+      long eventStart = System.nanoTime();
+      if (!process(event).isSuccess()) {
+        rejected++;
+      }
+      if (count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count * 2);
+      }
+      latencies[count++] = System.nanoTime() - eventStart;
+    }
+
+    return new ReplayReport(Arrays.copyOf(latencies, count), rejected,
+        invalid, System.nanoTime() - start);
+  }
+
+  /**
+   * Passes one event through the parking service.
+   *
+   * @param event the event to replay
+   * @return the outcome of the entry or exit
+   */
+  private ParkingResult process(final GateEvent event) {
+    clock.setTime(event.getTime());
+
+    return event.getDirection() == GateEvent.Direction.ENTRY
+        ? parkingService.enter(event.getVehicleRegNumber(),
+        event.getParkingType())
+        : parkingService.exit(event.getVehicleRegNumber());
+  }
+
+  /**
+   * Clock stopped at the time of the event being replayed.
+   */
+  private static final class ReplayClock extends Clock {
+
+    /**
+     * Time zone of the event timestamps.
+     */
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    /**
+     * Current instant of the clock.
+     */
+    private Instant instant = Instant.now();
+
+    /**
+     * Sets the clock to the given time.
+     *
+     * @param time the time of the event being replayed
+     */
+    private void setTime(final LocalDateTime time) {
+      this.instant = time.atZone(zone).toInstant();
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return zone;
+    }
+
+    @Override
+    public Clock withZone(final ZoneId newZone) {
+      return Clock.fixed(instant, newZone);
+    }
+
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+  }
+}
@@ -0,0 +1,422 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.model.ParkingResult;
+import com.parkit.parkingsystem.storage.StorageEngine;
+import com.parkit.parkingsystem.storage.StorageEngineFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Routes the operations of several car parks, the facilities, each to the
+ * storage engine of its own database, so that adding a facility adds a
+ * database instead of growing a shared ticket table. Entries, exits and
+ * quotes carry the id of their facility. A user is recurring if they used
+ * any facility: the other facilities are asked in parallel, and the first
+ * one knowing the user answers.
+ *
+ * @author Laura
+ */
+public class FacilityRouter implements AutoCloseable {
+
+  /**
+   * FacilityRouter logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger("FacilityRouter");
+
+  /**
+   * Classpath location of the facility settings, a single facility on the
+   * storage settings applying without it.
+   */
+  public static final String FACILITIES_RESOURCE = "facilities.properties";
+
+  /**
+   * Id of the facility served when no facility settings are found.
+   */
+  public static final String DEFAULT_FACILITY = "main";
+
+  /**
+   * Time a lookup waits for the other facilities by default.
+   */
+  private static final long DEFAULT_LOOKUP_TIMEOUT_MILLIS = 500;
+
+  /**
+   * Number of lookup threads by default.
+   */
+  private static final int DEFAULT_LOOKUP_THREADS = 8;
+
+  /**
+   * Number of lookups waiting for a thread, per lookup thread, beyond which
+   * the facilities are not asked.
+   */
+  private static final int LOOKUP_QUEUE_PER_THREAD = 16;
+
+  /**
+   * Number of facility lookups rejected by a full queue.
+   */
+  private static final Counter REJECTED_LOOKUPS = MetricsRegistry
+      .getDefault().counter("parkit_facility_lookups_rejected_total",
+          "Number of facility lookups rejected by a full queue");
+
+  /**
+   * Facilities by id, in the order of the settings.
+   */
+  private final Map<String, Facility> facilities = new LinkedHashMap<>();
+
+  /**
+   * Time a lookup waits for the other facilities.
+   */
+  private final long lookupTimeoutMillis;
+
+  /**
+   * Threads asking the facilities in parallel.
+   */
+  private final ExecutorService lookupExecutor;
+
+  /**
+   * Constructor of class FacilityRouter.
+   *
+   * @param storageEngines the storage engine of each facility, by id, not
+   *     opened yet
+   * @param lookupThreads the number of facilities asked at once, each
+   *     thread queuing a bounded number of lookups
+   * @param timeoutMillis the time a lookup waits for the other facilities,
+   *     a facility answering later counting as not knowing the user
+   */
+  public FacilityRouter(final Map<String, StorageEngine> storageEngines,
+                        final int lookupThreads, final long timeoutMillis) {
+    if (storageEngines.isEmpty()) {
+      throw new IllegalArgumentException("At least one facility is required");
+    }
+
+    storageEngines.forEach((facilityId, storageEngine) -> facilities.put(
+        facilityId, new Facility(storageEngine)));
+    this.lookupTimeoutMillis = timeoutMillis;
+    AtomicInteger threadCount = new AtomicInteger();
+    // A full queue rejects the lookup instead of making it wait for ever
+    this.lookupExecutor = new ThreadPoolExecutor(lookupThreads,
+        lookupThreads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(
+            lookupThreads * LOOKUP_QUEUE_PER_THREAD), r -> {
+              Thread thread = new Thread(r, "facility-lookup-"
+                  + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Creates the router of a properties file: facilities lists the ids of
+   * the facilities, separated by commas, and facility.&lt;id&gt;.storage the
+   * classpath location of the storage settings of each one. A lookup waits
+   * facilities.lookup.timeout.millis for the other facilities, on
+   * facilities.lookup.threads threads. Without the file, the router serves
+   * a single facility, main, on the storage settings.
+   *
+   * @param resource the classpath location of the settings
+   * @return the FacilityRouter instance, its facilities not opened yet
+   * @throws IOException if a file cannot be read
+   * @throws IllegalArgumentException if no facility is listed
+   */
+  public static FacilityRouter load(final String resource)
+      throws IOException {
+    Properties properties = new Properties();
+    InputStream input = FacilityRouter.class.getClassLoader()
+        .getResourceAsStream(resource);
+    if (input != null) {
+      try (InputStreamReader reader = new InputStreamReader(input,
+          StandardCharsets.UTF_8)) {
+        properties.load(reader);
+      }
+    }
+
+    Map<String, StorageEngine> storageEngines = new LinkedHashMap<>();
+    for (String id : properties.getProperty("facilities",
+        DEFAULT_FACILITY).split(",")) {
+      String facilityId = id.trim();
+      if (!facilityId.isEmpty()) {
+        storageEngines.put(facilityId, StorageEngineFactory.load(properties
+            .getProperty("facility." + facilityId + ".storage",
+                StorageEngineFactory.STORAGE_RESOURCE).trim()));
+      }
+    }
+
+    return new FacilityRouter(storageEngines, Integer.parseInt(properties
+        .getProperty("facilities.lookup.threads", String.valueOf(
+            DEFAULT_LOOKUP_THREADS)).trim()), Long.parseLong(properties
+        .getProperty("facilities.lookup.timeout.millis", String.valueOf(
+            DEFAULT_LOOKUP_TIMEOUT_MILLIS)).trim()));
+  }
+
+  /**
+   * Getter of the ids of the facilities.
+   *
+   * @return the ids, in the order of the settings
+   */
+  public Set<String> getFacilityIds() {
+    return Collections.unmodifiableSet(facilities.keySet());
+  }
+
+  /**
+   * Getter of the storage engine of a facility.
+   *
+   * @param facilityId the id of the facility
+   * @return the StorageEngine of the facility
+   * @throws IllegalArgumentException if the facility is unknown
+   */
+  public StorageEngine getStorageEngine(final String facilityId) {
+    return getFacility(facilityId).storageEngine;
+  }
+
+  /**
+   * Opens the storage engine of a facility and creates its service. Users
+   * unknown to the facility are looked up in the other facilities.
+   *
+   * @param facilityId the id of the facility
+   * @return the ParkingService of the facility
+   * @throws IllegalArgumentException if the facility is unknown
+   */
+  public ParkingService open(final String facilityId)
+      throws ClassNotFoundException, SQLException, IOException {
+    Facility facility = getFacility(facilityId);
+    ParkingService parkingService = ParkingServiceFactory.create(null,
+        facility.storageEngine);
+    if (facilities.size() > 1) {
+      parkingService.setNetworkRecurringUsers(vehicleRegNumber ->
+          isRecurringUser(vehicleRegNumber, facilityId));
+    }
+    facility.parkingService = parkingService;
+    return parkingService;
+  }
+
+  /**
+   * Gets the service of a facility, or of the only facility if no id is
+   * given.
+   *
+   * @param facilityId the id of the facility, or null
+   * @return the ParkingService of the facility, null if the facility is
+   *     unknown, not opened yet, or not given while there are several
+   */
+  public ParkingService findParkingService(final String facilityId) {
+    Facility facility;
+    if (facilityId != null) {
+      facility = facilities.get(facilityId);
+    } else if (facilities.size() == 1) {
+      facility = facilities.values().iterator().next();
+    } else {
+      facility = null;
+    }
+
+    return facility != null ? facility.parkingService : null;
+  }
+
+  /**
+   * Parks a vehicle in a facility.
+   *
+   * @param facilityId the id of the facility
+   * @param vehicleRegNumber the user's licence plate number
+   * @param parkingType the user's vehicle type
+   * @return the outcome of the entry
+   * @throws IllegalArgumentException if the facility is unknown
+   */
+  public ParkingResult enter(final String facilityId,
+                             final String vehicleRegNumber,
+                             final ParkingType parkingType) {
+    return getParkingService(facilityId).enter(vehicleRegNumber, parkingType);
+  }
+
+  /**
+   * Takes a vehicle out of a facility.
+   *
+   * @param facilityId the id of the facility
+   * @param vehicleRegNumber the user's licence plate number
+   * @return the outcome of the exit
+   * @throws IllegalArgumentException if the facility is unknown
+   */
+  public ParkingResult exit(final String facilityId,
+                            final String vehicleRegNumber) {
+    return getParkingService(facilityId).exit(vehicleRegNumber);
+  }
+
+  /**
+   * Gives the fare a vehicle parked in a facility would pay now.
+   *
+   * @param facilityId the id of the facility
+   * @param vehicleRegNumber the user's licence plate number
+   * @return the outcome of the quote
+   * @throws IllegalArgumentException if the facility is unknown
+   */
+  public ParkingResult quote(final String facilityId,
+                             final String vehicleRegNumber) {
+    return getParkingService(facilityId).quote(vehicleRegNumber);
+  }
+
+  /**
+   * Checks if the user had already used any of the facilities, asking them
+   * in parallel.
+   *
+   * @param vehicleRegNumber the user's licence plate number
+   * @return true if a facility knows the user within the lookup timeout
+   */
+  public boolean isRecurringUser(final String vehicleRegNumber) {
+    return Boolean.TRUE.equals(isRecurringUser(vehicleRegNumber, null));
+  }
+
+  /**
+   * Asks every facility but one in parallel if the user had already used
+   * it, and answers as soon as one does. The lookups still running are left
+   * to finish, as interrupting them could break their connection. A lookup
+   * rejected by a full queue counts as a facility that could not tell.
+   *
+   * @param vehicleRegNumber the user's licence plate number
+   * @param skippedFacilityId the id of the facility already asked, or null
+   * @return true if a facility knows the user within the lookup timeout,
+   *     false if every facility answered it does not, null if one failed
+   *     or did not answer in time
+   */
+  private Boolean isRecurringUser(final String vehicleRegNumber,
+                                  final String skippedFacilityId) {
+    CompletionService<Boolean> lookups = new ExecutorCompletionService<>(
+        lookupExecutor);
+    List<Future<Boolean>> pending = new ArrayList<>();
+    boolean answered = true;
+    for (Map.Entry<String, Facility> entry : facilities.entrySet()) {
+      if (entry.getKey().equals(skippedFacilityId)) {
+        continue;
+      }
+      TicketRepository ticketRepository = entry.getValue().storageEngine
+          .getTicketRepository();
+      try {
+        pending.add(lookups.submit(() -> ticketRepository.isRecurringUser(
+            vehicleRegNumber, null)));
+      } catch (RejectedExecutionException e) {
+        LOGGER.warn("Recurring user lookup of facility {} rejected",
+            entry.getKey());
+        REJECTED_LOOKUPS.increment();
+        answered = false;
+      }
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(
+        lookupTimeoutMillis);
+    try {
+      for (int i = 0; i < pending.size(); i++) {
+        Future<Boolean> lookup = lookups.poll(deadline - System.nanoTime(),
+            TimeUnit.NANOSECONDS);
+        if (lookup == null) {
+          LOGGER.warn("Recurring user lookup timed out after {} ms",
+              lookupTimeoutMillis);
+          return null;
+        }
+        try {
+          Boolean recurringUser = lookup.get();
+          if (Boolean.TRUE.equals(recurringUser)) {
+            return true;
+          }
+          answered &= recurringUser != null;
+        } catch (ExecutionException e) {
+          LOGGER.error("Error looking up a recurring user", e.getCause());
+          answered = false;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } finally {
+      pending.forEach(lookup -> lookup.cancel(false));
+    }
+
+    return answered ? false : null;
+  }
+
+  /**
+   * Stops the lookups, then closes the storage engine of every facility.
+   */
+  @Override
+  public void close() {
+    lookupExecutor.shutdownNow();
+    for (Facility facility : facilities.values()) {
+      facility.storageEngine.close();
+    }
+  }
+
+  /**
+   * Gets a facility by id.
+   *
+   * @param facilityId the id of the facility
+   * @return the Facility instance
+   * @throws IllegalArgumentException if the facility is unknown
+   */
+  private Facility getFacility(final String facilityId) {
+    Facility facility = facilities.get(facilityId);
+    if (facility == null) {
+      throw new IllegalArgumentException("Unknown facility: " + facilityId);
+    }
+    return facility;
+  }
+
+  /**
+   * Gets the service of a facility.
+   *
+   * @param facilityId the id of the facility
+   * @return the ParkingService of the facility
+   * @throws IllegalArgumentException if the facility is unknown
+   * @throws IllegalStateException if the facility is not opened yet
+   */
+  private ParkingService getParkingService(final String facilityId) {
+    ParkingService parkingService = getFacility(facilityId).parkingService;
+    if (parkingService == null) {
+      throw new IllegalStateException("Facility not opened: " + facilityId);
+    }
+    return parkingService;
+  }
+
+  /**
+   * A facility: its storage engine and, once opened, its service.
+   */
+  private static final class Facility {
+
+    /**
+     * Storage engine of the database of the facility.
+     */
+    private final StorageEngine storageEngine;
+
+    /**
+     * Service of the facility, null until opened.
+     */
+    private volatile ParkingService parkingService;
+
+    /**
+     * Constructor of class Facility.
+     *
+     * @param engine the storage engine of the facility
+     */
+    private Facility(final StorageEngine engine) {
+      this.storageEngine = engine;
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.parkit.parkingsystem.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a fare audit over the closed tickets.
+ *
+ * @author Laura
+ */
+public class FareAuditReport {
+
+  /**
+   * Number of closed tickets audited.
+   */
+  private final long ticketCount;
+
+  /**
+   * Number of tickets whose stored price differs from the recomputed fare.
+   */
+  private final long mismatchCount;
+
+  /**
+   * Tells if every closed ticket could be read and audited.
+   */
+  private final boolean complete;
+
+  /**
+   * Duration of the whole audit in nanoseconds.
+   */
+  private final long elapsedNanos;
+
+  /**
+   * Constructor of class FareAuditReport.
+   *
+   * @param tickets number of closed tickets audited
+   * @param mismatches number of tickets whose price differs
+   * @param completed true if every closed ticket was audited
+   * @param elapsed duration of the whole audit in nanoseconds
+   */
+  public FareAuditReport(final long tickets, final long mismatches,
+                         final boolean completed, final long elapsed) {
+    this.ticketCount = tickets;
+    this.mismatchCount = mismatches;
+    this.complete = completed;
+    this.elapsedNanos = elapsed;
+  }
+
+  /**
+   * Getter of ticketCount.
+   *
+   * @return the number of closed tickets audited
+   */
+  public long getTicketCount() {
+    return ticketCount;
+  }
+
+  /**
+   * Getter of mismatchCount.
+   *
+   * @return the number of tickets whose stored price differs
+   */
+  public long getMismatchCount() {
+    return mismatchCount;
+  }
+
+  /**
+   * Getter of complete.
+   *
+   * @return true if every closed ticket was audited
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * Getter of the duration of the audit.
+   *
+   * @return the duration in milliseconds
+   */
+  public long getElapsedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+  }
+
+  /**
+   * Getter of the number of tickets audited per second.
+   *
+   * @return the throughput, 0 if the audit took no measurable time
+   */
+  public double getThroughput() {
+    return elapsedNanos > 0 ? ticketCount * (double) TimeUnit.SECONDS
+        .toNanos(1) / elapsedNanos : 0;
+  }
+}
@@ -0,0 +1,423 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.storage.StorageEngine;
+import com.parkit.parkingsystem.storage.StorageEngineFactory;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Recomputes the fare of every closed ticket and reports the tickets whose
+ * stored price differs. Tickets are streamed from the storage in chunks,
+ * each chunk being split across the cores by a fork/join pool; only a few
+ * chunks are held at once, so memory stays bounded whatever the size of the
+ * history.
+ *
+ * <p>The report does not know whether a user was recurring when the ticket
+ * was closed, so a price matching either the full or the discounted fare is
+ * accepted.
+ *
+ * @author Laura
+ */
+public class FareAuditor implements AutoCloseable {
+
+  /**
+   * FareAuditor logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger("FareAuditor");
+
+  /**
+   * Number of rows fetched from the database at once.
+   */
+  private static final int FETCH_SIZE = 1000;
+
+  /**
+   * Number of tickets handed to the pool at once.
+   */
+  private static final int CHUNK_SIZE = 4096;
+
+  /**
+   * Number of tickets below which a chunk is audited without splitting.
+   */
+  private static final int SPLIT_THRESHOLD = 256;
+
+  /**
+   * Difference in cents tolerated between stored and recomputed fares, for
+   * prices stored before fares were rounded to the cent.
+   */
+  private static final long TOLERANCE_CENTS = 1;
+
+  /**
+   * Header of the mismatch report.
+   */
+  private static final String REPORT_HEADER = "ID,VEHICLE_REG_NUMBER,"
+      + "PARKING_TYPE,IN_TIME,OUT_TIME,PRICE,FARE,DISCOUNTED_FARE";
+
+  /**
+   * Repository streaming the closed tickets.
+   */
+  private final TicketRepository ticketDao;
+
+  /**
+   * Tariff schedule recomputing the fares.
+   */
+  private final TariffSchedule tariffSchedule;
+
+  /**
+   * Number of tickets handed to the pool at once.
+   */
+  private final int chunkSize;
+
+  /**
+   * Pool auditing the chunks.
+   */
+  private final ForkJoinPool pool;
+
+  /**
+   * Constructor of class FareAuditor.
+   *
+   * @param dao the repository streaming the closed tickets
+   * @param schedule the tariff schedule recomputing the fares
+   * @param parallelism the number of cores auditing at once
+   * @param ticketsPerChunk the number of tickets handed to the pool at once
+   */
+  public FareAuditor(final TicketRepository dao,
+                     final TariffSchedule schedule,
+                     final int parallelism, final int ticketsPerChunk) {
+    this.ticketDao = dao;
+    this.tariffSchedule = schedule;
+    this.chunkSize = ticketsPerChunk;
+    this.pool = new ForkJoinPool(parallelism);
+  }
+
+  /**
+   * Audits every closed ticket of the configured storage engine on every
+   * core, writes the mismatches to the given CSV file, then logs the
+   * outcome.
+   *
+   * @param path the path of the mismatch report
+   */
+  public static void auditToFile(final String path) {
+    StorageEngine storageEngine;
+    try {
+      storageEngine = StorageEngineFactory.load(
+          StorageEngineFactory.STORAGE_RESOURCE);
+    } catch (Exception e) {
+      LOGGER.error("Unable to load the storage settings", e);
+      return;
+    }
+
+    try (BufferedWriter report = Files.newBufferedWriter(Paths.get(path),
+        StandardCharsets.UTF_8);
+         FareAuditor fareAuditor = new FareAuditor(storageEngine
+             .getTicketRepository(), TariffSchedule.load(
+                 ParkingServiceFactory.TARIFF_RESOURCE),
+             Runtime.getRuntime().availableProcessors(), CHUNK_SIZE)) {
+      storageEngine.open();
+      FareAuditReport outcome = fareAuditor.audit(report);
+
+      LOGGER.info("Audited " + outcome.getTicketCount() + " tickets in "
+          + outcome.getElapsedMillis() + " ms, " + outcome.getMismatchCount()
+          + " mismatches written to " + path);
+      LOGGER.info(String.format("Throughput: %.1f tickets/s",
+          outcome.getThroughput()));
+      if (!outcome.isComplete()) {
+        LOGGER.error("Fare audit incomplete, see the errors above");
+      }
+    } catch (Exception e) {
+      LOGGER.error("Unable to audit fares to " + path, e);
+    } finally {
+      storageEngine.close();
+    }
+  }
+
+  /**
+   * Audits every closed ticket and writes the mismatches as CSV lines.
+   *
+   * @param report the writer of the mismatch report
+   * @return the number of tickets audited and mismatches found
+   * @throws IOException if the report header cannot be written
+   */
+  public FareAuditReport audit(final Writer report) throws IOException {
+    long start = System.nanoTime();
+    report.write(REPORT_HEADER);
+    report.write(System.lineSeparator());
+
+    ChunkDispatcher dispatcher = new ChunkDispatcher(report);
+    boolean read = ticketDao.streamClosedTickets(FETCH_SIZE, dispatcher);
+    dispatcher.finish();
+    report.flush();
+
+    return new FareAuditReport(dispatcher.audited.sum(),
+        dispatcher.mismatched.sum(), read && !dispatcher.failed.get(),
+        System.nanoTime() - start);
+  }
+
+  /**
+   * Stops the pool auditing the chunks.
+   */
+  @Override
+  public void close() {
+    pool.shutdown();
+  }
+
+  /**
+   * Collects the streamed tickets into chunks and hands them to the pool,
+   * waiting when too many chunks are being audited.
+   */
+  private final class ChunkDispatcher implements Consumer<Ticket> {
+
+    /**
+     * Writer of the mismatch report, shared by the chunks.
+     */
+    private final Writer report;
+
+    /**
+     * Permits of the chunks audited at once.
+     */
+    private final Semaphore inFlight;
+
+    /**
+     * Maximum number of chunks audited at once.
+     */
+    private final int maxInFlight;
+
+    /**
+     * Number of tickets audited.
+     */
+    private final LongAdder audited = new LongAdder();
+
+    /**
+     * Number of mismatches found.
+     */
+    private final LongAdder mismatched = new LongAdder();
+
+    /**
+     * Tells if a chunk could not be audited.
+     */
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    /**
+     * Chunk being filled.
+     */
+    private List<Ticket> chunk = new ArrayList<>(chunkSize);
+
+    /**
+     * Constructor of class ChunkDispatcher.
+     *
+     * @param reportWriter the writer of the mismatch report
+     */
+    private ChunkDispatcher(final Writer reportWriter) {
+      this.report = reportWriter;
+      // One chunk per core in the pool, one more queued for each
+      this.maxInFlight = pool.getParallelism() * 2;
+      this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public void accept(final Ticket ticket) {
+      chunk.add(ticket);
+      if (chunk.size() == chunkSize) {
+        dispatch();
+      }
+    }
+
+    /**
+     * Hands the chunk being filled to the pool.
+     */
+    private void dispatch() {
+      List<Ticket> tickets = chunk;
+      chunk = new ArrayList<>(chunkSize);
+      inFlight.acquireUninterruptibly();
+
+      pool.execute(() -> {
+        try {
+          new AuditTask(tickets, 0, tickets.size(), this).invoke();
+          audited.add(tickets.size());
+        } catch (RuntimeException e) {
+          LOGGER.error("Unable to audit a chunk of tickets", e);
+          failed.set(true);
+        } finally {
+          inFlight.release();
+        }
+      });
+    }
+
+    /**
+     * Hands the last chunk to the pool, then waits for every chunk.
+     */
+    private void finish() {
+      if (!chunk.isEmpty()) {
+        dispatch();
+      }
+      inFlight.acquireUninterruptibly(maxInFlight);
+      inFlight.release(maxInFlight);
+    }
+
+    /**
+     * Writes the mismatch lines of a part of a chunk.
+     *
+     * @param lines the CSV lines, each ending with a line separator
+     */
+    private void write(final CharSequence lines) {
+      synchronized (report) {
+        try {
+          report.append(lines);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Audits a range of a chunk, splitting it in halves across the pool.
+   */
+  private final class AuditTask extends RecursiveAction {
+
+    /**
+     * Serial number of the class.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Tickets of the chunk.
+     */
+    private final transient List<Ticket> tickets;
+
+    /**
+     * First ticket of the range.
+     */
+    private final int from;
+
+    /**
+     * Ticket after the last one of the range.
+     */
+    private final int to;
+
+    /**
+     * Dispatcher counting and writing the mismatches.
+     */
+    private final transient ChunkDispatcher dispatcher;
+
+    /**
+     * Constructor of class AuditTask.
+     *
+     * @param chunkTickets the tickets of the chunk
+     * @param first the first ticket of the range
+     * @param end the ticket after the last one of the range
+     * @param chunkDispatcher the dispatcher counting the mismatches
+     */
+    private AuditTask(final List<Ticket> chunkTickets, final int first,
+                      final int end, final ChunkDispatcher chunkDispatcher) {
+      this.tickets = chunkTickets;
+      this.from = first;
+      this.to = end;
+      this.dispatcher = chunkDispatcher;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > SPLIT_THRESHOLD) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new AuditTask(tickets, from, middle, dispatcher),
+            new AuditTask(tickets, middle, to, dispatcher));
+        return;
+      }
+
+      StringBuilder lines = new StringBuilder();
+      int mismatches = 0;
+      for (int i = from; i < to; i++) {
+        if (!audit(tickets.get(i), lines)) {
+          mismatches++;
+        }
+      }
+
+      if (mismatches > 0) {
+        dispatcher.mismatched.add(mismatches);
+        dispatcher.write(lines);
+      }
+    }
+  }
+
+  /**
+   * Recomputes the fare of a ticket and describes it if its stored price
+   * matches neither the full nor the discounted fare.
+   *
+   * @param ticket the closed ticket
+   * @param lines the CSV lines of the mismatches, appended to
+   * @return true if the stored price matches
+   */
+  private boolean audit(final Ticket ticket, final StringBuilder lines) {
+    long price = Math.round(ticket.getPrice() * 100);
+    long fare;
+    long discountedFare;
+
+    try {
+      fare = tariffSchedule.getCalculatedFareInCents(ticket.getParkingSpot()
+          .getParkingType(), ticket.getInTime(), ticket.getOutTime(), 0);
+      discountedFare = tariffSchedule.getCalculatedFareInCents(ticket
+          .getParkingSpot().getParkingType(), ticket.getInTime(),
+          ticket.getOutTime(), Fare.DISCOUNT);
+    } catch (IllegalArgumentException e) {
+      // Times no fare can be computed from are reported without a fare
+      appendLine(lines, ticket, "", "");
+      return false;
+    }
+
+    if (Math.abs(price - fare) <= TOLERANCE_CENTS
+        || Math.abs(price - discountedFare) <= TOLERANCE_CENTS) {
+      return true;
+    }
+    appendLine(lines, ticket, toPrice(fare), toPrice(discountedFare));
+    return false;
+  }
+
+  /**
+   * Appends the CSV line of a mismatch.
+   *
+   * @param lines the lines to append to
+   * @param ticket the ticket whose price differs
+   * @param fare the recomputed fare
+   * @param discountedFare the recomputed fare of a recurring user
+   */
+  private static void appendLine(final StringBuilder lines,
+                                 final Ticket ticket, final String fare,
+                                 final String discountedFare) {
+    lines.append(ticket.getId()).append(',')
+        .append(ticket.getVehicleRegNumber()).append(',')
+        .append(ticket.getParkingSpot().getParkingType()).append(',')
+        .append(ticket.getInTime()).append(',')
+        .append(ticket.getOutTime()).append(',')
+        .append(ticket.getPrice()).append(',')
+        .append(fare).append(',')
+        .append(discountedFare).append(System.lineSeparator());
+  }
+
+  /**
+   * Formats a fare in cents as a price.
+   *
+   * @param cents the fare in cents
+   * @return the price, with two decimals
+   */
+  private static String toPrice(final long cents) {
+    return String.format("%d.%02d", cents / 100, cents % 100);
+  }
+}
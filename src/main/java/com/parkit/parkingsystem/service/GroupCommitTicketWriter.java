@@ -0,0 +1,427 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import java.sql.BatchUpdateException;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+/**
+ * Groups the ticket writes of concurrent gates into shared transactions.
+ * Writes arriving within a short window, up to a maximum number, are sent
+ * as JDBC batches and committed together, so that the commit cost is paid
+ * once per group instead of once per vehicle. A closed ticket and the
+ * release of its spot are committed in the same transaction.
+ *
+ * @author Laura
+ */
+public class GroupCommitTicketWriter implements AutoCloseable {
+
+  /**
+   * GroupCommitTicketWriter logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger(
+      "GroupCommitTicketWriter");
+
+  /**
+   * Time the flusher waits for a first write before checking if it must
+   * stop.
+   */
+  private static final long IDLE_POLL_MILLIS = 100;
+
+  /**
+   * SQL state class of connection errors.
+   */
+  private static final String CONNECTION_ERROR_STATE = "08";
+
+  /**
+   * Configuration giving the connection of each group.
+   */
+  private final DataBaseConfig dataBaseConfig;
+
+  /**
+   * Repository of the tickets running the batches.
+   */
+  private final TicketRepository ticketDao;
+
+  /**
+   * Repository of the parking spots released by closed tickets.
+   */
+  private final ParkingSpotRepository parkingSpotDao;
+
+  /**
+   * Maximum number of writes committed together.
+   */
+  private final int maxBatchSize;
+
+  /**
+   * Time a group stays open for more writes after its first one.
+   */
+  private final long maxDelayNanos;
+
+  /**
+   * Writes waiting to be flushed.
+   */
+  private final BlockingQueue<PendingWrite> queue =
+      new LinkedBlockingQueue<>();
+
+  /**
+   * Thread flushing the groups.
+   */
+  private final Thread flusher;
+
+  /**
+   * Tells if new writes are accepted.
+   */
+  private volatile boolean running = true;
+
+  /**
+   * Constructor of class GroupCommitTicketWriter. Starts the flusher.
+   *
+   * @param config the configuration giving the connection of each group
+   * @param dao the repository of the tickets running the batches
+   * @param spotDao the repository of the parking spots released by closed
+   *     tickets
+   * @param batchSize the maximum number of writes committed together
+   * @param maxDelayMillis the time a group stays open for more writes
+   *     after its first one
+   */
+  public GroupCommitTicketWriter(final DataBaseConfig config,
+                                 final TicketRepository dao,
+                                 final ParkingSpotRepository spotDao,
+                                 final int batchSize,
+                                 final long maxDelayMillis) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be positive");
+    }
+    this.dataBaseConfig = config;
+    this.ticketDao = dao;
+    this.parkingSpotDao = spotDao;
+    this.maxBatchSize = batchSize;
+    this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+    this.flusher = new Thread(this::flushLoop, "ticket-group-commit");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  /**
+   * Queues the insert of a new ticket. The ID generated by the database is
+   * set on the ticket before the future completes.
+   *
+   * @param ticket the ticket to be saved
+   * @return a future completed with true once the ticket is committed,
+   *     false if it could not be saved
+   */
+  public CompletableFuture<Boolean> saveTicket(final Ticket ticket) {
+    return submit(new PendingWrite(ticket, true, false));
+  }
+
+  /**
+   * Queues the update of a ticket with its price and outTime.
+   *
+   * @param ticket the ticket that should be updated
+   * @return a future completed with true once the update is committed,
+   *     false if it could not be updated
+   */
+  public CompletableFuture<Boolean> updateTicket(final Ticket ticket) {
+    return submit(new PendingWrite(ticket, false, false));
+  }
+
+  /**
+   * Queues the update of a ticket with its price and outTime, and the
+   * release of its spot in the same transaction. The spot is written with
+   * the availability it has when the group is flushed.
+   *
+   * @param ticket the ticket that should be closed
+   * @return a future completed with true once the ticket and its spot are
+   *     committed, false if neither could be updated
+   */
+  public CompletableFuture<Boolean> closeTicket(final Ticket ticket) {
+    return submit(new PendingWrite(ticket, false, true));
+  }
+
+  /**
+   * Queues a write if the writer is still running.
+   *
+   * @param write the write to queue
+   * @return the future of the write
+   */
+  private CompletableFuture<Boolean> submit(final PendingWrite write) {
+    if (!running) {
+      LOGGER.error("Ticket writer is closed");
+      write.result.complete(false);
+    } else {
+      queue.add(write);
+      // The flusher may have stopped between the check and the add
+      if (!running && queue.remove(write)) {
+        write.result.complete(false);
+      }
+    }
+    return write.result;
+  }
+
+  /**
+   * Stops accepting writes, then waits for the queued ones to be flushed.
+   */
+  @Override
+  public void close() {
+    running = false;
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Collects the queued writes into groups and flushes them until the
+   * writer is closed and its queue is empty.
+   */
+  private void flushLoop() {
+    List<PendingWrite> group = new ArrayList<>(maxBatchSize);
+
+    while (running || !queue.isEmpty()) {
+      try {
+        PendingWrite first = queue.poll(IDLE_POLL_MILLIS,
+            TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+
+        group.add(first);
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (group.size() < maxBatchSize) {
+          long remaining = deadline - System.nanoTime();
+          PendingWrite next = remaining > 0
+              ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+          if (next == null) {
+            break;
+          }
+          group.add(next);
+        }
+
+        flush(group);
+      } catch (InterruptedException e) {
+        LOGGER.error("Ticket writer interrupted", e);
+        complete(group, null);
+        running = false;
+        Thread.currentThread().interrupt();
+      } finally {
+        group.clear();
+      }
+    }
+
+    // Writes queued while the flusher was stopping cannot be made durable
+    for (PendingWrite write : queue) {
+      write.result.complete(false);
+    }
+  }
+
+  /**
+   * Writes a group in one transaction. A write the database rejects fails
+   * the batch of its whole group, so a group rejected by the database is
+   * split in halves flushed apart, until the rejected write fails alone. A
+   * group that fails otherwise, on a lost connection for instance, fails
+   * at once: retrying its halves would only load a struggling database.
+   *
+   * @param group the writes to flush
+   */
+  private void flush(final List<PendingWrite> group) {
+    UnitOfWork unitOfWork;
+    try {
+      unitOfWork = dataBaseConfig.beginUnitOfWork();
+    } catch (Exception e) {
+      // No write is at fault when no transaction can be begun
+      LOGGER.error("Unable to begin ticket group", e);
+      complete(group, null);
+      return;
+    }
+
+    Boolean committed = commit(group, unitOfWork);
+    if (Boolean.TRUE.equals(committed)) {
+      LOGGER.debug("Flushed ticket group of {} writes",
+          Unbox.box(group.size()));
+    } else if (committed == null || group.size() == 1) {
+      complete(group, null);
+    } else {
+      int half = group.size() / 2;
+      LOGGER.warn("Retrying ticket group of {} writes in halves",
+          Unbox.box(group.size()));
+      flush(group.subList(0, half));
+      flush(group.subList(half, group.size()));
+    }
+  }
+
+  /**
+   * Writes a group in the given transaction: inserts first, then updates,
+   * since an update always targets a ticket already committed, then the
+   * spots released by the updated tickets. The writes are completed only
+   * if the transaction is committed.
+   *
+   * @param group the writes to flush
+   * @param begun the transaction of the group, closed once done
+   * @return true if the group was committed, false if it was rolled back
+   *     because the database rejected one of its writes, null if it was
+   *     rolled back for another reason
+   */
+  private Boolean commit(final List<PendingWrite> group,
+                         final UnitOfWork begun) {
+    List<PendingWrite> saves = new ArrayList<>();
+    List<PendingWrite> updates = new ArrayList<>();
+    for (PendingWrite write : group) {
+      (write.insert ? saves : updates).add(write);
+    }
+
+    try (UnitOfWork unitOfWork = begun) {
+      boolean[] saved = saves.isEmpty() ? new boolean[0]
+          : ticketDao.saveTickets(getTickets(saves), unitOfWork);
+      boolean[] updated = updates.isEmpty() ? new boolean[0]
+          : ticketDao.updateTickets(getTickets(updates), unitOfWork);
+      if (!releaseSpots(updates, updated, unitOfWork)) {
+        return false;
+      }
+
+      unitOfWork.commit();
+      complete(saves, saved);
+      complete(updates, updated);
+      return true;
+    } catch (Exception e) {
+      LOGGER.error("Unable to commit ticket group", e);
+      return isRejected(e) ? false : null;
+    }
+  }
+
+  /**
+   * Tells if a failure comes from the database rejecting a statement, as
+   * opposed to the connection or the database failing.
+   *
+   * @param failure the failure of a group
+   * @return true if a statement of the group was rejected
+   */
+  private static boolean isRejected(final Throwable failure) {
+    if (!(failure instanceof SQLException)) {
+      return false;
+    }
+    String sqlState = ((SQLException) failure).getSQLState();
+    if (sqlState != null && sqlState.startsWith(CONNECTION_ERROR_STATE)) {
+      return false;
+    }
+    if (failure instanceof BatchUpdateException) {
+      // A driver may wrap the cause of a failed batch, connection or not
+      Throwable cause = failure.getCause() != null ? failure.getCause()
+          : ((SQLException) failure).getNextException();
+      return cause == null || isRejected(cause);
+    }
+    return failure instanceof SQLIntegrityConstraintViolationException
+        || failure instanceof SQLDataException;
+  }
+
+  /**
+   * Releases the spots of the tickets closed by the given updates.
+   *
+   * @param updates the updates of the group
+   * @param updated for each update, true if its ticket was updated
+   * @param unitOfWork the transaction of the group
+   * @return true if every spot was released, false otherwise
+   */
+  private boolean releaseSpots(final List<PendingWrite> updates,
+                               final boolean[] updated,
+                               final UnitOfWork unitOfWork) {
+    for (int i = 0; i < updates.size(); i++) {
+      PendingWrite write = updates.get(i);
+      if (write.releaseSpot && updated[i]) {
+        ParkingSpot parkingSpot = write.ticket.getParkingSpot();
+        if (!parkingSpotDao.updateParking(parkingSpot, unitOfWork)) {
+          LOGGER.error("Unable to release parking spot {}",
+              Unbox.box(parkingSpot.getNumber()));
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets the tickets of the given writes.
+   *
+   * @param writes the pending writes
+   * @return their tickets, in the same order
+   */
+  private static List<Ticket> getTickets(final List<PendingWrite> writes) {
+    List<Ticket> tickets = new ArrayList<>(writes.size());
+    for (PendingWrite write : writes) {
+      tickets.add(write.ticket);
+    }
+    return tickets;
+  }
+
+  /**
+   * Completes the futures of the given writes.
+   *
+   * @param writes the writes flushed
+   * @param written for each write, true if it was committed, or null if
+   *     none was
+   */
+  private static void complete(final List<PendingWrite> writes,
+                               final boolean[] written) {
+    for (int i = 0; i < writes.size(); i++) {
+      writes.get(i).result.complete(written != null && written[i]);
+    }
+  }
+
+  /**
+   * A ticket write waiting for its group to be committed.
+   */
+  private static final class PendingWrite {
+
+    /**
+     * The ticket to write.
+     */
+    private final Ticket ticket;
+
+    /**
+     * True for an insert, false for an update.
+     */
+    private final boolean insert;
+
+    /**
+     * True if the spot of an updated ticket is released with it.
+     */
+    private final boolean releaseSpot;
+
+    /**
+     * Completed once the group of the write is flushed.
+     */
+    private final CompletableFuture<Boolean> result =
+        new CompletableFuture<>();
+
+    /**
+     * Constructor of class PendingWrite.
+     *
+     * @param ticketToWrite the ticket to write
+     * @param isInsert true for an insert, false for an update
+     * @param isRelease true if the spot of an updated ticket is released
+     *     with it
+     */
+    private PendingWrite(final Ticket ticketToWrite, final boolean isInsert,
+                         final boolean isRelease) {
+      this.ticket = ticketToWrite;
+      this.insert = isInsert;
+      this.releaseSpot = isRelease;
+    }
+  }
+}
@@ -1,7 +1,7 @@
 package com.parkit.parkingsystem.service;
 
-import com.parkit.parkingsystem.dao.ParkingSpotDao;
-import com.parkit.parkingsystem.dao.TicketDao;
+import com.parkit.parkingsystem.storage.StorageEngine;
+import com.parkit.parkingsystem.storage.StorageEngineFactory;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import com.parkit.parkingsystem.util.ScannerWrapper;
 import org.apache.logging.log4j.LogManager;
@@ -37,10 +37,24 @@ public final class InteractiveShell {
 
     ScannerWrapper scannerWrapper = new ScannerWrapper();
     InputReaderUtil inputReaderUtil = new InputReaderUtil(scannerWrapper);
-    TicketDao ticketDao = new TicketDao();
-    ParkingSpotDao parkingSpotDao = new ParkingSpotDao();
-    ParkingService parkingService = new ParkingService(inputReaderUtil,
-        parkingSpotDao, ticketDao);
+    StorageEngine storageEngine;
+    ParkingService parkingService;
+
+    try {
+      storageEngine = StorageEngineFactory.load(
+          StorageEngineFactory.STORAGE_RESOURCE);
+    } catch (Exception ex) {
+      LOGGER.error("Unable to load the storage settings", ex);
+      return;
+    }
+    try {
+      parkingService = ParkingServiceFactory.create(inputReaderUtil,
+          storageEngine);
+    } catch (Exception ex) {
+      LOGGER.error("Unable to start the parking service", ex);
+      storageEngine.close();
+      return;
+    }
 
     while (continueApp) {
       loadMenu();
@@ -62,6 +76,7 @@ public final class InteractiveShell {
         case exitingSystem:
           LOGGER.info("Exiting from the system!");
           continueApp = false;
+          storageEngine.close();
           break;
 
         default:
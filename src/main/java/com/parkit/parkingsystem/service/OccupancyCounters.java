@@ -0,0 +1,101 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the occupied spots of each parking type, so that the entrance
+ * signs and the occupancy widget can be answered without querying the
+ * database or scanning the allocator bitmaps. Counters are striped across
+ * the updating threads and never block the gates.
+ *
+ * @author Laura
+ */
+public class OccupancyCounters {
+
+  /**
+   * Number of spots of each parking type.
+   */
+  private final Map<ParkingType, Integer> capacities =
+      new EnumMap<>(ParkingType.class);
+
+  /**
+   * Number of occupied spots of each parking type.
+   */
+  private final Map<ParkingType, LongAdder> occupied =
+      new EnumMap<>(ParkingType.class);
+
+  /**
+   * Constructor of class OccupancyCounters.
+   * Counts the spots of the lot and those already taken.
+   *
+   * @param parkingSpots every parking spot of the lot with its availability
+   */
+  public OccupancyCounters(final List<ParkingSpot> parkingSpots) {
+    for (ParkingType parkingType : ParkingType.values()) {
+      capacities.put(parkingType, 0);
+      occupied.put(parkingType, new LongAdder());
+    }
+    for (ParkingSpot parkingSpot : parkingSpots) {
+      capacities.merge(parkingSpot.getParkingType(), 1, Integer::sum);
+      if (!parkingSpot.isAvailable()) {
+        occupied.get(parkingSpot.getParkingType()).increment();
+      }
+    }
+  }
+
+  /**
+   * Counts a spot of the given type as taken.
+   *
+   * @param parkingType the vehicle type (bike or car)
+   */
+  public void occupy(final ParkingType parkingType) {
+    occupied.get(parkingType).increment();
+  }
+
+  /**
+   * Counts a spot of the given type as free again.
+   *
+   * @param parkingType the vehicle type (bike or car)
+   */
+  public void release(final ParkingType parkingType) {
+    occupied.get(parkingType).decrement();
+  }
+
+  /**
+   * Getter of the number of spots of the given type.
+   *
+   * @param parkingType the vehicle type (bike or car)
+   * @return the number of spots
+   */
+  public int getCapacity(final ParkingType parkingType) {
+    return capacities.get(parkingType);
+  }
+
+  /**
+   * Getter of the number of occupied spots of the given type. While gates
+   * are updating the counter, the value may lag behind them by the updates
+   * in progress.
+   *
+   * @param parkingType the vehicle type (bike or car)
+   * @return the number of occupied spots, between 0 and the capacity
+   */
+  public int getOccupied(final ParkingType parkingType) {
+    long count = occupied.get(parkingType).sum();
+    return (int) Math.max(0, Math.min(count, getCapacity(parkingType)));
+  }
+
+  /**
+   * Getter of the number of free spots of the given type.
+   *
+   * @param parkingType the vehicle type (bike or car)
+   * @return the number of free spots, 0 when the type is full
+   */
+  public int getAvailable(final ParkingType parkingType) {
+    return getCapacity(parkingType) - getOccupied(parkingType);
+  }
+}
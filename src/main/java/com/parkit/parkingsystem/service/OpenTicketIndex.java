@@ -0,0 +1,151 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps in memory the open ticket of each vehicle currently in the parking,
+ * so that an exit finds its ticket without reading it from database.
+ * Tickets are copied in and out of the index: a ticket being closed does
+ * not change the indexed one until the exit is committed. An entry reserves
+ * its vehicle before its ticket is saved, so that two gates entering the
+ * same vehicle at once cannot both open a ticket.
+ *
+ * @author Laura
+ */
+public class OpenTicketIndex {
+
+  /**
+   * Placeholder of a vehicle whose entry is in progress.
+   */
+  private static final Ticket RESERVED = new Ticket();
+
+  /**
+   * Open tickets, or the placeholder of an entry in progress, by vehicle
+   * registration number.
+   */
+  private final Map<String, Ticket> openTickets = new ConcurrentHashMap<>();
+
+  /**
+   * Replaces the content of the index with the given open tickets.
+   *
+   * @param tickets the tickets of every vehicle still in the parking
+   */
+  public void load(final List<Ticket> tickets) {
+    openTickets.clear();
+    for (Ticket ticket : tickets) {
+      open(ticket);
+    }
+  }
+
+  /**
+   * Reserves a vehicle for an entry, unless it has an open ticket or
+   * another entry of it is in progress. The reservation is replaced by
+   * the ticket once saved, or cancelled if the entry fails.
+   *
+   * @param vehicleRegNumber the user's vehicle registration number
+   * @return true if the vehicle was reserved, false if it is already parked
+   *     or entering
+   */
+  public boolean reserve(final String vehicleRegNumber) {
+    return openTickets.putIfAbsent(vehicleRegNumber, RESERVED) == null;
+  }
+
+  /**
+   * Cancels the reservation of a vehicle whose entry failed, leaving an
+   * open ticket of it untouched.
+   *
+   * @param vehicleRegNumber the user's vehicle registration number
+   */
+  public void cancel(final String vehicleRegNumber) {
+    openTickets.remove(vehicleRegNumber, RESERVED);
+  }
+
+  /**
+   * Records the ticket of a vehicle entering the parking, replacing its
+   * reservation.
+   *
+   * @param ticket the saved ticket
+   */
+  public void open(final Ticket ticket) {
+    openTickets.put(ticket.getVehicleRegNumber(), copy(ticket));
+  }
+
+  /**
+   * Gets the open ticket of a vehicle.
+   *
+   * @param vehicleRegNumber the user's vehicle registration number
+   * @return a copy of the open ticket, or null if none is indexed
+   */
+  public Ticket get(final String vehicleRegNumber) {
+    Ticket ticket = openTickets.get(vehicleRegNumber);
+    return ticket != null && ticket != RESERVED ? copy(ticket) : null;
+  }
+
+  /**
+   * Tells if a vehicle has an open ticket.
+   *
+   * @param vehicleRegNumber the user's vehicle registration number
+   * @return true if an open ticket is indexed for the vehicle
+   */
+  public boolean contains(final String vehicleRegNumber) {
+    Ticket ticket = openTickets.get(vehicleRegNumber);
+    return ticket != null && ticket != RESERVED;
+  }
+
+  /**
+   * Removes the ticket of a vehicle that exited the parking.
+   *
+   * @param vehicleRegNumber the user's vehicle registration number
+   */
+  public void close(final String vehicleRegNumber) {
+    openTickets.computeIfPresent(vehicleRegNumber,
+        (plate, ticket) -> ticket == RESERVED ? ticket : null);
+  }
+
+  /**
+   * Removes the ticket of a vehicle and gives it back, so that only one of
+   * several gates closing it at once gets it.
+   *
+   * @param vehicleRegNumber the user's vehicle registration number
+   * @return a copy of the removed ticket, or null if none was indexed
+   */
+  public Ticket take(final String vehicleRegNumber) {
+    Ticket ticket = openTickets.get(vehicleRegNumber);
+    return ticket != null && ticket != RESERVED && openTickets.remove(
+        vehicleRegNumber, ticket) ? copy(ticket) : null;
+  }
+
+  /**
+   * Getter of the number of open tickets.
+   *
+   * @return the number of vehicles in the parking, entries in progress
+   *     excluded
+   */
+  public int size() {
+    int size = 0;
+    for (Ticket ticket : openTickets.values()) {
+      if (ticket != RESERVED) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Copies a ticket and its parking spot.
+   *
+   * @param ticket the ticket to copy
+   * @return a new Ticket instance with the same values
+   */
+  private static Ticket copy(final Ticket ticket) {
+    ParkingSpot spot = ticket.getParkingSpot();
+    return new Ticket(ticket.getId(), new ParkingSpot(spot.getNumber(),
+        spot.getParkingType(), spot.isAvailable()),
+        ticket.getVehicleRegNumber(), ticket.getPrice(), ticket.getInTime(),
+        ticket.getOutTime());
+  }
+}
@@ -1,22 +1,42 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.Fare;
 import com.parkit.parkingsystem.constants.ParkingType;
-import com.parkit.parkingsystem.dao.ParkingSpotDao;
-import com.parkit.parkingsystem.dao.TicketDao;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.journal.GateJournal;
+import com.parkit.parkingsystem.journal.JournalRecord;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.model.ParkingResult;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.util.FareCalculatorUtil;
 import com.parkit.parkingsystem.util.InputReaderUtil;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
 
 /**
- * Manages parking entry and exit process.
+ * Manages parking entry and exit process. Once configured, a single
+ * instance can serve every gate: enter and exit keep no state between
+ * calls and may run concurrently.
  *
  * @author Laura
  */
@@ -28,79 +48,681 @@ public class ParkingService {
   private static final Logger LOGGER = LogManager.getLogger("ParkingService");
 
   /**
-   * InputReaderUtil object.
+   * Longest licence plate number the ticket table can store.
+   */
+  public static final int MAX_VEHICLE_REG_NUMBER_LENGTH = 10;
+
+  /**
+   * Characters of a licence plate number: letters and digits, with spaces
+   * or hyphens between them.
+   */
+  private static final Pattern VEHICLE_REG_NUMBER = Pattern.compile(
+      "[A-Za-z0-9]([A-Za-z0-9 -]*[A-Za-z0-9])?");
+
+  /**
+   * Maximum number of spots tried when other gates claim them first.
+   */
+  private static final int MAX_CLAIM_ATTEMPTS = 10;
+
+  /**
+   * Format of the in-time and out-time shown on the console, immutable and
+   * shared by every call.
+   */
+  private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter
+      .ofPattern("yyyy-MM-dd HH:mm:ss");
+
+  /**
+   * Format of the fare shown on the console. DecimalFormat is not thread
+   * safe, so each thread keeps its own.
+   */
+  private static final ThreadLocal<NumberFormat> PRICE_FORMAT = ThreadLocal
+      .withInitial(() -> new DecimalFormat("0.00"));
+
+  /**
+   * Latency and outcomes of the entries.
+   */
+  private static final FlowMetrics ENTER_FLOW = new FlowMetrics("enter");
+
+  /**
+   * Latency and outcomes of the exits.
+   */
+  private static final FlowMetrics EXIT_FLOW = new FlowMetrics("exit");
+
+  /**
+   * Latency and outcomes of the quotes.
+   */
+  private static final FlowMetrics QUOTE_FLOW = new FlowMetrics("quote");
+
+  /**
+   * InputReaderUtil object, null if the service is not used from the
+   * console.
    */
   private final InputReaderUtil inputReaderUtil;
 
   /**
-   * ParkingSpotDao object.
+   * Repository of the parking spots.
+   */
+  private final ParkingSpotRepository parkingSpotDao;
+
+  /**
+   * Repository of the tickets.
+   */
+  private final TicketRepository ticketDao;
+
+  /**
+   * In-memory allocator of free spots, null to query the database.
+   */
+  private ParkingSpotAllocator parkingSpotAllocator;
+
+  /**
+   * Cache of recurring user status, null to always query the database.
    */
-  private final ParkingSpotDao parkingSpotDao;
+  private RecurringUserCache recurringUserCache;
 
   /**
-   * TicketDao object.
+   * Index of the open tickets, null to read them from the database.
    */
-  private final TicketDao ticketDao;
+  private OpenTicketIndex openTicketIndex;
 
+  /**
+   * Lookup of the users of the other facilities, null if the service runs
+   * a single facility.
+   */
+  private Function<String, Boolean> networkRecurringUsers;
+
+  /**
+   * Writer grouping the ticket writes of concurrent gates, null to write
+   * each ticket in the transaction of its entry or exit.
+   */
+  private GroupCommitTicketWriter ticketWriter;
+
+  /**
+   * Journal recording entries and exits before they reach the database,
+   * null to write them to the database directly.
+   */
+  private GateJournal gateJournal;
+
+  /**
+   * Tariff schedule pricing the stays, null for the flat Fare rates.
+   */
+  private TariffSchedule tariffSchedule;
+
+  /**
+   * Live counters of the occupied spots, null to count the spots in the
+   * allocator or the database.
+   */
+  private OccupancyCounters occupancyCounters;
+
+  /**
+   * Clock giving the in-time and out-time of tickets.
+   */
+  private Clock clock = Clock.systemDefaultZone();
+
+  /**
+   * Configuration used to run each entry and exit in a single transaction,
+   * null to let each DAO call run on its own connection.
+   */
+  private DataBaseConfig dataBaseConfig;
 
   /**
    * Constructor of class ParkingService.
    * Initialize inputReader, parkingSpotDao and ticketDao.
    *
    * @param inputReader    InputReaderUtil object
-   * @param daoParkingSpot ParkingSpotDao object
-   * @param daoTicket      TicketDao object
+   * @param daoParkingSpot repository of the parking spots
+   * @param daoTicket      repository of the tickets
    */
-  public ParkingService(final InputReaderUtil inputReader, final ParkingSpotDao
-      daoParkingSpot, final TicketDao daoTicket) {
+  public ParkingService(final InputReaderUtil inputReader,
+                        final ParkingSpotRepository daoParkingSpot,
+                        final TicketRepository daoTicket) {
     this.inputReaderUtil = inputReader;
     this.parkingSpotDao = daoParkingSpot;
     this.ticketDao = daoTicket;
   }
 
   /**
-   * Manages the vehicle incoming process.
+   * Constructor of class ParkingService for gates calling enter and exit
+   * directly, without console input.
+   *
+   * @param daoParkingSpot repository of the parking spots
+   * @param daoTicket      repository of the tickets
+   */
+  public ParkingService(final ParkingSpotRepository daoParkingSpot,
+                        final TicketRepository daoTicket) {
+    this(null, daoParkingSpot, daoTicket);
+  }
+
+  /**
+   * Setter of the in-memory allocator of free spots. Once set, the next
+   * available spot is allocated from memory instead of being fetched from
+   * the database.
+   *
+   * @param allocator the allocator loaded with the spots of the lot
+   */
+  public void setParkingSpotAllocator(final ParkingSpotAllocator allocator) {
+    this.parkingSpotAllocator = allocator;
+  }
+
+  /**
+   * Setter of the recurring user status cache. Once set, the database is
+   * only queried for registration numbers missing from the cache.
+   *
+   * @param cache the cache of recurring user status
+   */
+  public void setRecurringUserCache(final RecurringUserCache cache) {
+    this.recurringUserCache = cache;
+  }
+
+  /**
+   * Setter of the lookup of the users of the other facilities. Once set, a
+   * user unknown to this facility is still a recurring user if the lookup
+   * finds a ticket of theirs in another facility.
+   *
+   * @param lookup tells if a licence plate number used another facility,
+   *     null if some facility could not tell
+   */
+  public void setNetworkRecurringUsers(
+      final Function<String, Boolean> lookup) {
+    this.networkRecurringUsers = lookup;
+  }
+
+  /**
+   * Setter of the index of open tickets. Once set, tickets are indexed on
+   * entry and exits look their ticket up in the index first.
+   *
+   * @param index the index loaded with the tickets currently open
+   */
+  public void setOpenTicketIndex(final OpenTicketIndex index) {
+    this.openTicketIndex = index;
+  }
+
+  /**
+   * Setter of the group-commit ticket writer. Once set, tickets are written
+   * in groups shared with other gates and entries and exits no longer run
+   * in a single transaction: a spot is claimed before its ticket is
+   * written, and freed again if the ticket cannot be saved.
+   *
+   * @param writer the writer grouping ticket inserts and updates
+   */
+  public void setTicketWriter(final GroupCommitTicketWriter writer) {
+    this.ticketWriter = writer;
+  }
+
+  /**
+   * Setter of the gate journal. Once set, entries and exits are answered as
+   * soon as they are recorded in the journal, from the allocator and the
+   * open ticket index, and a JournalFlusher applies them to the database.
+   *
+   * @param journal the journal, opened and recovered before the allocator
+   *     and index were loaded
+   * @throws IllegalStateException if no allocator or index is set
+   */
+  public void setGateJournal(final GateJournal journal) {
+    if (journal != null && (parkingSpotAllocator == null
+        || openTicketIndex == null)) {
+      throw new IllegalStateException("The gate journal needs a spot "
+          + "allocator and an open ticket index");
+    }
+    this.gateJournal = journal;
+  }
+
+  /**
+   * Setter of the tariff schedule pricing the stays.
+   *
+   * @param schedule the tariff schedule, or null for the flat Fare rates
+   */
+  public void setTariffSchedule(final TariffSchedule schedule) {
+    this.tariffSchedule = schedule;
+  }
+
+  /**
+   * Setter of the live occupancy counters. Once set, they are updated on
+   * every entry and exit and answer the spot counts.
+   *
+   * @param counters the counters loaded with the spots of the lot
+   */
+  public void setOccupancyCounters(final OccupancyCounters counters) {
+    this.occupancyCounters = counters;
+  }
+
+  /**
+   * Setter of the clock giving the in-time and out-time of tickets.
+   *
+   * @param ticketClock the clock to read the current time from
+   */
+  public void setClock(final Clock ticketClock) {
+    this.clock = ticketClock;
+  }
+
+  /**
+   * Setter of a DataBaseConfig object. Once set, the database operations of
+   * each entry and exit run on one connection and in one transaction.
+   *
+   * @param config the dataBaseConfig instance shared with the DAOs
+   */
+  public void setDataBaseConfig(final DataBaseConfig config) {
+    this.dataBaseConfig = config;
+  }
+
+  /**
+   * Starts a unit of work if a DataBaseConfig is set. With a ticket writer,
+   * no connection is held while a grouped write is awaited, otherwise the
+   * waiting gates could take every connection the writer needs.
+   *
+   * @return a UnitOfWork instance, or null to let each DAO call run on its
+   *     own connection
+   */
+  private UnitOfWork beginUnitOfWork() throws ClassNotFoundException,
+      SQLException {
+    return dataBaseConfig != null && ticketWriter == null
+        ? dataBaseConfig.beginUnitOfWork() : null;
+  }
+
+  /**
+   * Manages the vehicle incoming process on the console: asks the vehicle
+   * type, then the licence plate number if a spot is available.
    */
   public void processIncomingVehicle() {
+    /* The system fetches the next available spot depending on the type of
+    vehicle of the user. */
+    ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
 
+    if (parkingSpot == null || parkingSpot.getNumber() <= 0) {
+      return;
+    }
+
+    String vehicleRegNumber;
     try {
-      /* The system fetches the next available spot depending on the type of
-      vehicle of the user. */
-      ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
-
-      if (parkingSpot != null && parkingSpot.getNumber() > 0) {
-        parkingSpot.setAvailable(false);
-
-        // Allot this parking space and mark it's availability as false
-        parkingSpotDao.updateParking(parkingSpot);
-        String vehicleRegNumber = getVehicleRegNumber();
-
-        Ticket ticket = new Ticket();
-        ticket.setParkingSpot(parkingSpot);
-        ticket.setVehicleRegNumber(vehicleRegNumber);
-        LocalDateTime inTime = LocalDateTime.now();
-        ticket.setInTime(inTime);
-        ticket.setOutTime(null);
-        /* Ticket is saved in DB with parkingSpot, parkingType,
-        vehicleRegNumber, InTime and OutTime. */
-        ticketDao.saveTicket(ticket);
-
-        /* The system checks whether the user has entered the parking
-           previously. */
-        if (ticketDao.isRecurringUser(vehicleRegNumber)) {
-          LOGGER.info("Welcome back! As a recurring user of our"
-              + " parking lot, you'll benefit from a 5% discount.");
+      vehicleRegNumber = getVehicleRegNumber();
+    } catch (Exception e) {
+      LOGGER.error("Unable to process incoming vehicle", e);
+      releaseAllocatedSpot(parkingSpot);
+      return;
+    }
+
+    long start = System.nanoTime();
+    ParkingResult result = ENTER_FLOW.record(start, enter(vehicleRegNumber,
+        parkingSpot));
+
+    if (result.isSuccess()) {
+      if (result.isRecurringUser()) {
+        LOGGER.info("Welcome back! As a recurring user of our"
+            + " parking lot, you'll benefit from a 5% discount.");
+      }
+
+      LOGGER.info("Generated Ticket and saved in DB");
+      LOGGER.info("Please park your vehicle in spot number: {}",
+          Unbox.box(result.getParkingSpot().getNumber()));
+      LOGGER.info("Recorded in-time for vehicle number:{} is: {}",
+          vehicleRegNumber, TIME_FORMAT.format(result.getInTime()));
+    }
+  }
+
+  /**
+   * Tells if a licence plate number can be stored: letters and digits, with
+   * spaces or hyphens between them, no longer than the ticket table allows.
+   *
+   * @param vehicleRegNumber the licence plate number
+   * @return true if the licence plate number is valid
+   */
+  public static boolean isValidVehicleRegNumber(
+      final String vehicleRegNumber) {
+    return vehicleRegNumber != null
+        && vehicleRegNumber.length() <= MAX_VEHICLE_REG_NUMBER_LENGTH
+        && VEHICLE_REG_NUMBER.matcher(vehicleRegNumber).matches();
+  }
+
+  /**
+   * Parks a vehicle: claims the next available spot of its type and saves
+   * its ticket. Safe to call from several gates at once.
+   *
+   * @param vehicleRegNumber the licence plate number of the vehicle
+   * @param parkingType the vehicle type (bike or car)
+   * @return the outcome of the entry, with the spot and in-time if parked
+   */
+  public ParkingResult enter(final String vehicleRegNumber,
+                             final ParkingType parkingType) {
+    long start = System.nanoTime();
+    if (!isValidVehicleRegNumber(vehicleRegNumber)) {
+      return ENTER_FLOW.record(start, invalidPlate(vehicleRegNumber));
+    }
+    int parkingNumber = findNextAvailableSpot(parkingType, null);
+
+    if (parkingNumber <= 0) {
+      LOGGER.error("Error fetching next available parking spot. Parking "
+          + "spots might be full");
+      return ENTER_FLOW.record(start, new ParkingResult(
+          ParkingResult.Status.NO_SPOT_AVAILABLE, vehicleRegNumber));
+    }
+
+    return ENTER_FLOW.record(start, enter(vehicleRegNumber, new ParkingSpot(
+        parkingNumber, parkingType, true)));
+  }
+
+  /**
+   * Parks a vehicle on the given spot, or on the next available one if
+   * another gate claimed it first.
+   *
+   * @param vehicleRegNumber the licence plate number of the vehicle
+   * @param candidate the spot found available
+   * @return the outcome of the entry, with the spot and in-time if parked
+   */
+  private ParkingResult enter(final String vehicleRegNumber,
+                              final ParkingSpot candidate) {
+    ParkingSpot parkingSpot = candidate;
+    boolean ticketSaved = false;
+
+    if (!isValidVehicleRegNumber(vehicleRegNumber)) {
+      releaseAllocatedSpot(parkingSpot);
+      return invalidPlate(vehicleRegNumber);
+    }
+
+    /* Reserved before the spot is claimed, so that a second gate entering
+    the same vehicle at once is turned away instead of opening a ticket. */
+    if (openTicketIndex != null && !openTicketIndex.reserve(
+        vehicleRegNumber)) {
+      LOGGER.error("Vehicle {} is already parked", vehicleRegNumber);
+      releaseAllocatedSpot(parkingSpot);
+      return new ParkingResult(ParkingResult.Status.ALREADY_PARKED,
+          vehicleRegNumber);
+    }
+    if (gateJournal != null) {
+      return enterJournaled(vehicleRegNumber, parkingSpot);
+    }
+
+    /* Spot claim and ticket share one transaction, so a spot is never left
+    taken without its ticket. */
+    Ticket ticket = new Ticket();
+    try (UnitOfWork unitOfWork = beginUnitOfWork()) {
+      /* Allot this parking space and mark it's availability as false.
+      Until a spot is claimed, giving it back is left to the claim. */
+      parkingSpot = null;
+      parkingSpot = claimParkingSpot(candidate, unitOfWork);
+
+      if (parkingSpot == null) {
+        return new ParkingResult(ParkingResult.Status.NO_SPOT_AVAILABLE,
+            vehicleRegNumber);
+      }
+
+      ticket.setParkingSpot(parkingSpot);
+      ticket.setVehicleRegNumber(vehicleRegNumber);
+      ticket.setInTime(LocalDateTime.now(clock));
+      ticket.setOutTime(null);
+      /* Ticket is saved in DB with parkingSpot, parkingType,
+      vehicleRegNumber, InTime and OutTime. */
+      if (ticketWriter != null) {
+        // The claim is already committed, it is undone if the ticket fails
+        if (!awaitWrite(ticketWriter.saveTicket(ticket))) {
+          LOGGER.error("Unable to save ticket. Error occurred");
+          freeParkingSpot(parkingSpot);
+          return new ParkingResult(ParkingResult.Status.FAILED,
+              vehicleRegNumber);
         }
+      } else if (!ticketDao.saveTicket(ticket, unitOfWork)) {
+        LOGGER.error("Unable to save ticket. Error occurred");
+        return new ParkingResult(ParkingResult.Status.FAILED,
+            vehicleRegNumber);
+      }
 
-        LOGGER.info("Generated Ticket and saved in DB");
-        LOGGER.info("Please park your vehicle in spot number: "
-            + parkingSpot.getNumber());
-        LOGGER.info("Recorded in-time for vehicle number:"
-            + vehicleRegNumber + " is: " + inTime.format(DateTimeFormatter
-            .ofPattern("yyyy-MM-dd HH:mm:ss")));
+      if (unitOfWork != null) {
+        unitOfWork.commit();
+      }
+      ticketSaved = true;
+      if (openTicketIndex != null) {
+        openTicketIndex.open(ticket);
       }
+      countOccupiedSpot(parkingSpot);
     } catch (Exception e) {
       LOGGER.error("Unable to process incoming vehicle", e);
+      return new ParkingResult(ParkingResult.Status.FAILED, vehicleRegNumber);
+    } finally {
+      // Give the allocated spot back so that it can be used by someone else
+      if (!ticketSaved) {
+        releaseAllocatedSpot(parkingSpot);
+        cancelReservation(vehicleRegNumber);
+      }
+    }
+
+    /* The system checks whether the user has entered the parking
+    previously, once the unit of work is closed so that no connection is
+    held while the other facilities are asked. */
+    return new ParkingResult(ParkingResult.Status.PARKED, ticket,
+        isRecurringUser(vehicleRegNumber, null));
+  }
+
+  /**
+   * Parks a vehicle on a spot allocated in memory and records the entry in
+   * the journal, leaving the database to the flusher.
+   *
+   * @param vehicleRegNumber the licence plate number of the vehicle
+   * @param parkingSpot the spot allocated
+   * @return the outcome of the entry, with the spot and in-time if parked
+   */
+  private ParkingResult enterJournaled(final String vehicleRegNumber,
+                                       final ParkingSpot parkingSpot) {
+    parkingSpot.setAvailable(false);
+    Ticket ticket = new Ticket();
+    ticket.setParkingSpot(parkingSpot);
+    ticket.setVehicleRegNumber(vehicleRegNumber);
+    ticket.setInTime(LocalDateTime.now(clock));
+    ticket.setOutTime(null);
+
+    try {
+      gateJournal.append(JournalRecord.Type.ENTRY, ticket);
+    } catch (IOException e) {
+      LOGGER.error("Unable to record incoming vehicle", e);
+      releaseAllocatedSpot(parkingSpot);
+      cancelReservation(vehicleRegNumber);
+      return new ParkingResult(ParkingResult.Status.FAILED, vehicleRegNumber);
+    }
+    openTicketIndex.open(ticket);
+    countOccupiedSpot(parkingSpot);
+
+    // The gate answers from the cache, the database is left to the flusher
+    return new ParkingResult(ParkingResult.Status.PARKED, ticket,
+        Boolean.TRUE.equals(getCachedRecurringUser(vehicleRegNumber)));
+  }
+
+  /**
+   * Takes a vehicle out using its indexed ticket and records the exit in
+   * the journal, leaving the database to the flusher. The fare is computed
+   * at once if the user is in the recurring user cache; otherwise the exit
+   * is journaled with a pending fare, computed by the flusher.
+   *
+   * @param vehicleRegNumber the licence plate number of the vehicle
+   * @return the outcome of the exit, with the times and fare if exited
+   */
+  private ParkingResult exitJournaled(final String vehicleRegNumber) {
+    // Taken out of the index so that a second exit cannot close it again
+    Ticket ticket = openTicketIndex.take(vehicleRegNumber);
+    if (ticket == null) {
+      LOGGER.error("No open ticket found for vehicle number: {}",
+          vehicleRegNumber);
+      return new ParkingResult(ParkingResult.Status.TICKET_NOT_FOUND,
+          vehicleRegNumber);
+    }
+
+    ticket.setOutTime(LocalDateTime.now(clock));
+    Boolean recurringUser = getCachedRecurringUser(vehicleRegNumber);
+    double discount = Boolean.TRUE.equals(recurringUser) ? Fare.DISCOUNT : 0;
+    ticket.setPrice(recurringUser != null ? calculateFare(ticket, discount)
+        : JournalRecord.PRICE_PENDING);
+
+    try {
+      gateJournal.append(JournalRecord.Type.EXIT, ticket);
+    } catch (IOException e) {
+      LOGGER.error("Unable to record exiting vehicle", e);
+      ticket.setOutTime(null);
+      ticket.setPrice(0);
+      openTicketIndex.open(ticket);
+      return new ParkingResult(ParkingResult.Status.FAILED, vehicleRegNumber);
+    }
+
+    ParkingSpot parkingSpot = ticket.getParkingSpot();
+    parkingSpot.setAvailable(true);
+    releaseAllocatedSpot(parkingSpot);
+    countFreedSpot(parkingSpot);
+    if (recurringUserCache != null) {
+      recurringUserCache.recordCompletedExit(vehicleRegNumber);
+    }
+
+    return new ParkingResult(ParkingResult.Status.EXITED, ticket,
+        discount > 0);
+  }
+
+  /**
+   * Computes the fare a vehicle would pay if it exited now, without
+   * closing its ticket.
+   *
+   * @param vehicleRegNumber the licence plate number of the vehicle
+   * @return the outcome of the quote, with the times and fare if quoted
+   */
+  public ParkingResult quote(final String vehicleRegNumber) {
+    long start = System.nanoTime();
+    return QUOTE_FLOW.record(start, isValidVehicleRegNumber(vehicleRegNumber)
+        ? quoteOpenTicket(vehicleRegNumber) : invalidPlate(vehicleRegNumber));
+  }
+
+  /**
+   * Computes the fare of the open ticket of a vehicle as if it exited now.
+   *
+   * @param vehicleRegNumber the licence plate number of the vehicle
+   * @return the outcome of the quote, with the times and fare if quoted
+   */
+  private ParkingResult quoteOpenTicket(final String vehicleRegNumber) {
+    try {
+      Ticket ticket = getOpenTicket(vehicleRegNumber, null);
+      if (ticket == null) {
+        return new ParkingResult(ParkingResult.Status.TICKET_NOT_FOUND,
+            vehicleRegNumber);
+      }
+
+      ticket.setOutTime(LocalDateTime.now(clock));
+      double discount = getDiscount(vehicleRegNumber, null,
+          networkRecurringUsers);
+      ticket.setPrice(calculateFare(ticket, discount));
+
+      return new ParkingResult(ParkingResult.Status.QUOTED, ticket,
+          discount > 0);
+    } catch (Exception e) {
+      LOGGER.error("Unable to quote parking fare", e);
+      return new ParkingResult(ParkingResult.Status.FAILED, vehicleRegNumber);
+    }
+  }
+
+  /**
+   * Counts the spots of the given vehicle type from the live counters if
+   * set, in the allocator if set, in database otherwise.
+   *
+   * @param parkingType the vehicle type (bike or car)
+   * @param availableOnly true to count the free spots only
+   * @return the number of spots
+   */
+  public int countParkingSpots(final ParkingType parkingType,
+                               final boolean availableOnly) {
+    if (occupancyCounters != null) {
+      return availableOnly ? occupancyCounters.getAvailable(parkingType)
+          : occupancyCounters.getCapacity(parkingType);
+    }
+    if (parkingSpotAllocator != null) {
+      return availableOnly ? parkingSpotAllocator.getAvailableCount(
+          parkingType) : parkingSpotAllocator.getSpotCount(parkingType);
+    }
+
+    int count = 0;
+    for (ParkingSpot parkingSpot : parkingSpotDao.getParkingSpots()) {
+      if (parkingSpot.getParkingType() == parkingType
+          && (!availableOnly || parkingSpot.isAvailable())) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Turns away a licence plate number the ticket table cannot store.
+   *
+   * @param vehicleRegNumber the licence plate number given
+   * @return the outcome of the entry, exit or quote
+   */
+  private static ParkingResult invalidPlate(final String vehicleRegNumber) {
+    LOGGER.error("Invalid vehicle registration number: {}", vehicleRegNumber);
+    return new ParkingResult(ParkingResult.Status.INVALID_PLATE,
+        vehicleRegNumber);
+  }
+
+  /**
+   * Waits for a grouped ticket write to be committed.
+   *
+   * @param write the future of the write
+   * @return true if the write was committed
+   */
+  private static boolean awaitWrite(final Future<Boolean> write) {
+    try {
+      return write.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      LOGGER.error("Grouped ticket write failed", e);
+    }
+    return false;
+  }
+
+  /**
+   * Frees in database a spot whose claim was already committed.
+   *
+   * @param parkingSpot the spot claimed
+   */
+  private void freeParkingSpot(final ParkingSpot parkingSpot) {
+    parkingSpot.setAvailable(true);
+    if (!parkingSpotDao.updateParking(parkingSpot, null)) {
+      LOGGER.error("Unable to free parking spot {}",
+          Unbox.box(parkingSpot.getNumber()));
+    }
+  }
+
+  /**
+   * Gives a spot allocated in memory back to the allocator, if any.
+   *
+   * @param parkingSpot the spot allocated, or null
+   */
+  private void releaseAllocatedSpot(final ParkingSpot parkingSpot) {
+    if (parkingSpotAllocator != null && parkingSpot != null) {
+      parkingSpotAllocator.release(parkingSpot);
+    }
+  }
+
+  /**
+   * Cancels the reservation of a vehicle whose entry failed in the open
+   * ticket index, if any.
+   *
+   * @param vehicleRegNumber the licence plate number of the vehicle
+   */
+  private void cancelReservation(final String vehicleRegNumber) {
+    if (openTicketIndex != null) {
+      openTicketIndex.cancel(vehicleRegNumber);
+    }
+  }
+
+  /**
+   * Counts a spot as taken in the live occupancy counters, if any.
+   *
+   * @param parkingSpot the spot taken
+   */
+  private void countOccupiedSpot(final ParkingSpot parkingSpot) {
+    if (occupancyCounters != null) {
+      occupancyCounters.occupy(parkingSpot.getParkingType());
+    }
+  }
+
+  /**
+   * Counts a spot as free in the live occupancy counters, if any.
+   *
+   * @param parkingSpot the spot freed
+   */
+  private void countFreedSpot(final ParkingSpot parkingSpot) {
+    if (occupancyCounters != null) {
+      occupancyCounters.release(parkingSpot.getParkingType());
     }
   }
 
@@ -132,8 +754,9 @@ public class ParkingService {
   }
 
   /**
-   * Checks in database if there is any available parking spot for this type
-   * of vehicle.
+   * Checks if there is any available parking spot for this type of vehicle,
+   * in memory if an allocator is set, in database otherwise. A spot
+   * allocated in memory is already marked as taken.
    *
    * @return the available parking spot or null parking spot if the system
    *     fails to fetch an available parking spot
@@ -144,7 +767,9 @@ public class ParkingService {
 
     try {
       ParkingType parkingType = getVehicleType();
-      parkingNumber = parkingSpotDao.getNextAvailableSpot(parkingType);
+      parkingNumber = parkingSpotAllocator != null
+          ? parkingSpotAllocator.allocate(parkingType)
+          : parkingSpotDao.getNextAvailableSpot(parkingType);
 
       if (parkingNumber > 0) {
         parkingSpot = new ParkingSpot(parkingNumber, parkingType, true);
@@ -161,6 +786,71 @@ public class ParkingService {
     return parkingSpot;
   }
 
+  /**
+   * Finds the number of the next available spot, in memory if an allocator
+   * is set, in database within the given unit of work otherwise.
+   *
+   * @param parkingType the user's vehicle type (bike or car)
+   * @param unitOfWork the current unit of work, or null
+   * @return the available parking spot number or -1 if no parking spot
+   *     is available for this type of vehicle
+   */
+  private int findNextAvailableSpot(final ParkingType parkingType,
+                                    final UnitOfWork unitOfWork) {
+    return parkingSpotAllocator != null
+        ? parkingSpotAllocator.allocate(parkingType)
+        : parkingSpotDao.getNextAvailableSpot(parkingType, unitOfWork);
+  }
+
+  /**
+   * Claims the given spot in database. When another gate claimed it first,
+   * the next available spot of the same type is tried instead. When the
+   * claim fails, the spot is given back to the allocator and no other spot
+   * is tried.
+   *
+   * @param candidate the spot found available
+   * @param unitOfWork the current unit of work, or null
+   * @return the parking spot claimed, or null if other gates claimed every
+   *     spot tried
+   * @throws SQLException if a spot could not be claimed
+   */
+  private ParkingSpot claimParkingSpot(final ParkingSpot candidate,
+                                       final UnitOfWork unitOfWork)
+      throws SQLException {
+    ParkingType parkingType = candidate.getParkingType();
+    ParkingSpot parkingSpot = candidate;
+
+    for (int attempt = 1; parkingSpot != null; attempt++) {
+      parkingSpot.setAvailable(false);
+      Boolean claimed = parkingSpotDao.claimParking(parkingSpot, unitOfWork);
+      if (claimed == null) {
+        // Nobody took this spot: it is not lost to the allocator
+        parkingSpot.setAvailable(true);
+        releaseAllocatedSpot(parkingSpot);
+        throw new SQLException("Unable to claim parking spot "
+            + parkingSpot.getNumber());
+      }
+      if (claimed) {
+        return parkingSpot;
+      }
+
+      /* Another gate took this spot. With an allocator the spot stays
+      marked as taken in memory, so the next candidate is another spot. */
+      LOGGER.debug("Parking spot {} already taken, trying next one",
+          Unbox.box(parkingSpot.getNumber()));
+      if (attempt >= MAX_CLAIM_ATTEMPTS) {
+        break;
+      }
+      int parkingNumber = findNextAvailableSpot(parkingType, unitOfWork);
+      parkingSpot = parkingNumber > 0
+          ? new ParkingSpot(parkingNumber, parkingType, true) : null;
+    }
+
+    LOGGER.error("Unable to claim a parking spot. Parking spots might "
+        + "be full");
+    return null;
+  }
+
   /**
    * Calls InputReaderUtil's readVehicleRegistrationNumber method.
    * Asks the user for his/her licence plate number
@@ -179,11 +869,16 @@ public class ParkingService {
    * exiting the parking.
    *
    * @param vehicleRegNumber the user's licence plate number
+   * @param unitOfWork the current unit of work, or null
+   * @param networkLookup the lookup of the other facilities, or null
    * @return 5% discount if it's a recurrent user, 0 if it's a new user.
    */
-  private double getDiscount(final String vehicleRegNumber) {
+  private double getDiscount(final String vehicleRegNumber,
+                             final UnitOfWork unitOfWork,
+                             final Function<String, Boolean>
+                                 networkLookup) {
 
-    if (ticketDao.isRecurringUser(vehicleRegNumber)) {
+    if (isRecurringUser(vehicleRegNumber, unitOfWork, networkLookup)) {
       return Fare.DISCOUNT;
     }
 
@@ -191,43 +886,317 @@ public class ParkingService {
   }
 
   /**
-   * Manages the vehicle exit process.
+   * Calculates the fare of a ticket whose exit was journaled with a pending
+   * fare. The user is looked up without the cache, which already counts
+   * them as recurring since that exit.
+   *
+   * @param ticket the ticket with its out-time set
+   * @param unitOfWork the unit of work applying the exit, or null
+   * @return the price to pay, rounded to the cent
+   */
+  public double priceExit(final Ticket ticket, final UnitOfWork unitOfWork) {
+    boolean recurringUser = Boolean.TRUE.equals(findRecurringUser(
+        ticket.getVehicleRegNumber(), unitOfWork, networkRecurringUsers));
+    return calculateFare(ticket, recurringUser ? Fare.DISCOUNT : 0);
+  }
+
+  /**
+   * Calculates the fare of a ticket with the tariff schedule if one is
+   * set, with the flat Fare rates otherwise.
+   *
+   * @param ticket the ticket with its out-time set
+   * @param discount the discount rate of the user
+   * @return the price to pay, rounded to the cent
+   */
+  private double calculateFare(final Ticket ticket, final double discount) {
+    return tariffSchedule != null ? tariffSchedule.getCalculatedFare(ticket,
+        discount) : FareCalculatorUtil.getCalculatedFare(ticket, discount);
+  }
+
+  /**
+   * Checks if the user had already used the parking, in cache first if a
+   * cache is set, in database otherwise. Only definitive answers are
+   * cached: a user whose tickets could not be read counts as new for this
+   * call only, so that a database error or a slow facility does not cost
+   * a recurring user their discount until the entry expires.
+   *
+   * @param vehicleRegNumber the user's licence plate number
+   * @param unitOfWork the current unit of work, or null
+   * @return true if the user had already used the parking
+   */
+  private boolean isRecurringUser(final String vehicleRegNumber,
+                                  final UnitOfWork unitOfWork) {
+    return isRecurringUser(vehicleRegNumber, unitOfWork,
+        networkRecurringUsers);
+  }
+
+  /**
+   * Checks if the user had already used the parking, in cache first if a
+   * cache is set, in database and with the given lookup of the other
+   * facilities otherwise. Only definitive answers are cached.
+   *
+   * @param vehicleRegNumber the user's licence plate number
+   * @param unitOfWork the current unit of work, or null
+   * @param networkLookup the lookup of the other facilities, or null
+   * @return true if the user had already used the parking
+   */
+  private boolean isRecurringUser(final String vehicleRegNumber,
+                                  final UnitOfWork unitOfWork,
+                                  final Function<String, Boolean>
+                                      networkLookup) {
+    Boolean recurringUser = recurringUserCache != null
+        ? recurringUserCache.get(vehicleRegNumber) : null;
+
+    if (recurringUser == null) {
+      recurringUser = findRecurringUser(vehicleRegNumber, unitOfWork,
+          networkLookup);
+      if (recurringUser != null && recurringUserCache != null) {
+        recurringUserCache.put(vehicleRegNumber, recurringUser);
+      }
+    }
+
+    return Boolean.TRUE.equals(recurringUser);
+  }
+
+  /**
+   * Checks in the recurring user cache only if the user had already used
+   * the parking.
+   *
+   * @param vehicleRegNumber the user's licence plate number
+   * @return the cached answer, null if no cache is set or it has none
+   */
+  private Boolean getCachedRecurringUser(final String vehicleRegNumber) {
+    return recurringUserCache != null
+        ? recurringUserCache.get(vehicleRegNumber) : null;
+  }
+
+  /**
+   * Asks the other facilities about a user ahead of a unit of work, so that
+   * no connection is held while they answer. They are not asked if no
+   * lookup is set or the cache already knows the user.
+   *
+   * @param vehicleRegNumber the user's licence plate number
+   * @return the lookup to use within the unit of work, answering at once
+   *     if the facilities were asked, or null if no lookup is set
+   */
+  private Function<String, Boolean> lookUpNetworkAhead(
+      final String vehicleRegNumber) {
+    if (networkRecurringUsers == null || (recurringUserCache != null
+        && recurringUserCache.contains(vehicleRegNumber))) {
+      return networkRecurringUsers;
+    }
+
+    Boolean networkUser = networkRecurringUsers.apply(vehicleRegNumber);
+    return plate -> networkUser;
+  }
+
+  /**
+   * Checks in database if the user had already used this facility, then in
+   * the other facilities if a lookup is given and they had not.
+   *
+   * @param vehicleRegNumber the user's licence plate number
+   * @param unitOfWork the current unit of work, or null
+   * @param networkLookup the lookup of the other facilities, or null
+   * @return true if the user had already used one of the facilities, false
+   *     if none of them knows the user, null if one could not tell
+   */
+  private Boolean findRecurringUser(final String vehicleRegNumber,
+                                    final UnitOfWork unitOfWork,
+                                    final Function<String, Boolean>
+                                        networkLookup) {
+    Boolean recurringUser = ticketDao.isRecurringUser(vehicleRegNumber,
+        unitOfWork);
+    if (Boolean.TRUE.equals(recurringUser) || networkLookup == null) {
+      return recurringUser;
+    }
+
+    Boolean networkUser = networkLookup.apply(vehicleRegNumber);
+    if (Boolean.TRUE.equals(networkUser)) {
+      return true;
+    }
+    return recurringUser == null || networkUser == null ? null : false;
+  }
+
+  /**
+   * Gets the open ticket of the given licence plate number, in the index
+   * first if an index is set, in database otherwise.
+   *
+   * @param vehicleRegNumber the user's licence plate number
+   * @param unitOfWork the current unit of work, or null
+   * @return the open ticket of the vehicle, null if none was found
+   */
+  private Ticket getOpenTicket(final String vehicleRegNumber,
+                               final UnitOfWork unitOfWork) {
+    if (openTicketIndex != null) {
+      Ticket ticket = openTicketIndex.get(vehicleRegNumber);
+      if (ticket != null || gateJournal != null) {
+        // The database lags behind the journal, the index is the reference
+        return ticket;
+      }
+      LOGGER.debug("No open ticket indexed for {}", vehicleRegNumber);
+    }
+
+    // The latest ticket is already closed if the vehicle is not parked
+    Ticket ticket = ticketDao.getTicket(vehicleRegNumber, unitOfWork);
+    return ticket != null && ticket.getOutTime() == null ? ticket : null;
+  }
+
+  /**
+   * Manages the vehicle exit process on the console.
    */
   public void processExitingVehicle() {
+    String vehicleRegNumber;
     try {
-      String vehicleRegNumber = getVehicleRegNumber();
-      // Retrieve the last ticket saved in Database associated with
-      // this registration number.
-      Ticket ticket = ticketDao.getTicket(vehicleRegNumber);
-      LocalDateTime outTime = LocalDateTime.now();
-      ticket.setOutTime(outTime);
-      // Users get a 5% discount when they use the parking garage regularly.
-      double discount = getDiscount(vehicleRegNumber);
-      double fare = FareCalculatorUtil.getCalculatedFare(ticket, discount);
+      vehicleRegNumber = getVehicleRegNumber();
+    } catch (Exception e) {
+      LOGGER.error("Unable to process exiting vehicle", e);
+      return;
+    }
 
-      ticket.setPrice(fare);
+    ParkingResult result = exit(vehicleRegNumber);
 
-      // Ticket is updated in the Database with the fare generated and out-time.
-      if (ticketDao.updateTicket(ticket)) {
-        ParkingSpot parkingSpot = ticket.getParkingSpot();
-        parkingSpot.setAvailable(true);
+    if (result.isSuccess()) {
+      LOGGER.info("Please pay the parking fare: {}",
+          PRICE_FORMAT.get().format(result.getFare()));
+      LOGGER.info("Recorded out-time for vehicle number: {} is: {}",
+          vehicleRegNumber, TIME_FORMAT.format(result.getOutTime()));
+    }
+  }
+
+  /**
+   * Takes a vehicle out: closes its ticket with the fare and frees its
+   * spot. Safe to call from several gates at once.
+   *
+   * @param vehicleRegNumber the licence plate number of the vehicle
+   * @return the outcome of the exit, with the times and fare if exited
+   */
+  public ParkingResult exit(final String vehicleRegNumber) {
+    long start = System.nanoTime();
+    return EXIT_FLOW.record(start, isValidVehicleRegNumber(vehicleRegNumber)
+        ? closeTicket(vehicleRegNumber) : invalidPlate(vehicleRegNumber));
+  }
+
+  /**
+   * Closes the open ticket of a vehicle with its fare and frees its spot,
+   * in the journal if set, in database otherwise.
+   *
+   * @param vehicleRegNumber the licence plate number of the vehicle
+   * @return the outcome of the exit, with the times and fare if exited
+   */
+  private ParkingResult closeTicket(final String vehicleRegNumber) {
+    if (gateJournal != null) {
+      return exitJournaled(vehicleRegNumber);
+    }
 
-        // Release this parking space and mark it's availability as true
-        if (parkingSpotDao.updateParking(parkingSpot)) {
-          DecimalFormat formatPrice = new DecimalFormat("0.00");
-          LOGGER.info("Please pay the parking fare: "
-              + formatPrice.format(ticket.getPrice()));
-          LOGGER.info("Recorded out-time for vehicle number: "
-              + ticket.getVehicleRegNumber() + " is: "
-              + ticket.getOutTime().format(DateTimeFormatter.ofPattern(
-              "yyyy-MM-dd HH:mm:ss")));
+    /* Ticket update and spot release share one transaction, the group of
+    the ticket writer if set, so a ticket is never closed while its spot
+    stays taken. The other facilities are asked before it begins, so that
+    no connection is held while they answer. */
+    Function<String, Boolean> networkLookup = lookUpNetworkAhead(
+        vehicleRegNumber);
+    try (UnitOfWork unitOfWork = beginUnitOfWork()) {
+      // Retrieve the open ticket associated with this registration number.
+      Ticket ticket = getOpenTicket(vehicleRegNumber, unitOfWork);
+      if (ticket == null) {
+        LOGGER.error("No open ticket found for vehicle number: {}",
+            vehicleRegNumber);
+        return new ParkingResult(ParkingResult.Status.TICKET_NOT_FOUND,
+            vehicleRegNumber);
+      }
+
+      ticket.setOutTime(LocalDateTime.now(clock));
+      // Users get a 5% discount when they use the parking garage regularly.
+      double discount = getDiscount(vehicleRegNumber, unitOfWork,
+          networkLookup);
+      ticket.setPrice(calculateFare(ticket, discount));
+
+      // Release this parking space and mark it's availability as true
+      ParkingSpot parkingSpot = ticket.getParkingSpot();
+      parkingSpot.setAvailable(true);
+
+      // Ticket is updated in the Database with the fare generated and
+      // out-time. The ticket writer releases the spot in the same group.
+      if (ticketWriter != null) {
+        if (!awaitWrite(ticketWriter.closeTicket(ticket))) {
+          LOGGER.error("Unable to close ticket and release its spot");
+          return new ParkingResult(ParkingResult.Status.FAILED,
+              vehicleRegNumber);
         }
-      } else {
-        LOGGER.error("Unable to update ticket information."
-            + " Error occurred");
+      } else if (!ticketDao.updateTicket(ticket, unitOfWork)) {
+        LOGGER.error("Unable to update ticket information. Error occurred");
+        return new ParkingResult(ParkingResult.Status.FAILED,
+            vehicleRegNumber);
+      } else if (!parkingSpotDao.updateParking(parkingSpot, unitOfWork)) {
+        LOGGER.error("Unable to release parking spot. Error occurred");
+        return new ParkingResult(ParkingResult.Status.FAILED,
+            vehicleRegNumber);
       }
+
+      if (unitOfWork != null) {
+        unitOfWork.commit();
+      }
+      releaseAllocatedSpot(parkingSpot);
+      countFreedSpot(parkingSpot);
+      if (openTicketIndex != null) {
+        openTicketIndex.close(vehicleRegNumber);
+      }
+      // Once exited, the user is a recurring user
+      if (recurringUserCache != null) {
+        recurringUserCache.recordCompletedExit(vehicleRegNumber);
+      }
+
+      return new ParkingResult(ParkingResult.Status.EXITED, ticket,
+          discount > 0);
     } catch (Exception e) {
       LOGGER.error("Unable to process exiting vehicle", e);
+      return new ParkingResult(ParkingResult.Status.FAILED, vehicleRegNumber);
+    }
+  }
+
+  /**
+   * Latency and outcomes of one operation of the service.
+   */
+  private static final class FlowMetrics {
+
+    /**
+     * Latencies of the operation, whatever its outcome.
+     */
+    private final LatencyHistogram latency;
+
+    /**
+     * Number of operations of each outcome.
+     */
+    private final Map<ParkingResult.Status, Counter> outcomes =
+        new EnumMap<>(ParkingResult.Status.class);
+
+    /**
+     * Constructor of class FlowMetrics.
+     *
+     * @param operation the name of the operation
+     */
+    private FlowMetrics(final String operation) {
+      MetricsRegistry registry = MetricsRegistry.getDefault();
+      this.latency = registry.histogram("parkit_service_seconds",
+          "Latency of gate operations in seconds", "operation", operation);
+      for (ParkingResult.Status status : ParkingResult.Status.values()) {
+        outcomes.put(status, registry.counter("parkit_service_results_total",
+            "Number of gate operations by outcome", "operation", operation,
+            "status", status.name()));
+      }
+    }
+
+    /**
+     * Records an operation which has just ended.
+     *
+     * @param startNanos the System.nanoTime() read when the operation began
+     * @param result the outcome of the operation
+     * @return the outcome, unchanged
+     */
+    private ParkingResult record(final long startNanos,
+                                 final ParkingResult result) {
+      latency.recordSince(startNanos);
+      outcomes.get(result.getStatus()).increment();
+      return result;
     }
   }
 }
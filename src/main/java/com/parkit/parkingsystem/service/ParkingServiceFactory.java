@@ -0,0 +1,154 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.storage.DataBaseStorageEngine;
+import com.parkit.parkingsystem.storage.StorageEngine;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Creates the ParkingService used by the application front ends.
+ *
+ * @author Laura
+ */
+public final class ParkingServiceFactory {
+
+  /**
+   * Classpath location of the tariff file, flat rates applying without it.
+   */
+  static final String TARIFF_RESOURCE = "tariff.properties";
+
+  /**
+   * Empty constructor of class ParkingServiceFactory.
+   */
+  private ParkingServiceFactory() {
+  }
+
+  /**
+   * Creates a ParkingService for gates calling enter and exit directly.
+   *
+   * @param dataBaseConfig the configuration shared by the DAOs and service
+   * @return the ParkingService instance
+   * @see #create(InputReaderUtil, DataBaseConfig)
+   */
+  public static ParkingService create(final DataBaseConfig dataBaseConfig)
+      throws ClassNotFoundException, SQLException, IOException {
+    return create(null, dataBaseConfig);
+  }
+
+  /**
+   * Migrates the database schema, then creates a ParkingService storing
+   * everything in the database.
+   *
+   * @param inputReaderUtil the reader of console inputs, or null
+   * @param dataBaseConfig the configuration shared by the DAOs and service
+   * @return the ParkingService instance
+   * @see #create(InputReaderUtil, StorageEngine)
+   */
+  public static ParkingService create(final InputReaderUtil inputReaderUtil,
+                                      final DataBaseConfig dataBaseConfig)
+      throws ClassNotFoundException, SQLException, IOException {
+    return create(inputReaderUtil, new DataBaseStorageEngine(
+        dataBaseConfig));
+  }
+
+  /**
+   * Opens the storage engine, then creates a ParkingService with its
+   * repositories, spot allocator, occupancy counters, recurring user cache,
+   * open ticket index and tariff schedule.
+   *
+   * @param inputReaderUtil the reader of console inputs, or null
+   * @param storageEngine the engine storing the tickets and spots, opened
+   *     by this call
+   * @return the ParkingService instance
+   */
+  public static ParkingService create(final InputReaderUtil inputReaderUtil,
+                                      final StorageEngine storageEngine)
+      throws ClassNotFoundException, SQLException, IOException {
+    storageEngine.open();
+
+    TicketRepository ticketRepository = storageEngine.getTicketRepository();
+    ParkingSpotRepository parkingSpotRepository = storageEngine
+        .getParkingSpotRepository();
+    ParkingService parkingService = new ParkingService(inputReaderUtil,
+        parkingSpotRepository, ticketRepository);
+    // Without transactions each repository call stands on its own
+    parkingService.setDataBaseConfig(storageEngine.getDataBaseConfig());
+    parkingService.setTariffSchedule(TariffSchedule.load(TARIFF_RESOURCE));
+    RecurringUserCache recurringUserCache = new RecurringUserCache();
+    parkingService.setRecurringUserCache(recurringUserCache);
+    // The lot is loaded once, spots are then allocated and counted in memory
+    List<ParkingSpot> parkingSpots = parkingSpotRepository.getParkingSpots();
+    parkingService.setParkingSpotAllocator(new ParkingSpotAllocator(
+        parkingSpots));
+    parkingService.setOccupancyCounters(new OccupancyCounters(parkingSpots));
+    // Vehicles already in the parking are indexed with a single query
+    OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+    openTicketIndex.load(ticketRepository.getOpenTickets());
+    parkingService.setOpenTicketIndex(openTicketIndex);
+    exportMetrics(parkingService, recurringUserCache);
+
+    return parkingService;
+  }
+
+  /**
+   * Creates a ParkingService only pricing tickets, with the repositories
+   * and tariff schedule of a storage engine whose lot is not loaded yet, to
+   * price the exits of a journal applied before the service is created.
+   *
+   * @param storageEngine the engine storing the tickets and spots
+   * @return the ParkingService instance, for priceExit only
+   */
+  public static ParkingService createPricing(final StorageEngine
+                                                 storageEngine)
+      throws IOException {
+    ParkingService parkingService = new ParkingService(null,
+        storageEngine.getParkingSpotRepository(),
+        storageEngine.getTicketRepository());
+    parkingService.setTariffSchedule(TariffSchedule.load(TARIFF_RESOURCE));
+    return parkingService;
+  }
+
+  /**
+   * Exports the spot counts of a new service and the statistics of its
+   * recurring user cache, replacing those of the service created before.
+   *
+   * @param parkingService the service created
+   * @param recurringUserCache the recurring user cache of the service
+   */
+  private static void exportMetrics(final ParkingService parkingService,
+                                    final RecurringUserCache
+                                        recurringUserCache) {
+    MetricsRegistry registry = MetricsRegistry.getDefault();
+
+    for (ParkingType parkingType : ParkingType.values()) {
+      registry.gauge("parkit_spots_available", "Number of free spots",
+          () -> parkingService.countParkingSpots(parkingType, true), "type",
+          parkingType.name());
+      registry.gauge("parkit_spots_total", "Number of spots",
+          () -> parkingService.countParkingSpots(parkingType, false), "type",
+          parkingType.name());
+    }
+
+    String help = "Number of recurring user lookups by outcome";
+    registry.counter("parkit_cache_requests_total", help,
+        recurringUserCache::getHitCount, "cache", "recurring_user", "result",
+        "hit");
+    registry.counter("parkit_cache_requests_total", help,
+        recurringUserCache::getMissCount, "cache", "recurring_user",
+        "result", "miss");
+    registry.counter("parkit_cache_evictions_total",
+        "Number of entries evicted from a full cache",
+        recurringUserCache::getEvictionCount, "cache", "recurring_user");
+    registry.gauge("parkit_cache_hit_ratio",
+        "Ratio of lookups answered by the cache since the start",
+        recurringUserCache::getHitRate, "cache", "recurring_user");
+  }
+}
@@ -0,0 +1,217 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the free parking spots of the lot in memory, one bitmap per
+ * parking type, so that a spot can be allocated or released without
+ * querying the database. Bitmaps are updated with compare-and-set
+ * operations and can be shared by several threads without locking.
+ *
+ * @author Laura
+ */
+public class ParkingSpotAllocator {
+
+  /**
+   * Number of spots stored in one bitmap word.
+   */
+  private static final int SPOTS_PER_WORD = Long.SIZE;
+
+  /**
+   * Free spots bitmap of each parking type.
+   */
+  private final Map<ParkingType, SpotBitmap> bitmaps =
+      new EnumMap<>(ParkingType.class);
+
+  /**
+   * Constructor of class ParkingSpotAllocator.
+   * Builds the bitmaps from the parking spots of the lot.
+   *
+   * @param parkingSpots every parking spot of the lot with its availability
+   */
+  public ParkingSpotAllocator(final List<ParkingSpot> parkingSpots) {
+    Map<ParkingType, List<ParkingSpot>> spotsByType =
+        new EnumMap<>(ParkingType.class);
+
+    for (ParkingSpot parkingSpot : parkingSpots) {
+      spotsByType.computeIfAbsent(parkingSpot.getParkingType(),
+          type -> new ArrayList<>()).add(parkingSpot);
+    }
+    spotsByType.forEach((type, spots) -> bitmaps.put(type,
+        new SpotBitmap(spots)));
+  }
+
+  /**
+   * Allocates the free spot with the lowest number for the given vehicle
+   * type and marks it as taken.
+   *
+   * @param parkingType the user's vehicle type (bike or car)
+   * @return the allocated parking spot number or -1 if no parking spot
+   *     is available for this type of vehicle
+   */
+  public int allocate(final ParkingType parkingType) {
+    SpotBitmap bitmap = bitmaps.get(parkingType);
+    return bitmap == null ? -1 : bitmap.allocate();
+  }
+
+  /**
+   * Marks a parking spot as free again.
+   *
+   * @param parkingSpot the parking spot released
+   * @return true if the spot was taken and is now free,
+   *     false if the spot is unknown or was already free
+   */
+  public boolean release(final ParkingSpot parkingSpot) {
+    SpotBitmap bitmap = bitmaps.get(parkingSpot.getParkingType());
+    return bitmap != null && bitmap.set(parkingSpot.getNumber(), true);
+  }
+
+  /**
+   * Marks a parking spot as taken without allocating it, used when the
+   * spot was taken by someone else.
+   *
+   * @param parkingSpot the parking spot taken
+   * @return true if the spot was free and is now taken,
+   *     false if the spot is unknown or was already taken
+   */
+  public boolean reserve(final ParkingSpot parkingSpot) {
+    SpotBitmap bitmap = bitmaps.get(parkingSpot.getParkingType());
+    return bitmap != null && bitmap.set(parkingSpot.getNumber(), false);
+  }
+
+  /**
+   * Counts the spots of the given vehicle type.
+   *
+   * @param parkingType the vehicle type (bike or car)
+   * @return the number of spots of this type
+   */
+  public int getSpotCount(final ParkingType parkingType) {
+    SpotBitmap bitmap = bitmaps.get(parkingType);
+    return bitmap == null ? 0 : bitmap.numbers.length;
+  }
+
+  /**
+   * Counts the free spots of the given vehicle type.
+   *
+   * @param parkingType the vehicle type (bike or car)
+   * @return the number of free spots of this type
+   */
+  public int getAvailableCount(final ParkingType parkingType) {
+    SpotBitmap bitmap = bitmaps.get(parkingType);
+    return bitmap == null ? 0 : bitmap.count();
+  }
+
+  /**
+   * Free spots bitmap of one parking type. Bit i of the bitmap is set when
+   * the i-th lowest spot number of this type is free.
+   */
+  private static final class SpotBitmap {
+
+    /**
+     * Spot numbers of this type, in ascending order.
+     */
+    private final int[] numbers;
+
+    /**
+     * Position of each spot number in the numbers array.
+     */
+    private final Map<Integer, Integer> positions = new HashMap<>();
+
+    /**
+     * Bitmap words, a set bit meaning a free spot.
+     */
+    private final AtomicLongArray words;
+
+    /**
+     * Constructor of class SpotBitmap.
+     *
+     * @param spots the spots of one parking type
+     */
+    private SpotBitmap(final List<ParkingSpot> spots) {
+      numbers = spots.stream().mapToInt(ParkingSpot::getNumber).sorted()
+          .toArray();
+      words = new AtomicLongArray((numbers.length + SPOTS_PER_WORD - 1)
+          / SPOTS_PER_WORD);
+
+      for (int i = 0; i < numbers.length; i++) {
+        positions.put(numbers[i], i);
+      }
+      for (ParkingSpot spot : spots) {
+        if (spot.isAvailable()) {
+          set(spot.getNumber(), true);
+        }
+      }
+    }
+
+    /**
+     * Clears the lowest set bit of the bitmap.
+     *
+     * @return the number of the spot allocated or -1 if every spot is taken
+     */
+    private int allocate() {
+      for (int w = 0; w < words.length(); w++) {
+        long word = words.get(w);
+
+        while (word != 0) {
+          long lowestBit = Long.lowestOneBit(word);
+          if (words.compareAndSet(w, word, word & ~lowestBit)) {
+            return numbers[w * SPOTS_PER_WORD
+                + Long.numberOfTrailingZeros(lowestBit)];
+          }
+          word = words.get(w);
+        }
+      }
+
+      return -1;
+    }
+
+    /**
+     * Counts the set bits of the bitmap.
+     *
+     * @return the number of free spots
+     */
+    private int count() {
+      int count = 0;
+      for (int w = 0; w < words.length(); w++) {
+        count += Long.bitCount(words.get(w));
+      }
+      return count;
+    }
+
+    /**
+     * Sets or clears the bit of a spot.
+     *
+     * @param number the spot number
+     * @param free true to mark the spot as free, false to mark it as taken
+     * @return true if the bit changed
+     */
+    private boolean set(final int number, final boolean free) {
+      Integer position = positions.get(number);
+      if (position == null) {
+        return false;
+      }
+
+      int w = position / SPOTS_PER_WORD;
+      long bit = 1L << (position % SPOTS_PER_WORD);
+      long word;
+      long updated;
+
+      do {
+        word = words.get(w);
+        updated = free ? word | bit : word & ~bit;
+        if (updated == word) {
+          return false;
+        }
+      } while (!words.compareAndSet(w, word, updated));
+
+      return true;
+    }
+  }
+}
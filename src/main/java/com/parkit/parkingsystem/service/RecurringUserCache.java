@@ -0,0 +1,241 @@
+package com.parkit.parkingsystem.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Caches the recurring user status of vehicle registration numbers, to
+ * avoid counting the tickets of a user in database at each entry and exit.
+ * The cache holds a bounded number of entries, evicting the least recently
+ * used one when full, and each entry expires after a time to live.
+ * A user never stops being recurring, so cached values are merged with a
+ * logical or: a late lookup result can never hide a completed exit.
+ *
+ * @author Laura
+ */
+public class RecurringUserCache {
+
+  /**
+   * Default maximum number of registration numbers kept in cache.
+   */
+  public static final int DEFAULT_MAX_SIZE = 10000;
+
+  /**
+   * Default time to live of an entry (one day).
+   */
+  public static final long DEFAULT_TTL_MILLIS = 86400000;
+
+  /**
+   * Maximum number of registration numbers kept in cache.
+   */
+  private final int maxSize;
+
+  /**
+   * Time to live of an entry in milliseconds.
+   */
+  private final long ttlMillis;
+
+  /**
+   * Source of the current time in milliseconds.
+   */
+  private final LongSupplier clock;
+
+  /**
+   * Cached entries by registration number, in access order.
+   */
+  private final LinkedHashMap<String, CachedStatus> entries;
+
+  /**
+   * Number of lookups answered by the cache.
+   */
+  private final LongAdder hitCount = new LongAdder();
+
+  /**
+   * Number of lookups not answered by the cache.
+   */
+  private final LongAdder missCount = new LongAdder();
+
+  /**
+   * Number of entries evicted because the cache was full.
+   */
+  private final LongAdder evictionCount = new LongAdder();
+
+  /**
+   * Constructor of class RecurringUserCache with default size and time to
+   * live.
+   */
+  public RecurringUserCache() {
+    this(DEFAULT_MAX_SIZE, DEFAULT_TTL_MILLIS, System::currentTimeMillis);
+  }
+
+  /**
+   * Constructor of class RecurringUserCache.
+   * Initialize maxSize, ttlMillis and clock.
+   *
+   * @param size maximum number of registration numbers kept in cache
+   * @param ttl time to live of an entry in milliseconds
+   * @param timeSource source of the current time in milliseconds
+   */
+  public RecurringUserCache(final int size, final long ttl,
+                            final LongSupplier timeSource) {
+    this.maxSize = size;
+    this.ttlMillis = ttl;
+    this.clock = timeSource;
+    this.entries = new LinkedHashMap<String, CachedStatus>(16, 0.75f,
+        true) {
+      @Override
+      protected boolean removeEldestEntry(
+          final Map.Entry<String, CachedStatus> eldest) {
+        if (size() > maxSize) {
+          evictionCount.increment();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Gets the cached recurring user status of a registration number.
+   *
+   * @param vehicleRegNumber the user's vehicle registration number
+   * @return the cached status, or null if unknown or expired
+   */
+  public Boolean get(final String vehicleRegNumber) {
+    long now = clock.getAsLong();
+
+    synchronized (entries) {
+      CachedStatus entry = entries.get(vehicleRegNumber);
+      if (entry != null && entry.expiresAt > now) {
+        hitCount.increment();
+        return entry.recurring;
+      }
+      if (entry != null) {
+        entries.remove(vehicleRegNumber);
+      }
+    }
+
+    missCount.increment();
+    return null;
+  }
+
+  /**
+   * Tells if the cache has an unexpired status for a registration number,
+   * without counting a hit or a miss.
+   *
+   * @param vehicleRegNumber the user's vehicle registration number
+   * @return true if a get would answer from the cache
+   */
+  public boolean contains(final String vehicleRegNumber) {
+    long now = clock.getAsLong();
+
+    synchronized (entries) {
+      CachedStatus entry = entries.get(vehicleRegNumber);
+      return entry != null && entry.expiresAt > now;
+    }
+  }
+
+  /**
+   * Records the recurring user status found in database. A registration
+   * number already cached as recurring stays recurring.
+   *
+   * @param vehicleRegNumber the user's vehicle registration number
+   * @param recurring the status found in database
+   */
+  public void put(final String vehicleRegNumber, final boolean recurring) {
+    long expiresAt = clock.getAsLong() + ttlMillis;
+
+    synchronized (entries) {
+      CachedStatus entry = entries.get(vehicleRegNumber);
+      boolean merged = recurring || (entry != null && entry.recurring);
+      entries.put(vehicleRegNumber, new CachedStatus(merged, expiresAt));
+    }
+  }
+
+  /**
+   * Records a completed exit: from now on the user is a recurring user.
+   *
+   * @param vehicleRegNumber the user's vehicle registration number
+   */
+  public void recordCompletedExit(final String vehicleRegNumber) {
+    put(vehicleRegNumber, true);
+  }
+
+  /**
+   * Getter of the number of registration numbers in cache.
+   *
+   * @return the number of cached entries, expired ones included
+   */
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Getter of the number of lookups answered by the cache.
+   *
+   * @return the hit count
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * Getter of the number of lookups not answered by the cache.
+   *
+   * @return the miss count
+   */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * Getter of the number of entries evicted because the cache was full.
+   *
+   * @return the eviction count
+   */
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  /**
+   * Getter of the ratio of lookups answered by the cache.
+   *
+   * @return the hit rate between 0 and 1, 0 if there was no lookup
+   */
+  public double getHitRate() {
+    long hits = hitCount.sum();
+    long total = hits + missCount.sum();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  /**
+   * A cached status and its expiry time.
+   */
+  private static final class CachedStatus {
+
+    /**
+     * Tells if the user is a recurring user.
+     */
+    private final boolean recurring;
+
+    /**
+     * Time in milliseconds after which the entry is expired.
+     */
+    private final long expiresAt;
+
+    /**
+     * Constructor of class CachedStatus.
+     *
+     * @param isRecurring the recurring user status
+     * @param expiry the expiry time in milliseconds
+     */
+    private CachedStatus(final boolean isRecurring, final long expiry) {
+      this.recurring = isRecurring;
+      this.expiresAt = expiry;
+    }
+  }
+}
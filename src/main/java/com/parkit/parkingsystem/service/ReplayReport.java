@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem.service;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency measured while replaying a gate event log.
+ *
+ * @author Laura
+ */
+public class ReplayReport {
+
+  /**
+   * Processing time of each replayed event in nanoseconds, sorted.
+   */
+  private final long[] latencies;
+
+  /**
+   * Number of events the service did not accept.
+   */
+  private final int rejectedCount;
+
+  /**
+   * Number of lines skipped because they were not valid events.
+   */
+  private final int invalidCount;
+
+  /**
+   * Duration of the whole replay in nanoseconds.
+   */
+  private final long elapsedNanos;
+
+  /**
+   * Constructor of class ReplayReport.
+   *
+   * @param eventLatencies processing time of each event in nanoseconds
+   * @param rejected number of events the service did not accept
+   * @param invalid number of lines skipped
+   * @param elapsed duration of the whole replay in nanoseconds
+   */
+  public ReplayReport(final long[] eventLatencies, final int rejected,
+                      final int invalid, final long elapsed) {
+    this.latencies = eventLatencies.clone();
+    Arrays.sort(this.latencies);
+    this.rejectedCount = rejected;
+    this.invalidCount = invalid;
+    this.elapsedNanos = elapsed;
+  }
+
+  /**
+   * Getter of the number of replayed events.
+   *
+   * @return the number of events processed
+   */
+  public int getEventCount() {
+    return latencies.length;
+  }
+
+  /**
+   * Getter of rejectedCount.
+   *
+   * @return the number of events the service did not accept
+   */
+  public int getRejectedCount() {
+    return rejectedCount;
+  }
+
+  /**
+   * Getter of invalidCount.
+   *
+   * @return the number of lines skipped
+   */
+  public int getInvalidCount() {
+    return invalidCount;
+  }
+
+  /**
+   * Getter of the duration of the replay.
+   *
+   * @return the duration in milliseconds
+   */
+  public long getElapsedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+  }
+
+  /**
+   * Getter of the number of events processed per second.
+   *
+   * @return the throughput, 0 if nothing was replayed
+   */
+  public double getThroughput() {
+    return elapsedNanos == 0 ? 0
+        : latencies.length * (double) TimeUnit.SECONDS.toNanos(1)
+        / elapsedNanos;
+  }
+
+  /**
+   * Gets the processing time under which the given share of events were
+   * processed.
+   *
+   * @param percentile the share of events, between 0 and 100
+   * @return the latency in microseconds, 0 if nothing was replayed
+   */
+  public long getLatencyPercentile(final double percentile) {
+    if (latencies.length == 0) {
+      return 0;
+    }
+
+    int rank = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+    int index = Math.min(Math.max(rank, 0), latencies.length - 1);
+    return TimeUnit.NANOSECONDS.toMicros(latencies[index]);
+  }
+}
@@ -0,0 +1,437 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.TariffBand;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.FareCalculatorUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Hourly rates of each vehicle type by time of day and day of week, with
+ * an optional daily cap. Minutes outside every band are charged the flat
+ * Fare rate.
+ *
+ * <p>The schedule is compiled once into a table, per vehicle type, of the
+ * rates summed from Monday 00:00 to each minute of the week, and a table of
+ * the capped cost of each day summed over the week. The price of a stay of
+ * any length is then the difference of two lookups per table, whatever the
+ * number of bands it spans.
+ *
+ * @author Laura
+ */
+public class TariffSchedule {
+
+  /**
+   * TariffSchedule logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger("TariffSchedule");
+
+  /**
+   * Prefix of the keys of a tariff file.
+   */
+  private static final String KEY_PREFIX = "tariff.";
+
+  /**
+   * Number of minutes in a day.
+   */
+  private static final int MINUTES_PER_DAY = 24 * 60;
+
+  /**
+   * Number of days in a week.
+   */
+  private static final int DAYS_PER_WEEK = 7;
+
+  /**
+   * Number of minutes in a week.
+   */
+  private static final int MINUTES_PER_WEEK = DAYS_PER_WEEK * MINUTES_PER_DAY;
+
+  /**
+   * Days from Monday 1969-12-29 to the epoch day, a Thursday.
+   */
+  private static final long EPOCH_DAY_OF_WEEK = DayOfWeek.THURSDAY.ordinal();
+
+  /**
+   * For each vehicle type, the rates per hour in cents of the minutes of
+   * the week before each minute, from Monday 00:00.
+   */
+  private final long[][] minuteSums;
+
+  /**
+   * For each vehicle type, the capped costs of the days of the week before
+   * each day, from Monday, in rate-minutes.
+   */
+  private final long[][] daySums;
+
+  /**
+   * For each vehicle type, the daily cap in rate-minutes, or
+   * Long.MAX_VALUE if there is none.
+   */
+  private final long[] dailyCaps;
+
+  /**
+   * Constructor of class TariffSchedule. Compiles the bands into lookup
+   * tables.
+   *
+   * @param bands the bands, a band overriding the ones before it where they
+   *     overlap
+   * @param dailyCapsInCents the maximum charged per calendar day for each
+   *     vehicle type, none for a type missing from the map
+   */
+  public TariffSchedule(final List<TariffBand> bands,
+                        final Map<ParkingType, Long> dailyCapsInCents) {
+    int types = ParkingType.values().length;
+    minuteSums = new long[types][];
+    daySums = new long[types][];
+    dailyCaps = new long[types];
+
+    for (ParkingType parkingType : ParkingType.values()) {
+      int type = parkingType.ordinal();
+      Long cap = dailyCapsInCents.get(parkingType);
+      // Rates are summed per minute: a cap in cents is worth 60 times more
+      dailyCaps[type] = cap != null ? cap * 60 : Long.MAX_VALUE;
+      minuteSums[type] = sumMinutes(getRates(parkingType, bands));
+      daySums[type] = sumDays(minuteSums[type], dailyCaps[type]);
+    }
+  }
+
+  /**
+   * Creates a schedule charging the flat Fare rates at all times.
+   *
+   * @return the flat schedule
+   */
+  public static TariffSchedule flat() {
+    return new TariffSchedule(Collections.emptyList(),
+        Collections.emptyMap());
+  }
+
+  /**
+   * Loads a schedule from a classpath tariff file. Each band is a key
+   * tariff.TYPE.band.N, applied in the order of N, with a value made of
+   * its days, times and rate per hour in cents, e.g.
+   * {@code tariff.CAR.band.1 = MON-FRI 08:00-19:00 250}. A daily cap in
+   * cents is a key tariff.TYPE.cap.
+   *
+   * @param resource the classpath location of the tariff file
+   * @return the schedule, flat if there is no such file
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if the file is malformed
+   */
+  public static TariffSchedule load(final String resource)
+      throws IOException {
+    InputStream input = TariffSchedule.class.getClassLoader()
+        .getResourceAsStream(resource);
+
+    if (input == null) {
+      LOGGER.info("No tariff file " + resource + ", flat rates apply");
+      return flat();
+    }
+
+    Properties properties = new Properties();
+    try (InputStreamReader reader = new InputStreamReader(input,
+        StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+    return parse(properties);
+  }
+
+  /**
+   * Parses the bands and caps of a tariff file.
+   *
+   * @param properties the keys and values of the tariff file
+   * @return the schedule
+   * @throws IllegalArgumentException if a key or value is malformed
+   */
+  public static TariffSchedule parse(final Properties properties) {
+    Map<ParkingType, TreeMap<Integer, TariffBand>> bands =
+        new EnumMap<>(ParkingType.class);
+    Map<ParkingType, Long> caps = new EnumMap<>(ParkingType.class);
+
+    for (String key : properties.stringPropertyNames()) {
+      String value = properties.getProperty(key).trim();
+      String[] parts = key.split("\\.");
+      if (!key.startsWith(KEY_PREFIX) || parts.length < 3) {
+        throw new IllegalArgumentException("Unknown tariff key: " + key);
+      }
+
+      ParkingType parkingType = ParkingType.valueOf(parts[1]);
+      if (parts.length == 3 && "cap".equals(parts[2])) {
+        caps.put(parkingType, Long.parseLong(value));
+      } else if (parts.length == 4 && "band".equals(parts[2])) {
+        bands.computeIfAbsent(parkingType, type -> new TreeMap<>()).put(
+            Integer.parseInt(parts[3]), parseBand(parkingType, value));
+      } else {
+        throw new IllegalArgumentException("Unknown tariff key: " + key);
+      }
+    }
+
+    List<TariffBand> orderedBands = new ArrayList<>();
+    for (TreeMap<Integer, TariffBand> typeBands : bands.values()) {
+      orderedBands.addAll(typeBands.values());
+    }
+    return new TariffSchedule(orderedBands, caps);
+  }
+
+  /**
+   * Parses a band value: days, times and rate per hour in cents.
+   *
+   * @param parkingType the vehicle type of the band
+   * @param value the band value, e.g. SAT,SUN 00:00-24:00 100
+   * @return the band
+   */
+  private static TariffBand parseBand(final ParkingType parkingType,
+                                      final String value) {
+    String[] fields = value.split("\\s+");
+    String[] times = fields.length == 3 ? fields[1].split("-") : null;
+    if (times == null || times.length != 2) {
+      throw new IllegalArgumentException("Malformed tariff band: " + value);
+    }
+
+    return new TariffBand(parkingType, parseDays(fields[0]),
+        parseTime(times[0]), parseTime(times[1]), Long.parseLong(fields[2]));
+  }
+
+  /**
+   * Parses days given as names or ranges separated by commas, e.g.
+   * MON-FRI or SAT,SUN.
+   *
+   * @param value the days
+   * @return the set of days
+   */
+  private static Set<DayOfWeek> parseDays(final String value) {
+    Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+
+    for (String range : value.split(",")) {
+      String[] bounds = range.split("-");
+      DayOfWeek day = parseDay(bounds[0]);
+      DayOfWeek last = parseDay(bounds[bounds.length - 1]);
+      days.add(day);
+      // A range may wrap over the end of the week, e.g. FRI-MON
+      while (day != last) {
+        day = day.plus(1);
+        days.add(day);
+      }
+    }
+
+    return days;
+  }
+
+  /**
+   * Parses a day given by the first three letters or more of its name.
+   *
+   * @param value the day
+   * @return the day of the week
+   */
+  private static DayOfWeek parseDay(final String value) {
+    String name = value.trim().toUpperCase();
+
+    for (DayOfWeek day : DayOfWeek.values()) {
+      if (name.length() >= 3 && day.name().startsWith(name)) {
+        return day;
+      }
+    }
+    throw new IllegalArgumentException("Unknown day: " + value);
+  }
+
+  /**
+   * Parses a time of day, 24:00 being the end of the day.
+   *
+   * @param value the time, e.g. 08:30
+   * @return the time of day
+   */
+  private static LocalTime parseTime(final String value) {
+    return "24:00".equals(value) ? LocalTime.MIDNIGHT : LocalTime.parse(
+        value);
+  }
+
+  /**
+   * Gets the rate per hour of each minute of the week for a vehicle type.
+   *
+   * @param parkingType the vehicle type
+   * @param bands the bands of every vehicle type, in order
+   * @return the rates in cents, from Monday 00:00
+   */
+  private static long[] getRates(final ParkingType parkingType,
+                                 final List<TariffBand> bands) {
+    long[] rates = new long[MINUTES_PER_WEEK];
+    Arrays.fill(rates, FareCalculatorUtil.getCentsPerHour(
+        parkingType));
+
+    for (TariffBand band : bands) {
+      if (band.getParkingType() != parkingType) {
+        continue;
+      }
+      int start = band.getStartTime().toSecondOfDay() / 60;
+      int end = band.getEndTime().toSecondOfDay() / 60;
+      if (end <= start) {
+        end += MINUTES_PER_DAY;
+      }
+
+      for (DayOfWeek day : band.getDays()) {
+        int dayStart = day.ordinal() * MINUTES_PER_DAY;
+        for (int minute = dayStart + start; minute < dayStart + end;
+            minute++) {
+          // A band of Sunday evening goes on into Monday morning
+          rates[minute % MINUTES_PER_WEEK] = band.getCentsPerHour();
+        }
+      }
+    }
+
+    return rates;
+  }
+
+  /**
+   * Sums the rates of the minutes of the week.
+   *
+   * @param rates the rate of each minute of the week
+   * @return the sum of the rates before each minute, and of the whole week
+   *     last
+   */
+  private static long[] sumMinutes(final long[] rates) {
+    long[] sums = new long[rates.length + 1];
+
+    for (int minute = 0; minute < rates.length; minute++) {
+      sums[minute + 1] = sums[minute] + rates[minute];
+    }
+    return sums;
+  }
+
+  /**
+   * Sums the capped costs of the days of the week.
+   *
+   * @param minuteSums the sums of the rates of the minutes of the week
+   * @param cap the daily cap in rate-minutes
+   * @return the sum of the capped costs before each day, and of the whole
+   *     week last
+   */
+  private static long[] sumDays(final long[] minuteSums, final long cap) {
+    long[] sums = new long[DAYS_PER_WEEK + 1];
+
+    for (int day = 0; day < DAYS_PER_WEEK; day++) {
+      long cost = minuteSums[(day + 1) * MINUTES_PER_DAY]
+          - minuteSums[day * MINUTES_PER_DAY];
+      sums[day + 1] = sums[day] + Math.min(cap, cost);
+    }
+    return sums;
+  }
+
+  /**
+   * Calculates the fare of a ticket based on parking time, vehicle type and
+   * discount rate.
+   *
+   * @param ticket the ticket from which calculation is done
+   * @param discount discount based on if it's a recurrent user or new user
+   * @return the price to pay after calculation, rounded to the cent
+   */
+  public double getCalculatedFare(final Ticket ticket, final double discount) {
+    return (double) getCalculatedFareInCents(ticket.getParkingSpot()
+        .getParkingType(), ticket.getInTime(), ticket.getOutTime(), discount)
+        / 100;
+  }
+
+  /**
+   * Calculates the fare in cents of a stay. Parking time is counted in
+   * whole minutes from the minute the vehicle entered; the fare is rounded
+   * half up to the cent once, after the daily caps and the discount.
+   *
+   * @param parkingType the vehicle type (bike or car)
+   * @param inTime the time the vehicle entered
+   * @param outTime the time the vehicle exited
+   * @param discount discount based on if it's a recurrent user or new user
+   * @return the price to pay in cents
+   */
+  public long getCalculatedFareInCents(final ParkingType parkingType,
+                                       final LocalDateTime inTime,
+                                       final LocalDateTime outTime,
+                                       final double discount) {
+    if (outTime == null || outTime.isBefore(inTime)) {
+      throw new IllegalArgumentException("Out time provided is incorrect:"
+      + outTime);
+    }
+
+    int type = parkingType.ordinal();
+    long minutes = ChronoUnit.MINUTES.between(inTime, outTime);
+    if (FareCalculatorUtil.isFree(minutes)) {
+      return 0;
+    }
+
+    long start = (inTime.toLocalDate().toEpochDay() + EPOCH_DAY_OF_WEEK)
+        * MINUTES_PER_DAY + inTime.getHour() * 60 + inTime.getMinute();
+    return FareCalculatorUtil.toCents(getRateMinutes(type, start,
+        start + minutes), discount);
+  }
+
+  /**
+   * Sums the rates of the minutes parked, each calendar day being capped.
+   *
+   * @param type the ordinal of the vehicle type
+   * @param start the first minute parked, counted from Monday 1969-12-29
+   * @param end the minute after the last one parked
+   * @return the sum of the rates per hour in cents
+   */
+  private long getRateMinutes(final int type, final long start,
+                              final long end) {
+    long cap = dailyCaps[type];
+    if (cap == Long.MAX_VALUE) {
+      return sumUntil(type, end) - sumUntil(type, start);
+    }
+
+    long firstDay = Math.floorDiv(start, MINUTES_PER_DAY);
+    long lastDay = Math.floorDiv(end, MINUTES_PER_DAY);
+    if (firstDay == lastDay) {
+      return Math.min(cap, sumUntil(type, end) - sumUntil(type, start));
+    }
+
+    long first = Math.min(cap, sumUntil(type, (firstDay + 1)
+        * MINUTES_PER_DAY) - sumUntil(type, start));
+    long last = Math.min(cap, sumUntil(type, end) - sumUntil(type, lastDay
+        * MINUTES_PER_DAY));
+    return first + cappedSumUntil(type, lastDay)
+        - cappedSumUntil(type, firstDay + 1) + last;
+  }
+
+  /**
+   * Sums the rates of the minutes before the given one.
+   *
+   * @param type the ordinal of the vehicle type
+   * @param minute the minute, counted from Monday 1969-12-29
+   * @return the sum of the rates per hour in cents
+   */
+  private long sumUntil(final int type, final long minute) {
+    long[] sums = minuteSums[type];
+    return Math.floorDiv(minute, MINUTES_PER_WEEK) * sums[MINUTES_PER_WEEK]
+        + sums[(int) Math.floorMod(minute, MINUTES_PER_WEEK)];
+  }
+
+  /**
+   * Sums the capped costs of the whole days before the given one.
+   *
+   * @param type the ordinal of the vehicle type
+   * @param day the day, counted from Monday 1969-12-29
+   * @return the sum of the capped costs in rate-minutes
+   */
+  private long cappedSumUntil(final int type, final long day) {
+    long[] sums = daySums[type];
+    return Math.floorDiv(day, DAYS_PER_WEEK) * sums[DAYS_PER_WEEK]
+        + sums[(int) Math.floorMod(day, DAYS_PER_WEEK)];
+  }
+}
@@ -0,0 +1,347 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.dao.TicketArchiveDao;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.model.Ticket;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps the ticket table small enough to stay in the database cache by
+ * moving the tickets closed before the archive horizon to the archive
+ * table of the month they left. Tickets are moved oldest first, by chunks
+ * of one transaction each, with a pause between chunks so that the gates
+ * are never kept waiting for the database by the archive.
+ *
+ * @author Laura
+ */
+public class TicketArchiver implements AutoCloseable {
+
+  /**
+   * TicketArchiver logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger("TicketArchiver");
+
+  /**
+   * Classpath location of the archive settings, defaults applying without
+   * it.
+   */
+  public static final String ARCHIVE_RESOURCE = "archive.properties";
+
+  /**
+   * Days a closed ticket stays in the ticket table by default.
+   */
+  private static final int DEFAULT_HORIZON_DAYS = 90;
+
+  /**
+   * Number of tickets moved in one transaction by default.
+   */
+  private static final int DEFAULT_CHUNK_SIZE = 500;
+
+  /**
+   * Pause between two chunks by default.
+   */
+  private static final long DEFAULT_PAUSE_MILLIS = 50;
+
+  /**
+   * Time between two archive passes by default.
+   */
+  private static final long DEFAULT_PERIOD_MINUTES = 60;
+
+  /**
+   * Number of tickets moved to the archive.
+   */
+  private static final Counter ARCHIVED_TICKETS = MetricsRegistry
+      .getDefault().counter("parkit_archived_tickets_total",
+          "Number of closed tickets moved to the archive tables");
+
+  /**
+   * Configuration giving the unit of work of each chunk.
+   */
+  private final DataBaseConfig dataBaseConfig;
+
+  /**
+   * TicketArchiveDao moving the tickets.
+   */
+  private final TicketArchiveDao ticketArchiveDao;
+
+  /**
+   * Days a closed ticket stays in the ticket table.
+   */
+  private final int horizonDays;
+
+  /**
+   * Maximum number of tickets moved in one transaction.
+   */
+  private final int chunkSize;
+
+  /**
+   * Pause between two chunks of a pass.
+   */
+  private final long pauseMillis;
+
+  /**
+   * Time between two passes once started.
+   */
+  private final long periodMinutes;
+
+  /**
+   * Months having an archive table, null until read.
+   */
+  private Set<YearMonth> archiveMonths;
+
+  /**
+   * Clock giving the current time, the horizon being counted from it.
+   */
+  private Clock clock = Clock.systemDefaultZone();
+
+  /**
+   * Scheduler of the passes, null until started.
+   */
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * Tells if the pass in progress must stop at the end of its chunk.
+   */
+  private volatile boolean closed;
+
+  /**
+   * Constructor of class TicketArchiver.
+   *
+   * @param config the configuration giving the unit of work of each chunk
+   * @param daoTicketArchive the TicketArchiveDao moving the tickets
+   * @param horizon the days a closed ticket stays in the ticket table
+   * @param maxChunkSize the maximum number of tickets moved at once
+   * @param pause the pause in milliseconds between two chunks
+   * @param period the time in minutes between two passes once started
+   */
+  public TicketArchiver(final DataBaseConfig config,
+                        final TicketArchiveDao daoTicketArchive,
+                        final int horizon, final int maxChunkSize,
+                        final long pause, final long period) {
+    if (horizon < 1 || maxChunkSize < 1) {
+      throw new IllegalArgumentException("Invalid archive settings: "
+          + "horizon=" + horizon + ", chunk=" + maxChunkSize);
+    }
+    this.dataBaseConfig = config;
+    this.ticketArchiveDao = daoTicketArchive;
+    this.horizonDays = horizon;
+    this.chunkSize = maxChunkSize;
+    this.pauseMillis = pause;
+    this.periodMinutes = period;
+  }
+
+  /**
+   * Creates an archiver with the settings of a properties file:
+   * archive.horizon.days, archive.chunk.size, archive.pause.millis and
+   * archive.period.minutes, each one optional.
+   *
+   * @param resource the classpath location of the settings
+   * @param config the configuration shared with the service
+   * @return the TicketArchiver instance
+   * @throws IOException if the file cannot be read
+   */
+  public static TicketArchiver load(final String resource,
+                                    final DataBaseConfig config)
+      throws IOException {
+    Properties properties = new Properties();
+    InputStream input = TicketArchiver.class.getClassLoader()
+        .getResourceAsStream(resource);
+    if (input != null) {
+      try (InputStreamReader reader = new InputStreamReader(input,
+          StandardCharsets.UTF_8)) {
+        properties.load(reader);
+      }
+    }
+
+    TicketArchiveDao ticketArchiveDao = new TicketArchiveDao();
+    ticketArchiveDao.setDataBaseConfig(config);
+    return new TicketArchiver(config, ticketArchiveDao,
+        Integer.parseInt(properties.getProperty("archive.horizon.days",
+            String.valueOf(DEFAULT_HORIZON_DAYS)).trim()),
+        Integer.parseInt(properties.getProperty("archive.chunk.size",
+            String.valueOf(DEFAULT_CHUNK_SIZE)).trim()),
+        Long.parseLong(properties.getProperty("archive.pause.millis",
+            String.valueOf(DEFAULT_PAUSE_MILLIS)).trim()),
+        Long.parseLong(properties.getProperty("archive.period.minutes",
+            String.valueOf(DEFAULT_PERIOD_MINUTES)).trim()));
+  }
+
+  /**
+   * Migrates the database schema, then archives every ticket closed before
+   * the horizon.
+   */
+  public static void archiveNow() {
+    DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    try {
+      new SchemaMigrator(dataBaseConfig).migrate();
+      TicketArchiver ticketArchiver = load(ARCHIVE_RESOURCE, dataBaseConfig);
+      LOGGER.info("Archived " + ticketArchiver.archive() + " tickets");
+    } catch (Exception e) {
+      LOGGER.error("Unable to archive tickets", e);
+    } finally {
+      dataBaseConfig.shutdown();
+    }
+  }
+
+  /**
+   * Setter of the clock giving the current time.
+   *
+   * @param archiveClock the clock the horizon is counted from
+   */
+  public void setClock(final Clock archiveClock) {
+    this.clock = archiveClock;
+  }
+
+  /**
+   * Starts archiving in the background, at once then periodically.
+   */
+  public synchronized void start() {
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "ticket-archiver");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(this::archive, 0, periodMinutes,
+        TimeUnit.MINUTES);
+  }
+
+  /**
+   * Stops archiving once the chunk in progress is committed.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (scheduler == null) {
+      return;
+    }
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Moves the tickets closed before the horizon to the archive, chunk by
+   * chunk, until none is left. A chunk the database refuses stops the pass,
+   * its tickets staying in the ticket table until the next one. Passes of
+   * an archiver must not overlap: once started, the scheduler runs them one
+   * after the other.
+   *
+   * @return the number of tickets moved
+   */
+  public int archive() {
+    LocalDateTime horizon = LocalDateTime.now(clock).minusDays(horizonDays);
+    int archived = 0;
+
+    try {
+      while (!closed) {
+        List<Ticket> tickets = ticketArchiveDao.getTicketsToArchive(horizon,
+            chunkSize);
+        if (tickets == null) {
+          break;
+        }
+
+        for (Map.Entry<YearMonth, List<Ticket>> month : groupByMonth(tickets)
+            .entrySet()) {
+          if (!archive(month.getKey(), month.getValue())) {
+            return archived;
+          }
+          archived += month.getValue().size();
+        }
+
+        if (tickets.size() < chunkSize) {
+          break;
+        }
+        // Leaves the database to the gates between two chunks
+        Thread.sleep(pauseMillis);
+      }
+    } catch (InterruptedException e) {
+      LOGGER.warn("Ticket archive interrupted");
+      Thread.currentThread().interrupt();
+    } finally {
+      if (archived > 0) {
+        LOGGER.info("Archived " + archived + " tickets closed before "
+            + horizon);
+      }
+    }
+
+    return archived;
+  }
+
+  /**
+   * Splits tickets by the month they left the parking.
+   *
+   * @param tickets the tickets in out-time order
+   * @return the tickets of each month, in month order
+   */
+  private static Map<YearMonth, List<Ticket>> groupByMonth(
+      final List<Ticket> tickets) {
+    Map<YearMonth, List<Ticket>> months = new LinkedHashMap<>();
+    for (Ticket ticket : tickets) {
+      months.computeIfAbsent(YearMonth.from(ticket.getOutTime()),
+          month -> new ArrayList<>()).add(ticket);
+    }
+    return months;
+  }
+
+  /**
+   * Moves the tickets of a month in one transaction, creating the archive
+   * table of the month first if needed.
+   *
+   * @param month the month the tickets left the parking
+   * @param tickets the tickets of that month
+   * @return true if the tickets were moved
+   */
+  private boolean archive(final YearMonth month, final List<Ticket> tickets) {
+    if (archiveMonths == null) {
+      List<YearMonth> months = ticketArchiveDao.getArchiveMonths();
+      if (months == null) {
+        return false;
+      }
+      archiveMonths = new HashSet<>(months);
+    }
+    if (!archiveMonths.contains(month)) {
+      if (!ticketArchiveDao.createArchive(month)) {
+        return false;
+      }
+      archiveMonths.add(month);
+    }
+
+    try (UnitOfWork unitOfWork = dataBaseConfig.beginUnitOfWork()) {
+      if (!ticketArchiveDao.archiveTickets(month, tickets, unitOfWork)) {
+        return false;
+      }
+      unitOfWork.commit();
+      ARCHIVED_TICKETS.add(tickets.size());
+      return true;
+    } catch (Exception e) {
+      LOGGER.error("Unable to archive tickets of " + month, e);
+      return false;
+    }
+  }
+}
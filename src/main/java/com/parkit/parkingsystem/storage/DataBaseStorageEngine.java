@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem.storage;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.ReplicaMonitor;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.dao.ParkingSpotDao;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.TicketDao;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stores the tickets and parking spots in the database of a
+ * DataBaseConfig, through the DAOs.
+ *
+ * @author Laura
+ */
+public class DataBaseStorageEngine implements StorageEngine {
+
+  /**
+   * Configuration shared by the DAOs, hence the same connection pool.
+   */
+  private final DataBaseConfig dataBaseConfig;
+
+  /**
+   * TicketDao of the database.
+   */
+  private final TicketDao ticketDao = new TicketDao();
+
+  /**
+   * ParkingSpotDao of the database.
+   */
+  private final ParkingSpotDao parkingSpotDao = new ParkingSpotDao();
+
+  /**
+   * Spots added to a database without any, such as one just created.
+   */
+  private final List<ParkingSpot> defaultParkingSpots;
+
+  /**
+   * Constructor of class DataBaseStorageEngine for a database holding the
+   * spots of its lot.
+   *
+   * @param config the configuration of the database
+   */
+  public DataBaseStorageEngine(final DataBaseConfig config) {
+    this(config, Collections.emptyList());
+  }
+
+  /**
+   * Constructor of class DataBaseStorageEngine.
+   *
+   * @param config the configuration of the database
+   * @param parkingSpots the spots added on open if the database has none
+   */
+  public DataBaseStorageEngine(final DataBaseConfig config,
+                               final List<ParkingSpot> parkingSpots) {
+    this.dataBaseConfig = config;
+    this.defaultParkingSpots = parkingSpots;
+    ticketDao.setDataBaseConfig(config);
+    parkingSpotDao.setDataBaseConfig(config);
+  }
+
+  @Override
+  public TicketRepository getTicketRepository() {
+    return ticketDao;
+  }
+
+  @Override
+  public ParkingSpotRepository getParkingSpotRepository() {
+    return parkingSpotDao;
+  }
+
+  @Override
+  public DataBaseConfig getDataBaseConfig() {
+    return dataBaseConfig;
+  }
+
+  /**
+   * Migrates the database schema, then adds the default spots if the lot
+   * has none, and starts checking the lag of the replicas if any.
+   *
+   * @throws SQLException if the default spots cannot be added
+   */
+  @Override
+  public void open() throws ClassNotFoundException, SQLException,
+      IOException {
+    new SchemaMigrator(dataBaseConfig).migrate();
+
+    if (!defaultParkingSpots.isEmpty()
+        && parkingSpotDao.getParkingSpots().isEmpty()
+        && !parkingSpotDao.saveParkingSpots(defaultParkingSpots)) {
+      throw new SQLException("Unable to create the parking spots");
+    }
+
+    ReplicaMonitor replicaMonitor = dataBaseConfig.getReplicaMonitor();
+    if (replicaMonitor != null) {
+      replicaMonitor.start();
+    }
+  }
+
+  /**
+   * Closes the connection pool of the database, and those of its replicas.
+   */
+  @Override
+  public void close() {
+    dataBaseConfig.shutdown();
+  }
+}
@@ -0,0 +1,150 @@
+package com.parkit.parkingsystem.storage;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Keeps the parking spots of the lot in memory, in one array per parking
+ * type sorted by number. Spots are claimed and freed by atomic updates, so
+ * that gates never wait for each other. Units of work are ignored: each
+ * update is visible at once.
+ *
+ * @author Laura
+ */
+public class InMemoryParkingSpotRepository implements ParkingSpotRepository {
+
+  /**
+   * Value of a free spot in the occupancy arrays.
+   */
+  private static final int FREE = 0;
+
+  /**
+   * Value of a taken spot in the occupancy arrays.
+   */
+  private static final int TAKEN = 1;
+
+  /**
+   * Numbers of the spots of each parking type, in ascending order.
+   */
+  private final Map<ParkingType, int[]> spotNumbers =
+      new EnumMap<>(ParkingType.class);
+
+  /**
+   * Occupancy of the spots of each parking type, in the order of their
+   * numbers.
+   */
+  private final Map<ParkingType, AtomicIntegerArray> occupancy =
+      new EnumMap<>(ParkingType.class);
+
+  /**
+   * Constructor of class InMemoryParkingSpotRepository.
+   *
+   * @param parkingSpots every spot of the lot with its availability
+   */
+  public InMemoryParkingSpotRepository(final List<ParkingSpot> parkingSpots) {
+    for (ParkingType parkingType : ParkingType.values()) {
+      ParkingSpot[] spots = parkingSpots.stream()
+          .filter(spot -> spot.getParkingType() == parkingType)
+          .sorted(Comparator.comparingInt(ParkingSpot::getNumber))
+          .toArray(ParkingSpot[]::new);
+      int[] numbers = new int[spots.length];
+      AtomicIntegerArray taken = new AtomicIntegerArray(spots.length);
+
+      for (int i = 0; i < spots.length; i++) {
+        numbers[i] = spots[i].getNumber();
+        taken.set(i, spots[i].isAvailable() ? FREE : TAKEN);
+      }
+      spotNumbers.put(parkingType, numbers);
+      occupancy.put(parkingType, taken);
+    }
+  }
+
+  /**
+   * Finds the position of a spot in the arrays of its parking type.
+   *
+   * @param parkingSpot the parking spot
+   * @return the position of the spot, or a negative value if the lot has
+   *     no such spot
+   */
+  private int indexOf(final ParkingSpot parkingSpot) {
+    return Arrays.binarySearch(spotNumbers.get(parkingSpot.getParkingType()),
+        parkingSpot.getNumber());
+  }
+
+  @Override
+  public int getNextAvailableSpot(final ParkingType parkingType) {
+    return getNextAvailableSpot(parkingType, null);
+  }
+
+  @Override
+  public int getNextAvailableSpot(final ParkingType parkingType,
+                                  final UnitOfWork unitOfWork) {
+    int[] numbers = spotNumbers.get(parkingType);
+    AtomicIntegerArray taken = occupancy.get(parkingType);
+
+    for (int i = 0; i < numbers.length; i++) {
+      if (taken.get(i) == FREE) {
+        return numbers[i];
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public List<ParkingSpot> getParkingSpots() {
+    List<ParkingSpot> parkingSpots = new ArrayList<>();
+
+    for (ParkingType parkingType : ParkingType.values()) {
+      int[] numbers = spotNumbers.get(parkingType);
+      AtomicIntegerArray taken = occupancy.get(parkingType);
+      for (int i = 0; i < numbers.length; i++) {
+        parkingSpots.add(new ParkingSpot(numbers[i], parkingType,
+            taken.get(i) == FREE));
+      }
+    }
+    parkingSpots.sort(Comparator.comparingInt(ParkingSpot::getNumber));
+
+    return parkingSpots;
+  }
+
+  @Override
+  public boolean updateParking(final ParkingSpot parkingSpot) {
+    return updateParking(parkingSpot, null);
+  }
+
+  @Override
+  public boolean updateParking(final ParkingSpot parkingSpot,
+                               final UnitOfWork unitOfWork) {
+    int index = indexOf(parkingSpot);
+    if (index < 0) {
+      return false;
+    }
+
+    occupancy.get(parkingSpot.getParkingType()).set(index,
+        parkingSpot.isAvailable() ? FREE : TAKEN);
+    return true;
+  }
+
+  @Override
+  public boolean claimParking(final ParkingSpot parkingSpot) {
+    return claimParking(parkingSpot, null);
+  }
+
+  @Override
+  public Boolean claimParking(final ParkingSpot parkingSpot,
+                              final UnitOfWork unitOfWork) {
+    int index = indexOf(parkingSpot);
+
+    return index >= 0 && occupancy.get(parkingSpot.getParkingType())
+        .compareAndSet(index, FREE, TAKEN);
+  }
+}
@@ -0,0 +1,303 @@
+package com.parkit.parkingsystem.storage;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Stores the tickets and parking spots in the memory of the application,
+ * for small lots without a database server. The tickets can be saved to a
+ * snapshot file periodically and on close, and are restored from it on
+ * open; the spots taken are those of the open tickets. Tickets written
+ * after the last snapshot are lost if the application stops abruptly.
+ *
+ * @author Laura
+ */
+public class InMemoryStorageEngine implements StorageEngine {
+
+  /**
+   * InMemoryStorageEngine logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger(
+      "InMemoryStorageEngine");
+
+  /**
+   * Version of the snapshot format, written first.
+   */
+  private static final int SNAPSHOT_VERSION = 1;
+
+  /**
+   * Repository of the tickets.
+   */
+  private final InMemoryTicketRepository ticketRepository =
+      new InMemoryTicketRepository();
+
+  /**
+   * Repository of the parking spots.
+   */
+  private final InMemoryParkingSpotRepository parkingSpotRepository;
+
+  /**
+   * File the tickets are saved to, null to keep them in memory only.
+   */
+  private final Path snapshotFile;
+
+  /**
+   * Time between two snapshots once opened, 0 to only take one on close.
+   */
+  private final long snapshotPeriodSeconds;
+
+  /**
+   * Scheduler of the snapshots, null until opened. Only used by the
+   * thread opening and closing the engine.
+   */
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * Constructor of class InMemoryStorageEngine.
+   *
+   * @param parkingSpots every spot of the lot, all free
+   * @param file the file the tickets are saved to and restored from, or
+   *     null to keep them in memory only
+   * @param periodSeconds the time between two snapshots, 0 to only take one
+   *     on close
+   */
+  public InMemoryStorageEngine(final List<ParkingSpot> parkingSpots,
+                               final Path file, final long periodSeconds) {
+    if (periodSeconds < 0) {
+      throw new IllegalArgumentException("Invalid snapshot period: "
+          + periodSeconds);
+    }
+    this.parkingSpotRepository = new InMemoryParkingSpotRepository(
+        parkingSpots);
+    this.snapshotFile = file;
+    this.snapshotPeriodSeconds = periodSeconds;
+  }
+
+  @Override
+  public TicketRepository getTicketRepository() {
+    return ticketRepository;
+  }
+
+  @Override
+  public ParkingSpotRepository getParkingSpotRepository() {
+    return parkingSpotRepository;
+  }
+
+  /**
+   * The memory engine has no transactions.
+   *
+   * @return null
+   */
+  @Override
+  public DataBaseConfig getDataBaseConfig() {
+    return null;
+  }
+
+  /**
+   * Restores the tickets of the snapshot file if there is one, then starts
+   * taking snapshots periodically.
+   *
+   * @throws IOException if the snapshot file cannot be read
+   */
+  @Override
+  public void open() throws IOException {
+    if (snapshotFile == null) {
+      return;
+    }
+    if (Files.exists(snapshotFile)) {
+      restore();
+    }
+
+    if (snapshotPeriodSeconds > 0) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "storage-snapshot");
+        thread.setDaemon(true);
+        return thread;
+      });
+      scheduler.scheduleWithFixedDelay(this::snapshot, snapshotPeriodSeconds,
+          snapshotPeriodSeconds, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Stops the periodic snapshots, then takes a last one.
+   */
+  @Override
+  public void close() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+      try {
+        scheduler.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      scheduler = null;
+    }
+    snapshot();
+  }
+
+  /**
+   * Saves every ticket to the snapshot file. The file is replaced at once
+   * by a complete new one, so that a crash while saving leaves the previous
+   * snapshot.
+   *
+   * @return true if the snapshot was saved, false if it failed or there is
+   *     no snapshot file
+   */
+  public synchronized boolean snapshot() {
+    if (snapshotFile == null) {
+      return false;
+    }
+
+    int lastId = ticketRepository.getLastId();
+    List<Ticket> tickets = ticketRepository.getTickets();
+    Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName()
+        + ".tmp");
+    try {
+      try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+           DataOutputStream output = new DataOutputStream(
+               new BufferedOutputStream(file))) {
+        output.writeInt(SNAPSHOT_VERSION);
+        output.writeInt(lastId);
+        output.writeInt(tickets.size());
+        for (Ticket ticket : tickets) {
+          writeTicket(output, ticket);
+        }
+        output.flush();
+        file.getFD().sync();
+      }
+      Files.move(temporary, snapshotFile,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      LOGGER.debug("Saved {} tickets to {}", tickets.size(), snapshotFile);
+      return true;
+    } catch (IOException e) {
+      LOGGER.error("Unable to save the tickets to " + snapshotFile, e);
+      return false;
+    }
+  }
+
+  /**
+   * Restores the tickets of the snapshot file and takes the spots of the
+   * open ones.
+   *
+   * @throws IOException if the snapshot file cannot be read
+   */
+  private void restore() throws IOException {
+    List<Ticket> tickets = new ArrayList<>();
+    int lastId;
+
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+        Files.newInputStream(snapshotFile)))) {
+      int version = input.readInt();
+      if (version != SNAPSHOT_VERSION) {
+        throw new IOException("Unsupported snapshot version " + version
+            + " in " + snapshotFile);
+      }
+      lastId = input.readInt();
+      int count = input.readInt();
+      for (int i = 0; i < count; i++) {
+        tickets.add(readTicket(input));
+      }
+    }
+
+    ticketRepository.restore(tickets, lastId);
+    for (Ticket ticket : tickets) {
+      if (ticket.getOutTime() == null && !parkingSpotRepository.claimParking(
+          ticket.getParkingSpot())) {
+        LOGGER.warn("Spot {} of open ticket {} is missing or taken twice",
+            ticket.getParkingSpot().getNumber(), ticket.getId());
+      }
+    }
+    LOGGER.info("Restored {} tickets from {}", tickets.size(), snapshotFile);
+  }
+
+  /**
+   * Writes a ticket to a snapshot.
+   *
+   * @param output the snapshot being written
+   * @param ticket the ticket to write
+   */
+  private static void writeTicket(final DataOutputStream output,
+                                  final Ticket ticket) throws IOException {
+    LocalDateTime outTime = ticket.getOutTime();
+
+    output.writeInt(ticket.getId());
+    output.writeInt(ticket.getParkingSpot().getNumber());
+    output.writeByte(ticket.getParkingSpot().getParkingType().ordinal());
+    output.writeUTF(ticket.getVehicleRegNumber());
+    output.writeDouble(ticket.getPrice());
+    writeTime(output, ticket.getInTime());
+    output.writeBoolean(outTime != null);
+    if (outTime != null) {
+      writeTime(output, outTime);
+    }
+  }
+
+  /**
+   * Reads a ticket written by writeTicket.
+   *
+   * @param input the snapshot being read
+   * @return the ticket read
+   */
+  private static Ticket readTicket(final DataInputStream input)
+      throws IOException {
+    int id = input.readInt();
+    int parkingNumber = input.readInt();
+    ParkingType parkingType = ParkingType.values()[input.readUnsignedByte()];
+    String vehicleRegNumber = input.readUTF();
+    double price = input.readDouble();
+    LocalDateTime inTime = readTime(input);
+    LocalDateTime outTime = input.readBoolean() ? readTime(input) : null;
+
+    return new Ticket(id, new ParkingSpot(parkingNumber, parkingType,
+        outTime != null), vehicleRegNumber, price, inTime, outTime);
+  }
+
+  /**
+   * Writes a time as UTC epoch seconds and nanoseconds.
+   *
+   * @param output the snapshot being written
+   * @param time the time to write
+   */
+  private static void writeTime(final DataOutputStream output,
+                                final LocalDateTime time) throws IOException {
+    output.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+    output.writeInt(time.getNano());
+  }
+
+  /**
+   * Reads a time written by writeTime.
+   *
+   * @param input the snapshot being read
+   * @return the time read
+   */
+  private static LocalDateTime readTime(final DataInputStream input)
+      throws IOException {
+    long epochSecond = input.readLong();
+    return LocalDateTime.ofEpochSecond(epochSecond, input.readInt(),
+        ZoneOffset.UTC);
+  }
+}
@@ -0,0 +1,254 @@
+package com.parkit.parkingsystem.storage;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps every ticket in memory, indexed by ID and by registration number.
+ * Stored tickets are copies that are never modified: a ticket is closed by
+ * replacing it with a closed copy, so that readers always see a whole
+ * ticket and two gates cannot close the same ticket. Units of work are
+ * ignored: each update is visible at once.
+ *
+ * @author Laura
+ */
+public class InMemoryTicketRepository implements TicketRepository {
+
+  /**
+   * InMemoryTicketRepository logger.
+   */
+  private static final Logger LOGGER = LogManager.getLogger(
+      "InMemoryTicketRepository");
+
+  /**
+   * Last ticket ID given.
+   */
+  private final AtomicInteger lastId = new AtomicInteger();
+
+  /**
+   * Every ticket by ID.
+   */
+  private final Map<Integer, Ticket> tickets = new ConcurrentHashMap<>();
+
+  /**
+   * Latest ticket of each vehicle by registration number.
+   */
+  private final Map<String, Ticket> latestTickets =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Number of closed tickets of each vehicle by registration number.
+   */
+  private final Map<String, Integer> closedTicketCounts =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Copies a ticket and its spot.
+   *
+   * @param ticket the ticket to copy
+   * @return the copy
+   */
+  private static Ticket copy(final Ticket ticket) {
+    ParkingSpot spot = ticket.getParkingSpot();
+    return new Ticket(ticket.getId(), new ParkingSpot(spot.getNumber(),
+        spot.getParkingType(), spot.isAvailable()),
+        ticket.getVehicleRegNumber(), ticket.getPrice(), ticket.getInTime(),
+        ticket.getOutTime());
+  }
+
+  /**
+   * Gives a copy of every ticket, each one as it was at some point of the
+   * call.
+   *
+   * @return the tickets, in no particular order
+   */
+  List<Ticket> getTickets() {
+    List<Ticket> copies = new ArrayList<>(tickets.size());
+    for (Ticket ticket : tickets.values()) {
+      copies.add(copy(ticket));
+    }
+    return copies;
+  }
+
+  /**
+   * Getter of the last ticket ID given.
+   *
+   * @return the last ID, 0 if no ticket was ever saved
+   */
+  int getLastId() {
+    return lastId.get();
+  }
+
+  /**
+   * Replaces every ticket with the given ones, keeping their IDs. The next
+   * ticket saved gets an ID after the given last ID and every restored one.
+   * Must be called before the repository is shared.
+   *
+   * @param restoredTickets the tickets to keep
+   * @param restoredLastId the last ticket ID given before
+   */
+  void restore(final List<Ticket> restoredTickets,
+               final int restoredLastId) {
+    tickets.clear();
+    latestTickets.clear();
+    closedTicketCounts.clear();
+    int maxId = restoredLastId;
+
+    for (Ticket restored : restoredTickets) {
+      Ticket ticket = copy(restored);
+      tickets.put(ticket.getId(), ticket);
+      latestTickets.merge(ticket.getVehicleRegNumber(), ticket,
+          InMemoryTicketRepository::latest);
+      if (ticket.getOutTime() != null) {
+        closedTicketCounts.merge(ticket.getVehicleRegNumber(), 1,
+            Integer::sum);
+      }
+      maxId = Math.max(maxId, ticket.getId());
+    }
+    lastId.set(maxId);
+  }
+
+  /**
+   * Picks the ticket a lookup by registration number gives: the open one,
+   * else the one that entered last.
+   *
+   * @param first a ticket of the vehicle
+   * @param second another ticket of the vehicle
+   * @return the latest of both
+   */
+  private static Ticket latest(final Ticket first, final Ticket second) {
+    if ((first.getOutTime() == null) != (second.getOutTime() == null)) {
+      return first.getOutTime() == null ? first : second;
+    }
+    return second.getInTime().isAfter(first.getInTime()) ? second : first;
+  }
+
+  @Override
+  public boolean saveTicket(final Ticket ticket) {
+    return saveTicket(ticket, null);
+  }
+
+  @Override
+  public boolean saveTicket(final Ticket ticket, final UnitOfWork unitOfWork) {
+    Ticket saved = copy(ticket);
+    saved.setId(lastId.incrementAndGet());
+
+    tickets.put(saved.getId(), saved);
+    latestTickets.put(saved.getVehicleRegNumber(), saved);
+    if (saved.getOutTime() != null) {
+      closedTicketCounts.merge(saved.getVehicleRegNumber(), 1, Integer::sum);
+    }
+    ticket.setId(saved.getId());
+    return true;
+  }
+
+  @Override
+  public boolean[] saveTickets(final List<Ticket> ticketsToSave,
+                               final UnitOfWork unitOfWork) {
+    boolean[] saved = new boolean[ticketsToSave.size()];
+    for (int i = 0; i < saved.length; i++) {
+      saved[i] = saveTicket(ticketsToSave.get(i), unitOfWork);
+    }
+    return saved;
+  }
+
+  @Override
+  public Ticket getTicket(final String vehicleRegNumber) {
+    return getTicket(vehicleRegNumber, null);
+  }
+
+  @Override
+  public Ticket getTicket(final String vehicleRegNumber,
+                          final UnitOfWork unitOfWork) {
+    Ticket ticket = latestTickets.get(vehicleRegNumber);
+    return ticket != null ? copy(ticket) : null;
+  }
+
+  @Override
+  public List<Ticket> getOpenTickets() {
+    List<Ticket> openTickets = new ArrayList<>();
+    for (Ticket ticket : tickets.values()) {
+      if (ticket.getOutTime() == null) {
+        openTickets.add(copy(ticket));
+      }
+    }
+    return openTickets;
+  }
+
+  @Override
+  public boolean streamClosedTickets(final int fetchSize,
+                                     final Consumer<Ticket> action) {
+    try {
+      for (Ticket ticket : tickets.values()) {
+        if (ticket.getOutTime() != null) {
+          action.accept(copy(ticket));
+        }
+      }
+      return true;
+    } catch (RuntimeException ex) {
+      LOGGER.error("Error streaming closed tickets", ex);
+    }
+
+    return false;
+  }
+
+  @Override
+  public boolean updateTicket(final Ticket ticket) {
+    return updateTicket(ticket, null);
+  }
+
+  @Override
+  public boolean updateTicket(final Ticket ticket,
+                              final UnitOfWork unitOfWork) {
+    Ticket current = tickets.get(ticket.getId());
+    if (current == null || current.getOutTime() != null) {
+      return false;
+    }
+
+    Ticket updated = copy(current);
+    updated.setPrice(ticket.getPrice());
+    updated.setOutTime(ticket.getOutTime());
+    // Fails if another gate closed the ticket since it was read
+    if (!tickets.replace(updated.getId(), current, updated)) {
+      return false;
+    }
+
+    latestTickets.replace(updated.getVehicleRegNumber(), current, updated);
+    if (updated.getOutTime() != null) {
+      closedTicketCounts.merge(updated.getVehicleRegNumber(), 1,
+          Integer::sum);
+    }
+    return true;
+  }
+
+  @Override
+  public boolean[] updateTickets(final List<Ticket> ticketsToUpdate,
+                                 final UnitOfWork unitOfWork) {
+    boolean[] updated = new boolean[ticketsToUpdate.size()];
+    for (int i = 0; i < updated.length; i++) {
+      updated[i] = updateTicket(ticketsToUpdate.get(i), unitOfWork);
+    }
+    return updated;
+  }
+
+  @Override
+  public boolean isRecurringUser(final String vehicleRegNumber) {
+    return isRecurringUser(vehicleRegNumber, null);
+  }
+
+  @Override
+  public Boolean isRecurringUser(final String vehicleRegNumber,
+                                 final UnitOfWork unitOfWork) {
+    return closedTicketCounts.getOrDefault(vehicleRegNumber, 0) >= 1;
+  }
+}
@@ -0,0 +1,51 @@
+package com.parkit.parkingsystem.storage;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Stores the tickets and parking spots of the lot behind repositories, so
+ * that the service layer runs the same on every engine.
+ *
+ * @author Laura
+ */
+public interface StorageEngine extends AutoCloseable {
+
+  /**
+   * Getter of the ticket repository.
+   *
+   * @return the TicketRepository of this engine
+   */
+  TicketRepository getTicketRepository();
+
+  /**
+   * Getter of the parking spot repository.
+   *
+   * @return the ParkingSpotRepository of this engine
+   */
+  ParkingSpotRepository getParkingSpotRepository();
+
+  /**
+   * Getter of the database configuration giving the units of work of the
+   * repositories.
+   *
+   * @return the DataBaseConfig instance, or null if the engine has no
+   *     transactions
+   */
+  DataBaseConfig getDataBaseConfig();
+
+  /**
+   * Makes the engine ready before its repositories are used. Called once.
+   */
+  void open() throws ClassNotFoundException, SQLException, IOException;
+
+  /**
+   * Releases the resources of the engine once its repositories are no
+   * longer used.
+   */
+  @Override
+  void close();
+}
@@ -0,0 +1,195 @@
+package com.parkit.parkingsystem.storage;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.ReplicaMonitor;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Creates the storage engine chosen by the storage settings.
+ *
+ * @author Laura
+ */
+public final class StorageEngineFactory {
+
+  /**
+   * Classpath location of the storage settings, the database engine
+   * applying without it.
+   */
+  public static final String STORAGE_RESOURCE = "storage.properties";
+
+  /**
+   * Name of the engine storing everything in the database.
+   */
+  static final String DATABASE_ENGINE = "database";
+
+  /**
+   * Name of the engine storing everything in an H2 database run in the
+   * application process.
+   */
+  static final String EMBEDDED_ENGINE = "embedded";
+
+  /**
+   * Name of the engine storing everything in memory.
+   */
+  static final String MEMORY_ENGINE = "memory";
+
+  /**
+   * Largest lag of a replica still read by default.
+   */
+  private static final long DEFAULT_REPLICA_MAX_LAG_MILLIS = 2000;
+
+  /**
+   * Time between two replica lag checks by default.
+   */
+  private static final long DEFAULT_REPLICA_CHECK_PERIOD_MILLIS = 1000;
+
+  /**
+   * Time between two snapshots of the memory engine by default.
+   */
+  private static final long DEFAULT_SNAPSHOT_PERIOD_SECONDS = 60;
+
+  /**
+   * Empty constructor of class StorageEngineFactory.
+   */
+  private StorageEngineFactory() {
+  }
+
+  /**
+   * Creates the storage engine of a properties file: storage.engine names
+   * the engine, database by default, embedded or memory. The database
+   * engine connects to storage.database.url as storage.database.user with
+   * storage.database.password, or to the production database if no URL is
+   * set, so that facilities can each have their own database. History
+   * reads go to the replicas of storage.database.replicas, JDBC URLs
+   * separated by commas with the same user, whose lag is checked every
+   * storage.database.replica.check.period.millis and must not exceed
+   * storage.database.replica.max.lag.millis. The lot of the
+   * memory engine, and of a new embedded database, has storage.spots.car
+   * car spots then storage.spots.bike bike spots, numbered from 1. The
+   * embedded database is kept in storage.embedded.file, or in memory if it
+   * is not set. The tickets of the memory engine are saved every
+   * storage.memory.snapshot.period.seconds to storage.memory.snapshot.file
+   * if set.
+   *
+   * @param resource the classpath location of the settings
+   * @return the StorageEngine instance, not opened yet
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if the engine is unknown
+   */
+  public static StorageEngine load(final String resource)
+      throws IOException {
+    Properties properties = new Properties();
+    InputStream input = StorageEngineFactory.class.getClassLoader()
+        .getResourceAsStream(resource);
+    if (input != null) {
+      try (InputStreamReader reader = new InputStreamReader(input,
+          StandardCharsets.UTF_8)) {
+        properties.load(reader);
+      }
+    }
+
+    String engine = properties.getProperty("storage.engine",
+        DATABASE_ENGINE).trim();
+    switch (engine) {
+      case DATABASE_ENGINE:
+        return new DataBaseStorageEngine(getDataBaseConfig(properties));
+      case EMBEDDED_ENGINE:
+        String dataBaseFile = properties.getProperty("storage.embedded.file",
+            "").trim();
+        return new DataBaseStorageEngine(DataBaseConfig.embedded(
+            dataBaseFile.isEmpty() ? null : dataBaseFile),
+            getParkingSpots(properties));
+      case MEMORY_ENGINE:
+        String file = properties.getProperty("storage.memory.snapshot.file",
+            "").trim();
+        Path snapshotFile = file.isEmpty() ? null : Paths.get(file);
+        return new InMemoryStorageEngine(getParkingSpots(properties),
+            snapshotFile, Long.parseLong(properties.getProperty(
+                "storage.memory.snapshot.period.seconds", String.valueOf(
+                    DEFAULT_SNAPSHOT_PERIOD_SECONDS)).trim()));
+      default:
+        throw new IllegalArgumentException("Unknown storage engine: "
+            + engine);
+    }
+  }
+
+  /**
+   * Creates the configuration of the database of the database engine, with
+   * the monitor of its replicas if it has any.
+   *
+   * @param properties the storage settings
+   * @return the DataBaseConfig instance of the primary database
+   */
+  private static DataBaseConfig getDataBaseConfig(
+      final Properties properties) {
+    DataBaseConfig dataBaseConfig = getDataBaseConfig(properties,
+        properties.getProperty("storage.database.url", "").trim());
+
+    List<DataBaseConfig> replicas = new ArrayList<>();
+    for (String url : properties.getProperty("storage.database.replicas",
+        "").split(",")) {
+      if (!url.trim().isEmpty()) {
+        replicas.add(getDataBaseConfig(properties, url.trim()));
+      }
+    }
+    if (!replicas.isEmpty()) {
+      dataBaseConfig.setReplicaMonitor(new ReplicaMonitor(dataBaseConfig,
+          replicas, Long.parseLong(properties.getProperty(
+              "storage.database.replica.max.lag.millis", String.valueOf(
+                  DEFAULT_REPLICA_MAX_LAG_MILLIS)).trim()),
+          Long.parseLong(properties.getProperty(
+              "storage.database.replica.check.period.millis", String.valueOf(
+                  DEFAULT_REPLICA_CHECK_PERIOD_MILLIS)).trim())));
+    }
+    return dataBaseConfig;
+  }
+
+  /**
+   * Creates the configuration of a MySQL database of the settings.
+   *
+   * @param properties the storage settings
+   * @param url the JDBC URL of the database, empty for the production one
+   * @return the DataBaseConfig instance
+   */
+  private static DataBaseConfig getDataBaseConfig(final Properties properties,
+                                                  final String url) {
+    return url.isEmpty() ? new DataBaseConfig() : new DataBaseConfig(
+        DataBaseConfig.MYSQL_DRIVER, url, properties.getProperty(
+            "storage.database.user", "").trim(), properties.getProperty(
+                "storage.database.password", ""));
+  }
+
+  /**
+   * Lays out the lot of the memory and embedded engines: the spots of each
+   * parking type in turn, numbered from 1.
+   *
+   * @param properties the storage settings
+   * @return the spots of the lot, all free
+   */
+  private static List<ParkingSpot> getParkingSpots(
+      final Properties properties) {
+    List<ParkingSpot> parkingSpots = new ArrayList<>();
+    int number = 0;
+
+    for (ParkingType parkingType : ParkingType.values()) {
+      int count = Integer.parseInt(properties.getProperty(
+          "storage.spots." + parkingType.name().toLowerCase(
+              Locale.ROOT), "0").trim());
+      for (int i = 0; i < count; i++) {
+        parkingSpots.add(new ParkingSpot(++number, parkingType, true));
+      }
+    }
+    return parkingSpots;
+  }
+}
@@ -0,0 +1,6 @@
+/**
+ * Contains the storage engines of the tickets and parking spots.
+ *
+ * @author Laura
+ */
+package com.parkit.parkingsystem.storage;
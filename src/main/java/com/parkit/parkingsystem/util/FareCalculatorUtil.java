@@ -1,65 +1,160 @@
 package com.parkit.parkingsystem.util;
 
 import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.Ticket;
-import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 /**
  * Calculates the price to be paid by the user when exiting the parking.
+ * Fares are computed in whole cents with integer arithmetic, from rate
+ * tables built once from the Fare constants, so that a fare is rounded the
+ * same way on every run and no object is created per calculation.
  *
  * @author Laura
  */
 public final class FareCalculatorUtil {
 
+  /**
+   * Number of cents in a unit of currency.
+   */
+  private static final long CENTS = 100;
+
+  /**
+   * Number of minutes in an hour.
+   */
+  private static final long MINUTES_PER_HOUR = 60;
+
+  /**
+   * Discount rates are expressed in ten-thousandths (basis points).
+   */
+  private static final long BASIS_POINTS = 10_000;
+
+  /**
+   * Parking time under which parking is free, in minutes.
+   */
+  private static final long FREE_MINUTES = Math.round(Fare.FREE_PARKING_TIME
+      * MINUTES_PER_HOUR);
+
+  /**
+   * Rate per hour in cents of each parking type, by ordinal.
+   */
+  private static final long[] CENTS_PER_HOUR = buildRateTable();
+
   /**
    * Empty constructor of class FareCalculatorUtil.
    */
   private FareCalculatorUtil() {
   }
 
+  /**
+   * Builds the table of the rates per hour in cents.
+   *
+   * @return the rates, indexed by parking type ordinal
+   */
+  private static long[] buildRateTable() {
+    long[] rates = new long[ParkingType.values().length];
+
+    for (ParkingType parkingType : ParkingType.values()) {
+      switch (parkingType) {
+
+        case CAR:
+          rates[parkingType.ordinal()] = Math.round(Fare.CAR_RATE_PER_HOUR
+              * CENTS);
+          break;
+
+        case BIKE:
+          rates[parkingType.ordinal()] = Math.round(Fare.BIKE_RATE_PER_HOUR
+              * CENTS);
+          break;
+
+        default:
+          throw new IllegalArgumentException("Unknown Parking Type");
+      }
+    }
+
+    return rates;
+  }
+
   /**
    * Calculates the fare based on parking time, vehicle type and discount rate.
    *
    * @param ticket the ticket from which calculation is done.
    * @param discount discount based on if it's a recurrent user or new user.
-   * @return the price to pay after calculation.
+   * @return the price to pay after calculation, rounded to the cent.
    */
   public static double getCalculatedFare(final Ticket ticket, final double
       discount) {
+    return (double) getCalculatedFareInCents(ticket.getParkingSpot()
+        .getParkingType(), ticket.getInTime(), ticket.getOutTime(), discount)
+        / CENTS;
+  }
+
+  /**
+   * Calculates the fare in cents based on parking time, vehicle type and
+   * discount rate. Parking time is counted in whole minutes; the fare is
+   * rounded half up to the cent once, after the discount.
+   *
+   * @param parkingType the vehicle type (bike or car)
+   * @param inTime the time the vehicle entered
+   * @param outTime the time the vehicle exited
+   * @param discount discount based on if it's a recurrent user or new user.
+   * @return the price to pay in cents
+   */
+  public static long getCalculatedFareInCents(final ParkingType parkingType,
+                                              final LocalDateTime inTime,
+                                              final LocalDateTime outTime,
+                                              final double discount) {
 
-    if (ticket.getOutTime() == null || (ticket.getOutTime()
-        .isBefore(ticket.getInTime()))) {
+    if (outTime == null || outTime.isBefore(inTime)) {
       throw new IllegalArgumentException("Out time provided is incorrect:"
-      + ticket.getOutTime());
+      + outTime);
     }
 
-    LocalDateTime inTime = ticket.getInTime();
-    LocalDateTime outTime = ticket.getOutTime();
-    final int toHour = 60;
-    // Converting duration to hours.
-    double duration = (double) (Duration.between(inTime, outTime)).toMinutes()
-        / toHour;
+    long centsPerHour = CENTS_PER_HOUR[parkingType.ordinal()];
+    long minutes = ChronoUnit.MINUTES.between(inTime, outTime);
 
     // Allow users to park for free when they stay less than 30 minutes.
-    if (duration < Fare.FREE_PARKING_TIME) {
+    if (isFree(minutes)) {
       return 0;
-      /* The system calculates the fare depending on parking time, the type
-      of vehicle and discount if recurrent user. */
-    } else {
-      switch (ticket.getParkingSpot().getParkingType()) {
+    }
 
-        case CAR:
-          return duration * Fare.CAR_RATE_PER_HOUR - (duration
-            * Fare.CAR_RATE_PER_HOUR * discount);
+    return toCents(minutes * centsPerHour, discount);
+  }
 
-        case BIKE:
-          return duration * Fare.BIKE_RATE_PER_HOUR - (duration
-            * Fare.BIKE_RATE_PER_HOUR * discount);
+  /**
+   * Getter of the flat rate per hour of a vehicle type.
+   *
+   * @param parkingType the vehicle type (bike or car)
+   * @return the rate per hour in cents
+   */
+  public static long getCentsPerHour(final ParkingType parkingType) {
+    return CENTS_PER_HOUR[parkingType.ordinal()];
+  }
 
-        default:
-          throw new IllegalArgumentException("Unknown Parking Type");
-      }
-    }
+  /**
+   * Tells if a stay is short enough to be free.
+   *
+   * @param minutes the parking time in whole minutes
+   * @return true if the stay is free
+   */
+  public static boolean isFree(final long minutes) {
+    return minutes < FREE_MINUTES;
+  }
+
+  /**
+   * Converts the sum of the hourly rates of each minute parked into a fare,
+   * applying the discount and rounding half up to the cent once.
+   *
+   * @param rateMinutes the sum of the rates per hour in cents of each
+   *     minute parked
+   * @param discount discount based on if it's a recurrent user or new user.
+   * @return the price to pay in cents
+   */
+  public static long toCents(final long rateMinutes, final double discount) {
+    long payable = BASIS_POINTS - Math.round(discount * BASIS_POINTS);
+    long denominator = MINUTES_PER_HOUR * BASIS_POINTS;
+    return (rateMinutes * payable + denominator / 2) / denominator;
   }
 }
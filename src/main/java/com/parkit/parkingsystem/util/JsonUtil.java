@@ -0,0 +1,278 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads and writes the flat JSON objects exchanged with the gates.
+ * Only objects of strings, numbers, booleans and nulls are supported.
+ *
+ * @author Laura
+ */
+public final class JsonUtil {
+
+  /**
+   * Empty constructor of class JsonUtil.
+   */
+  private JsonUtil() {
+  }
+
+  /**
+   * Parses a flat JSON object.
+   *
+   * @param json the JSON text
+   * @return the values by name, numbers and booleans as written, null
+   *     values as null
+   * @throws IllegalArgumentException if the text is not a flat JSON object
+   */
+  public static Map<String, String> parseObject(final String json) {
+    return new Parser(json).parseObject();
+  }
+
+  /**
+   * Writes a string as a JSON string literal.
+   *
+   * @param value the string to write, may be null
+   * @return the quoted and escaped string, or the null literal
+   */
+  public static String quote(final String value) {
+    if (value == null) {
+      return "null";
+    }
+
+    StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          json.append("\\\"");
+          break;
+        case '\\':
+          json.append("\\\\");
+          break;
+        case '\n':
+          json.append("\\n");
+          break;
+        case '\r':
+          json.append("\\r");
+          break;
+        case '\t':
+          json.append("\\t");
+          break;
+        default:
+          if (c < ' ') {
+            json.append(String.format("\\u%04x", (int) c));
+          } else {
+            json.append(c);
+          }
+      }
+    }
+
+    return json.append('"').toString();
+  }
+
+  /**
+   * Reads a JSON text one character at a time.
+   */
+  private static final class Parser {
+
+    /**
+     * Number of hexadecimal digits of a unicode escape.
+     */
+    private static final int UNICODE_DIGITS = 4;
+
+    /**
+     * Hexadecimal radix.
+     */
+    private static final int HEX = 16;
+
+    /**
+     * The JSON text.
+     */
+    private final String json;
+
+    /**
+     * Position of the next character to read.
+     */
+    private int position;
+
+    /**
+     * Constructor of class Parser.
+     *
+     * @param text the JSON text
+     */
+    private Parser(final String text) {
+      if (text == null) {
+        throw new IllegalArgumentException("Missing JSON object");
+      }
+      this.json = text;
+    }
+
+    /**
+     * Parses the whole text as a flat object.
+     *
+     * @return the values by name
+     */
+    private Map<String, String> parseObject() {
+      Map<String, String> values = new LinkedHashMap<>();
+      expect('{');
+
+      if (peek() != '}') {
+        do {
+          String name = parseString();
+          expect(':');
+          values.put(name, parseValue());
+        } while (consume(','));
+      }
+
+      expect('}');
+      if (peek() != 0) {
+        throw error("Unexpected content");
+      }
+
+      return values;
+    }
+
+    /**
+     * Parses a string, number, boolean or null value.
+     *
+     * @return the value, null for a JSON null
+     */
+    private String parseValue() {
+      char c = peek();
+
+      if (c == '"') {
+        return parseString();
+      }
+      if (c == '{' || c == '[') {
+        throw error("Nested values are not supported");
+      }
+
+      int start = position;
+      while (position < json.length() && ",} \t\r\n".indexOf(json.charAt(
+          position)) < 0) {
+        position++;
+      }
+      String literal = json.substring(start, position);
+
+      if ("null".equals(literal)) {
+        return null;
+      }
+      if (literal.isEmpty() || !("true".equals(literal)
+          || "false".equals(literal) || literal.matches(
+          "-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?"))) {
+        throw error("Invalid value");
+      }
+
+      return literal;
+    }
+
+    /**
+     * Parses a string literal.
+     *
+     * @return the unescaped string
+     */
+    private String parseString() {
+      expect('"');
+      StringBuilder value = new StringBuilder();
+
+      while (position < json.length()) {
+        char c = json.charAt(position++);
+        if (c == '"') {
+          return value.toString();
+        }
+        if (c != '\\') {
+          value.append(c);
+          continue;
+        }
+        if (position >= json.length()) {
+          break;
+        }
+
+        char escaped = json.charAt(position++);
+        switch (escaped) {
+          case 'n':
+            value.append('\n');
+            break;
+          case 'r':
+            value.append('\r');
+            break;
+          case 't':
+            value.append('\t');
+            break;
+          case 'b':
+            value.append('\b');
+            break;
+          case 'f':
+            value.append('\f');
+            break;
+          case 'u':
+            if (position + UNICODE_DIGITS > json.length()) {
+              throw error("Invalid unicode escape");
+            }
+            try {
+              value.append((char) Integer.parseInt(json.substring(position,
+                  position + UNICODE_DIGITS), HEX));
+            } catch (NumberFormatException e) {
+              throw error("Invalid unicode escape");
+            }
+            position += UNICODE_DIGITS;
+            break;
+          default:
+            value.append(escaped);
+        }
+      }
+
+      throw error("Unterminated string");
+    }
+
+    /**
+     * Skips whitespaces and reads the next character without consuming it.
+     *
+     * @return the next character, 0 at the end of the text
+     */
+    private char peek() {
+      while (position < json.length() && Character.isWhitespace(json.charAt(
+          position))) {
+        position++;
+      }
+      return position < json.length() ? json.charAt(position) : 0;
+    }
+
+    /**
+     * Consumes the next character if it is the given one.
+     *
+     * @param c the expected character
+     * @return true if it was consumed
+     */
+    private boolean consume(final char c) {
+      if (peek() == c) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    /**
+     * Consumes the next character, which must be the given one.
+     *
+     * @param c the expected character
+     */
+    private void expect(final char c) {
+      if (!consume(c)) {
+        throw error("Expected '" + c + "'");
+      }
+    }
+
+    /**
+     * Builds the exception of a malformed text.
+     *
+     * @param message the description of the problem
+     * @return the exception to throw
+     */
+    private IllegalArgumentException error(final String message) {
+      return new IllegalArgumentException(message + " at position "
+          + position + " of JSON object");
+    }
+  }
+}
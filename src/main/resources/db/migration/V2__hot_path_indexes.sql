@@ -0,0 +1,5 @@
+-- Exit lookup and recurring user count filter tickets by registration number
+create index TICKET_REG_NUMBER_OUT_TIME on ticket(VEHICLE_REG_NUMBER, OUT_TIME);
+
+-- Next available spot lookup filters spots by type and availability
+create index PARKING_TYPE_AVAILABLE on parking(TYPE, AVAILABLE, PARKING_NUMBER);
@@ -0,0 +1,7 @@
+-- Copy the parking type on the ticket so that the exit lookup needs no join
+alter table ticket add column PARKING_TYPE varchar(10);
+
+update ticket set PARKING_TYPE = (select p.TYPE from parking p
+ where p.PARKING_NUMBER = ticket.PARKING_NUMBER);
+
+alter table ticket modify PARKING_TYPE varchar(10) NOT NULL;
@@ -0,0 +1,2 @@
+-- Open tickets are loaded at startup by filtering on a null out-time
+create index TICKET_OUT_TIME on ticket(OUT_TIME);
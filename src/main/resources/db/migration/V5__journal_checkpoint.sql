@@ -0,0 +1,6 @@
+-- Sequence of the last gate journal record applied, saved with the records
+create table if not exists journal_checkpoint(
+ ID int PRIMARY KEY,
+ APPLIED_SEQUENCE bigint NOT NULL
+);
+insert into journal_checkpoint(ID, APPLIED_SEQUENCE) values(1, 0);
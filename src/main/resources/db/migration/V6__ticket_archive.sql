@@ -0,0 +1,11 @@
+-- Months whose closed tickets were moved to a ticket_archive_yyyymm table
+create table if not exists ticket_archive_month(
+ MONTH int PRIMARY KEY,
+ TICKET_COUNT int NOT NULL
+);
+-- Archived tickets of each vehicle, so that history lookups read one archive table at most
+create table if not exists ticket_history(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ ARCHIVED_COUNT int NOT NULL,
+ LAST_OUT_TIME DATETIME NOT NULL
+);
@@ -0,0 +1,6 @@
+-- Time last written on the primary database, read back on its replicas to measure their lag
+create table if not exists replication_heartbeat(
+ ID int PRIMARY KEY,
+ BEAT DATETIME(3) NOT NULL
+);
+insert into replication_heartbeat(ID, BEAT) values(1, '1970-01-01 00:00:00');
@@ -5,9 +5,12 @@ import com.parkit.parkingsystem.dao.ParkingSpotDao;
 import com.parkit.parkingsystem.dao.TicketDao;
 import com.parkit.parkingsystem.integration.config.DataBasePrepareService;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.storage.DataBaseStorageEngine;
 import com.parkit.parkingsystem.util.InputReaderUtil;
+import java.util.Arrays;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -20,6 +23,9 @@ public class ParkingDataBaseIT {
 
     private static final DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
     private static final String REG_NUMBER = "AB125XY";
+    private static final ParkingSpot[] LOT = {new ParkingSpot(1, ParkingType.CAR, true),
+        new ParkingSpot(2, ParkingType.CAR, true), new ParkingSpot(3, ParkingType.CAR, true),
+        new ParkingSpot(4, ParkingType.BIKE, true), new ParkingSpot(5, ParkingType.BIKE, true)};
 
     private static ParkingSpotDao parkingSpotDao = new ParkingSpotDao();
     private static TicketDao ticketDao = new TicketDao();
@@ -30,7 +36,8 @@ public class ParkingDataBaseIT {
     private static InputReaderUtil inputReaderUtil;
 
     @BeforeAll
-    public static void setUp() {
+    public static void setUp() throws Exception {
+        new DataBaseStorageEngine(dataBaseTestConfig, Arrays.asList(LOT)).open();
         parkingSpotDao.setDataBaseConfig(dataBaseTestConfig);
         ticketDao.setDataBaseConfig(dataBaseTestConfig);
         dataBasePrepareService = new DataBasePrepareService();
@@ -42,10 +49,12 @@ public class ParkingDataBaseIT {
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn(REG_NUMBER);
         dataBasePrepareService.clearDataBaseEntries();
         parkingService = new ParkingService(inputReaderUtil, parkingSpotDao, ticketDao);
+        parkingService.setDataBaseConfig(dataBaseTestConfig);
     }
 
     @AfterAll
     public static void tearDown() {
+        dataBaseTestConfig.shutdown();
     }
 
     @Test
@@ -1,6 +1,7 @@
 package com.parkit.parkingsystem.integration.config;
 
 import java.sql.Connection;
+import java.sql.Statement;
 
 public class DataBasePrepareService {
 
@@ -8,13 +9,14 @@ public class DataBasePrepareService {
 
     public void clearDataBaseEntries() {
 
-        try (Connection connection = dataBaseTestConfig.getConnection()) {
+        try (Connection connection = dataBaseTestConfig.getConnection();
+             Statement statement = connection.createStatement()) {
 
             //set parking entries to available
-            connection.prepareStatement("update parking set available = true").execute();
+            statement.execute("update parking set available = true");
 
             //clear ticket entries;
-            connection.prepareStatement("truncate table ticket").execute();
+            statement.execute("truncate table ticket");
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -1,19 +1,10 @@
 package com.parkit.parkingsystem.integration.config;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-
-import java.sql.*;
 
 public class DataBaseTestConfig extends DataBaseConfig {
 
-    private static final Logger logger = LogManager.getLogger("DataBaseTestConfig");
-
-    public Connection getConnection() throws ClassNotFoundException, SQLException {
-        logger.debug("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-        "jdbc:mysql://localhost:3306/test?serverTimezone=Europe/Paris", "root", "rootroot");
+    public DataBaseTestConfig() {
+        super(H2_DRIVER, "jdbc:h2:mem:test;DB_CLOSE_DELAY=-1" + H2_OPTIONS, "sa", "");
     }
 }
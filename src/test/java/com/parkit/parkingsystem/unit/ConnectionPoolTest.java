@@ -0,0 +1,149 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ConnectionPoolTest {
+
+    @Mock
+    private Connection physicalConnection;
+    @Mock
+    private Connection otherPhysicalConnection;
+    @Mock
+    private PreparedStatement physicalStatement;
+
+    private int openedConnections;
+    private ConnectionPool connectionPool;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        openedConnections = 0;
+        connectionPool = new ConnectionPool(() -> {
+            openedConnections++;
+            return openedConnections == 1 ? physicalConnection : otherPhysicalConnection;
+        }, 0, 1, 60000, 100, 0);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        connectionPool.close();
+    }
+
+    @Test
+    @Tag("Borrow")
+    @DisplayName("Given a connection given back to the pool, when borrow again, then the same physical connection is reused")
+    public void givenAReleasedConnection_whenBorrow_thenPhysicalConnectionIsReused() throws Exception {
+        when(physicalConnection.getAutoCommit()).thenReturn(true);
+
+        connectionPool.borrow().close();
+        Connection connection = connectionPool.borrow();
+        connection.createStatement();
+
+        verify(physicalConnection).createStatement();
+        verify(physicalConnection, never()).close();
+        assertThat(openedConnections).isEqualTo(1);
+        assertThat(connectionPool.getActiveCount()).isEqualTo(1);
+    }
+
+    @Test
+    @Tag("Borrow")
+    @DisplayName("Given every connection is borrowed, when borrow, then a SQLTimeoutException is raised after the borrow timeout")
+    public void givenPoolExhausted_whenBorrow_thenSQLTimeoutExceptionThrown() throws Exception {
+        connectionPool.borrow();
+
+        assertThatThrownBy(() -> connectionPool.borrow()).isInstanceOf(SQLTimeoutException.class);
+    }
+
+    @Test
+    @Tag("Release")
+    @DisplayName("Given an uncommitted transaction, when connection is closed, then transaction is rolled back and auto-commit restored")
+    public void givenAnOpenTransaction_whenCloseConnection_thenTransactionIsRolledBack() throws Exception {
+        when(physicalConnection.getAutoCommit()).thenReturn(false);
+
+        connectionPool.borrow().close();
+
+        verify(physicalConnection).rollback();
+        verify(physicalConnection).setAutoCommit(true);
+        assertThat(connectionPool.getIdleCount()).isEqualTo(1);
+    }
+
+    @Test
+    @Tag("Release")
+    @DisplayName("Given a connection error while borrowed, when connection is closed, then the physical connection is discarded")
+    public void givenAConnectionError_whenCloseConnection_thenPhysicalConnectionIsDiscarded() throws Exception {
+        when(physicalConnection.createStatement()).thenThrow(new SQLException("Link failure", "08S01"));
+        Connection connection = connectionPool.borrow();
+
+        assertThatThrownBy(connection::createStatement).isInstanceOf(SQLException.class);
+        connection.close();
+
+        verify(physicalConnection).close();
+        assertThat(connectionPool.getIdleCount()).isZero();
+    }
+
+    @Test
+    @Tag("PrepareStatement")
+    @DisplayName("Given a prepared statement closed, when the same SQL is prepared again, then the physical statement is reused")
+    public void givenAClosedStatement_whenSameSqlPrepared_thenPhysicalStatementIsReused() throws Exception {
+        when(physicalConnection.getAutoCommit()).thenReturn(true);
+        when(physicalConnection.prepareStatement("select 1")).thenReturn(physicalStatement);
+
+        Connection connection = connectionPool.borrow();
+        PreparedStatement statement = connection.prepareStatement("select 1");
+        statement.setInt(1, 5);
+        statement.close();
+        connection.close();
+        connectionPool.borrow().prepareStatement("select 1").executeQuery();
+
+        assertThat(statement.isClosed()).isTrue();
+        verify(physicalConnection, times(1)).prepareStatement("select 1");
+        verify(physicalStatement).clearParameters();
+        verify(physicalStatement).executeQuery();
+        verify(physicalStatement, never()).close();
+    }
+
+    @Test
+    @Tag("PrepareStatement")
+    @DisplayName("Given a connection error on a statement, when closed, then the statement and its connection are closed")
+    public void givenAConnectionErrorOnAStatement_whenClosed_thenStatementAndConnectionAreClosed() throws Exception {
+        when(physicalConnection.prepareStatement("select 1")).thenReturn(physicalStatement);
+        when(physicalStatement.executeQuery()).thenThrow(new SQLException("Link failure", "08S01"));
+        Connection connection = connectionPool.borrow();
+        PreparedStatement statement = connection.prepareStatement("select 1");
+
+        assertThatThrownBy(statement::executeQuery).isInstanceOf(SQLException.class);
+        statement.close();
+        connection.close();
+
+        verify(physicalStatement).close();
+        verify(physicalConnection).close();
+        assertThat(connectionPool.getIdleCount()).isZero();
+    }
+
+    @Test
+    @Tag("Release")
+    @DisplayName("Given a closed pooled connection, when used again, then a SQLException is raised")
+    public void givenAClosedConnection_whenUsed_thenSQLExceptionThrown() throws Exception {
+        when(physicalConnection.getAutoCommit()).thenReturn(true);
+        Connection connection = connectionPool.borrow();
+        connection.close();
+
+        assertThat(connection.isClosed()).isTrue();
+        assertThatThrownBy(connection::createStatement).isInstanceOf(SQLException.class);
+    }
+}
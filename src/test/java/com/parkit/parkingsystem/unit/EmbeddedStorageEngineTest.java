@@ -0,0 +1,116 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.Metric;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.model.ParkingResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ParkingServiceFactory;
+import com.parkit.parkingsystem.storage.DataBaseStorageEngine;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class EmbeddedStorageEngineTest {
+
+    private static final List<ParkingSpot> LOT = Arrays.asList(new ParkingSpot(1, ParkingType.CAR, true),
+        new ParkingSpot(2, ParkingType.CAR, true), new ParkingSpot(3, ParkingType.BIKE, true));
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("embedded-storage");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    @Tag("EmbeddedStorage")
+    @DisplayName("Given a service on an embedded database in memory, when a vehicle comes back, then it is parked as a recurring user")
+    public void givenAServiceOnAnEmbeddedDataBase_whenAVehicleComesBack_thenItIsARecurringUser() throws Exception {
+        DataBaseConfig dataBaseConfig = new DataBaseConfig(DataBaseConfig.H2_DRIVER,
+            "jdbc:h2:mem:embedded-storage;DB_CLOSE_DELAY=-1" + DataBaseConfig.H2_OPTIONS, "sa", "");
+
+        try (DataBaseStorageEngine storageEngine = new DataBaseStorageEngine(dataBaseConfig, LOT)) {
+            ParkingService parkingService = ParkingServiceFactory.create(null, storageEngine);
+
+            assertThat(parkingService.enter("AB125XY", ParkingType.CAR).getStatus())
+                .isEqualTo(ParkingResult.Status.PARKED);
+            assertThat(parkingService.exit("AB125XY").getStatus()).isEqualTo(ParkingResult.Status.EXITED);
+            ParkingResult result = parkingService.enter("AB125XY", ParkingType.CAR);
+
+            assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.PARKED);
+            assertThat(result.isRecurringUser()).isTrue();
+            assertThat(result.getParkingSpot().getNumber()).isEqualTo(1);
+            assertThat(storageEngine.getParkingSpotRepository().getNextAvailableSpot(ParkingType.CAR)).isEqualTo(2);
+            assertThat(storageEngine.getParkingSpotRepository().getNextAvailableSpot(ParkingType.BIKE)).isEqualTo(3);
+        }
+    }
+
+    @Test
+    @Tag("EmbeddedStorage")
+    @DisplayName("Given an embedded database file, when it is opened again, then the tickets are kept and the lot is not added twice")
+    public void givenAnEmbeddedDataBaseFile_whenOpenedAgain_thenTicketsAreKeptAndTheLotIsNotAddedTwice() throws Exception {
+        String file = directory.resolve("parkit").toString();
+
+        try (DataBaseStorageEngine storageEngine = new DataBaseStorageEngine(DataBaseConfig.embedded(file), LOT)) {
+            ParkingService parkingService = ParkingServiceFactory.create(null, storageEngine);
+            parkingService.enter("AB125XY", ParkingType.CAR);
+            parkingService.exit("AB125XY");
+            parkingService.enter("CD456ZT", ParkingType.BIKE);
+        }
+        assertThat(directory.resolve("parkit.mv.db")).exists();
+
+        try (DataBaseStorageEngine storageEngine = new DataBaseStorageEngine(DataBaseConfig.embedded(file), LOT)) {
+            storageEngine.open();
+
+            assertThat(storageEngine.getParkingSpotRepository().getParkingSpots()).extracting(ParkingSpot::getNumber,
+                ParkingSpot::isAvailable).containsExactly(tuple(1, true), tuple(2, true), tuple(3, false));
+            assertThat(storageEngine.getTicketRepository().isRecurringUser("AB125XY")).isTrue();
+            assertThat(storageEngine.getTicketRepository().getOpenTickets()).extracting(Ticket::getVehicleRegNumber)
+                .containsExactly("CD456ZT");
+        }
+    }
+
+    @Test
+    @Tag("EmbeddedStorage")
+    @DisplayName("Given two databases open at once, when their pools are created, then each exports its own connection counts")
+    public void givenTwoDataBases_whenTheirPoolsAreCreated_thenEachExportsItsOwnConnectionCounts() throws Exception {
+        String north = directory.resolve("north").toString();
+        String south = directory.resolve("south").toString();
+
+        try (DataBaseStorageEngine northEngine = new DataBaseStorageEngine(DataBaseConfig.embedded(north), LOT);
+             DataBaseStorageEngine southEngine = new DataBaseStorageEngine(DataBaseConfig.embedded(south), LOT)) {
+            northEngine.open();
+            southEngine.open();
+
+            MetricsRegistry metricsRegistry = MetricsRegistry.getDefault();
+            Metric northIdle = metricsRegistry.getMetric("parkit_pool_connections",
+                "state", "idle", "database", "jdbc:h2:file:" + directory.resolve("north").toAbsolutePath());
+            Metric southIdle = metricsRegistry.getMetric("parkit_pool_connections",
+                "state", "idle", "database", "jdbc:h2:file:" + directory.resolve("south").toAbsolutePath());
+            assertThat(northIdle).isNotNull();
+            assertThat(southIdle).isNotNull().isNotSameAs(northIdle);
+        }
+    }
+}
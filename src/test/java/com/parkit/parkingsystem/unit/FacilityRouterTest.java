@@ -0,0 +1,133 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.model.ParkingResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.FacilityRouter;
+import com.parkit.parkingsystem.storage.InMemoryStorageEngine;
+import com.parkit.parkingsystem.storage.StorageEngine;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FacilityRouterTest {
+
+    private static final List<ParkingSpot> LOT = Arrays.asList(new ParkingSpot(1, ParkingType.CAR, true),
+        new ParkingSpot(2, ParkingType.BIKE, true));
+
+    private static Map<String, StorageEngine> facilities(StorageEngine north, StorageEngine south) {
+        Map<String, StorageEngine> storageEngines = new LinkedHashMap<>();
+        storageEngines.put("north", north);
+        storageEngines.put("south", south);
+        return storageEngines;
+    }
+
+    @Test
+    @Tag("RecurringUser")
+    @DisplayName("Given a user who left another facility, when entering, then they are a recurring user")
+    public void givenAUserWhoLeftAnotherFacility_whenEntering_thenTheyAreARecurringUser() throws Exception {
+        try (FacilityRouter facilityRouter = new FacilityRouter(facilities(new InMemoryStorageEngine(LOT, null, 0),
+            new InMemoryStorageEngine(LOT, null, 0)), 2, 1000)) {
+            facilityRouter.open("north");
+            facilityRouter.open("south");
+
+            facilityRouter.enter("north", "AB125XY", ParkingType.CAR);
+            facilityRouter.exit("north", "AB125XY");
+            ParkingResult result = facilityRouter.enter("south", "AB125XY", ParkingType.CAR);
+
+            assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.PARKED);
+            assertThat(result.isRecurringUser()).isTrue();
+            assertThat(facilityRouter.getStorageEngine("south").getTicketRepository().isRecurringUser("AB125XY"))
+                .isFalse();
+            assertThat(facilityRouter.isRecurringUser("AB125XY")).isTrue();
+            assertThat(facilityRouter.isRecurringUser("CD456ZT")).isFalse();
+            assertThat(facilityRouter.enter("north", "CD456ZT", ParkingType.CAR).isRecurringUser()).isFalse();
+        }
+    }
+
+    @Test
+    @Tag("Routing")
+    @DisplayName("Given several facilities, when a facility is unknown or not given, then no service is found")
+    public void givenSeveralFacilities_whenUnknownOrNotGiven_thenNoServiceIsFound() throws Exception {
+        try (FacilityRouter facilityRouter = new FacilityRouter(facilities(new InMemoryStorageEngine(LOT, null, 0),
+            new InMemoryStorageEngine(LOT, null, 0)), 2, 1000)) {
+            facilityRouter.open("north");
+
+            assertThat(facilityRouter.getFacilityIds()).containsExactly("north", "south");
+            assertThat(facilityRouter.findParkingService("north")).isNotNull();
+            assertThat(facilityRouter.findParkingService("south")).isNull();
+            assertThat(facilityRouter.findParkingService(null)).isNull();
+            assertThatThrownBy(() -> facilityRouter.enter("east", "AB125XY", ParkingType.CAR))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> facilityRouter.exit("south", "AB125XY"))
+                .isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    @Tag("RecurringUser")
+    @DisplayName("Given a facility slower than the timeout, when a user is looked up, then the lookup does not wait for it")
+    public void givenASlowFacility_whenAUserIsLookedUp_thenTheLookupDoesNotWaitForIt() {
+        TicketRepository slowTicketRepository = mock(TicketRepository.class);
+        when(slowTicketRepository.isRecurringUser(anyString(), isNull())).thenAnswer(invocation -> {
+            Thread.sleep(5000);
+            return true;
+        });
+        StorageEngine slowStorageEngine = mock(StorageEngine.class);
+        when(slowStorageEngine.getTicketRepository()).thenReturn(slowTicketRepository);
+
+        try (FacilityRouter facilityRouter = new FacilityRouter(facilities(new InMemoryStorageEngine(LOT, null, 0),
+            slowStorageEngine), 2, 100)) {
+            long start = System.nanoTime();
+
+            assertThat(facilityRouter.isRecurringUser("AB125XY")).isFalse();
+            assertThat(System.nanoTime() - start).isLessThan(2_000_000_000L);
+        }
+    }
+
+    @Test
+    @Tag("RecurringUser")
+    @DisplayName("Given lookups piling up behind blocked facilities, when users are looked up, then the extra lookups are rejected as unknown")
+    public void givenBlockedFacilities_whenUsersAreLookedUp_thenExtraLookupsAreRejected() throws Exception {
+        CountDownLatch unblocked = new CountDownLatch(1);
+        AtomicInteger lookups = new AtomicInteger();
+        TicketRepository blockedTicketRepository = mock(TicketRepository.class);
+        when(blockedTicketRepository.isRecurringUser(anyString(), isNull())).thenAnswer(invocation -> {
+            lookups.incrementAndGet();
+            unblocked.await();
+            return true;
+        });
+        StorageEngine blockedStorageEngine = mock(StorageEngine.class);
+        when(blockedStorageEngine.getTicketRepository()).thenReturn(blockedTicketRepository);
+
+        try (FacilityRouter facilityRouter = new FacilityRouter(facilities(blockedStorageEngine,
+            blockedStorageEngine), 1, 10)) {
+            Counter rejectedLookups = (Counter) MetricsRegistry.getDefault()
+                .getMetric("parkit_facility_lookups_rejected_total");
+            long rejectedBefore = rejectedLookups.getCount();
+            for (int i = 0; i < 20; i++) {
+                assertThat(facilityRouter.isRecurringUser("AB125XY")).isFalse();
+            }
+
+            // One lookup running and 16 queued, the 23 others were rejected
+            assertThat(rejectedLookups.getCount() - rejectedBefore).isEqualTo(23);
+            assertThat(lookups.get()).isEqualTo(1);
+            unblocked.countDown();
+        }
+    }
+}
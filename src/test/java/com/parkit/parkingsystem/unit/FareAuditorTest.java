@@ -0,0 +1,101 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDao;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareAuditReport;
+import com.parkit.parkingsystem.service.FareAuditor;
+import com.parkit.parkingsystem.service.TariffSchedule;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FareAuditorTest {
+
+    private static final LocalDateTime IN_TIME = LocalDateTime.of(2026, 10, 19, 8, 0);
+
+    @Mock
+    private TicketDao ticketDao;
+
+    private static Ticket newTicket(int id, int minutes, double price) {
+        return new Ticket(id, new ParkingSpot(1, ParkingType.CAR, true), "GATE" + id, price, IN_TIME,
+            IN_TIME.plusMinutes(minutes));
+    }
+
+    @Test
+    @Tag("FareAudit")
+    @DisplayName("Given streamed tickets, when audited in parallel chunks, then only wrong prices are reported")
+    public void givenStreamedTickets_whenAudited_thenOnlyWrongPricesAreReported() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Ticket> action = invocation.getArgument(1);
+            for (int id = 1; id <= 1000; id++) {
+                // One hour of car: 1.50, 1.43 discounted, 1.425 before fares were rounded
+                double[] prices = {1.5, 1.43, 1.425, 2.0};
+                action.accept(newTicket(id, 60, prices[id % prices.length]));
+            }
+            return true;
+        }).when(ticketDao).streamClosedTickets(anyInt(), any());
+        StringWriter report = new StringWriter();
+
+        FareAuditReport outcome;
+        try (FareAuditor fareAuditor = new FareAuditor(ticketDao, TariffSchedule.flat(), 4, 64)) {
+            outcome = fareAuditor.audit(report);
+        }
+
+        assertThat(outcome.isComplete()).isTrue();
+        assertThat(outcome.getTicketCount()).isEqualTo(1000);
+        assertThat(outcome.getMismatchCount()).isEqualTo(250);
+        String[] lines = report.toString().split(System.lineSeparator());
+        assertThat(lines).hasSize(251);
+        assertThat(lines[0]).startsWith("ID,");
+        assertThat(lines).filteredOn(line -> !line.startsWith("ID,"))
+            .allMatch(line -> line.endsWith(",2.0,1.50,1.43"));
+    }
+
+    @Test
+    @Tag("FareAudit")
+    @DisplayName("Given a ticket with an out time before its in time, when audited, then it is reported without a fare")
+    public void givenInvalidTimes_whenAudited_thenTicketIsReportedWithoutFare() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Ticket> action = invocation.getArgument(1);
+            action.accept(newTicket(7, -30, 0));
+            return true;
+        }).when(ticketDao).streamClosedTickets(anyInt(), any());
+        StringWriter report = new StringWriter();
+
+        FareAuditReport outcome;
+        try (FareAuditor fareAuditor = new FareAuditor(ticketDao, TariffSchedule.flat(), 2, 64)) {
+            outcome = fareAuditor.audit(report);
+        }
+
+        assertThat(outcome.getMismatchCount()).isEqualTo(1);
+        assertThat(report.toString()).contains("7,GATE7,CAR,").contains(",0.0,,");
+    }
+
+    @Test
+    @Tag("FareAudit")
+    @DisplayName("Given the stream failing, when audited, then the audit is reported incomplete")
+    public void givenTheStreamFailing_whenAudited_thenAuditIsIncomplete() throws Exception {
+        when(ticketDao.streamClosedTickets(anyInt(), any())).thenReturn(false);
+
+        FareAuditReport outcome;
+        try (FareAuditor fareAuditor = new FareAuditor(ticketDao, TariffSchedule.flat(), 2, 64)) {
+            outcome = fareAuditor.audit(new StringWriter());
+        }
+
+        assertThat(outcome.isComplete()).isFalse();
+        assertThat(outcome.getTicketCount()).isZero();
+    }
+}
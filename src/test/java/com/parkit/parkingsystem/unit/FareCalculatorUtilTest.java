@@ -51,7 +51,7 @@ public class FareCalculatorUtilTest {
 
     @Test
     @Tag("NormalRates")
-    @DisplayName("For a car parked 45 minutes, price should be equal 3/4 car rate per hour")
+    @DisplayName("For a car parked 45 minutes, price should be equal 3/4 car rate per hour rounded to the cent")
     public void givenALessThanOneHourCarTicket_whenGetCalculatedFare_thenFareIsThreeQuarterTheCarRatePerHour() {
         ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
         ticket.setInTime(LocalDateTime.now().minusMinutes(45));
@@ -59,7 +59,7 @@ public class FareCalculatorUtilTest {
 
         double price = FareCalculatorUtil.getCalculatedFare(ticket, 0);
 
-        assertThat(price).isEqualTo(0.75 * Fare.CAR_RATE_PER_HOUR);
+        assertThat(price).isEqualTo(1.13);
     }
 
     @Test
@@ -143,7 +143,7 @@ public class FareCalculatorUtilTest {
 
     @Test
     @Tag("Discount")
-    @DisplayName("For a recurrent user that parked a car one hour, price should be equal to car rate per hour with discount applied")
+    @DisplayName("For a recurrent user that parked a car one hour, price should be equal to car rate per hour with discount applied, rounded to the cent")
     public void givenAOneHourCarTicket_whenGetCalculatedFareWithDiscount_thenRateIncludesDiscount() {
         ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
         ticket.setInTime(LocalDateTime.now().minusMinutes(60));
@@ -151,7 +151,7 @@ public class FareCalculatorUtilTest {
 
         double price = FareCalculatorUtil.getCalculatedFare(ticket, Fare.DISCOUNT);
 
-        assertThat(price).isEqualTo(Fare.CAR_RATE_PER_HOUR - (Fare.DISCOUNT * Fare.CAR_RATE_PER_HOUR));
+        assertThat(price).isEqualTo(1.43);
     }
 
     @Test
@@ -168,6 +168,44 @@ public class FareCalculatorUtilTest {
         assertThat(price).isEqualTo(Fare.BIKE_RATE_PER_HOUR - (Fare.DISCOUNT * Fare.BIKE_RATE_PER_HOUR));
     }
 
+    @Test
+    @Tag("Cents")
+    @DisplayName("For a car parked 61 minutes, the fare in cents should be rounded half up once")
+    public void givenASixtyOneMinuteCarStay_whenGetCalculatedFareInCents_thenFareIsRoundedHalfUp() {
+        LocalDateTime inTime = LocalDateTime.of(2026, 10, 17, 8, 0);
+
+        long cents = FareCalculatorUtil.getCalculatedFareInCents(ParkingType.CAR, inTime, inTime.plusMinutes(61), 0);
+
+        assertThat(cents).isEqualTo(153);
+    }
+
+    @Test
+    @Tag("Cents")
+    @DisplayName("For seconds past the last minute, the fare in cents should not change")
+    public void givenSecondsPastTheLastMinute_whenGetCalculatedFareInCents_thenTheyAreNotCharged() {
+        LocalDateTime inTime = LocalDateTime.of(2026, 10, 17, 8, 0);
+
+        long cents = FareCalculatorUtil.getCalculatedFareInCents(ParkingType.BIKE, inTime,
+            inTime.plusMinutes(29).plusSeconds(59), 0);
+        long discounted = FareCalculatorUtil.getCalculatedFareInCents(ParkingType.BIKE, inTime,
+            inTime.plusHours(3).plusSeconds(59), Fare.DISCOUNT);
+
+        assertThat(cents).isZero();
+        assertThat(discounted).isEqualTo(285);
+    }
+
+    @Test
+    @Tag("Cents")
+    @DisplayName("For a month long stay, the fare in cents should be exact")
+    public void givenAMonthLongStay_whenGetCalculatedFareInCents_thenFareIsExact() {
+        LocalDateTime inTime = LocalDateTime.of(2026, 10, 1, 0, 0);
+
+        long cents = FareCalculatorUtil.getCalculatedFareInCents(ParkingType.CAR, inTime, inTime.plusDays(31),
+            Fare.DISCOUNT);
+
+        assertThat(cents).isEqualTo(31 * 24 * 150 * 95 / 100);
+    }
+
     @Test
     @Tag("Exceptions")
     @DisplayName("If parking spot type is undefined, calculatorFare raise an NullPointerException")
@@ -0,0 +1,49 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.GateEvent;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GateEventTest {
+
+    @Test
+    @Tag("Parse")
+    @DisplayName("Given an entry line, when parse, then every field is read")
+    public void givenAnEntryLine_whenParse_thenEveryFieldIsRead() {
+        GateEvent event = GateEvent.parse("2020-06-01T08:00:00, ENTRY, AB125XY, BIKE");
+
+        assertThat(event.getTime()).isEqualTo(LocalDateTime.of(2020, 6, 1, 8, 0));
+        assertThat(event.getDirection()).isEqualTo(GateEvent.Direction.ENTRY);
+        assertThat(event.getVehicleRegNumber()).isEqualTo("AB125XY");
+        assertThat(event.getParkingType()).isEqualTo(ParkingType.BIKE);
+    }
+
+    @Test
+    @Tag("Parse")
+    @DisplayName("Given an exit line without vehicle type, when parse, then the event is read")
+    public void givenAnExitLineWithoutType_whenParse_thenEventIsRead() {
+        GateEvent event = GateEvent.parse("2020-06-01T09:30:00,EXIT,AB125XY");
+
+        assertThat(event.getDirection()).isEqualTo(GateEvent.Direction.EXIT);
+        assertThat(event.getParkingType()).isNull();
+    }
+
+    @Test
+    @Tag("Parse")
+    @DisplayName("Given invalid lines, when parse, then IllegalArgumentException is thrown")
+    public void givenInvalidLines_whenParse_thenIllegalArgumentExceptionIsThrown() {
+        assertThatThrownBy(() -> GateEvent.parse("2020-06-01T08:00:00,ENTRY,AB125XY"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> GateEvent.parse("yesterday,EXIT,AB125XY"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> GateEvent.parse("2020-06-01T08:00:00,PARK,AB125XY,CAR"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> GateEvent.parse("AB125XY"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
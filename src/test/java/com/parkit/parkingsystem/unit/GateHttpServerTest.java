@@ -0,0 +1,235 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.api.GateHttpServer;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.model.ParkingResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class GateHttpServerTest {
+
+    private static final String REG_NUMBER = "AB125XY";
+
+    @Mock
+    private ParkingService parkingService;
+
+    private GateHttpServer gateHttpServer;
+
+    private int statusCode;
+
+    private String responseBody;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        gateHttpServer = new GateHttpServer(parkingService, new InetSocketAddress("localhost", 0), 2, 5, 5);
+        gateHttpServer.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        gateHttpServer.stop();
+    }
+
+    private void request(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:"
+            + gateHttpServer.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        statusCode = connection.getResponseCode();
+        InputStream input = statusCode < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            response.write(buffer, 0, read);
+        }
+        input.close();
+        responseBody = new String(response.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @Tag("Entry")
+    @DisplayName("Given an available spot, when POST /entry, then 201 is answered with the spot")
+    public void givenAnAvailableSpot_whenPostEntry_thenCreatedIsAnsweredWithSpot() throws IOException {
+        Ticket ticket = new Ticket(1, new ParkingSpot(3, ParkingType.CAR, false), REG_NUMBER, 0,
+            LocalDateTime.of(2020, 6, 1, 8, 0), null);
+        when(parkingService.enter(REG_NUMBER, ParkingType.CAR))
+            .thenReturn(new ParkingResult(ParkingResult.Status.PARKED, ticket, false));
+
+        request("POST", "/entry", "{\"plate\": \"AB125XY\", \"type\": \"car\"}");
+
+        assertThat(statusCode).isEqualTo(201);
+        assertThat(responseBody).contains("\"status\":\"PARKED\"", "\"spot\":3",
+            "\"inTime\":\"2020-06-01T08:00\"");
+    }
+
+    @Test
+    @Tag("Entry")
+    @DisplayName("Given a full parking, when POST /entry, then 409 is answered")
+    public void givenAFullParking_whenPostEntry_thenConflictIsAnswered() throws IOException {
+        when(parkingService.enter(REG_NUMBER, ParkingType.BIKE))
+            .thenReturn(new ParkingResult(ParkingResult.Status.NO_SPOT_AVAILABLE, REG_NUMBER));
+
+        request("POST", "/entry", "{\"plate\":\"AB125XY\",\"type\":\"BIKE\"}");
+
+        assertThat(statusCode).isEqualTo(409);
+        assertThat(responseBody).contains("\"status\":\"NO_SPOT_AVAILABLE\"");
+    }
+
+    @Test
+    @Tag("Entry")
+    @DisplayName("Given a facility the server does not serve, when POST /entry, then 404 is answered")
+    public void givenAnUnknownFacility_whenPostEntry_thenNotFoundIsAnswered() throws IOException {
+        request("POST", "/entry", "{\"plate\":\"AB125XY\",\"type\":\"CAR\",\"facility\":\"north\"}");
+
+        assertThat(statusCode).isEqualTo(404);
+        assertThat(responseBody).contains("Unknown facility");
+        verifyZeroInteractions(parkingService);
+    }
+
+    @Test
+    @Tag("Entry")
+    @DisplayName("Given invalid bodies, when POST /entry, then 400 is answered and service is not called")
+    public void givenInvalidBodies_whenPostEntry_thenBadRequestIsAnswered() throws IOException {
+        request("POST", "/entry", "{\"plate\":\"AB125XY\"");
+        assertThat(statusCode).isEqualTo(400);
+
+        request("POST", "/entry", "{\"plate\":\"AB125XY\",\"type\":\"TRUCK\"}");
+        assertThat(statusCode).isEqualTo(400);
+
+        request("POST", "/entry", "{\"plate\":\" \",\"type\":\"CAR\"}");
+        assertThat(statusCode).isEqualTo(400);
+
+        verifyZeroInteractions(parkingService);
+    }
+
+    @Test
+    @Tag("Entry")
+    @DisplayName("Given plates too long or with invalid characters, when a gate request is sent, then 400 is answered and service is not called")
+    public void givenInvalidPlates_whenGateRequestSent_thenBadRequestIsAnswered() throws IOException {
+        request("POST", "/entry", "{\"plate\":\"AB125XY12345\",\"type\":\"CAR\"}");
+        assertThat(statusCode).isEqualTo(400);
+        assertThat(responseBody).contains("at most 10");
+
+        request("POST", "/entry", "{\"plate\":\"AB'125;XY\",\"type\":\"CAR\"}");
+        assertThat(statusCode).isEqualTo(400);
+
+        request("POST", "/exit", "{\"plate\":\"AB125XY12345\"}");
+        assertThat(statusCode).isEqualTo(400);
+
+        request("GET", "/quote?plate=AB%25125XY", null);
+        assertThat(statusCode).isEqualTo(400);
+
+        verifyZeroInteractions(parkingService);
+    }
+
+    @Test
+    @Tag("Exit")
+    @DisplayName("Given a parked vehicle, when POST /exit, then 200 is answered with the fare")
+    public void givenAParkedVehicle_whenPostExit_thenOkIsAnsweredWithFare() throws IOException {
+        Ticket ticket = new Ticket(1, new ParkingSpot(3, ParkingType.CAR, true), REG_NUMBER, 1.5,
+            LocalDateTime.of(2020, 6, 1, 8, 0), LocalDateTime.of(2020, 6, 1, 9, 0));
+        when(parkingService.exit(REG_NUMBER))
+            .thenReturn(new ParkingResult(ParkingResult.Status.EXITED, ticket, false));
+
+        request("POST", "/exit", "{\"plate\":\"AB125XY\"}");
+
+        assertThat(statusCode).isEqualTo(200);
+        assertThat(responseBody).contains("\"status\":\"EXITED\"", "\"fare\":1.5",
+            "\"recurringUser\":false");
+    }
+
+    @Test
+    @Tag("Exit")
+    @DisplayName("Given an unknown vehicle, when POST /exit, then 404 is answered")
+    public void givenAnUnknownVehicle_whenPostExit_thenNotFoundIsAnswered() throws IOException {
+        when(parkingService.exit(REG_NUMBER))
+            .thenReturn(new ParkingResult(ParkingResult.Status.TICKET_NOT_FOUND, REG_NUMBER));
+
+        request("POST", "/exit", "{\"plate\":\"AB125XY\"}");
+
+        assertThat(statusCode).isEqualTo(404);
+    }
+
+    @Test
+    @Tag("Quote")
+    @DisplayName("Given a parked vehicle, when GET /quote, then 200 is answered with the fare")
+    public void givenAParkedVehicle_whenGetQuote_thenOkIsAnsweredWithFare() throws IOException {
+        Ticket ticket = new Ticket(1, new ParkingSpot(3, ParkingType.CAR, false), REG_NUMBER, 1.5,
+            LocalDateTime.of(2020, 6, 1, 8, 0), LocalDateTime.of(2020, 6, 1, 9, 0));
+        when(parkingService.quote(REG_NUMBER))
+            .thenReturn(new ParkingResult(ParkingResult.Status.QUOTED, ticket, false));
+
+        request("GET", "/quote?plate=AB125XY", null);
+
+        assertThat(statusCode).isEqualTo(200);
+        assertThat(responseBody).contains("\"status\":\"QUOTED\"", "\"fare\":1.5");
+    }
+
+    @Test
+    @Tag("Occupancy")
+    @DisplayName("Given a parking, when GET /occupancy, then free and total spots of each type are answered")
+    public void givenAParking_whenGetOccupancy_thenSpotCountsAreAnswered() throws IOException {
+        when(parkingService.countParkingSpots(any(ParkingType.class), anyBoolean()))
+            .thenAnswer(invocation -> invocation.getArgument(1) ? 2 : 3);
+
+        request("GET", "/occupancy", null);
+
+        assertThat(statusCode).isEqualTo(200);
+        assertThat(responseBody).isEqualTo(
+            "{\"CAR\":{\"available\":2,\"total\":3},\"BIKE\":{\"available\":2,\"total\":3}}");
+    }
+
+    @Test
+    @Tag("Metrics")
+    @DisplayName("Given recorded metrics, when GET /metrics, then they are answered in the Prometheus text format")
+    public void givenRecordedMetrics_whenGetMetrics_thenPrometheusTextIsAnswered() throws IOException {
+        MetricsRegistry.getDefault().counter("parkit_test_requests_total", "Number of test requests").increment();
+
+        request("GET", "/metrics", null);
+
+        assertThat(statusCode).isEqualTo(200);
+        assertThat(responseBody).contains("# TYPE parkit_test_requests_total counter\n",
+            "parkit_test_requests_total ");
+    }
+
+    @Test
+    @Tag("Method")
+    @DisplayName("Given a wrong method, when request, then 405 is answered")
+    public void givenAWrongMethod_whenRequest_thenMethodNotAllowedIsAnswered() throws IOException {
+        request("GET", "/entry", null);
+
+        assertThat(statusCode).isEqualTo(405);
+        verify(parkingService, never()).enter(anyString(), any(ParkingType.class));
+    }
+}
@@ -0,0 +1,172 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.journal.GateJournal;
+import com.parkit.parkingsystem.journal.JournalRecord;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GateJournalTest {
+
+    private static final int SEGMENT_BYTES = 4096;
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("gate-journal");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    private static Ticket newTicket(int number) {
+        return new Ticket(0, new ParkingSpot(number, ParkingType.CAR, false), "GATE" + number, 0,
+            LocalDateTime.of(2026, 10, 17, 8, 30, 15, 250), null);
+    }
+
+    private List<Path> getSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*")) {
+            files.forEach(segments::add);
+        }
+        return segments;
+    }
+
+    @Test
+    @Tag("GateJournal")
+    @DisplayName("Given records appended, when the journal is reopened, then they are pending again in order")
+    public void givenRecordsAppended_whenReopened_thenTheyArePendingAgain() throws Exception {
+        try (GateJournal gateJournal = new GateJournal(directory, SEGMENT_BYTES, false)) {
+            gateJournal.append(JournalRecord.Type.ENTRY, newTicket(1));
+            Ticket exited = newTicket(1);
+            exited.setOutTime(exited.getInTime().plusHours(2));
+            exited.setPrice(3.0);
+            gateJournal.append(JournalRecord.Type.EXIT, exited);
+        }
+
+        try (GateJournal gateJournal = new GateJournal(directory, SEGMENT_BYTES, false)) {
+            List<JournalRecord> records = gateJournal.takePending(10, 0);
+
+            assertThat(records).extracting(JournalRecord::getSequence).containsExactly(1L, 2L);
+            assertThat(records.get(0).getType()).isEqualTo(JournalRecord.Type.ENTRY);
+            assertThat(records.get(0).getTicket().getOutTime()).isNull();
+            assertThat(records.get(1).getTicket().getOutTime())
+                .isEqualTo(LocalDateTime.of(2026, 10, 17, 10, 30, 15, 250));
+            assertThat(records.get(1).getTicket().getPrice()).isEqualTo(3.0);
+            assertThat(gateJournal.append(JournalRecord.Type.ENTRY, newTicket(2)).getSequence())
+                .isEqualTo(3);
+        }
+    }
+
+    @Test
+    @Tag("GateJournal")
+    @DisplayName("Given a record torn by a crash, when the journal is reopened, then it is dropped and overwritten")
+    public void givenATornRecord_whenReopened_thenItIsDropped() throws Exception {
+        try (GateJournal gateJournal = new GateJournal(directory, SEGMENT_BYTES, false)) {
+            gateJournal.append(JournalRecord.Type.ENTRY, newTicket(1));
+            gateJournal.append(JournalRecord.Type.ENTRY, newTicket(2));
+        }
+        // Corrupt the last byte of the second record
+        try (RandomAccessFile segment = new RandomAccessFile(getSegments().get(0).toFile(), "rw")) {
+            int firstLength = segment.readInt();
+            long second = Integer.BYTES * 2 + firstLength;
+            segment.seek(second);
+            int secondLength = segment.readInt();
+            segment.seek(second + Integer.BYTES * 2 + secondLength - 1);
+            segment.write(0x7F);
+        }
+
+        try (GateJournal gateJournal = new GateJournal(directory, SEGMENT_BYTES, false)) {
+            assertThat(gateJournal.getPendingCount()).isEqualTo(1);
+            assertThat(gateJournal.append(JournalRecord.Type.ENTRY, newTicket(3)).getSequence())
+                .isEqualTo(2);
+        }
+        try (GateJournal gateJournal = new GateJournal(directory, SEGMENT_BYTES, false)) {
+            assertThat(gateJournal.takePending(10, 0)).extracting(record -> record.getTicket()
+                .getVehicleRegNumber()).containsExactly("GATE1", "GATE3");
+        }
+    }
+
+    @Test
+    @Tag("GateJournal")
+    @DisplayName("Given full segments, when their records are flushed, then they are deleted")
+    public void givenFullSegments_whenFlushed_thenTheyAreDeleted() throws Exception {
+        long last;
+        try (GateJournal gateJournal = new GateJournal(directory, SEGMENT_BYTES, false)) {
+            for (int number = 1; number <= 200; number++) {
+                gateJournal.append(JournalRecord.Type.ENTRY, newTicket(number));
+            }
+            assertThat(getSegments().size()).isGreaterThan(2);
+
+            List<JournalRecord> records = gateJournal.takePending(150, 0);
+            last = records.get(records.size() - 1).getSequence();
+            gateJournal.markFlushed(last);
+
+            assertThat(getSegments().size()).isLessThanOrEqualTo(2);
+            assertThat(gateJournal.getFlushedSequence()).isEqualTo(last);
+        }
+
+        try (GateJournal gateJournal = new GateJournal(directory, SEGMENT_BYTES, false)) {
+            List<JournalRecord> records = gateJournal.takePending(100, 0);
+            assertThat(records).hasSize(50);
+            assertThat(records.get(0).getSequence()).isEqualTo(last + 1);
+        }
+    }
+
+    @Test
+    @Tag("GateJournal")
+    @DisplayName("Given every record flushed, when the journal is reopened, then it starts over after them")
+    public void givenEveryRecordFlushed_whenReopened_thenItStartsOverAfterThem() throws Exception {
+        try (GateJournal gateJournal = new GateJournal(directory, SEGMENT_BYTES, false)) {
+            gateJournal.append(JournalRecord.Type.ENTRY, newTicket(1));
+            gateJournal.markFlushed(gateJournal.takePending(10, 0).get(0).getSequence());
+        }
+
+        try (GateJournal gateJournal = new GateJournal(directory, SEGMENT_BYTES, false)) {
+            assertThat(gateJournal.getPendingCount()).isZero();
+            assertThat(gateJournal.append(JournalRecord.Type.ENTRY, newTicket(2)).getSequence())
+                .isEqualTo(2);
+        }
+    }
+
+    @Test
+    @Tag("GateJournal")
+    @DisplayName("Given records moved to the dead letters, when the journal is reopened, then they can be read back")
+    public void givenDeadLetters_whenReopened_thenTheyCanBeReadBack() throws Exception {
+        try (GateJournal gateJournal = new GateJournal(directory, SEGMENT_BYTES, false)) {
+            assertThat(gateJournal.getDeadLetters()).isEmpty();
+            gateJournal.deadLetter(gateJournal.append(JournalRecord.Type.ENTRY, newTicket(1)));
+            gateJournal.deadLetter(gateJournal.append(JournalRecord.Type.ENTRY, newTicket(2)));
+            gateJournal.markFlushed(2);
+        }
+
+        try (GateJournal gateJournal = new GateJournal(directory, SEGMENT_BYTES, false)) {
+            List<JournalRecord> deadLetters = gateJournal.getDeadLetters();
+
+            assertThat(gateJournal.getPendingCount()).isZero();
+            assertThat(deadLetters).extracting(JournalRecord::getSequence).containsExactly(1L, 2L);
+            assertThat(deadLetters.get(1).getTicket().getVehicleRegNumber()).isEqualTo("GATE2");
+        }
+    }
+}
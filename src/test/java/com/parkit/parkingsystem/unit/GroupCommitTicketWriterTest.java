@@ -0,0 +1,163 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDao;
+import com.parkit.parkingsystem.dao.TicketDao;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GroupCommitTicketWriter;
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class GroupCommitTicketWriterTest {
+
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private UnitOfWork unitOfWork;
+    @Mock
+    private TicketDao ticketDao;
+    @Mock
+    private ParkingSpotDao parkingSpotDao;
+
+    private GroupCommitTicketWriter ticketWriter;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        when(dataBaseConfig.beginUnitOfWork()).thenReturn(unitOfWork);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ticketWriter.close();
+    }
+
+    private static Ticket newTicket(int number) {
+        return new Ticket(0, new ParkingSpot(number, ParkingType.CAR, false), "GATE" + number, 0,
+            LocalDateTime.now(), null);
+    }
+
+    private static boolean[] allTrue(List<?> tickets) {
+        boolean[] written = new boolean[tickets.size()];
+        Arrays.fill(written, true);
+        return written;
+    }
+
+    @Test
+    @Tag("GroupCommit")
+    @DisplayName("Given writes queued within the window, when flushed, then they share one commit")
+    public void givenWritesWithinTheWindow_whenFlushed_thenTheyShareOneCommit() throws Exception {
+        when(ticketDao.saveTickets(anyList(), any(UnitOfWork.class)))
+            .thenAnswer(invocation -> allTrue(invocation.getArgument(0)));
+        ticketWriter = new GroupCommitTicketWriter(dataBaseConfig, ticketDao, parkingSpotDao, 10, 200);
+
+        List<CompletableFuture<Boolean>> writes = new ArrayList<>();
+        for (int number = 1; number <= 10; number++) {
+            writes.add(ticketWriter.saveTicket(newTicket(number)));
+        }
+
+        for (CompletableFuture<Boolean> write : writes) {
+            assertThat(write.get()).isTrue();
+        }
+        verify(ticketDao).saveTickets(argThat(tickets -> tickets.size() == 10), eq(unitOfWork));
+        verify(unitOfWork).commit();
+    }
+
+    @Test
+    @Tag("GroupCommit")
+    @DisplayName("Given inserts and updates in a group, when flushed, then inserts run before updates")
+    public void givenInsertsAndUpdates_whenFlushed_thenInsertsRunFirst() throws Exception {
+        when(ticketDao.saveTickets(anyList(), any(UnitOfWork.class)))
+            .thenAnswer(invocation -> allTrue(invocation.getArgument(0)));
+        when(ticketDao.updateTickets(anyList(), any(UnitOfWork.class))).thenReturn(new boolean[] {false});
+        ticketWriter = new GroupCommitTicketWriter(dataBaseConfig, ticketDao, parkingSpotDao, 2, 200);
+
+        CompletableFuture<Boolean> update = ticketWriter.updateTicket(newTicket(1));
+        CompletableFuture<Boolean> save = ticketWriter.saveTicket(newTicket(2));
+
+        assertThat(save.get()).isTrue();
+        // A ticket already closed is reported as not written
+        assertThat(update.get()).isFalse();
+        verify(ticketDao).saveTickets(anyList(), eq(unitOfWork));
+        verify(ticketDao).updateTickets(anyList(), eq(unitOfWork));
+        verify(unitOfWork).commit();
+    }
+
+    @Test
+    @Tag("GroupCommit")
+    @DisplayName("Given one rejected write among good ones, when flushed, then only the rejected write fails")
+    public void givenOneRejectedWrite_whenFlushed_thenOnlyItFails() throws Exception {
+        when(ticketDao.saveTickets(anyList(), any(UnitOfWork.class))).thenAnswer(invocation -> {
+            List<Ticket> tickets = invocation.getArgument(0);
+            if (tickets.stream().anyMatch(ticket -> ticket.getParkingSpot().getNumber() == 3)) {
+                throw new BatchUpdateException("Duplicate entry", "23000", new int[0]);
+            }
+            return allTrue(tickets);
+        });
+        ticketWriter = new GroupCommitTicketWriter(dataBaseConfig, ticketDao, parkingSpotDao, 4, 200);
+
+        List<CompletableFuture<Boolean>> writes = new ArrayList<>();
+        for (int number = 1; number <= 4; number++) {
+            writes.add(ticketWriter.saveTicket(newTicket(number)));
+        }
+
+        assertThat(writes.get(0).get()).isTrue();
+        assertThat(writes.get(1).get()).isTrue();
+        assertThat(writes.get(2).get()).isFalse();
+        assertThat(writes.get(3).get()).isTrue();
+        // The whole group, then its halves, then the quarters of the bad half
+        verify(ticketDao, times(5)).saveTickets(anyList(), eq(unitOfWork));
+        verify(unitOfWork, times(2)).commit();
+    }
+
+    @Test
+    @Tag("GroupCommit")
+    @DisplayName("Given a lost connection, when flushed, then every write of the group fails at once and nothing is committed")
+    public void givenALostConnection_whenFlushed_thenEveryWriteFailsAtOnce() throws Exception {
+        when(ticketDao.saveTickets(anyList(), any(UnitOfWork.class)))
+            .thenThrow(new SQLException("Communications link failure", "08S01"));
+        ticketWriter = new GroupCommitTicketWriter(dataBaseConfig, ticketDao, parkingSpotDao, 2, 200);
+
+        CompletableFuture<Boolean> first = ticketWriter.saveTicket(newTicket(1));
+        CompletableFuture<Boolean> second = ticketWriter.saveTicket(newTicket(2));
+
+        assertThat(first.get()).isFalse();
+        assertThat(second.get()).isFalse();
+        verify(unitOfWork, never()).commit();
+        // The group is not retried in halves against a database that is down
+        verify(ticketDao).saveTickets(anyList(), eq(unitOfWork));
+        verify(unitOfWork).close();
+    }
+
+    @Test
+    @Tag("GroupCommit")
+    @DisplayName("Given a closed writer, when saveTicket, then the write fails at once")
+    public void givenAClosedWriter_whenSaveTicket_thenWriteFails() throws Exception {
+        ticketWriter = new GroupCommitTicketWriter(dataBaseConfig, ticketDao, parkingSpotDao, 2, 200);
+        ticketWriter.close();
+        reset(dataBaseConfig);
+
+        assertThat(ticketWriter.saveTicket(newTicket(1)).get()).isFalse();
+        verifyZeroInteractions(ticketDao);
+    }
+}
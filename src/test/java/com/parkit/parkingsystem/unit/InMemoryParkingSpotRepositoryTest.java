@@ -0,0 +1,53 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.storage.InMemoryParkingSpotRepository;
+import java.util.Arrays;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryParkingSpotRepositoryTest {
+
+    private final InMemoryParkingSpotRepository parkingSpotRepository = new InMemoryParkingSpotRepository(
+        Arrays.asList(new ParkingSpot(4, ParkingType.BIKE, true), new ParkingSpot(2, ParkingType.CAR, true),
+            new ParkingSpot(1, ParkingType.CAR, false), new ParkingSpot(3, ParkingType.CAR, true)));
+
+    @Test
+    @Tag("GetNextAvailableSpot")
+    @DisplayName("Given a lot with a spot taken, when the next spot is asked, then the lowest free spot of the type is given")
+    public void givenASpotTaken_whenNextSpotAsked_thenTheLowestFreeSpotOfTheTypeIsGiven() {
+        assertThat(parkingSpotRepository.getNextAvailableSpot(ParkingType.CAR)).isEqualTo(2);
+        assertThat(parkingSpotRepository.getNextAvailableSpot(ParkingType.BIKE)).isEqualTo(4);
+        assertThat(parkingSpotRepository.getParkingSpots()).extracting(ParkingSpot::getNumber)
+            .containsExactly(1, 2, 3, 4);
+    }
+
+    @Test
+    @Tag("ClaimParking")
+    @DisplayName("Given a free spot, when claimed twice, then only the first claim succeeds until it is freed")
+    public void givenAFreeSpot_whenClaimedTwice_thenOnlyTheFirstClaimSucceeds() {
+        ParkingSpot parkingSpot = new ParkingSpot(2, ParkingType.CAR, true);
+
+        assertThat(parkingSpotRepository.claimParking(parkingSpot)).isTrue();
+        assertThat(parkingSpotRepository.claimParking(parkingSpot)).isFalse();
+        assertThat(parkingSpotRepository.getNextAvailableSpot(ParkingType.CAR)).isEqualTo(3);
+
+        assertThat(parkingSpotRepository.updateParking(parkingSpot)).isTrue();
+        assertThat(parkingSpotRepository.getNextAvailableSpot(ParkingType.CAR)).isEqualTo(2);
+    }
+
+    @Test
+    @Tag("ClaimParking")
+    @DisplayName("Given a spot missing from the lot or of another type, when claimed, then the claim fails")
+    public void givenAnUnknownSpot_whenClaimed_thenTheClaimFails() {
+        assertThat(parkingSpotRepository.claimParking(new ParkingSpot(5, ParkingType.BIKE, true))).isFalse();
+        assertThat(parkingSpotRepository.claimParking(new ParkingSpot(4, ParkingType.CAR, true))).isFalse();
+        assertThat(parkingSpotRepository.updateParking(new ParkingSpot(9, ParkingType.CAR, false))).isFalse();
+
+        parkingSpotRepository.claimParking(new ParkingSpot(4, ParkingType.BIKE, true));
+        assertThat(parkingSpotRepository.getNextAvailableSpot(ParkingType.BIKE)).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ParkingServiceFactory;
+import com.parkit.parkingsystem.storage.InMemoryStorageEngine;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryStorageEngineTest {
+
+    private static final List<ParkingSpot> LOT = Arrays.asList(new ParkingSpot(1, ParkingType.CAR, true),
+        new ParkingSpot(2, ParkingType.CAR, true), new ParkingSpot(3, ParkingType.BIKE, true));
+
+    private Path directory;
+
+    private Path snapshotFile;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("memory-storage");
+        snapshotFile = directory.resolve("parkit.snapshot");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    @Tag("MemoryStorage")
+    @DisplayName("Given a service on the memory engine, when a vehicle comes back, then it is parked as a recurring user")
+    public void givenAServiceOnTheMemoryEngine_whenAVehicleComesBack_thenItIsARecurringUser() throws Exception {
+        try (InMemoryStorageEngine storageEngine = new InMemoryStorageEngine(LOT, null, 0)) {
+            ParkingService parkingService = ParkingServiceFactory.create(null, storageEngine);
+
+            assertThat(parkingService.enter("AB125XY", ParkingType.CAR).getStatus())
+                .isEqualTo(ParkingResult.Status.PARKED);
+            assertThat(parkingService.exit("AB125XY").getStatus()).isEqualTo(ParkingResult.Status.EXITED);
+            ParkingResult result = parkingService.enter("AB125XY", ParkingType.CAR);
+
+            assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.PARKED);
+            assertThat(result.isRecurringUser()).isTrue();
+            assertThat(result.getParkingSpot().getNumber()).isEqualTo(1);
+            assertThat(storageEngine.getParkingSpotRepository().getNextAvailableSpot(ParkingType.CAR)).isEqualTo(2);
+            assertThat(storageEngine.snapshot()).isFalse();
+        }
+    }
+
+    @Test
+    @Tag("MemoryStorage")
+    @DisplayName("Given tickets saved to a snapshot, when a new engine is opened, then the tickets and taken spots are restored")
+    public void givenTicketsInASnapshot_whenANewEngineIsOpened_thenTicketsAndTakenSpotsAreRestored() throws Exception {
+        try (InMemoryStorageEngine storageEngine = new InMemoryStorageEngine(LOT, snapshotFile, 60)) {
+            ParkingService parkingService = ParkingServiceFactory.create(null, storageEngine);
+            parkingService.enter("AB125XY", ParkingType.CAR);
+            parkingService.exit("AB125XY");
+            parkingService.enter("CD456ZT", ParkingType.BIKE);
+        }
+        assertThat(snapshotFile).exists();
+
+        try (InMemoryStorageEngine storageEngine = new InMemoryStorageEngine(LOT, snapshotFile, 60)) {
+            storageEngine.open();
+
+            assertThat(storageEngine.getTicketRepository().isRecurringUser("AB125XY")).isTrue();
+            assertThat(storageEngine.getTicketRepository().getTicket("AB125XY").getOutTime()).isNotNull();
+            assertThat(storageEngine.getTicketRepository().getOpenTickets()).extracting(Ticket::getVehicleRegNumber)
+                .containsExactly("CD456ZT");
+            assertThat(storageEngine.getParkingSpotRepository().getNextAvailableSpot(ParkingType.CAR)).isEqualTo(1);
+            assertThat(storageEngine.getParkingSpotRepository().getNextAvailableSpot(ParkingType.BIKE))
+                .isEqualTo(-1);
+            Ticket ticket = new Ticket(0, new ParkingSpot(1, ParkingType.CAR, false), "EF789GH", 0,
+                LocalDateTime.now(), null);
+            storageEngine.getTicketRepository().saveTicket(ticket);
+            assertThat(ticket.getId()).isEqualTo(3);
+        }
+    }
+}
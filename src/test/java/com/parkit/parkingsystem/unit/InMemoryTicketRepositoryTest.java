@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.storage.InMemoryTicketRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryTicketRepositoryTest {
+
+    private static final LocalDateTime IN_TIME = LocalDateTime.of(2026, 10, 17, 8, 30);
+
+    private final InMemoryTicketRepository ticketRepository = new InMemoryTicketRepository();
+
+    private static Ticket newTicket(String vehicleRegNumber, LocalDateTime inTime) {
+        return new Ticket(0, new ParkingSpot(1, ParkingType.CAR, false), vehicleRegNumber, 0, inTime, null);
+    }
+
+    private static Ticket close(Ticket ticket, double price) {
+        ticket.setOutTime(ticket.getInTime().plusHours(2));
+        ticket.setPrice(price);
+        return ticket;
+    }
+
+    @Test
+    @Tag("SaveTicket")
+    @DisplayName("Given saved tickets, when looked up, then each has its own ID and the stored copy is not shared")
+    public void givenSavedTickets_whenLookedUp_thenEachHasItsOwnIdAndACopy() {
+        Ticket first = newTicket("AB125XY", IN_TIME);
+        Ticket second = newTicket("CD456ZT", IN_TIME);
+
+        assertThat(ticketRepository.saveTicket(first)).isTrue();
+        assertThat(ticketRepository.saveTicket(second)).isTrue();
+        first.setPrice(99);
+
+        assertThat(first.getId()).isEqualTo(1);
+        assertThat(second.getId()).isEqualTo(2);
+        Ticket found = ticketRepository.getTicket("AB125XY");
+        assertThat(found.getId()).isEqualTo(1);
+        assertThat(found.getPrice()).isZero();
+        assertThat(ticketRepository.getOpenTickets()).extracting(Ticket::getVehicleRegNumber)
+            .containsExactlyInAnyOrder("AB125XY", "CD456ZT");
+        assertThat(ticketRepository.getTicket("EF789GH")).isNull();
+    }
+
+    @Test
+    @Tag("UpdateTicket")
+    @DisplayName("Given an open ticket, when closed twice, then only the first close counts and makes a recurring user")
+    public void givenAnOpenTicket_whenClosedTwice_thenOnlyTheFirstCloseCounts() {
+        Ticket ticket = newTicket("AB125XY", IN_TIME);
+        ticketRepository.saveTicket(ticket);
+        assertThat(ticketRepository.isRecurringUser("AB125XY")).isFalse();
+
+        assertThat(ticketRepository.updateTicket(close(ticket, 3.0))).isTrue();
+        assertThat(ticketRepository.updateTicket(close(ticket, 4.5))).isFalse();
+
+        assertThat(ticketRepository.isRecurringUser("AB125XY")).isTrue();
+        assertThat(ticketRepository.getTicket("AB125XY").getPrice()).isEqualTo(3.0);
+        assertThat(ticketRepository.getOpenTickets()).isEmpty();
+        Ticket unknown = close(newTicket("CD456ZT", IN_TIME), 1.5);
+        unknown.setId(42);
+        assertThat(ticketRepository.updateTicket(unknown)).isFalse();
+    }
+
+    @Test
+    @Tag("GetTicket")
+    @DisplayName("Given a vehicle back in the parking, when its ticket is looked up, then the open ticket is given")
+    public void givenAVehicleBackInTheParking_whenLookedUp_thenTheOpenTicketIsGiven() {
+        Ticket firstStay = newTicket("AB125XY", IN_TIME);
+        ticketRepository.saveTicket(firstStay);
+        ticketRepository.updateTicket(close(firstStay, 3.0));
+        Ticket secondStay = newTicket("AB125XY", IN_TIME.plusDays(1));
+        ticketRepository.saveTicket(secondStay);
+
+        Ticket found = ticketRepository.getTicket("AB125XY");
+
+        assertThat(found.getId()).isEqualTo(secondStay.getId());
+        assertThat(found.getOutTime()).isNull();
+        List<Ticket> closedTickets = new ArrayList<>();
+        assertThat(ticketRepository.streamClosedTickets(10, closedTickets::add)).isTrue();
+        assertThat(closedTickets).extracting(Ticket::getId).containsExactly(firstStay.getId());
+    }
+}
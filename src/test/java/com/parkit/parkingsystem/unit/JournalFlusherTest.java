@@ -0,0 +1,185 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JournalDao;
+import com.parkit.parkingsystem.dao.ParkingSpotDao;
+import com.parkit.parkingsystem.dao.TicketDao;
+import com.parkit.parkingsystem.journal.GateJournal;
+import com.parkit.parkingsystem.journal.JournalFlusher;
+import com.parkit.parkingsystem.journal.JournalRecord;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class JournalFlusherTest {
+
+    private static final String REG_NUMBER = "AB125XY";
+
+    @Mock
+    private GateJournal gateJournal;
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private UnitOfWork unitOfWork;
+    @Mock
+    private ParkingSpotDao parkingSpotDao;
+    @Mock
+    private TicketDao ticketDao;
+    @Mock
+    private JournalDao journalDao;
+
+    private JournalFlusher newFlusher() {
+        return new JournalFlusher(gateJournal, dataBaseConfig, parkingSpotDao, ticketDao, journalDao, 10, 1);
+    }
+
+    private static Ticket newTicket(LocalDateTime outTime) {
+        return new Ticket(0, new ParkingSpot(1, ParkingType.CAR, false), REG_NUMBER, outTime != null ? 1.5 : 0,
+            LocalDateTime.of(2026, 10, 17, 8, 0), outTime);
+    }
+
+    @Test
+    @Tag("JournalFlusher")
+    @DisplayName("Given records left by a crash, when recover, then only the unapplied ones are applied with their sequence")
+    public void givenRecordsLeftByACrash_whenRecover_thenOnlyUnappliedOnesAreApplied() throws Exception {
+        JournalRecord entry = new JournalRecord(4, JournalRecord.Type.ENTRY, newTicket(null));
+        JournalRecord exit = new JournalRecord(5, JournalRecord.Type.EXIT,
+            newTicket(LocalDateTime.of(2026, 10, 17, 9, 0)));
+        when(journalDao.getAppliedSequence()).thenReturn(4L);
+        when(gateJournal.getPendingCount()).thenReturn(2, 0);
+        when(gateJournal.takePending(anyInt(), anyLong())).thenReturn(Arrays.asList(entry, exit));
+        when(gateJournal.getFlushedSequence()).thenReturn(5L);
+        when(dataBaseConfig.beginUnitOfWork()).thenReturn(unitOfWork);
+        when(ticketDao.getTicket(REG_NUMBER, unitOfWork)).thenReturn(newTicket(null));
+        when(ticketDao.updateTicket(any(Ticket.class), eq(unitOfWork))).thenReturn(true);
+        when(parkingSpotDao.updateParking(any(ParkingSpot.class), eq(unitOfWork))).thenReturn(true);
+        when(journalDao.updateAppliedSequence(5, unitOfWork)).thenReturn(true);
+
+        assertThat(newFlusher().recover()).isTrue();
+
+        verify(ticketDao, never()).saveTicket(any(Ticket.class), any());
+        verify(ticketDao).updateTicket(argThat(ticket -> ticket.getPrice() == 1.5
+            && ticket.getOutTime() != null), eq(unitOfWork));
+        verify(parkingSpotDao).updateParking(new ParkingSpot(1, ParkingType.CAR, true), unitOfWork);
+        verify(unitOfWork).commit();
+        verify(gateJournal).markFlushed(5);
+    }
+
+    @Test
+    @Tag("JournalFlusher")
+    @DisplayName("Given a database refusing a record then unreachable, when recover, then nothing is committed nor marked flushed")
+    public void givenAnUnreachableDatabase_whenRecover_thenNothingIsMarkedFlushed() throws Exception {
+        JournalRecord entry = new JournalRecord(1, JournalRecord.Type.ENTRY, newTicket(null));
+        when(journalDao.getAppliedSequence()).thenReturn(0L, -1L);
+        when(gateJournal.getPendingCount()).thenReturn(1);
+        when(gateJournal.takePending(anyInt(), anyLong())).thenReturn(Collections.singletonList(entry));
+        when(dataBaseConfig.beginUnitOfWork()).thenReturn(unitOfWork);
+        when(parkingSpotDao.updateParking(any(ParkingSpot.class), eq(unitOfWork))).thenReturn(true);
+        when(ticketDao.saveTicket(any(Ticket.class), eq(unitOfWork))).thenReturn(false);
+
+        assertThat(newFlusher().recover()).isFalse();
+
+        verify(unitOfWork, never()).commit();
+        verify(journalDao, never()).updateAppliedSequence(anyLong(), any());
+        verify(gateJournal, never()).markFlushed(anyLong());
+        verify(gateJournal, never()).deadLetter(any(JournalRecord.class));
+    }
+
+    @Test
+    @Tag("JournalFlusher")
+    @DisplayName("Given a database rejecting a record for good, when recover, then it is moved to the dead letters and the next records are applied")
+    public void givenARecordRejectedForGood_whenRecover_thenItIsDeadLettered() throws Exception {
+        Ticket rejected = newTicket(null);
+        rejected.setVehicleRegNumber("REJECTED");
+        JournalRecord poison = new JournalRecord(1, JournalRecord.Type.ENTRY, rejected);
+        JournalRecord entry = new JournalRecord(2, JournalRecord.Type.ENTRY, newTicket(null));
+        when(journalDao.getAppliedSequence()).thenReturn(0L);
+        when(gateJournal.getPendingCount()).thenReturn(2, 0);
+        when(gateJournal.takePending(anyInt(), anyLong())).thenReturn(Arrays.asList(poison, entry));
+        when(gateJournal.getFlushedSequence()).thenReturn(2L);
+        when(dataBaseConfig.beginUnitOfWork()).thenReturn(unitOfWork);
+        when(parkingSpotDao.updateParking(any(ParkingSpot.class), eq(unitOfWork))).thenReturn(true);
+        when(ticketDao.saveTicket(any(Ticket.class), eq(unitOfWork)))
+            .thenAnswer(invocation -> REG_NUMBER.equals(invocation.<Ticket>getArgument(0).getVehicleRegNumber()));
+        when(journalDao.updateAppliedSequence(anyLong(), eq(unitOfWork))).thenReturn(true);
+
+        assertThat(newFlusher().recover()).isTrue();
+
+        verify(gateJournal).deadLetter(argThat(record -> record.getSequence() == 1));
+        // The batch, then the rejected record alone, three times over
+        verify(ticketDao, times(6)).saveTicket(argThat(ticket -> "REJECTED".equals(ticket.getVehicleRegNumber())),
+            eq(unitOfWork));
+        verify(journalDao).updateAppliedSequence(1, unitOfWork);
+        verify(journalDao).updateAppliedSequence(2, unitOfWork);
+        verify(gateJournal).markFlushed(1);
+        verify(gateJournal).markFlushed(2);
+    }
+
+    @Test
+    @Tag("JournalFlusher")
+    @DisplayName("Given a database ahead of a new journal, when recover, then the journal numbers after it")
+    public void givenADatabaseAheadOfTheJournal_whenRecover_thenJournalNumbersAfterIt() throws Exception {
+        when(journalDao.getAppliedSequence()).thenReturn(42L);
+        when(gateJournal.getPendingCount()).thenReturn(0);
+        when(gateJournal.getFlushedSequence()).thenReturn(0L);
+
+        assertThat(newFlusher().recover()).isTrue();
+
+        verify(gateJournal).markFlushed(42);
+        verifyZeroInteractions(dataBaseConfig);
+    }
+
+    @Test
+    @Tag("JournalFlusher")
+    @DisplayName("Given an unreadable checkpoint, when recover, then the flusher cannot be started")
+    public void givenAnUnreadableCheckpoint_whenRecover_thenFlusherCannotBeStarted() throws Exception {
+        when(journalDao.getAppliedSequence()).thenReturn(-1L);
+        JournalFlusher journalFlusher = newFlusher();
+
+        assertThat(journalFlusher.recover()).isFalse();
+        assertThatThrownBy(journalFlusher::start).isInstanceOf(IllegalStateException.class);
+        verifyZeroInteractions(gateJournal);
+    }
+
+    @Test
+    @Tag("JournalFlusher")
+    @DisplayName("Given an exit journaled with a pending fare, when recover, then the ticket is closed with the fare of the pricer")
+    public void givenAPendingFare_whenRecover_thenTicketIsClosedWithThePricedFare() throws Exception {
+        JournalRecord exit = new JournalRecord(1, JournalRecord.Type.EXIT, new Ticket(0,
+            new ParkingSpot(1, ParkingType.CAR, false), REG_NUMBER, JournalRecord.PRICE_PENDING,
+            LocalDateTime.of(2026, 10, 17, 8, 0), LocalDateTime.of(2026, 10, 17, 9, 0)));
+        when(journalDao.getAppliedSequence()).thenReturn(0L);
+        when(gateJournal.getPendingCount()).thenReturn(1, 0);
+        when(gateJournal.takePending(anyInt(), anyLong())).thenReturn(Collections.singletonList(exit));
+        when(gateJournal.getFlushedSequence()).thenReturn(1L);
+        when(dataBaseConfig.beginUnitOfWork()).thenReturn(unitOfWork);
+        when(ticketDao.getTicket(REG_NUMBER, unitOfWork)).thenReturn(newTicket(null));
+        when(ticketDao.updateTicket(any(Ticket.class), eq(unitOfWork))).thenReturn(true);
+        when(parkingSpotDao.updateParking(any(ParkingSpot.class), eq(unitOfWork))).thenReturn(true);
+        when(journalDao.updateAppliedSequence(1, unitOfWork)).thenReturn(true);
+        JournalFlusher journalFlusher = newFlusher();
+        journalFlusher.setExitPricer((ticket, work) -> ticket.getOutTime() != null && work == unitOfWork ? 1.43 : 0);
+
+        assertThat(journalFlusher.recover()).isTrue();
+
+        verify(ticketDao).updateTicket(argThat(ticket -> ticket.getPrice() == 1.43), eq(unitOfWork));
+        verify(gateJournal).markFlushed(1);
+    }
+}
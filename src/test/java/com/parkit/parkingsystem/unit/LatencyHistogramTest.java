@@ -0,0 +1,77 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class LatencyHistogramTest {
+
+    @Test
+    @Tag("Histogram")
+    @DisplayName("Given latencies from 1 to 1000 ms, when reading percentiles, then each is within 12.5%")
+    public void givenUniformLatencies_whenReadingPercentiles_thenEachIsWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram("test_seconds", "Test latencies");
+        for (int millis = 1000; millis >= 1; millis--) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(1000);
+        assertThat(histogram.getMeanMillis()).isCloseTo(500.5, within(0.001));
+        assertThat(histogram.getP50Millis()).isBetween(500.0, 500 * 1.125);
+        assertThat(histogram.getP95Millis()).isBetween(950.0, 950 * 1.125);
+        assertThat(histogram.getP99Millis()).isBetween(990.0, 1000.0);
+        assertThat(histogram.getMaxMillis()).isEqualTo(1000.0);
+    }
+
+    @Test
+    @Tag("Histogram")
+    @DisplayName("Given small and huge latencies, when reading percentiles, then extremes are kept")
+    public void givenExtremeLatencies_whenReadingPercentiles_thenExtremesAreKept() {
+        LatencyHistogram histogram = new LatencyHistogram("test_seconds", "Test latencies");
+        histogram.record(-5);
+        histogram.record(3);
+        histogram.record(Long.MAX_VALUE);
+
+        assertThat(histogram.getPercentileNanos(0.3)).isZero();
+        assertThat(histogram.getPercentileNanos(0.5)).isEqualTo(3);
+        assertThat(histogram.getPercentileNanos(1)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    @Tag("Histogram")
+    @DisplayName("Given no latency, when reading the histogram, then every statistic is zero")
+    public void givenNoLatency_whenReadingHistogram_thenEveryStatisticIsZero() {
+        LatencyHistogram histogram = new LatencyHistogram("test_seconds", "Test latencies");
+
+        assertThat(histogram.getCount()).isZero();
+        assertThat(histogram.getMeanMillis()).isZero();
+        assertThat(histogram.getP99Millis()).isZero();
+        assertThat(histogram.getMaxMillis()).isZero();
+    }
+
+    @Test
+    @Tag("Concurrency")
+    @DisplayName("Given many threads recording at once, when they are done, then no latency is lost")
+    public void givenManyThreadsRecording_whenDone_thenNoLatencyIsLost() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram("test_seconds", "Test latencies");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    histogram.record(i);
+                }
+            });
+        }
+        executor.shutdown();
+
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(histogram.getCount()).isEqualTo(80000);
+        assertThat(histogram.getPercentileNanos(1)).isEqualTo(9999);
+    }
+}
@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.TimedOperation;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class MetricsRegistryTest {
+
+    private MetricsRegistry metricsRegistry;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        metricsRegistry = new MetricsRegistry();
+    }
+
+    @Test
+    @Tag("Metrics")
+    @DisplayName("Given a counter, when requested again with the same labels, then the same counter is returned")
+    public void givenACounter_whenRequestedAgain_thenSameCounterIsReturned() {
+        Counter counter = metricsRegistry.counter("test_total", "Tests", "kind", "a");
+
+        assertThat(metricsRegistry.counter("test_total", "Tests", "kind", "a")).isSameAs(counter);
+        assertThat(metricsRegistry.counter("test_total", "Tests", "kind", "b")).isNotSameAs(counter);
+        assertThat(metricsRegistry.getMetric("test_total", "kind", "a")).isSameAs(counter);
+    }
+
+    @Test
+    @Tag("Metrics")
+    @DisplayName("Given metrics of several families, when scraped, then each family is described once")
+    public void givenSeveralFamilies_whenScraped_thenPrometheusTextIsWritten() {
+        TimedOperation saveTicket = metricsRegistry.timedOperation("test_dao", "database calls",
+            "dao", "TicketDao", "operation", "saveTicket");
+        saveTicket.stop(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(2));
+        saveTicket.failed();
+        metricsRegistry.timedOperation("test_dao", "database calls", "dao", "TicketDao", "operation", "getTicket");
+        metricsRegistry.gauge("test_connections", "Connections", () -> 3, "state", "idle");
+
+        String text = metricsRegistry.scrape();
+
+        assertThat(text.split("# TYPE test_dao_seconds summary\n", -1)).hasSize(2);
+        assertThat(text).contains(
+            "# HELP test_dao_errors_total Number of failed database calls\n",
+            "# TYPE test_dao_errors_total counter\n",
+            "test_dao_errors_total{dao=\"TicketDao\",operation=\"saveTicket\"} 1\n",
+            "test_dao_errors_total{dao=\"TicketDao\",operation=\"getTicket\"} 0\n",
+            "test_dao_seconds{dao=\"TicketDao\",operation=\"saveTicket\",quantile=\"0.99\"} ",
+            "test_dao_seconds_count{dao=\"TicketDao\",operation=\"saveTicket\"} 1\n",
+            "# TYPE test_connections gauge\n",
+            "test_connections{state=\"idle\"} 3\n");
+    }
+
+    @Test
+    @Tag("Metrics")
+    @DisplayName("Given a label value with quotes, when scraped, then the value is escaped")
+    public void givenALabelValueWithQuotes_whenScraped_thenValueIsEscaped() {
+        metricsRegistry.counter("test_total", "Tests", "plate", "A\"B\\C").increment();
+
+        assertThat(metricsRegistry.scrape()).contains("test_total{plate=\"A\\\"B\\\\C\"} 1\n");
+    }
+
+    @Test
+    @Tag("Exceptions")
+    @DisplayName("Given a name used by a counter, when a gauge of that name is registered, then an IllegalArgumentException is thrown")
+    public void givenANameUsedByACounter_whenGaugeRegistered_thenIllegalArgumentExceptionThrown() {
+        metricsRegistry.counter("test_total", "Tests");
+
+        assertThatIllegalArgumentException().isThrownBy(() -> metricsRegistry.gauge("test_total", "Tests", () -> 1));
+        assertThatIllegalArgumentException().isThrownBy(() -> metricsRegistry.counter("test_total", "Tests", "odd"));
+    }
+
+    @Test
+    @Tag("Jmx")
+    @DisplayName("Given a registry registered with an MBean server, when metrics are created, then they are readable over JMX")
+    public void givenARegisteredRegistry_whenMetricsAreCreated_thenTheyAreReadableOverJmx() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        metricsRegistry.counter("test_total", "Tests", "kind", "before").add(4);
+        metricsRegistry.registerMBeans(server);
+        metricsRegistry.histogram("test_seconds", "Test latencies", "kind", "after")
+            .record(TimeUnit.MILLISECONDS.toNanos(3));
+        metricsRegistry.gauge("test_level", "Level", () -> 1.5);
+
+        assertThat(server.getAttribute(new ObjectName("com.parkit.parkingsystem:type=test_total,kind=before"),
+            "Count")).isEqualTo(4L);
+        assertThat(server.getAttribute(new ObjectName("com.parkit.parkingsystem:type=test_seconds,kind=after"),
+            "Count")).isEqualTo(1L);
+        assertThat((Double) server.getAttribute(new ObjectName("com.parkit.parkingsystem:type=test_seconds,kind=after"),
+            "MaxMillis")).isEqualTo(3.0);
+        assertThat(server.getAttribute(new ObjectName("com.parkit.parkingsystem:type=test_level"), "Value"))
+            .isEqualTo(1.5);
+        assertThat((String) server.invoke(new ObjectName("com.parkit.parkingsystem:type=MetricsRegistry"), "scrape",
+            null, null)).contains("test_level 1.5\n");
+    }
+}
@@ -0,0 +1,97 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.OccupancyCounters;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OccupancyCountersTest {
+
+    private OccupancyCounters occupancyCounters;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        occupancyCounters = new OccupancyCounters(Arrays.asList(
+            new ParkingSpot(1, ParkingType.CAR, false),
+            new ParkingSpot(2, ParkingType.CAR, true),
+            new ParkingSpot(3, ParkingType.CAR, true),
+            new ParkingSpot(4, ParkingType.BIKE, true)));
+    }
+
+    @Test
+    @Tag("Occupancy")
+    @DisplayName("Given the spots of the lot, when counters are built, then capacity and occupancy are counted per type")
+    public void givenTheSpotsOfTheLot_whenCountersAreBuilt_thenEachTypeIsCounted() {
+        assertThat(occupancyCounters.getCapacity(ParkingType.CAR)).isEqualTo(3);
+        assertThat(occupancyCounters.getOccupied(ParkingType.CAR)).isEqualTo(1);
+        assertThat(occupancyCounters.getAvailable(ParkingType.CAR)).isEqualTo(2);
+        assertThat(occupancyCounters.getCapacity(ParkingType.BIKE)).isEqualTo(1);
+        assertThat(occupancyCounters.getAvailable(ParkingType.BIKE)).isEqualTo(1);
+    }
+
+    @Test
+    @Tag("Occupancy")
+    @DisplayName("Given spots taken and freed, when reading the counters, then only the type updated changes")
+    public void givenSpotsTakenAndFreed_whenReadingCounters_thenOnlyTheTypeUpdatedChanges() {
+        occupancyCounters.occupy(ParkingType.CAR);
+        occupancyCounters.occupy(ParkingType.CAR);
+        occupancyCounters.release(ParkingType.CAR);
+
+        assertThat(occupancyCounters.getOccupied(ParkingType.CAR)).isEqualTo(2);
+        assertThat(occupancyCounters.getAvailable(ParkingType.CAR)).isEqualTo(1);
+        assertThat(occupancyCounters.getOccupied(ParkingType.BIKE)).isZero();
+    }
+
+    @Test
+    @Tag("Occupancy")
+    @DisplayName("Given a counter out of range, when reading it, then it is bounded by the capacity")
+    public void givenACounterOutOfRange_whenReadingIt_thenItIsBounded() {
+        occupancyCounters.release(ParkingType.BIKE);
+        occupancyCounters.occupy(ParkingType.CAR);
+        occupancyCounters.occupy(ParkingType.CAR);
+        occupancyCounters.occupy(ParkingType.CAR);
+
+        assertThat(occupancyCounters.getOccupied(ParkingType.BIKE)).isZero();
+        assertThat(occupancyCounters.getAvailable(ParkingType.BIKE)).isEqualTo(1);
+        assertThat(occupancyCounters.getOccupied(ParkingType.CAR)).isEqualTo(3);
+        assertThat(occupancyCounters.getAvailable(ParkingType.CAR)).isZero();
+    }
+
+    @Test
+    @Tag("Concurrency")
+    @DisplayName("Given many gates updating at once, when they are done, then no update is lost")
+    public void givenManyGatesUpdatingAtOnce_whenDone_thenNoUpdateIsLost() throws Exception {
+        int gates = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(gates);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int gate = 0; gate < gates; gate++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int cycle = 0; cycle < 10000; cycle++) {
+                    occupancyCounters.occupy(ParkingType.CAR);
+                    occupancyCounters.release(ParkingType.CAR);
+                }
+                occupancyCounters.release(ParkingType.CAR);
+                occupancyCounters.occupy(ParkingType.CAR);
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(occupancyCounters.getOccupied(ParkingType.CAR)).isEqualTo(1);
+    }
+}
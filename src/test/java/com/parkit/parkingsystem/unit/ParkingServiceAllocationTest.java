@@ -0,0 +1,170 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDao;
+import com.parkit.parkingsystem.dao.TicketDao;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.model.ParkingResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.OccupancyCounters;
+import com.parkit.parkingsystem.service.OpenTicketIndex;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ParkingSpotAllocator;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class ParkingServiceAllocationTest {
+
+    private static final int WARM_UP_CYCLES = 20_000;
+
+    private static final int MEASURED_CYCLES = 10_000;
+
+    // An entry and an exit build a spot, a ticket, two times, two results and the console
+    // lines: a few hundred bytes. Building a formatter per call costs kilobytes.
+    private static final long MAX_BYTES_PER_CYCLE = 2_048;
+
+    // DAOs answering from memory: a mock would record each call and count in the measure
+    private static class InMemoryTicketDao extends TicketDao {
+
+        private Ticket ticket;
+
+        @Override
+        public boolean saveTicket(Ticket ticket, UnitOfWork unitOfWork) {
+            this.ticket = ticket;
+            return true;
+        }
+
+        @Override
+        public Ticket getTicket(String vehicleRegNumber, UnitOfWork unitOfWork) {
+            return ticket;
+        }
+
+        @Override
+        public boolean updateTicket(Ticket ticket, UnitOfWork unitOfWork) {
+            return true;
+        }
+
+        @Override
+        public Boolean isRecurringUser(String vehicleRegNumber, UnitOfWork unitOfWork) {
+            return true;
+        }
+    }
+
+    private static class InMemoryParkingSpotDao extends ParkingSpotDao {
+
+        @Override
+        public Boolean claimParking(ParkingSpot parkingSpot, UnitOfWork unitOfWork) {
+            return true;
+        }
+
+        @Override
+        public boolean updateParking(ParkingSpot parkingSpot, UnitOfWork unitOfWork) {
+            return true;
+        }
+    }
+
+    private static class ConstantInputReaderUtil extends InputReaderUtil {
+
+        private ConstantInputReaderUtil() {
+            super(null);
+        }
+
+        @Override
+        public int readSelection() {
+            return 1;
+        }
+
+        @Override
+        public String readVehicleRegistrationNumber() {
+            return "ABCDEF";
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadMXBean() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        return allocationMXBean.isThreadAllocatedMemorySupported()
+            && allocationMXBean.isThreadAllocatedMemoryEnabled() ? allocationMXBean : null;
+    }
+
+    private static void parkAndLeave(ParkingService parkingService, int cycles) {
+        for (int i = 0; i < cycles; i++) {
+            parkingService.processIncomingVehicle();
+            parkingService.processExitingVehicle();
+        }
+    }
+
+    @Test
+    @Tag("Allocation")
+    @DisplayName("Given a warmed up console flow, when vehicles enter and exit, then each cycle allocates a bounded amount")
+    public void givenAWarmedUpConsoleFlow_whenVehiclesEnterAndExit_thenEachCycleAllocatesABoundedAmount() {
+        com.sun.management.ThreadMXBean threadMXBean = getThreadMXBean();
+        assumeTrue(threadMXBean != null, "Thread allocation counting is not supported");
+        List<ParkingSpot> parkingSpots = Arrays.asList(new ParkingSpot(1, ParkingType.CAR, true),
+            new ParkingSpot(2, ParkingType.BIKE, true));
+        ParkingService parkingService = new ParkingService(new ConstantInputReaderUtil(),
+            new InMemoryParkingSpotDao(), new InMemoryTicketDao());
+        parkingService.setParkingSpotAllocator(new ParkingSpotAllocator(parkingSpots));
+        parkingService.setOpenTicketIndex(new OpenTicketIndex());
+        parkingService.setOccupancyCounters(new OccupancyCounters(parkingSpots));
+        // Thirty thousand console prompts are not worth printing
+        Level level = LogManager.getLogger("ParkingService").getLevel();
+        Configurator.setLevel("ParkingService", Level.WARN);
+        long allocatedBytes;
+        try {
+            parkAndLeave(parkingService, WARM_UP_CYCLES);
+
+            long threadId = Thread.currentThread().getId();
+            long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+            parkAndLeave(parkingService, MEASURED_CYCLES);
+            allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        } finally {
+            Configurator.setLevel("ParkingService", level);
+        }
+
+        assertThat(allocatedBytes / MEASURED_CYCLES).isLessThan(MAX_BYTES_PER_CYCLE);
+    }
+
+    @Test
+    @Tag("Allocation")
+    @DisplayName("Given a spot claim failing after a spot lost to another gate, when a vehicle enters, then the entry fails and only the lost spot stays taken")
+    public void givenAFailingClaim_whenAVehicleEnters_thenTheEntryFailsWithoutLeakingSpots() {
+        List<ParkingSpot> parkingSpots = Arrays.asList(new ParkingSpot(1, ParkingType.CAR, true),
+            new ParkingSpot(2, ParkingType.CAR, true), new ParkingSpot(3, ParkingType.CAR, true));
+        List<Integer> claimedSpots = new ArrayList<>();
+        ParkingSpotDao failingParkingSpotDao = new InMemoryParkingSpotDao() {
+            @Override
+            public Boolean claimParking(ParkingSpot parkingSpot, UnitOfWork unitOfWork) {
+                claimedSpots.add(parkingSpot.getNumber());
+                // Spot 1 was taken by another gate, then the database fails
+                return claimedSpots.size() == 1 ? false : null;
+            }
+        };
+        ParkingSpotAllocator parkingSpotAllocator = new ParkingSpotAllocator(parkingSpots);
+        ParkingService parkingService = new ParkingService(new ConstantInputReaderUtil(),
+            failingParkingSpotDao, new InMemoryTicketDao());
+        parkingService.setParkingSpotAllocator(parkingSpotAllocator);
+
+        ParkingResult result = parkingService.enter("AB125XY", ParkingType.CAR);
+
+        assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.FAILED);
+        assertThat(claimedSpots).containsExactly(1, 2);
+        assertThat(parkingSpotAllocator.getAvailableCount(ParkingType.CAR)).isEqualTo(2);
+        assertThat(parkingSpotAllocator.allocate(ParkingType.CAR)).isEqualTo(2);
+    }
+}
@@ -1,24 +1,56 @@
 package com.parkit.parkingsystem.unit;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.Fare;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDao;
 import com.parkit.parkingsystem.dao.TicketDao;
+import com.parkit.parkingsystem.journal.GateJournal;
+import com.parkit.parkingsystem.journal.JournalRecord;
+import com.parkit.parkingsystem.model.ParkingResult;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GroupCommitTicketWriter;
+import com.parkit.parkingsystem.service.OccupancyCounters;
+import com.parkit.parkingsystem.service.OpenTicketIndex;
 import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ParkingSpotAllocator;
+import com.parkit.parkingsystem.service.RecurringUserCache;
+import com.parkit.parkingsystem.service.TariffSchedule;
 import com.parkit.parkingsystem.util.InputReaderUtil;
+import java.io.IOException;
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +64,14 @@ public class ParkingServiceTest {
     private ParkingSpotDao parkingSpotDao;
     @Mock
     private TicketDao ticketDao;
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private UnitOfWork unitOfWork;
+    @Mock
+    private GroupCommitTicketWriter ticketWriter;
+    @Mock
+    private GateJournal gateJournal;
 
     private ParkingService parkingService;
 
@@ -42,10 +82,10 @@ public class ParkingServiceTest {
 
     private void setupParkingServiceMocks(ParkingSpot parkingSpot, Ticket ticket) {
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn(REG_NUMBER);
-        when(ticketDao.getTicket(REG_NUMBER)).thenReturn(ticket);
-        when(ticketDao.isRecurringUser(REG_NUMBER)).thenReturn(false);
-        when(ticketDao.updateTicket(ticket)).thenReturn(true);
-        when(parkingSpotDao.updateParking(parkingSpot)).thenReturn(true);
+        when(ticketDao.getTicket(REG_NUMBER, null)).thenReturn(ticket);
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(false);
+        when(ticketDao.updateTicket(ticket, null)).thenReturn(true);
+        when(parkingSpotDao.updateParking(parkingSpot, null)).thenReturn(true);
     }
 
     @Test
@@ -60,10 +100,10 @@ public class ParkingServiceTest {
 
         InOrder inOrder = inOrder(inputReaderUtil, parkingSpotDao, ticketDao);
         inOrder.verify(inputReaderUtil).readVehicleRegistrationNumber();
-        inOrder.verify(ticketDao).getTicket(REG_NUMBER);
-        inOrder.verify(ticketDao).isRecurringUser(REG_NUMBER);
-        inOrder.verify(ticketDao).updateTicket(any(Ticket.class));
-        inOrder.verify(parkingSpotDao).updateParking(any(ParkingSpot.class));
+        inOrder.verify(ticketDao).getTicket(REG_NUMBER, null);
+        inOrder.verify(ticketDao).isRecurringUser(REG_NUMBER, null);
+        inOrder.verify(ticketDao).updateTicket(any(Ticket.class), isNull());
+        inOrder.verify(parkingSpotDao).updateParking(any(ParkingSpot.class), isNull());
     }
 
     @Test
@@ -87,12 +127,12 @@ public class ParkingServiceTest {
         Ticket ticket = new Ticket(1, parkingSpot, REG_NUMBER, 0, LocalDateTime.now().minusMinutes(60), null);
 
         setupParkingServiceMocks(parkingSpot, ticket);
-        when(ticketDao.isRecurringUser(REG_NUMBER)).thenReturn(true);
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(true);
 
         parkingService.processExitingVehicle();
 
         assertThat(ticket.getOutTime()).isNotNull();
-        assertThat(ticket.getPrice()).isEqualTo(Fare.CAR_RATE_PER_HOUR - (Fare.DISCOUNT * Fare.CAR_RATE_PER_HOUR));
+        assertThat(ticket.getPrice()).isEqualTo(1.43);
     }
 
     @Test
@@ -115,18 +155,20 @@ public class ParkingServiceTest {
     public void givenIncomingVehicle_whenProcessIncomingVehicle_thenVehicleProcessDoneInOrder() {
         when(inputReaderUtil.readSelection()).thenReturn(1);
         when(parkingSpotDao.getNextAvailableSpot(ParkingType.CAR)).thenReturn(1);
+        when(parkingSpotDao.claimParking(any(ParkingSpot.class), isNull())).thenReturn(true);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn(REG_NUMBER);
-        when(ticketDao.isRecurringUser(REG_NUMBER)).thenReturn(false);
+        when(ticketDao.saveTicket(any(Ticket.class), isNull())).thenReturn(true);
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(false);
 
         parkingService.processIncomingVehicle();
 
         InOrder inOrder = inOrder(inputReaderUtil, parkingSpotDao, ticketDao);
         inOrder.verify(inputReaderUtil).readSelection();
         inOrder.verify(parkingSpotDao).getNextAvailableSpot(ParkingType.CAR);
-        inOrder.verify(parkingSpotDao).updateParking(any(ParkingSpot.class));
         inOrder.verify(inputReaderUtil).readVehicleRegistrationNumber();
-        inOrder.verify(ticketDao).saveTicket(any(Ticket.class));
-        inOrder.verify(ticketDao).isRecurringUser(REG_NUMBER);
+        inOrder.verify(parkingSpotDao).claimParking(any(ParkingSpot.class), isNull());
+        inOrder.verify(ticketDao).saveTicket(any(Ticket.class), isNull());
+        inOrder.verify(ticketDao).isRecurringUser(REG_NUMBER, null);
     }
 
     @Test
@@ -156,4 +198,783 @@ public class ParkingServiceTest {
         verify(parkingSpotDao).getNextAvailableSpot(ParkingType.BIKE);
         assertThat(parkingSpot).isEqualTo(expectedParkingSpot);
     }
+
+    @Test
+    @Tag("GetNextParkingNumberIfAvailable")
+    @DisplayName("Given an in-memory allocator, when getNextParkingNumberIfAvailable, then spot is allocated without querying the database")
+    public void givenAParkingSpotAllocator_whenGetNextParkingNumberIfAvailable_thenDatabaseIsNotQueried() {
+        parkingService.setParkingSpotAllocator(new ParkingSpotAllocator(
+            Collections.singletonList(new ParkingSpot(2, ParkingType.CAR, true))));
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+
+        ParkingSpot parkingSpot = parkingService.getNextParkingNumberIfAvailable();
+
+        verify(parkingSpotDao, never()).getNextAvailableSpot(any(ParkingType.class));
+        assertThat(parkingSpot).isEqualTo(new ParkingSpot(2, ParkingType.CAR, true));
+    }
+
+    @Test
+    @Tag("IncomingVehicle")
+    @DisplayName("Given a spot claimed by another gate first, when processIncomingVehicle, then the next available spot is claimed")
+    public void givenASpotClaimedByAnotherGate_whenProcessIncomingVehicle_thenNextSpotIsClaimed() {
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(parkingSpotDao.getNextAvailableSpot(ParkingType.CAR)).thenReturn(1);
+        doReturn(2).when(parkingSpotDao).getNextAvailableSpot(ParkingType.CAR, null);
+        when(parkingSpotDao.claimParking(any(ParkingSpot.class), isNull())).thenReturn(false, true);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn(REG_NUMBER);
+
+        parkingService.processIncomingVehicle();
+
+        ArgumentCaptor<Ticket> ticketCaptor = ArgumentCaptor.forClass(Ticket.class);
+        verify(ticketDao).saveTicket(ticketCaptor.capture(), isNull());
+        assertThat(ticketCaptor.getValue().getParkingSpot().getNumber()).isEqualTo(2);
+    }
+
+    @Test
+    @Tag("IncomingVehicle")
+    @DisplayName("Given every candidate spot claimed by other gates, when processIncomingVehicle, then no ticket is saved")
+    public void givenNoSpotCanBeClaimed_whenProcessIncomingVehicle_thenNoTicketIsSaved() {
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(parkingSpotDao.getNextAvailableSpot(ParkingType.CAR)).thenReturn(1);
+        doReturn(-1).when(parkingSpotDao).getNextAvailableSpot(ParkingType.CAR, null);
+        when(parkingSpotDao.claimParking(any(ParkingSpot.class), isNull())).thenReturn(false);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn(REG_NUMBER);
+
+        parkingService.processIncomingVehicle();
+
+        verify(ticketDao, never()).saveTicket(any(Ticket.class), any());
+    }
+
+    @Test
+    @Tag("UnitOfWork")
+    @DisplayName("Given a database configuration, when processIncomingVehicle, then entry runs and commits in a single unit of work")
+    public void givenADataBaseConfig_whenProcessIncomingVehicle_thenEntryIsCommittedInOneUnitOfWork() throws Exception {
+        parkingService.setDataBaseConfig(dataBaseConfig);
+        when(dataBaseConfig.beginUnitOfWork()).thenReturn(unitOfWork);
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(parkingSpotDao.getNextAvailableSpot(ParkingType.CAR)).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn(REG_NUMBER);
+        when(parkingSpotDao.claimParking(any(ParkingSpot.class), eq(unitOfWork))).thenReturn(true);
+        when(ticketDao.saveTicket(any(Ticket.class), eq(unitOfWork))).thenReturn(true);
+
+        parkingService.processIncomingVehicle();
+
+        InOrder inOrder = inOrder(parkingSpotDao, ticketDao, unitOfWork);
+        inOrder.verify(parkingSpotDao).claimParking(any(ParkingSpot.class), eq(unitOfWork));
+        inOrder.verify(ticketDao).saveTicket(any(Ticket.class), eq(unitOfWork));
+        inOrder.verify(unitOfWork).commit();
+        inOrder.verify(unitOfWork).close();
+        // The user is looked up once no connection is held
+        inOrder.verify(ticketDao).isRecurringUser(REG_NUMBER, null);
+    }
+
+    @Test
+    @Tag("UnitOfWork")
+    @DisplayName("Given other facilities, when processExitingVehicle, then they are asked before the unit of work begins")
+    public void givenOtherFacilities_whenProcessExitingVehicle_thenTheyAreAskedBeforeTheUnitOfWork() throws Exception {
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        Ticket ticket = new Ticket(1, parkingSpot, REG_NUMBER, 0, LocalDateTime.now().minusMinutes(60), null);
+        @SuppressWarnings("unchecked")
+        Function<String, Boolean> networkRecurringUsers = mock(Function.class);
+        when(networkRecurringUsers.apply(REG_NUMBER)).thenReturn(true);
+        parkingService.setNetworkRecurringUsers(networkRecurringUsers);
+        parkingService.setDataBaseConfig(dataBaseConfig);
+        when(dataBaseConfig.beginUnitOfWork()).thenReturn(unitOfWork);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn(REG_NUMBER);
+        when(ticketDao.getTicket(REG_NUMBER, unitOfWork)).thenReturn(ticket);
+        when(ticketDao.isRecurringUser(REG_NUMBER, unitOfWork)).thenReturn(false);
+        when(ticketDao.updateTicket(ticket, unitOfWork)).thenReturn(true);
+        when(parkingSpotDao.updateParking(parkingSpot, unitOfWork)).thenReturn(true);
+
+        parkingService.processExitingVehicle();
+
+        InOrder inOrder = inOrder(networkRecurringUsers, dataBaseConfig, ticketDao, unitOfWork);
+        inOrder.verify(networkRecurringUsers).apply(REG_NUMBER);
+        inOrder.verify(dataBaseConfig).beginUnitOfWork();
+        inOrder.verify(ticketDao).isRecurringUser(REG_NUMBER, unitOfWork);
+        inOrder.verify(unitOfWork).commit();
+        verify(networkRecurringUsers, times(1)).apply(REG_NUMBER);
+        assertThat(ticket.getPrice()).isEqualTo(Fare.CAR_RATE_PER_HOUR * 0.95, offset(0.01));
+    }
+
+    @Test
+    @Tag("UnitOfWork")
+    @DisplayName("Given a ticket that cannot be saved, when processIncomingVehicle, then the unit of work is not committed")
+    public void givenTicketNotSaved_whenProcessIncomingVehicle_thenUnitOfWorkIsNotCommitted() throws Exception {
+        parkingService.setDataBaseConfig(dataBaseConfig);
+        when(dataBaseConfig.beginUnitOfWork()).thenReturn(unitOfWork);
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(parkingSpotDao.getNextAvailableSpot(ParkingType.CAR)).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn(REG_NUMBER);
+        when(parkingSpotDao.claimParking(any(ParkingSpot.class), eq(unitOfWork))).thenReturn(true);
+        when(ticketDao.saveTicket(any(Ticket.class), eq(unitOfWork))).thenReturn(false);
+
+        parkingService.processIncomingVehicle();
+
+        verify(unitOfWork, never()).commit();
+        verify(unitOfWork).close();
+    }
+
+    @Test
+    @Tag("UnitOfWork")
+    @DisplayName("Given a parking spot that cannot be released, when processExitingVehicle, then the unit of work is not committed")
+    public void givenSpotNotReleased_whenProcessExitingVehicle_thenUnitOfWorkIsNotCommitted() throws Exception {
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        Ticket ticket = new Ticket(1, parkingSpot, REG_NUMBER, 0, LocalDateTime.now().minusMinutes(60), null);
+        parkingService.setDataBaseConfig(dataBaseConfig);
+        when(dataBaseConfig.beginUnitOfWork()).thenReturn(unitOfWork);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn(REG_NUMBER);
+        when(ticketDao.getTicket(REG_NUMBER, unitOfWork)).thenReturn(ticket);
+        when(ticketDao.updateTicket(ticket, unitOfWork)).thenReturn(true);
+        when(parkingSpotDao.updateParking(parkingSpot, unitOfWork)).thenReturn(false);
+
+        parkingService.processExitingVehicle();
+
+        verify(unitOfWork, never()).commit();
+        verify(unitOfWork).close();
+    }
+
+    @Test
+    @Tag("RecurringUserCache")
+    @DisplayName("Given a recurring user cache, when processExitingVehicle twice, then recurring user status is read from database once")
+    public void givenARecurringUserCache_whenProcessExitingVehicle_thenDatabaseIsQueriedOnce() {
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        Ticket ticket = new Ticket(1, parkingSpot, REG_NUMBER, 0, LocalDateTime.now().minusMinutes(60), null);
+        RecurringUserCache recurringUserCache = new RecurringUserCache();
+        parkingService.setRecurringUserCache(recurringUserCache);
+        setupParkingServiceMocks(parkingSpot, ticket);
+
+        parkingService.processExitingVehicle();
+        // Second visit of the same vehicle, the ticket is open again
+        ticket.setOutTime(null);
+        parkingService.processExitingVehicle();
+
+        verify(ticketDao, times(1)).isRecurringUser(REG_NUMBER, null);
+        assertThat(recurringUserCache.get(REG_NUMBER)).isTrue();
+        assertThat(ticket.getPrice()).isEqualTo(1.43);
+    }
+
+    @Test
+    @Tag("RecurringUserCache")
+    @DisplayName("Given the tickets of a user cannot be read, when quoted, then the user is not cached and is looked up again")
+    public void givenAFailedRecurringUserLookup_whenQuoted_thenTheUserIsNotCached() {
+        LocalDateTime inTime = LocalDateTime.now().minusMinutes(60);
+        RecurringUserCache recurringUserCache = new RecurringUserCache();
+        parkingService.setRecurringUserCache(recurringUserCache);
+        when(ticketDao.getTicket(REG_NUMBER, null)).thenAnswer(invocation -> new Ticket(1,
+            new ParkingSpot(1, ParkingType.CAR, false), REG_NUMBER, 0, inTime, null));
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(null, true);
+
+        assertThat(parkingService.quote(REG_NUMBER).isRecurringUser()).isFalse();
+        assertThat(recurringUserCache.get(REG_NUMBER)).isNull();
+        assertThat(parkingService.quote(REG_NUMBER).isRecurringUser()).isTrue();
+
+        verify(ticketDao, times(2)).isRecurringUser(REG_NUMBER, null);
+        assertThat(recurringUserCache.get(REG_NUMBER)).isTrue();
+    }
+
+    @Test
+    @Tag("RecurringUserCache")
+    @DisplayName("Given another facility that cannot tell, when a new user is quoted, then the user is not cached as new")
+    public void givenAnUnansweredNetworkLookup_whenQuoted_thenTheUserIsNotCached() {
+        LocalDateTime inTime = LocalDateTime.now().minusMinutes(60);
+        RecurringUserCache recurringUserCache = new RecurringUserCache();
+        parkingService.setRecurringUserCache(recurringUserCache);
+        parkingService.setNetworkRecurringUsers(vehicleRegNumber -> null);
+        when(ticketDao.getTicket(REG_NUMBER, null)).thenAnswer(invocation -> new Ticket(1,
+            new ParkingSpot(1, ParkingType.CAR, false), REG_NUMBER, 0, inTime, null));
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(false);
+
+        assertThat(parkingService.quote(REG_NUMBER).isRecurringUser()).isFalse();
+        assertThat(recurringUserCache.get(REG_NUMBER)).isNull();
+
+        parkingService.setNetworkRecurringUsers(vehicleRegNumber -> false);
+        parkingService.quote(REG_NUMBER);
+        assertThat(recurringUserCache.get(REG_NUMBER)).isFalse();
+    }
+
+    @Test
+    @Tag("OpenTicketIndex")
+    @DisplayName("Given an indexed open ticket, when processExitingVehicle, then the ticket is not read from database and is removed from index")
+    public void givenAnIndexedTicket_whenProcessExitingVehicle_thenTicketIsNotReadFromDatabase() {
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        Ticket ticket = new Ticket(1, parkingSpot, REG_NUMBER, 0, LocalDateTime.now().minusMinutes(60), null);
+        OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+        openTicketIndex.load(Collections.singletonList(ticket));
+        parkingService.setOpenTicketIndex(openTicketIndex);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn(REG_NUMBER);
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(false);
+        when(ticketDao.updateTicket(any(Ticket.class), isNull())).thenReturn(true);
+        when(parkingSpotDao.updateParking(any(ParkingSpot.class), isNull())).thenReturn(true);
+
+        parkingService.processExitingVehicle();
+
+        ArgumentCaptor<Ticket> ticketCaptor = ArgumentCaptor.forClass(Ticket.class);
+        verify(ticketDao).updateTicket(ticketCaptor.capture(), isNull());
+        verify(ticketDao, never()).getTicket(any(String.class), any());
+        assertThat(ticketCaptor.getValue().getId()).isEqualTo(1);
+        assertThat(ticketCaptor.getValue().getPrice()).isEqualTo(Fare.CAR_RATE_PER_HOUR);
+        assertThat(openTicketIndex.get(REG_NUMBER)).isNull();
+    }
+
+    @Test
+    @Tag("OpenTicketIndex")
+    @DisplayName("Given an open ticket index, when processIncomingVehicle, then the saved ticket is indexed")
+    public void givenAnOpenTicketIndex_whenProcessIncomingVehicle_thenTicketIsIndexed() {
+        OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+        parkingService.setOpenTicketIndex(openTicketIndex);
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(parkingSpotDao.getNextAvailableSpot(ParkingType.CAR)).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn(REG_NUMBER);
+        when(parkingSpotDao.claimParking(any(ParkingSpot.class), isNull())).thenReturn(true);
+        when(ticketDao.saveTicket(any(Ticket.class), isNull())).thenReturn(true);
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(false);
+
+        parkingService.processIncomingVehicle();
+
+        Ticket indexedTicket = openTicketIndex.get(REG_NUMBER);
+        assertThat(indexedTicket).isNotNull();
+        assertThat(indexedTicket.getParkingSpot().getNumber()).isEqualTo(1);
+        assertThat(indexedTicket.getOutTime()).isNull();
+    }
+
+    @Test
+    @Tag("OpenTicketIndex")
+    @DisplayName("Given an exit that is not committed, when processExitingVehicle, then the indexed ticket is left unchanged")
+    public void givenAnExitNotCommitted_whenProcessExitingVehicle_thenIndexedTicketIsUnchanged() {
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        Ticket ticket = new Ticket(1, parkingSpot, REG_NUMBER, 0, LocalDateTime.now().minusMinutes(60), null);
+        OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+        openTicketIndex.open(ticket);
+        parkingService.setOpenTicketIndex(openTicketIndex);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn(REG_NUMBER);
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(false);
+        when(ticketDao.updateTicket(any(Ticket.class), isNull())).thenReturn(false);
+
+        parkingService.processExitingVehicle();
+
+        Ticket indexedTicket = openTicketIndex.get(REG_NUMBER);
+        assertThat(indexedTicket).isNotNull();
+        assertThat(indexedTicket.getOutTime()).isNull();
+        assertThat(indexedTicket.getParkingSpot().isAvailable()).isFalse();
+    }
+
+    @Test
+    @Tag("Clock")
+    @DisplayName("Given a clock, when processIncomingVehicle, then the in-time is read from the clock")
+    public void givenAClock_whenProcessIncomingVehicle_thenInTimeIsReadFromClock() {
+        LocalDateTime eventTime = LocalDateTime.of(2020, 6, 1, 8, 0);
+        ZoneId zone = ZoneId.systemDefault();
+        parkingService.setClock(Clock.fixed(eventTime.atZone(zone).toInstant(), zone));
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(parkingSpotDao.getNextAvailableSpot(ParkingType.CAR)).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn(REG_NUMBER);
+        when(parkingSpotDao.claimParking(any(ParkingSpot.class), isNull())).thenReturn(true);
+        when(ticketDao.saveTicket(any(Ticket.class), isNull())).thenReturn(true);
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(false);
+
+        parkingService.processIncomingVehicle();
+
+        ArgumentCaptor<Ticket> ticketCaptor = ArgumentCaptor.forClass(Ticket.class);
+        verify(ticketDao).saveTicket(ticketCaptor.capture(), isNull());
+        assertThat(ticketCaptor.getValue().getInTime()).isEqualTo(eventTime);
+    }
+
+    @Test
+    @Tag("Enter")
+    @DisplayName("Given an available spot, when enter, then the result holds the spot and in-time")
+    public void givenAnAvailableSpot_whenEnter_thenResultHoldsSpotAndInTime() {
+        ParkingService gateService = new ParkingService(parkingSpotDao, ticketDao);
+        doReturn(3).when(parkingSpotDao).getNextAvailableSpot(ParkingType.BIKE, null);
+        when(parkingSpotDao.claimParking(any(ParkingSpot.class), isNull())).thenReturn(true);
+        when(ticketDao.saveTicket(any(Ticket.class), isNull())).thenReturn(true);
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(true);
+
+        ParkingResult result = gateService.enter(REG_NUMBER, ParkingType.BIKE);
+
+        assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.PARKED);
+        assertThat(result.getParkingSpot()).isEqualTo(new ParkingSpot(3, ParkingType.BIKE, false));
+        assertThat(result.getInTime()).isNotNull();
+        assertThat(result.getOutTime()).isNull();
+        assertThat(result.isRecurringUser()).isTrue();
+        verifyZeroInteractions(inputReaderUtil);
+    }
+
+    @Test
+    @Tag("Enter")
+    @DisplayName("Given a full parking, when enter, then no spot available is returned")
+    public void givenAFullParking_whenEnter_thenNoSpotAvailableIsReturned() {
+        doReturn(-1).when(parkingSpotDao).getNextAvailableSpot(ParkingType.CAR, null);
+
+        ParkingResult result = parkingService.enter(REG_NUMBER, ParkingType.CAR);
+
+        assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.NO_SPOT_AVAILABLE);
+        assertThat(result.isSuccess()).isFalse();
+        verify(ticketDao, never()).saveTicket(any(Ticket.class), any());
+    }
+
+    @Test
+    @Tag("Enter")
+    @DisplayName("Given a vehicle already parked, when enter, then already parked is returned and the spot is given back")
+    public void givenAVehicleAlreadyParked_whenEnter_thenAlreadyParkedIsReturned() {
+        ParkingSpotAllocator parkingSpotAllocator = new ParkingSpotAllocator(
+            Collections.singletonList(new ParkingSpot(2, ParkingType.CAR, true)));
+        OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+        openTicketIndex.open(new Ticket(1, new ParkingSpot(1, ParkingType.CAR, false), REG_NUMBER, 0,
+            LocalDateTime.now(), null));
+        parkingService.setParkingSpotAllocator(parkingSpotAllocator);
+        parkingService.setOpenTicketIndex(openTicketIndex);
+
+        ParkingResult result = parkingService.enter(REG_NUMBER, ParkingType.CAR);
+
+        assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.ALREADY_PARKED);
+        assertThat(parkingSpotAllocator.getAvailableCount(ParkingType.CAR)).isEqualTo(1);
+        verify(parkingSpotDao, never()).claimParking(any(ParkingSpot.class), any());
+    }
+
+    @Test
+    @Tag("InvalidPlate")
+    @DisplayName("Given plates too long or with invalid characters, when enter or exit, then the plate is turned away before the database")
+    public void givenInvalidPlates_whenEnterOrExit_thenInvalidPlateIsReturned() {
+        ParkingSpotAllocator parkingSpotAllocator = new ParkingSpotAllocator(
+            Collections.singletonList(new ParkingSpot(1, ParkingType.CAR, true)));
+        parkingService.setParkingSpotAllocator(parkingSpotAllocator);
+
+        assertThat(parkingService.enter("AB125XY12345", ParkingType.CAR).getStatus())
+            .isEqualTo(ParkingResult.Status.INVALID_PLATE);
+        assertThat(parkingService.enter("AB125XY\n", ParkingType.CAR).getStatus())
+            .isEqualTo(ParkingResult.Status.INVALID_PLATE);
+        assertThat(parkingService.exit("AB125XY12345").getStatus()).isEqualTo(ParkingResult.Status.INVALID_PLATE);
+        assertThat(parkingService.quote("AB'125XY").getStatus()).isEqualTo(ParkingResult.Status.INVALID_PLATE);
+        assertThat(ParkingService.isValidVehicleRegNumber("AB-125-XY")).isTrue();
+        assertThat(ParkingService.isValidVehicleRegNumber("-AB125XY")).isFalse();
+
+        assertThat(parkingSpotAllocator.getAvailableCount(ParkingType.CAR)).isEqualTo(1);
+        verifyZeroInteractions(ticketDao, parkingSpotDao);
+    }
+
+    @Test
+    @Tag("InvalidPlate")
+    @DisplayName("Given a plate with invalid characters typed on the console, when processIncomingVehicle, then no ticket is saved and the spot is given back")
+    public void givenAnInvalidPlateOnTheConsole_whenProcessIncomingVehicle_thenNoTicketIsSaved() {
+        ParkingSpotAllocator parkingSpotAllocator = new ParkingSpotAllocator(
+            Collections.singletonList(new ParkingSpot(1, ParkingType.CAR, true)));
+        parkingService.setParkingSpotAllocator(parkingSpotAllocator);
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("AB*125");
+
+        parkingService.processIncomingVehicle();
+
+        assertThat(parkingSpotAllocator.getAvailableCount(ParkingType.CAR)).isEqualTo(1);
+        verifyZeroInteractions(ticketDao, parkingSpotDao);
+    }
+
+    @Test
+    @Tag("OpenTicketIndex")
+    @DisplayName("Given a vehicle entering on a gate, when it enters on another gate at once, then only one ticket is opened")
+    public void givenAVehicleEntering_whenItEntersOnAnotherGateAtOnce_thenOnlyOneTicketIsOpened() throws Exception {
+        ParkingSpotAllocator parkingSpotAllocator = new ParkingSpotAllocator(Arrays.asList(
+            new ParkingSpot(1, ParkingType.CAR, true), new ParkingSpot(2, ParkingType.CAR, true)));
+        OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+        parkingService.setParkingSpotAllocator(parkingSpotAllocator);
+        parkingService.setOpenTicketIndex(openTicketIndex);
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch secondEntryDone = new CountDownLatch(1);
+        when(parkingSpotDao.claimParking(any(ParkingSpot.class), isNull())).thenReturn(true);
+        when(ticketDao.saveTicket(any(Ticket.class), isNull())).thenAnswer(invocation -> {
+            saving.countDown();
+            return secondEntryDone.await(5, TimeUnit.SECONDS);
+        });
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(false);
+        ExecutorService gate = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<ParkingResult> firstEntry = gate.submit(() -> parkingService.enter(REG_NUMBER, ParkingType.CAR));
+            assertThat(saving.await(5, TimeUnit.SECONDS)).isTrue();
+            ParkingResult secondEntry = parkingService.enter(REG_NUMBER, ParkingType.CAR);
+            secondEntryDone.countDown();
+
+            assertThat(secondEntry.getStatus()).isEqualTo(ParkingResult.Status.ALREADY_PARKED);
+            assertThat(firstEntry.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(ParkingResult.Status.PARKED);
+        } finally {
+            gate.shutdownNow();
+        }
+        verify(ticketDao, times(1)).saveTicket(any(Ticket.class), isNull());
+        assertThat(openTicketIndex.size()).isEqualTo(1);
+        assertThat(parkingSpotAllocator.getAvailableCount(ParkingType.CAR)).isEqualTo(1);
+    }
+
+    @Test
+    @Tag("OpenTicketIndex")
+    @DisplayName("Given an entry whose ticket cannot be saved, when the vehicle enters again, then it is not seen as parked")
+    public void givenAFailedEntry_whenTheVehicleEntersAgain_thenItIsNotAlreadyParked() {
+        ParkingSpotAllocator parkingSpotAllocator = new ParkingSpotAllocator(
+            Collections.singletonList(new ParkingSpot(1, ParkingType.CAR, true)));
+        OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+        parkingService.setParkingSpotAllocator(parkingSpotAllocator);
+        parkingService.setOpenTicketIndex(openTicketIndex);
+        when(parkingSpotDao.claimParking(any(ParkingSpot.class), isNull())).thenReturn(true);
+        when(ticketDao.saveTicket(any(Ticket.class), isNull())).thenReturn(false, true);
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(false);
+
+        assertThat(parkingService.enter(REG_NUMBER, ParkingType.CAR).getStatus())
+            .isEqualTo(ParkingResult.Status.FAILED);
+        assertThat(openTicketIndex.get(REG_NUMBER)).isNull();
+        assertThat(parkingService.enter(REG_NUMBER, ParkingType.CAR).getStatus())
+            .isEqualTo(ParkingResult.Status.PARKED);
+        assertThat(openTicketIndex.get(REG_NUMBER)).isNotNull();
+    }
+
+    @Test
+    @Tag("Exit")
+    @DisplayName("Given a parked vehicle, when exit, then the result holds the times and fare")
+    public void givenAParkedVehicle_whenExit_thenResultHoldsTimesAndFare() {
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        Ticket ticket = new Ticket(1, parkingSpot, REG_NUMBER, 0, LocalDateTime.now().minusMinutes(60), null);
+        when(ticketDao.getTicket(REG_NUMBER, null)).thenReturn(ticket);
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(false);
+        when(ticketDao.updateTicket(ticket, null)).thenReturn(true);
+        when(parkingSpotDao.updateParking(parkingSpot, null)).thenReturn(true);
+
+        ParkingResult result = parkingService.exit(REG_NUMBER);
+
+        assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.EXITED);
+        assertThat(result.getFare()).isEqualTo(Fare.CAR_RATE_PER_HOUR);
+        assertThat(result.getInTime()).isEqualTo(ticket.getInTime());
+        assertThat(result.getOutTime()).isEqualTo(ticket.getOutTime());
+        assertThat(result.getParkingSpot().isAvailable()).isTrue();
+    }
+
+    @Test
+    @Tag("Exit")
+    @DisplayName("Given a vehicle whose latest ticket is closed, when exit, then ticket not found is returned")
+    public void givenAClosedTicket_whenExit_thenTicketNotFoundIsReturned() {
+        Ticket ticket = new Ticket(1, new ParkingSpot(1, ParkingType.CAR, true), REG_NUMBER, 1.5,
+            LocalDateTime.now().minusMinutes(60), LocalDateTime.now());
+        when(ticketDao.getTicket(REG_NUMBER, null)).thenReturn(ticket);
+
+        ParkingResult result = parkingService.exit(REG_NUMBER);
+
+        assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.TICKET_NOT_FOUND);
+        verify(ticketDao, never()).updateTicket(any(Ticket.class), any());
+    }
+
+    @Test
+    @Tag("Occupancy")
+    @DisplayName("Given occupancy counters, when a vehicle enters then exits, then the counts follow without querying the database")
+    public void givenOccupancyCounters_whenEnterThenExit_thenCountsFollowWithoutDatabase() {
+        OccupancyCounters occupancyCounters = new OccupancyCounters(Arrays.asList(
+            new ParkingSpot(1, ParkingType.CAR, false), new ParkingSpot(2, ParkingType.CAR, true),
+            new ParkingSpot(3, ParkingType.CAR, true), new ParkingSpot(4, ParkingType.BIKE, true)));
+        parkingService.setOccupancyCounters(occupancyCounters);
+        doReturn(2).when(parkingSpotDao).getNextAvailableSpot(ParkingType.CAR, null);
+        when(parkingSpotDao.claimParking(any(ParkingSpot.class), isNull())).thenReturn(true);
+        when(parkingSpotDao.updateParking(any(ParkingSpot.class), isNull())).thenReturn(true);
+        when(ticketDao.saveTicket(any(Ticket.class), isNull())).thenReturn(true);
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(false);
+
+        parkingService.enter(REG_NUMBER, ParkingType.CAR);
+        int availableWhileParked = parkingService.countParkingSpots(ParkingType.CAR, true);
+        Ticket ticket = new Ticket(1, new ParkingSpot(2, ParkingType.CAR, false), REG_NUMBER, 0,
+            LocalDateTime.now().minusMinutes(60), null);
+        when(ticketDao.getTicket(REG_NUMBER, null)).thenReturn(ticket);
+        when(ticketDao.updateTicket(ticket, null)).thenReturn(true);
+        parkingService.exit(REG_NUMBER);
+
+        assertThat(availableWhileParked).isEqualTo(1);
+        assertThat(parkingService.countParkingSpots(ParkingType.CAR, true)).isEqualTo(2);
+        assertThat(parkingService.countParkingSpots(ParkingType.CAR, false)).isEqualTo(3);
+        assertThat(parkingService.countParkingSpots(ParkingType.BIKE, true)).isEqualTo(1);
+        verify(parkingSpotDao, never()).getParkingSpots();
+    }
+
+    @Test
+    @Tag("Occupancy")
+    @DisplayName("Given occupancy counters, when an entry fails, then the spot is not counted")
+    public void givenOccupancyCounters_whenEntryFails_thenSpotIsNotCounted() {
+        OccupancyCounters occupancyCounters = new OccupancyCounters(Collections.singletonList(
+            new ParkingSpot(1, ParkingType.CAR, true)));
+        parkingService.setOccupancyCounters(occupancyCounters);
+        doReturn(1).when(parkingSpotDao).getNextAvailableSpot(ParkingType.CAR, null);
+        when(parkingSpotDao.claimParking(any(ParkingSpot.class), isNull())).thenReturn(true);
+        when(ticketDao.saveTicket(any(Ticket.class), isNull())).thenReturn(false);
+
+        ParkingResult result = parkingService.enter(REG_NUMBER, ParkingType.CAR);
+
+        assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.FAILED);
+        assertThat(occupancyCounters.getOccupied(ParkingType.CAR)).isZero();
+    }
+
+    @Test
+    @Tag("GroupCommit")
+    @DisplayName("Given a ticket writer, when enter, then no connection is held while the ticket is written")
+    public void givenATicketWriter_whenEnter_thenNoUnitOfWorkIsHeld() throws Exception {
+        parkingService.setDataBaseConfig(dataBaseConfig);
+        parkingService.setTicketWriter(ticketWriter);
+        doReturn(3).when(parkingSpotDao).getNextAvailableSpot(ParkingType.CAR, null);
+        when(parkingSpotDao.claimParking(any(ParkingSpot.class), isNull())).thenReturn(true);
+        when(ticketWriter.saveTicket(any(Ticket.class))).thenReturn(CompletableFuture.completedFuture(true));
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(false);
+
+        ParkingResult result = parkingService.enter(REG_NUMBER, ParkingType.CAR);
+
+        assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.PARKED);
+        verify(dataBaseConfig, never()).beginUnitOfWork();
+        verify(ticketDao, never()).saveTicket(any(Ticket.class), any());
+    }
+
+    @Test
+    @Tag("GroupCommit")
+    @DisplayName("Given a ticket writer failing, when enter, then the claimed spot is freed")
+    public void givenAFailingTicketWriter_whenEnter_thenClaimedSpotIsFreed() {
+        parkingService.setTicketWriter(ticketWriter);
+        doReturn(3).when(parkingSpotDao).getNextAvailableSpot(ParkingType.CAR, null);
+        when(parkingSpotDao.claimParking(any(ParkingSpot.class), isNull())).thenReturn(true);
+        when(ticketWriter.saveTicket(any(Ticket.class))).thenReturn(CompletableFuture.completedFuture(false));
+        when(parkingSpotDao.updateParking(any(ParkingSpot.class), isNull())).thenReturn(true);
+
+        ParkingResult result = parkingService.enter(REG_NUMBER, ParkingType.CAR);
+
+        assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.FAILED);
+        verify(parkingSpotDao).updateParking(new ParkingSpot(3, ParkingType.CAR, true), null);
+    }
+
+    @Test
+    @Tag("GroupCommit")
+    @DisplayName("Given a ticket writer, when exit, then the ticket is closed through the writer")
+    public void givenATicketWriter_whenExit_thenTicketIsClosedThroughWriter() {
+        parkingService.setTicketWriter(ticketWriter);
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        Ticket ticket = new Ticket(1, parkingSpot, REG_NUMBER, 0, LocalDateTime.now().minusMinutes(60), null);
+        when(ticketDao.getTicket(REG_NUMBER, null)).thenReturn(ticket);
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(false);
+        when(ticketWriter.closeTicket(ticket)).thenReturn(CompletableFuture.completedFuture(true));
+
+        ParkingResult result = parkingService.exit(REG_NUMBER);
+
+        assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.EXITED);
+        assertThat(parkingSpot.isAvailable()).isTrue();
+        verify(ticketDao, never()).updateTicket(any(Ticket.class), any());
+        verify(parkingSpotDao, never()).updateParking(any(ParkingSpot.class), any());
+    }
+
+    @Test
+    @Tag("GroupCommit")
+    @DisplayName("Given a spot release failing in the ticket group, when exit, then the ticket stays open and the exit can be retried")
+    public void givenAFailingSpotReleaseInTheGroup_whenExit_thenTheExitCanBeRetried() throws Exception {
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        Ticket ticket = new Ticket(1, parkingSpot, REG_NUMBER, 0, LocalDateTime.now().minusMinutes(60), null);
+        OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+        openTicketIndex.open(ticket);
+        parkingService.setOpenTicketIndex(openTicketIndex);
+        when(dataBaseConfig.beginUnitOfWork()).thenReturn(unitOfWork);
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(false);
+        when(ticketDao.updateTickets(anyList(), eq(unitOfWork))).thenReturn(new boolean[] {true});
+        when(parkingSpotDao.updateParking(parkingSpot, unitOfWork)).thenReturn(false, true);
+
+        try (GroupCommitTicketWriter groupWriter = new GroupCommitTicketWriter(dataBaseConfig, ticketDao,
+            parkingSpotDao, 1, 0)) {
+            parkingService.setTicketWriter(groupWriter);
+
+            ParkingResult failed = parkingService.exit(REG_NUMBER);
+
+            assertThat(failed.getStatus()).isEqualTo(ParkingResult.Status.FAILED);
+            assertThat(openTicketIndex.contains(REG_NUMBER)).isTrue();
+            verify(unitOfWork, never()).commit();
+
+            ParkingResult retried = parkingService.exit(REG_NUMBER);
+
+            assertThat(retried.getStatus()).isEqualTo(ParkingResult.Status.EXITED);
+            assertThat(openTicketIndex.contains(REG_NUMBER)).isFalse();
+            verify(unitOfWork).commit();
+        }
+    }
+
+    @Test
+    @Tag("GateJournal")
+    @DisplayName("Given a gate journal, when enter, then the entry is journaled and the database is left to the flusher")
+    public void givenAGateJournal_whenEnter_thenEntryIsJournaled() throws Exception {
+        ParkingSpotAllocator parkingSpotAllocator = new ParkingSpotAllocator(
+            Collections.singletonList(new ParkingSpot(2, ParkingType.CAR, true)));
+        OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+        parkingService.setParkingSpotAllocator(parkingSpotAllocator);
+        parkingService.setOpenTicketIndex(openTicketIndex);
+        parkingService.setGateJournal(gateJournal);
+
+        ParkingResult result = parkingService.enter(REG_NUMBER, ParkingType.CAR);
+
+        assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.PARKED);
+        verify(ticketDao, never()).isRecurringUser(any(String.class), any());
+        assertThat(openTicketIndex.contains(REG_NUMBER)).isTrue();
+        assertThat(parkingSpotAllocator.getAvailableCount(ParkingType.CAR)).isZero();
+        verify(gateJournal).append(eq(JournalRecord.Type.ENTRY), any(Ticket.class));
+        verify(parkingSpotDao, never()).claimParking(any(ParkingSpot.class), any());
+        verify(ticketDao, never()).saveTicket(any(Ticket.class), any());
+    }
+
+    @Test
+    @Tag("GateJournal")
+    @DisplayName("Given a gate journal failing, when enter, then the spot is given back and the vehicle is not parked")
+    public void givenAFailingGateJournal_whenEnter_thenSpotIsGivenBack() throws Exception {
+        ParkingSpotAllocator parkingSpotAllocator = new ParkingSpotAllocator(
+            Collections.singletonList(new ParkingSpot(2, ParkingType.CAR, true)));
+        OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+        parkingService.setParkingSpotAllocator(parkingSpotAllocator);
+        parkingService.setOpenTicketIndex(openTicketIndex);
+        parkingService.setGateJournal(gateJournal);
+        when(gateJournal.append(eq(JournalRecord.Type.ENTRY), any(Ticket.class)))
+            .thenThrow(new IOException("Disk full"));
+
+        ParkingResult result = parkingService.enter(REG_NUMBER, ParkingType.CAR);
+
+        assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.FAILED);
+        assertThat(openTicketIndex.contains(REG_NUMBER)).isFalse();
+        assertThat(parkingSpotAllocator.getAvailableCount(ParkingType.CAR)).isEqualTo(1);
+    }
+
+    @Test
+    @Tag("GateJournal")
+    @DisplayName("Given a gate journal, when a vehicle exits twice, then only the first exit is journaled")
+    public void givenAGateJournal_whenExitTwice_thenOnlyFirstExitIsJournaled() throws Exception {
+        ParkingSpot parkingSpot = new ParkingSpot(2, ParkingType.CAR, false);
+        ParkingSpotAllocator parkingSpotAllocator = new ParkingSpotAllocator(
+            Collections.singletonList(parkingSpot));
+        OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+        openTicketIndex.open(new Ticket(0, parkingSpot, REG_NUMBER, 0, LocalDateTime.now().minusMinutes(60),
+            null));
+        parkingService.setParkingSpotAllocator(parkingSpotAllocator);
+        parkingService.setOpenTicketIndex(openTicketIndex);
+        parkingService.setGateJournal(gateJournal);
+        RecurringUserCache recurringUserCache = new RecurringUserCache();
+        recurringUserCache.put(REG_NUMBER, false);
+        parkingService.setRecurringUserCache(recurringUserCache);
+
+        ParkingResult first = parkingService.exit(REG_NUMBER);
+        ParkingResult second = parkingService.exit(REG_NUMBER);
+
+        assertThat(first.getStatus()).isEqualTo(ParkingResult.Status.EXITED);
+        assertThat(first.getFare()).isEqualTo(Fare.CAR_RATE_PER_HOUR);
+        assertThat(second.getStatus()).isEqualTo(ParkingResult.Status.TICKET_NOT_FOUND);
+        assertThat(parkingSpotAllocator.getAvailableCount(ParkingType.CAR)).isEqualTo(1);
+        verify(gateJournal, times(1)).append(eq(JournalRecord.Type.EXIT), any(Ticket.class));
+        verify(ticketDao, never()).getTicket(any(String.class), any());
+        verify(ticketDao, never()).updateTicket(any(Ticket.class), any());
+    }
+
+    @Test
+    @Tag("GateJournal")
+    @DisplayName("Given a gate journal and a user not cached, when exit, then the exit is journaled with a pending fare without querying the database")
+    public void givenAUserNotCached_whenExitJournaled_thenFareIsLeftToTheFlusher() throws Exception {
+        ParkingSpot parkingSpot = new ParkingSpot(2, ParkingType.CAR, false);
+        OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+        openTicketIndex.open(new Ticket(0, parkingSpot, REG_NUMBER, 0, LocalDateTime.now().minusMinutes(60),
+            null));
+        parkingService.setParkingSpotAllocator(new ParkingSpotAllocator(Collections.singletonList(parkingSpot)));
+        parkingService.setOpenTicketIndex(openTicketIndex);
+        parkingService.setGateJournal(gateJournal);
+        parkingService.setRecurringUserCache(new RecurringUserCache());
+
+        ParkingResult result = parkingService.exit(REG_NUMBER);
+
+        assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.EXITED);
+        assertThat(result.isFarePending()).isTrue();
+        verify(gateJournal).append(eq(JournalRecord.Type.EXIT), argThat(ticket -> Double.isNaN(ticket.getPrice())));
+        verifyZeroInteractions(ticketDao);
+
+        Ticket closed = new Ticket(0, parkingSpot, REG_NUMBER, JournalRecord.PRICE_PENDING,
+            LocalDateTime.now().minusMinutes(60), LocalDateTime.now());
+        when(ticketDao.isRecurringUser(REG_NUMBER, unitOfWork)).thenReturn(true);
+        assertThat(parkingService.priceExit(closed, unitOfWork))
+            .isEqualTo(Fare.CAR_RATE_PER_HOUR * (1 - Fare.DISCOUNT), offset(0.01));
+    }
+
+    @Test
+    @Tag("GateJournal")
+    @DisplayName("Given no open ticket index, when a gate journal is set, then it is refused")
+    public void givenNoOpenTicketIndex_whenSetGateJournal_thenItIsRefused() {
+        assertThatThrownBy(() -> parkingService.setGateJournal(gateJournal))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @Tag("TariffSchedule")
+    @DisplayName("Given a tariff schedule, when exit, then the fare is priced by the schedule")
+    public void givenATariffSchedule_whenExit_thenFareIsPricedBySchedule() {
+        Properties tariff = new Properties();
+        tariff.setProperty("tariff.CAR.band.1", "MON-SUN 00:00-24:00 300");
+        parkingService.setTariffSchedule(TariffSchedule.parse(tariff));
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        Ticket ticket = new Ticket(1, parkingSpot, REG_NUMBER, 0, LocalDateTime.now().minusMinutes(60), null);
+        when(ticketDao.getTicket(REG_NUMBER, null)).thenReturn(ticket);
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(false);
+        when(ticketDao.updateTicket(ticket, null)).thenReturn(true);
+        when(parkingSpotDao.updateParking(parkingSpot, null)).thenReturn(true);
+
+        ParkingResult result = parkingService.exit(REG_NUMBER);
+
+        assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.EXITED);
+        assertThat(result.getFare()).isEqualTo(3.0);
+    }
+
+    @Test
+    @Tag("Quote")
+    @DisplayName("Given a parked vehicle, when quote, then fare is computed and ticket is not closed")
+    public void givenAParkedVehicle_whenQuote_thenFareIsComputedAndTicketIsNotClosed() {
+        Ticket ticket = new Ticket(1, new ParkingSpot(1, ParkingType.CAR, false), REG_NUMBER, 0,
+            LocalDateTime.now().minusMinutes(60), null);
+        when(ticketDao.getTicket(REG_NUMBER, null)).thenReturn(ticket);
+        when(ticketDao.isRecurringUser(REG_NUMBER, null)).thenReturn(false);
+
+        ParkingResult result = parkingService.quote(REG_NUMBER);
+
+        assertThat(result.getStatus()).isEqualTo(ParkingResult.Status.QUOTED);
+        assertThat(result.getFare()).isEqualTo(Fare.CAR_RATE_PER_HOUR);
+        verify(ticketDao, never()).updateTicket(any(Ticket.class), any());
+        verify(parkingSpotDao, never()).updateParking(any(ParkingSpot.class), any());
+    }
+
+    @Test
+    @Tag("Concurrency")
+    @DisplayName("Given one service shared by many gates, when vehicles enter and exit concurrently, then every spot is given back")
+    public void givenASharedService_whenGatesEnterAndExitConcurrently_thenEverySpotIsGivenBack() throws Exception {
+        int gates = 12;
+        List<ParkingSpot> spots = new ArrayList<>();
+        for (int number = 1; number <= gates; number++) {
+            spots.add(new ParkingSpot(number, ParkingType.CAR, true));
+        }
+        ParkingSpotAllocator parkingSpotAllocator = new ParkingSpotAllocator(spots);
+        OccupancyCounters occupancyCounters = new OccupancyCounters(spots);
+        parkingService.setParkingSpotAllocator(parkingSpotAllocator);
+        parkingService.setOccupancyCounters(occupancyCounters);
+        parkingService.setOpenTicketIndex(new OpenTicketIndex());
+        parkingService.setRecurringUserCache(new RecurringUserCache());
+        when(parkingSpotDao.claimParking(any(ParkingSpot.class), isNull())).thenReturn(true);
+        when(parkingSpotDao.updateParking(any(ParkingSpot.class), isNull())).thenReturn(true);
+        when(ticketDao.saveTicket(any(Ticket.class), isNull())).thenReturn(true);
+        when(ticketDao.updateTicket(any(Ticket.class), isNull())).thenReturn(true);
+        when(ticketDao.isRecurringUser(any(String.class), isNull())).thenReturn(false);
+
+        ExecutorService executor = Executors.newFixedThreadPool(gates);
+        List<Future<Integer>> exits = new ArrayList<>();
+        for (int gate = 0; gate < gates; gate++) {
+            String vehicleRegNumber = "GATE" + gate;
+            exits.add(executor.submit(() -> {
+                int completed = 0;
+                for (int cycle = 0; cycle < 50; cycle++) {
+                    if (parkingService.enter(vehicleRegNumber, ParkingType.CAR).isSuccess()
+                        && parkingService.exit(vehicleRegNumber).isSuccess()) {
+                        completed++;
+                    }
+                }
+                return completed;
+            }));
+        }
+        executor.shutdown();
+
+        for (Future<Integer> completed : exits) {
+            assertThat(completed.get()).isEqualTo(50);
+        }
+        assertThat(parkingSpotAllocator.getAvailableCount(ParkingType.CAR)).isEqualTo(gates);
+        assertThat(occupancyCounters.getOccupied(ParkingType.CAR)).isZero();
+    }
 }
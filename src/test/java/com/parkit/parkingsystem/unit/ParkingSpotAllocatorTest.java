@@ -0,0 +1,118 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.ParkingSpotAllocator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParkingSpotAllocatorTest {
+
+    private ParkingSpotAllocator parkingSpotAllocator;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        parkingSpotAllocator = new ParkingSpotAllocator(Arrays.asList(
+            new ParkingSpot(3, ParkingType.CAR, true),
+            new ParkingSpot(1, ParkingType.CAR, false),
+            new ParkingSpot(2, ParkingType.CAR, true),
+            new ParkingSpot(4, ParkingType.BIKE, true),
+            new ParkingSpot(5, ParkingType.BIKE, true)));
+    }
+
+    @Test
+    @Tag("Allocate")
+    @DisplayName("Given free spots, when allocate, then the lowest free spot of the vehicle type is returned")
+    public void givenFreeSpots_whenAllocate_thenLowestFreeSpotIsReturned() {
+        assertThat(parkingSpotAllocator.allocate(ParkingType.CAR)).isEqualTo(2);
+        assertThat(parkingSpotAllocator.allocate(ParkingType.CAR)).isEqualTo(3);
+        assertThat(parkingSpotAllocator.allocate(ParkingType.BIKE)).isEqualTo(4);
+    }
+
+    @Test
+    @Tag("Allocate")
+    @DisplayName("Given every spot of a type is taken, when allocate, then -1 is returned")
+    public void givenNoFreeSpot_whenAllocate_thenNegativeResultReturned() {
+        parkingSpotAllocator.allocate(ParkingType.CAR);
+        parkingSpotAllocator.allocate(ParkingType.CAR);
+
+        assertThat(parkingSpotAllocator.allocate(ParkingType.CAR)).isEqualTo(-1);
+    }
+
+    @Test
+    @Tag("Release")
+    @DisplayName("Given a released spot, when allocate, then the released spot is allocated again")
+    public void givenAReleasedSpot_whenAllocate_thenReleasedSpotIsReturned() {
+        parkingSpotAllocator.allocate(ParkingType.CAR);
+
+        boolean released = parkingSpotAllocator.release(new ParkingSpot(1, ParkingType.CAR, true));
+
+        assertThat(released).isTrue();
+        assertThat(parkingSpotAllocator.allocate(ParkingType.CAR)).isEqualTo(1);
+    }
+
+    @Test
+    @Tag("Release")
+    @DisplayName("Given a free spot, when release, then release returns false")
+    public void givenAFreeSpot_whenRelease_thenReturnFalse() {
+        assertThat(parkingSpotAllocator.release(new ParkingSpot(2, ParkingType.CAR, true))).isFalse();
+    }
+
+    @Test
+    @Tag("Reserve")
+    @DisplayName("Given a spot reserved, when allocate, then the reserved spot is skipped")
+    public void givenAReservedSpot_whenAllocate_thenReservedSpotIsSkipped() {
+        assertThat(parkingSpotAllocator.reserve(new ParkingSpot(2, ParkingType.CAR, false))).isTrue();
+
+        assertThat(parkingSpotAllocator.allocate(ParkingType.CAR)).isEqualTo(3);
+    }
+
+    @Test
+    @Tag("Concurrency")
+    @DisplayName("Given many threads allocating at once, when allocate, then each spot is allocated only once")
+    public void givenConcurrentAllocations_whenAllocate_thenEachSpotIsAllocatedOnce() throws Exception {
+        List<ParkingSpot> spots = new ArrayList<>();
+        for (int number = 1; number <= 1000; number++) {
+            spots.add(new ParkingSpot(number, ParkingType.CAR, true));
+        }
+        ParkingSpotAllocator allocator = new ParkingSpotAllocator(spots);
+        Set<Integer> allocated = ConcurrentHashMap.newKeySet();
+        AtomicInteger allocations = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    int number;
+                    while ((number = allocator.allocate(ParkingType.CAR)) > 0) {
+                        allocated.add(number);
+                        allocations.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(allocations.get()).isEqualTo(1000);
+        assertThat(allocated).hasSize(1000);
+    }
+}
@@ -4,10 +4,15 @@ import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DataBaseParameters;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDao;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
@@ -98,4 +103,69 @@ public class ParkingSpotDaoTest {
 
         assertThat(isParkingUpdated).isEqualTo(false);
     }
+
+    @Test
+    @Tag("GetParkingSpots")
+    @DisplayName("Given parking spots in database, when getParkingSpots, then every spot is returned with its availability")
+    public void givenParkingSpots_whenGetParkingSpots_thenSpotsAreReturned() throws Exception {
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getInt(DataBaseParameters.ONE)).thenReturn(1, 4);
+        when(resultSet.getBoolean(DataBaseParameters.TWO)).thenReturn(false, true);
+        when(resultSet.getString(DataBaseParameters.THREE)).thenReturn("CAR", "BIKE");
+
+        List<ParkingSpot> parkingSpots = parkingSpotDao.getParkingSpots();
+
+        assertThat(parkingSpots).containsExactly(new ParkingSpot(1, ParkingType.CAR, false),
+            new ParkingSpot(4, ParkingType.BIKE, true));
+        assertThat(parkingSpots.get(0).isAvailable()).isFalse();
+        assertThat(parkingSpots.get(1).getParkingType()).isEqualTo(ParkingType.BIKE);
+    }
+
+    @Test
+    @Tag("ClaimParking")
+    @DisplayName("Given an available parking spot, when claimParking, then parking spot should be claimed")
+    public void givenAnAvailableParkingSpot_whenClaimParking_thenParkingSpotIsClaimed() throws Exception {
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+
+        boolean isParkingClaimed = parkingSpotDao.claimParking(parkingSpot);
+
+        InOrder inOrder = inOrder(preparedStatement);
+        inOrder.verify(preparedStatement).setInt(DataBaseParameters.ONE, parkingSpot.getNumber());
+        inOrder.verify(preparedStatement).executeUpdate();
+        assertThat(isParkingClaimed).isTrue();
+    }
+
+    @Test
+    @Tag("ClaimParking")
+    @DisplayName("Given a parking spot already taken, when claimParking, then claimParking should return false")
+    public void givenATakenParkingSpot_whenClaimParking_thenParkingSpotIsNotClaimed() throws Exception {
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        when(preparedStatement.executeUpdate()).thenReturn(0);
+
+        boolean isParkingClaimed = parkingSpotDao.claimParking(parkingSpot);
+
+        assertThat(isParkingClaimed).isFalse();
+    }
+
+    @Test
+    @Tag("Metrics")
+    @DisplayName("Given a failing statement, when claimParking, then the call is timed and counted as failed")
+    public void givenAFailingStatement_whenClaimParking_thenCallIsTimedAndCountedAsFailed() throws Exception {
+        MetricsRegistry metricsRegistry = MetricsRegistry.getDefault();
+        LatencyHistogram latency = (LatencyHistogram) metricsRegistry.getMetric("parkit_dao_seconds",
+            "dao", "ParkingSpotDao", "operation", "claimParking");
+        Counter errors = (Counter) metricsRegistry.getMetric("parkit_dao_errors_total",
+            "dao", "ParkingSpotDao", "operation", "claimParking");
+        long calls = latency.getCount();
+        long failures = errors.getCount();
+        when(preparedStatement.executeUpdate()).thenThrow(new SQLException("Lock wait timeout"));
+
+        boolean isParkingClaimed = parkingSpotDao.claimParking(new ParkingSpot(1, ParkingType.CAR, true));
+
+        assertThat(isParkingClaimed).isFalse();
+        assertThat(latency.getCount()).isEqualTo(calls + 1);
+        assertThat(errors.getCount()).isEqualTo(failures + 1);
+    }
 }
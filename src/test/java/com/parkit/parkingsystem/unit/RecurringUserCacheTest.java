@@ -0,0 +1,84 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.service.RecurringUserCache;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RecurringUserCacheTest {
+
+    private static final String REG_NUMBER = "AB125XY";
+
+    private AtomicLong clock;
+    private RecurringUserCache recurringUserCache;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        clock = new AtomicLong();
+        recurringUserCache = new RecurringUserCache(2, 1000, clock::get);
+    }
+
+    @Test
+    @Tag("Get")
+    @DisplayName("Given a cached status, when get, then cached status is returned and counted as a hit")
+    public void givenACachedStatus_whenGet_thenStatusIsReturned() {
+        recurringUserCache.put(REG_NUMBER, true);
+
+        assertThat(recurringUserCache.get(REG_NUMBER)).isTrue();
+        assertThat(recurringUserCache.get("CD456ZZ")).isNull();
+        assertThat(recurringUserCache.getHitCount()).isEqualTo(1);
+        assertThat(recurringUserCache.getMissCount()).isEqualTo(1);
+        assertThat(recurringUserCache.getHitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    @Tag("Get")
+    @DisplayName("Given an expired status, when get, then null is returned")
+    public void givenAnExpiredStatus_whenGet_thenReturnNull() {
+        recurringUserCache.put(REG_NUMBER, true);
+        clock.set(1000);
+
+        assertThat(recurringUserCache.get(REG_NUMBER)).isNull();
+        assertThat(recurringUserCache.size()).isZero();
+    }
+
+    @Test
+    @Tag("Put")
+    @DisplayName("Given a full cache, when put, then the least recently used status is evicted")
+    public void givenAFullCache_whenPut_thenLeastRecentlyUsedIsEvicted() {
+        recurringUserCache.put("AA111AA", false);
+        recurringUserCache.put("BB222BB", false);
+        recurringUserCache.get("AA111AA");
+
+        recurringUserCache.put("CC333CC", true);
+
+        assertThat(recurringUserCache.get("BB222BB")).isNull();
+        assertThat(recurringUserCache.get("AA111AA")).isFalse();
+        assertThat(recurringUserCache.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    @Tag("Put")
+    @DisplayName("Given a recurring user, when a non recurring status is put, then user stays recurring")
+    public void givenARecurringUser_whenPutNonRecurring_thenUserStaysRecurring() {
+        recurringUserCache.recordCompletedExit(REG_NUMBER);
+
+        recurringUserCache.put(REG_NUMBER, false);
+
+        assertThat(recurringUserCache.get(REG_NUMBER)).isTrue();
+    }
+
+    @Test
+    @Tag("RecordCompletedExit")
+    @DisplayName("Given a new user, when recordCompletedExit, then user becomes recurring")
+    public void givenANewUser_whenRecordCompletedExit_thenUserIsRecurring() {
+        recurringUserCache.put(REG_NUMBER, false);
+
+        recurringUserCache.recordCompletedExit(REG_NUMBER);
+
+        assertThat(recurringUserCache.get(REG_NUMBER)).isTrue();
+    }
+}
@@ -0,0 +1,41 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.service.ReplayReport;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplayReportTest {
+
+    @Test
+    @Tag("Latency")
+    @DisplayName("Given event latencies, when getLatencyPercentile, then nearest rank latency is returned")
+    public void givenEventLatencies_whenGetLatencyPercentile_thenNearestRankIsReturned() {
+        long[] latencies = new long[100];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = TimeUnit.MICROSECONDS.toNanos(100 - i);
+        }
+
+        ReplayReport report = new ReplayReport(latencies, 3, 2, TimeUnit.SECONDS.toNanos(2));
+
+        assertThat(report.getEventCount()).isEqualTo(100);
+        assertThat(report.getRejectedCount()).isEqualTo(3);
+        assertThat(report.getInvalidCount()).isEqualTo(2);
+        assertThat(report.getLatencyPercentile(50)).isEqualTo(50);
+        assertThat(report.getLatencyPercentile(99)).isEqualTo(99);
+        assertThat(report.getLatencyPercentile(100)).isEqualTo(100);
+        assertThat(report.getThroughput()).isEqualTo(50.0);
+    }
+
+    @Test
+    @Tag("Latency")
+    @DisplayName("Given no event, when getting statistics, then zero is returned")
+    public void givenNoEvent_whenGettingStatistics_thenZeroIsReturned() {
+        ReplayReport report = new ReplayReport(new long[0], 0, 0, 0);
+
+        assertThat(report.getLatencyPercentile(99)).isZero();
+        assertThat(report.getThroughput()).isZero();
+    }
+}
@@ -0,0 +1,121 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.ReplicaMonitor;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.storage.DataBaseStorageEngine;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicaMonitorTest {
+
+    private static final List<ParkingSpot> LOT = Arrays.asList(new ParkingSpot(1, ParkingType.CAR, true),
+        new ParkingSpot(2, ParkingType.BIKE, true));
+
+    private DataBaseStorageEngine primary;
+
+    private DataBaseStorageEngine replica;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        primary = new DataBaseStorageEngine(new DataBaseConfig(DataBaseConfig.H2_DRIVER,
+            "jdbc:h2:mem:replica-primary;DB_CLOSE_DELAY=-1" + DataBaseConfig.H2_OPTIONS, "sa", ""), LOT);
+        replica = new DataBaseStorageEngine(new DataBaseConfig(DataBaseConfig.H2_DRIVER,
+            "jdbc:h2:mem:replica-copy;DB_CLOSE_DELAY=-1" + DataBaseConfig.H2_OPTIONS, "sa", ""), LOT);
+        primary.open();
+        replica.open();
+
+        Ticket ticket = new Ticket(0, new ParkingSpot(1, ParkingType.CAR, false), "AB125XY", 1.5,
+            LocalDateTime.now().minusHours(2), LocalDateTime.now().minusHours(1));
+        primary.getTicketRepository().saveTicket(ticket);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (DataBaseStorageEngine storageEngine : Arrays.asList(primary, replica)) {
+            try (Connection con = storageEngine.getDataBaseConfig().getConnection();
+                 PreparedStatement ps = con.prepareStatement("drop all objects")) {
+                ps.execute();
+            }
+            storageEngine.close();
+        }
+    }
+
+    @Test
+    @Tag("ReplicaMonitor")
+    @DisplayName("Given a replica lagging too far behind, when a user is checked, then the primary database is read")
+    public void givenAReplicaLaggingTooFar_whenAUserIsChecked_thenThePrimaryIsRead() {
+        ReplicaMonitor replicaMonitor = new ReplicaMonitor(primary.getDataBaseConfig(),
+            Collections.singletonList(replica.getDataBaseConfig()), 2000, 1000);
+        primary.getDataBaseConfig().setReplicaMonitor(replicaMonitor);
+
+        replicaMonitor.check();
+
+        assertThat(replicaMonitor.getLagMillis(0)).isGreaterThan(2000);
+        assertThat(replicaMonitor.pickReplica()).isNull();
+        assertThat(primary.getTicketRepository().isRecurringUser("AB125XY")).isTrue();
+    }
+
+    @Test
+    @Tag("ReplicaMonitor")
+    @DisplayName("Given a replica within the tolerated lag, when a user is checked, then the replica is read but tickets are read on the primary")
+    public void givenAReplicaWithinTheLag_whenAUserIsChecked_thenTheReplicaIsRead() throws Exception {
+        ReplicaMonitor replicaMonitor = new ReplicaMonitor(primary.getDataBaseConfig(),
+            Collections.singletonList(replica.getDataBaseConfig()), 2000, 1000);
+        primary.getDataBaseConfig().setReplicaMonitor(replicaMonitor);
+        replicaMonitor.check();
+        copyHeartbeat();
+
+        replicaMonitor.check();
+
+        assertThat(replicaMonitor.getLagMillis(0)).isLessThanOrEqualTo(2000);
+        assertThat(replicaMonitor.pickReplica()).isSameAs(replica.getDataBaseConfig());
+        assertThat(primary.getTicketRepository().isRecurringUser("AB125XY")).isFalse();
+        assertThat(primary.getTicketRepository().getTicket("AB125XY")).isNotNull();
+    }
+
+    @Test
+    @Tag("ReplicaMonitor")
+    @DisplayName("Given a replica without heartbeat, when checked, then its lag is unknown and it is not picked")
+    public void givenAReplicaWithoutHeartbeat_whenChecked_thenItIsNotPicked() {
+        DataBaseConfig unmigrated = new DataBaseConfig(DataBaseConfig.H2_DRIVER,
+            "jdbc:h2:mem:replica-unmigrated" + DataBaseConfig.H2_OPTIONS, "sa", "");
+        ReplicaMonitor replicaMonitor = new ReplicaMonitor(primary.getDataBaseConfig(),
+            Collections.singletonList(unmigrated), 2000, 1000);
+
+        replicaMonitor.check();
+
+        assertThat(replicaMonitor.getLagMillis(0)).isEqualTo(Long.MAX_VALUE);
+        assertThat(replicaMonitor.pickReplica()).isNull();
+        replicaMonitor.close();
+    }
+
+    private void copyHeartbeat() throws Exception {
+        Timestamp beat;
+        try (Connection con = primary.getDataBaseConfig().getConnection();
+             PreparedStatement ps = con.prepareStatement("select BEAT from replication_heartbeat where ID = 1");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            beat = rs.getTimestamp(1);
+        }
+        try (Connection con = replica.getDataBaseConfig().getConnection();
+             PreparedStatement ps = con.prepareStatement("update replication_heartbeat set BEAT = ? where ID = 1")) {
+            ps.setTimestamp(1, beat);
+            ps.executeUpdate();
+        }
+    }
+}
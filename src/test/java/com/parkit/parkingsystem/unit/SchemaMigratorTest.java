@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.DataBaseConstants;
+import com.parkit.parkingsystem.constants.DataBaseParameters;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SchemaMigratorTest {
+
+    private SchemaMigrator schemaMigrator;
+
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private Connection connection;
+    @Mock
+    private Statement statement;
+    @Mock
+    private PreparedStatement preparedStatement;
+    @Mock
+    private ResultSet resultSet;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.prepareStatement(any(String.class))).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        schemaMigrator = new SchemaMigrator(dataBaseConfig);
+    }
+
+    @Test
+    @Tag("Migrate")
+    @DisplayName("Given an empty schema, when migrate, then every migration is applied and recorded")
+    public void givenAnEmptySchema_whenMigrate_thenEveryMigrationIsApplied() throws Exception {
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(DataBaseParameters.ONE)).thenReturn(0);
+
+        int version = schemaMigrator.migrate();
+
+        assertThat(version).isEqualTo(7);
+        verify(statement).execute(DataBaseConstants.CREATE_SCHEMA_VERSION);
+        verify(statement).execute(startsWith("create index TICKET_REG_NUMBER_OUT_TIME"));
+        verify(statement).execute(startsWith("alter table ticket add column PARKING_TYPE"));
+        verify(preparedStatement, times(7)).executeUpdate();
+        verify(preparedStatement).setInt(DataBaseParameters.ONE, 2);
+        verify(preparedStatement).setString(DataBaseParameters.TWO, "hot path indexes");
+        verify(connection, times(7)).commit();
+        verify(connection).close();
+    }
+
+    @Test
+    @Tag("Migrate")
+    @DisplayName("Given an up to date schema, when migrate, then no migration is applied")
+    public void givenAnUpToDateSchema_whenMigrate_thenNoMigrationIsApplied() throws Exception {
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(DataBaseParameters.ONE)).thenReturn(7);
+
+        int version = schemaMigrator.migrate();
+
+        assertThat(version).isEqualTo(7);
+        verify(statement, times(1)).execute(anyString());
+        verify(preparedStatement, never()).executeUpdate();
+        verify(connection, never()).commit();
+    }
+
+    @Test
+    @Tag("Migrate")
+    @DisplayName("Given a failing migration, when migrate, then it is rolled back and not recorded")
+    public void givenAFailingMigration_whenMigrate_thenItIsRolledBack() throws Exception {
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(DataBaseParameters.ONE)).thenReturn(2);
+        when(statement.execute(anyString())).thenReturn(false);
+        doThrow(new SQLException("Duplicate column")).when(statement)
+            .execute(startsWith("alter table ticket add column"));
+
+        assertThatThrownBy(() -> schemaMigrator.migrate()).isInstanceOf(SQLException.class);
+
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+        verify(preparedStatement, never()).executeUpdate();
+        verify(connection).setAutoCommit(true);
+        verify(connection).close();
+    }
+}
@@ -0,0 +1,151 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.TariffSchedule;
+import com.parkit.parkingsystem.util.FareCalculatorUtil;
+import java.time.LocalDateTime;
+import java.util.Properties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import static org.assertj.core.api.Assertions.*;
+
+public class TariffScheduleTest {
+
+    // A Monday
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2026, 10, 19, 0, 0);
+
+    private static TariffSchedule parse(String... entries) {
+        Properties properties = new Properties();
+        for (int i = 0; i < entries.length; i += 2) {
+            properties.setProperty(entries[i], entries[i + 1]);
+        }
+        return TariffSchedule.parse(properties);
+    }
+
+    @Test
+    @Tag("TariffSchedule")
+    @DisplayName("Given no band, when pricing any stay, then the fare equals the flat fare")
+    public void givenNoBand_whenPricingAnyStay_thenFareEqualsFlatFare() {
+        TariffSchedule tariffSchedule = TariffSchedule.flat();
+        LocalDateTime inTime = MONDAY.plusHours(13).plusMinutes(17).plusSeconds(41);
+
+        for (ParkingType parkingType : ParkingType.values()) {
+            for (int minutes = 0; minutes < 30000; minutes += 7) {
+                LocalDateTime outTime = inTime.plusMinutes(minutes).plusSeconds(30);
+                assertThat(tariffSchedule.getCalculatedFareInCents(parkingType, inTime, outTime, Fare.DISCOUNT))
+                    .isEqualTo(FareCalculatorUtil.getCalculatedFareInCents(parkingType, inTime, outTime,
+                        Fare.DISCOUNT));
+            }
+        }
+    }
+
+    @Test
+    @Tag("TariffSchedule")
+    @DisplayName("Given a peak band, when a stay starts before it, then each part is charged its own rate")
+    public void givenAPeakBand_whenStayStartsBeforeIt_thenEachPartIsChargedItsRate() {
+        TariffSchedule tariffSchedule = parse("tariff.CAR.band.1", "MON-FRI 08:00-19:00 250");
+
+        long cents = tariffSchedule.getCalculatedFareInCents(ParkingType.CAR, MONDAY.plusHours(7),
+            MONDAY.plusHours(9), 0);
+
+        assertThat(cents).isEqualTo(150 + 250);
+    }
+
+    @Test
+    @Tag("TariffSchedule")
+    @DisplayName("Given peak and weekend bands, when a stay spans Friday evening to Saturday, then every band is charged")
+    public void givenPeakAndWeekendBands_whenStaySpansThem_thenEveryBandIsCharged() {
+        TariffSchedule tariffSchedule = parse(
+            "tariff.CAR.band.1", "MON-FRI 08:00-19:00 250",
+            "tariff.CAR.band.2", "SAT,SUN 00:00-24:00 100");
+        LocalDateTime friday = MONDAY.plusDays(4);
+
+        long cents = tariffSchedule.getCalculatedFareInCents(ParkingType.CAR, friday.plusHours(18),
+            friday.plusHours(26), 0);
+        long bikeCents = tariffSchedule.getCalculatedFareInCents(ParkingType.BIKE, friday.plusHours(18),
+            friday.plusHours(26), 0);
+
+        assertThat(cents).isEqualTo(250 + 5 * 150 + 2 * 100);
+        assertThat(bikeCents).isEqualTo(8 * 100);
+    }
+
+    @Test
+    @Tag("TariffSchedule")
+    @DisplayName("Given a band ending after midnight, when a stay crosses midnight, then the band goes on the next day")
+    public void givenABandEndingAfterMidnight_whenStayCrossesMidnight_thenBandGoesOn() {
+        TariffSchedule tariffSchedule = parse(
+            "tariff.BIKE.band.1", "SUN 22:00-06:00 50",
+            "tariff.BIKE.band.2", "MON 05:00-07:00 80");
+        LocalDateTime sunday = MONDAY.plusDays(6);
+
+        long cents = tariffSchedule.getCalculatedFareInCents(ParkingType.BIKE, sunday.plusHours(23),
+            sunday.plusHours(31), 0);
+
+        // Sunday 23:00 to Monday 05:00 at 50, then the later band until 07:00
+        assertThat(cents).isEqualTo(6 * 50 + 2 * 80);
+    }
+
+    @Test
+    @Tag("TariffSchedule")
+    @DisplayName("Given a daily cap, when a stay spans several days, then each calendar day is capped")
+    public void givenADailyCap_whenStaySpansSeveralDays_thenEachDayIsCapped() {
+        TariffSchedule tariffSchedule = parse("tariff.CAR.cap", "2000");
+
+        long cents = tariffSchedule.getCalculatedFareInCents(ParkingType.CAR, MONDAY.plusHours(12),
+            MONDAY.plusDays(9).plusHours(10), 0);
+        long discounted = tariffSchedule.getCalculatedFareInCents(ParkingType.CAR, MONDAY.plusHours(12),
+            MONDAY.plusDays(9).plusHours(10), Fare.DISCOUNT);
+
+        // 12 hours on the first day, 8 full days capped, 10 hours on the last day
+        assertThat(cents).isEqualTo(1800 + 8 * 2000 + 1500);
+        assertThat(discounted).isEqualTo(19300 * 95 / 100);
+    }
+
+    @Test
+    @Tag("TariffSchedule")
+    @DisplayName("Given a daily cap, when a stay lasts less than a day, then it is capped once")
+    public void givenADailyCap_whenStayWithinADay_thenItIsCappedOnce() {
+        TariffSchedule tariffSchedule = parse("tariff.BIKE.cap", "500");
+
+        long cents = tariffSchedule.getCalculatedFareInCents(ParkingType.BIKE, MONDAY.plusHours(1),
+            MONDAY.plusHours(23), 0);
+
+        assertThat(cents).isEqualTo(500);
+    }
+
+    @Test
+    @Tag("TariffSchedule")
+    @DisplayName("Given a short stay in a band, when pricing it, then it is free")
+    public void givenAShortStayInABand_whenPricingIt_thenItIsFree() {
+        TariffSchedule tariffSchedule = parse("tariff.CAR.band.1", "MON-SUN 00:00-24:00 900");
+
+        long cents = tariffSchedule.getCalculatedFareInCents(ParkingType.CAR, MONDAY, MONDAY.plusMinutes(29), 0);
+
+        assertThat(cents).isZero();
+    }
+
+    @ParameterizedTest
+    @Tag("Exceptions")
+    @DisplayName("Given a malformed tariff entry, when parsing it, then an IllegalArgumentException is thrown")
+    @ValueSource(strings = {"tariff.CAR.band.1=MON-FRI 08:00 250", "tariff.CAR.band.1=XX 08:00-19:00 250",
+        "tariff.VAN.cap=100", "tariff.CAR.rate=100", "tariff.BIKE.cap=lots", "tariff.CAR.band.1=MON 08:00-19:00 -5"})
+    public void givenAMalformedEntry_whenParsing_thenIllegalArgumentExceptionThrown(String entry) {
+        String[] keyValue = entry.split("=");
+
+        assertThatIllegalArgumentException().isThrownBy(() -> parse(keyValue[0], keyValue[1]));
+    }
+
+    @Test
+    @Tag("Exceptions")
+    @DisplayName("Given an out time before the in time, when pricing the stay, then an IllegalArgumentException is thrown")
+    public void givenAnOutTimeBeforeInTime_whenPricing_thenIllegalArgumentExceptionThrown() {
+        TariffSchedule tariffSchedule = TariffSchedule.flat();
+
+        assertThatIllegalArgumentException().isThrownBy(() -> tariffSchedule.getCalculatedFareInCents(
+            ParkingType.CAR, MONDAY, MONDAY.minusMinutes(1), 0));
+    }
+}
@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.DataBaseConstants;
+import com.parkit.parkingsystem.constants.DataBaseParameters;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketArchiveDao;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TicketArchiveDaoTest {
+
+    private static final YearMonth JANUARY = YearMonth.of(2026, 1);
+
+    private static final LocalDateTime OUT_TIME = JANUARY.atDay(10).atTime(18, 0);
+
+    private final TicketArchiveDao ticketArchiveDao = new TicketArchiveDao();
+
+    @Mock
+    private UnitOfWork unitOfWork;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    private final List<Ticket> tickets = Arrays.asList(
+        new Ticket(1, new ParkingSpot(1, ParkingType.CAR, true), "AB125XY", 1.5, OUT_TIME.minusHours(1), OUT_TIME),
+        new Ticket(2, new ParkingSpot(4, ParkingType.BIKE, true), "CD456ZT", 1.0, OUT_TIME.minusHours(1),
+            OUT_TIME.plusDays(1)));
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        when(unitOfWork.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(any(String.class))).thenReturn(preparedStatement);
+    }
+
+    @Test
+    @Tag("ArchiveTickets")
+    @DisplayName("Given closed tickets, when archived, then they are copied, deleted, counted and added to the history")
+    public void givenClosedTickets_whenArchived_thenTheyAreMovedAndAddedToTheHistory() throws Exception {
+        // Copy, delete, then history update: the second vehicle has no history yet
+        when(preparedStatement.executeBatch()).thenReturn(new int[] {1, 1}, new int[] {1, 1}, new int[] {1, 0},
+            new int[] {1});
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+
+        boolean archived = ticketArchiveDao.archiveTickets(JANUARY, tickets, unitOfWork);
+
+        assertThat(archived).isTrue();
+        verify(connection).prepareStatement(String.format(DataBaseConstants.SAVE_ARCHIVED_TICKET,
+            "ticket_archive_202601"));
+        verify(connection).prepareStatement(DataBaseConstants.SAVE_TICKET_HISTORY);
+        verify(preparedStatement, times(4)).executeBatch();
+        verify(preparedStatement).setInt(DataBaseParameters.TWO, 202601);
+        // Copied and updated, then inserted only for the vehicle without history
+        verify(preparedStatement, times(2)).setString(DataBaseParameters.THREE, "AB125XY");
+        verify(preparedStatement, times(3)).setString(DataBaseParameters.THREE, "CD456ZT");
+        verify(connection, never()).commit();
+    }
+
+    @Test
+    @Tag("ArchiveTickets")
+    @DisplayName("Given a ticket already gone from the ticket table, when archived, then false is returned before the history")
+    public void givenATicketAlreadyGone_whenArchived_thenFalseIsReturned() throws Exception {
+        when(preparedStatement.executeBatch()).thenReturn(new int[] {1, 1}, new int[] {1, 0});
+
+        boolean archived = ticketArchiveDao.archiveTickets(JANUARY, tickets, unitOfWork);
+
+        assertThat(archived).isFalse();
+        verify(preparedStatement, never()).executeUpdate();
+        verify(connection, never()).prepareStatement(DataBaseConstants.UPDATE_TICKET_HISTORY);
+    }
+}
@@ -0,0 +1,128 @@
+package com.parkit.parkingsystem.unit;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketArchiveDao;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.TicketArchiver;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TicketArchiverTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 6, 15, 12, 0);
+
+    private static final YearMonth JANUARY = YearMonth.of(2026, 1);
+
+    private static final YearMonth FEBRUARY = YearMonth.of(2026, 2);
+
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private UnitOfWork unitOfWork;
+    @Mock
+    private TicketArchiveDao ticketArchiveDao;
+
+    private TicketArchiver ticketArchiver;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        ticketArchiver = new TicketArchiver(dataBaseConfig, ticketArchiveDao, 90, 3, 0, 60);
+        ZoneId zone = ZoneId.systemDefault();
+        ticketArchiver.setClock(Clock.fixed(NOW.atZone(zone).toInstant(), zone));
+    }
+
+    private static Ticket newTicket(int id, LocalDateTime outTime) {
+        return new Ticket(id, new ParkingSpot(1, ParkingType.CAR, true), "GATE" + id, 1.5, outTime.minusHours(1),
+            outTime);
+    }
+
+    @Test
+    @Tag("Archive")
+    @DisplayName("Given tickets closed before the horizon over two months, when archived, then each month is moved in its own transaction")
+    public void givenTicketsOfTwoMonths_whenArchived_thenEachMonthIsMovedInItsOwnTransaction() throws Exception {
+        List<Ticket> firstChunk = Arrays.asList(newTicket(1, JANUARY.atDay(30).atTime(9, 0)),
+            newTicket(2, JANUARY.atEndOfMonth().atTime(23, 0)), newTicket(3, FEBRUARY.atDay(1).atTime(8, 0)));
+        List<Ticket> lastChunk = Collections.singletonList(newTicket(4, FEBRUARY.atDay(2).atTime(8, 0)));
+        when(ticketArchiveDao.getTicketsToArchive(NOW.minusDays(90), 3)).thenReturn(firstChunk, lastChunk);
+        when(ticketArchiveDao.getArchiveMonths()).thenReturn(Collections.singletonList(JANUARY));
+        when(ticketArchiveDao.createArchive(FEBRUARY)).thenReturn(true);
+        when(dataBaseConfig.beginUnitOfWork()).thenReturn(unitOfWork);
+        when(ticketArchiveDao.archiveTickets(any(YearMonth.class), anyList(), eq(unitOfWork))).thenReturn(true);
+
+        int archived = ticketArchiver.archive();
+
+        assertThat(archived).isEqualTo(4);
+        InOrder inOrder = inOrder(ticketArchiveDao, unitOfWork);
+        inOrder.verify(ticketArchiveDao).archiveTickets(JANUARY, firstChunk.subList(0, 2), unitOfWork);
+        inOrder.verify(unitOfWork).commit();
+        inOrder.verify(ticketArchiveDao).createArchive(FEBRUARY);
+        inOrder.verify(ticketArchiveDao).archiveTickets(FEBRUARY, firstChunk.subList(2, 3), unitOfWork);
+        inOrder.verify(unitOfWork).commit();
+        inOrder.verify(ticketArchiveDao).archiveTickets(FEBRUARY, lastChunk, unitOfWork);
+        inOrder.verify(unitOfWork).commit();
+        verify(ticketArchiveDao, never()).createArchive(JANUARY);
+        verify(ticketArchiveDao, times(1)).getArchiveMonths();
+    }
+
+    @Test
+    @Tag("Archive")
+    @DisplayName("Given a chunk the database refuses, when archived, then it is not committed and the pass stops")
+    public void givenARefusedChunk_whenArchived_thenItIsNotCommittedAndThePassStops() throws Exception {
+        List<Ticket> chunk = Arrays.asList(newTicket(1, JANUARY.atDay(3).atTime(9, 0)),
+            newTicket(2, JANUARY.atDay(4).atTime(9, 0)), newTicket(3, JANUARY.atDay(5).atTime(9, 0)));
+        when(ticketArchiveDao.getTicketsToArchive(any(LocalDateTime.class), anyInt())).thenReturn(chunk);
+        when(ticketArchiveDao.getArchiveMonths()).thenReturn(Collections.singletonList(JANUARY));
+        when(dataBaseConfig.beginUnitOfWork()).thenReturn(unitOfWork);
+        when(ticketArchiveDao.archiveTickets(JANUARY, chunk, unitOfWork)).thenReturn(false);
+
+        int archived = ticketArchiver.archive();
+
+        assertThat(archived).isZero();
+        verify(unitOfWork, never()).commit();
+        verify(unitOfWork).close();
+        verify(ticketArchiveDao, times(1)).getTicketsToArchive(any(LocalDateTime.class), anyInt());
+    }
+
+    @Test
+    @Tag("Archive")
+    @DisplayName("Given no ticket closed before the horizon, when archived, then nothing is moved")
+    public void givenNoTicketToArchive_whenArchived_thenNothingIsMoved() throws Exception {
+        when(ticketArchiveDao.getTicketsToArchive(any(LocalDateTime.class), anyInt()))
+            .thenReturn(Collections.emptyList());
+
+        assertThat(ticketArchiver.archive()).isZero();
+
+        verify(ticketArchiveDao, never()).getArchiveMonths();
+        verify(dataBaseConfig, never()).beginUnitOfWork();
+    }
+
+    @Test
+    @Tag("Archive")
+    @DisplayName("Given a horizon under one day, when the archiver is built, then it is refused")
+    public void givenAHorizonUnderOneDay_whenBuilt_thenItIsRefused() {
+        assertThatThrownBy(() -> new TicketArchiver(dataBaseConfig, ticketArchiveDao, 0, 500, 0, 60))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
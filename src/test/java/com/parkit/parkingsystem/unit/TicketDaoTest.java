@@ -1,6 +1,7 @@
 package com.parkit.parkingsystem.unit;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DataBaseConstants;
 import com.parkit.parkingsystem.constants.DataBaseParameters;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.TicketDao;
@@ -9,8 +10,14 @@ import com.parkit.parkingsystem.model.Ticket;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
@@ -20,6 +27,7 @@ import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -40,12 +48,19 @@ public class TicketDaoTest {
     private static PreparedStatement preparedStatement;
     @Mock
     private static ResultSet resultSet;
+    @Mock
+    private PreparedStatement monthStatement;
+    @Mock
+    private ResultSet monthResultSet;
 
 
     @BeforeEach
     public void setUpPerTest() throws Exception {
         when(dataBaseConfig.getConnection()).thenReturn(connection);
-        when(connection.prepareStatement(any(String.class))).thenReturn(preparedStatement);
+        // saveTicket prepares its statement with generated keys
+        lenient().when(connection.prepareStatement(any(String.class))).thenReturn(preparedStatement);
+        lenient().when(connection.prepareStatement(any(String.class), eq(Statement.RETURN_GENERATED_KEYS)))
+            .thenReturn(preparedStatement);
         ticketDao.setDataBaseConfig(dataBaseConfig);
     }
 
@@ -55,7 +70,10 @@ public class TicketDaoTest {
     public void givenATicket_whenSaveTicket_thenTicketIsSaved() throws Exception {
         ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, true);
         Ticket ticket = new Ticket(1, parkingSpot, REG_NUMBER, 0, LocalDateTime.now(), null);
-        when(preparedStatement.execute()).thenReturn(true);
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+        when(preparedStatement.getGeneratedKeys()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(DataBaseParameters.ONE)).thenReturn(5);
 
         boolean isTicketSaved = ticketDao.saveTicket(ticket);
 
@@ -65,8 +83,9 @@ public class TicketDaoTest {
         inOrder.verify(preparedStatement).setDouble(DataBaseParameters.THREE, ticket.getPrice());
         inOrder.verify(preparedStatement).setObject(DataBaseParameters.FOUR, ticket.getInTime());
         inOrder.verify(preparedStatement).setObject(DataBaseParameters.FIVE, ticket.getOutTime());
-        inOrder.verify(preparedStatement).execute();
+        inOrder.verify(preparedStatement).executeUpdate();
         assertThat(isTicketSaved).isTrue();
+        assertThat(ticket.getId()).isEqualTo(5);
     }
 
     @Test
@@ -75,13 +94,61 @@ public class TicketDaoTest {
     public void givenATicket_whenSaveTicketNotExecuted_thenTicketIsNotSaved() throws Exception {
         ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, true);
         Ticket ticket = new Ticket(1, parkingSpot, REG_NUMBER, 0, LocalDateTime.now(), null);
-        when(preparedStatement.execute()).thenReturn(false);
+        when(preparedStatement.executeUpdate()).thenReturn(0);
 
         boolean isTicketSaved = ticketDao.saveTicket(ticket);
 
         assertThat(isTicketSaved).isFalse();
     }
 
+    @Test
+    @Tag("SaveTicket")
+    @DisplayName("Given tickets, when saveTickets, then they are saved in one batch with their generated IDs")
+    public void givenTickets_whenSaveTickets_thenTicketsAreSavedInOneBatch() throws Exception {
+        Ticket first = new Ticket(0, new ParkingSpot(1, ParkingType.CAR, false), REG_NUMBER, 0, LocalDateTime.now(), null);
+        Ticket second = new Ticket(0, new ParkingSpot(2, ParkingType.CAR, false), "CD456EF", 0, LocalDateTime.now(), null);
+        when(preparedStatement.executeBatch()).thenReturn(new int[] {1, 1});
+        when(preparedStatement.getGeneratedKeys()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true);
+        when(resultSet.getInt(DataBaseParameters.ONE)).thenReturn(7, 8);
+
+        boolean[] saved = ticketDao.saveTickets(Arrays.asList(first, second), null);
+
+        verify(preparedStatement, times(2)).addBatch();
+        verify(preparedStatement, never()).executeUpdate();
+        assertThat(saved).containsExactly(true, true);
+        assertThat(first.getId()).isEqualTo(7);
+        assertThat(second.getId()).isEqualTo(8);
+    }
+
+    @Test
+    @Tag("UpdateTicket")
+    @DisplayName("Given tickets, one already closed, when updateTickets, then only the open one is reported updated")
+    public void givenTicketsOneClosed_whenUpdateTickets_thenOnlyOpenOneIsUpdated() throws Exception {
+        Ticket open = new Ticket(1, new ParkingSpot(1, ParkingType.CAR, false), REG_NUMBER, 1.5,
+            LocalDateTime.now().minusMinutes(60), LocalDateTime.now());
+        Ticket closed = new Ticket(2, new ParkingSpot(2, ParkingType.CAR, false), "CD456EF", 1.5,
+            LocalDateTime.now().minusMinutes(60), LocalDateTime.now());
+        when(preparedStatement.executeBatch()).thenReturn(new int[] {1, 0});
+
+        boolean[] updated = ticketDao.updateTickets(Arrays.asList(open, closed), null);
+
+        verify(preparedStatement, times(2)).addBatch();
+        assertThat(updated).containsExactly(true, false);
+    }
+
+    @Test
+    @Tag("UpdateTicket")
+    @DisplayName("Given a failing batch, when updateTickets, then the failure is thrown to the caller")
+    public void givenAFailingBatch_whenUpdateTickets_thenTheFailureIsThrown() throws Exception {
+        Ticket ticket = new Ticket(1, new ParkingSpot(1, ParkingType.CAR, false), REG_NUMBER, 1.5,
+            LocalDateTime.now().minusMinutes(60), LocalDateTime.now());
+        when(preparedStatement.executeBatch()).thenThrow(new SQLException("Lock wait timeout"));
+
+        assertThatThrownBy(() -> ticketDao.updateTickets(Collections.singletonList(ticket), null))
+            .isInstanceOf(SQLException.class).hasMessage("Lock wait timeout");
+    }
+
     @Test
     @Tag("UpdateTicket")
     @DisplayName("Given a ticket, when updateTicket, then ticket should be updated correctly")
@@ -145,6 +212,20 @@ public class TicketDaoTest {
     }
 
 
+    @Test
+    @Tag("IsRecurringUser")
+    @DisplayName("Given a licence number whose tickets were all archived, then isRecurringUser should return true")
+    public void givenARegistrationWithArchivedTicketsOnly_whenGetIsRecurringUser_thenReturnTrue() throws Exception {
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(DataBaseParameters.ONE)).thenReturn(0, 3);
+
+        boolean isRecurrentUser = ticketDao.isRecurringUser(REG_NUMBER);
+
+        assertThat(isRecurrentUser).isTrue();
+        verify(connection).prepareStatement(DataBaseConstants.GET_TICKET_HISTORY);
+    }
+
     @Test
     @Tag("IsRecurringUser")
     @DisplayName("Given a licence number, when no resultSet, then isRecurringUser should return false")
@@ -157,6 +238,15 @@ public class TicketDaoTest {
         assertThat(isRecurrentUser).isFalse();
     }
 
+    @Test
+    @Tag("IsRecurringUser")
+    @DisplayName("Given the tickets cannot be read, when isRecurringUser, then the status is unknown")
+    public void givenADataBaseError_whenGetIsRecurringUser_thenReturnNull() throws Exception {
+        when(preparedStatement.executeQuery()).thenThrow(new SQLException("Lost connection"));
+
+        assertThat(ticketDao.isRecurringUser(REG_NUMBER, null)).isNull();
+    }
+
     @Test
     @Tag("GetTicket")
     @DisplayName("Given an expected ticket, when getTicket, then ticket should match expected ticket")
@@ -193,4 +283,119 @@ public class TicketDaoTest {
 
         assertThat(ticket).isNull();
     }
-}
\ No newline at end of file
+
+    @Test
+    @Tag("GetTicket")
+    @DisplayName("Given a licence number whose tickets were all archived, when getTicket, then its latest archived ticket is returned")
+    public void givenARegistrationWithArchivedTicketsOnly_whenGetTicket_thenLatestArchivedTicketIsReturned() throws Exception {
+        LocalDateTime outTime = LocalDateTime.of(2026, 1, 31, 18, 0);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        // No ticket in the ticket table, then the history, then the archived ticket
+        when(resultSet.next()).thenReturn(false, true, true);
+        doReturn(4).when(resultSet).getInt(DataBaseParameters.ONE);
+        doReturn(12).when(resultSet).getInt(DataBaseParameters.TWO);
+        when(resultSet.getDouble(DataBaseParameters.THREE)).thenReturn(1.5);
+        doReturn(Timestamp.valueOf(outTime)).when(resultSet).getTimestamp(DataBaseParameters.TWO);
+        doReturn(Timestamp.valueOf(outTime.minusHours(1))).when(resultSet).getTimestamp(DataBaseParameters.FOUR);
+        doReturn(Timestamp.valueOf(outTime)).when(resultSet).getTimestamp(DataBaseParameters.FIVE);
+        when(resultSet.getString(DataBaseParameters.SIX)).thenReturn("CAR");
+
+        Ticket ticket = ticketDao.getTicket(REG_NUMBER);
+
+        assertThat(ticket).isEqualTo(new Ticket(12, new ParkingSpot(4, ParkingType.CAR, false), REG_NUMBER, 1.5,
+            outTime.minusHours(1), outTime));
+        verify(connection).prepareStatement(String.format(DataBaseConstants.GET_ARCHIVED_TICKET,
+            "ticket_archive_202601"));
+    }
+
+    @Test
+    @Tag("GetOpenTickets")
+    @DisplayName("Given a vehicle still in the parking, when getOpenTickets, then its ticket is returned")
+    public void givenAnOpenTicket_whenGetOpenTickets_thenTicketIsReturned() throws Exception {
+        LocalDateTime inTime = LocalDateTime.now().withNano(0);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        doReturn(3).when(resultSet).getInt(DataBaseParameters.ONE);
+        doReturn(7).when(resultSet).getInt(DataBaseParameters.TWO);
+        doReturn("BIKE").when(resultSet).getString(DataBaseParameters.SIX);
+        doReturn(REG_NUMBER).when(resultSet).getString(DataBaseParameters.SEVEN);
+        when(resultSet.getDouble(DataBaseParameters.THREE)).thenReturn(0.0);
+        when(resultSet.getTimestamp(DataBaseParameters.FOUR)).thenReturn(Timestamp.valueOf(inTime));
+
+        List<Ticket> tickets = ticketDao.getOpenTickets();
+
+        assertThat(tickets).containsExactly(new Ticket(7, new ParkingSpot(3, ParkingType.BIKE, false),
+            REG_NUMBER, 0, inTime, null));
+    }
+
+    @Test
+    @Tag("StreamClosedTickets")
+    @DisplayName("Given closed tickets, when streamClosedTickets, then they are read with a forward-only cursor of the fetch size")
+    public void givenClosedTickets_whenStreamClosedTickets_thenTheyAreReadWithACursor() throws Exception {
+        LocalDateTime inTime = LocalDateTime.now().withNano(0);
+        when(connection.prepareStatement(any(String.class), eq(ResultSet.TYPE_FORWARD_ONLY),
+            eq(ResultSet.CONCUR_READ_ONLY))).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        doReturn(3).when(resultSet).getInt(DataBaseParameters.ONE);
+        doReturn(7).when(resultSet).getInt(DataBaseParameters.TWO);
+        doReturn("CAR").when(resultSet).getString(DataBaseParameters.SIX);
+        doReturn(REG_NUMBER).when(resultSet).getString(DataBaseParameters.SEVEN);
+        when(resultSet.getDouble(DataBaseParameters.THREE)).thenReturn(1.5);
+        doReturn(Timestamp.valueOf(inTime)).when(resultSet).getTimestamp(DataBaseParameters.FOUR);
+        doReturn(Timestamp.valueOf(inTime.plusHours(1))).when(resultSet).getTimestamp(DataBaseParameters.FIVE);
+        List<Ticket> tickets = new ArrayList<>();
+
+        boolean streamed = ticketDao.streamClosedTickets(500, tickets::add);
+
+        assertThat(streamed).isTrue();
+        verify(preparedStatement).setFetchSize(500);
+        assertThat(tickets).containsExactly(new Ticket(7, new ParkingSpot(3, ParkingType.CAR, true),
+            REG_NUMBER, 1.5, inTime, inTime.plusHours(1)));
+    }
+
+    @Test
+    @Tag("StreamClosedTickets")
+    @DisplayName("Given an archived month, when streamClosedTickets, then its archive table is read after the ticket table")
+    public void givenAnArchivedMonth_whenStreamClosedTickets_thenItsTableIsRead() throws Exception {
+        LocalDateTime inTime = LocalDateTime.of(2026, 1, 31, 17, 0);
+        doReturn(monthStatement).when(connection).prepareStatement(DataBaseConstants.GET_ARCHIVE_MONTHS);
+        when(monthStatement.executeQuery()).thenReturn(monthResultSet);
+        when(monthResultSet.next()).thenReturn(true, false);
+        when(monthResultSet.getInt(DataBaseParameters.ONE)).thenReturn(202601);
+        doReturn(preparedStatement).when(connection).prepareStatement(any(String.class),
+            eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY));
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        // One ticket in the ticket table, one in the archive of January
+        when(resultSet.next()).thenReturn(true, false, true, false);
+        doReturn(3).when(resultSet).getInt(DataBaseParameters.ONE);
+        doReturn(7, 2).when(resultSet).getInt(DataBaseParameters.TWO);
+        doReturn("CAR").when(resultSet).getString(DataBaseParameters.SIX);
+        doReturn(REG_NUMBER).when(resultSet).getString(DataBaseParameters.SEVEN);
+        when(resultSet.getDouble(DataBaseParameters.THREE)).thenReturn(1.5);
+        doReturn(Timestamp.valueOf(inTime)).when(resultSet).getTimestamp(DataBaseParameters.FOUR);
+        doReturn(Timestamp.valueOf(inTime.plusHours(1))).when(resultSet).getTimestamp(DataBaseParameters.FIVE);
+        List<Ticket> tickets = new ArrayList<>();
+
+        boolean streamed = ticketDao.streamClosedTickets(500, tickets::add);
+
+        assertThat(streamed).isTrue();
+        assertThat(tickets).extracting(Ticket::getId).containsExactly(7, 2);
+        InOrder inOrder = inOrder(connection);
+        inOrder.verify(connection).prepareStatement(DataBaseConstants.GET_CLOSED_TICKETS,
+            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        inOrder.verify(connection).prepareStatement(String.format(DataBaseConstants.GET_ARCHIVED_TICKETS,
+            "ticket_archive_202601"), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+
+    @Test
+    @Tag("StreamClosedTickets")
+    @DisplayName("Given a failing query, when streamClosedTickets, then false is returned")
+    public void givenAFailingQuery_whenStreamClosedTickets_thenFalseIsReturned() throws Exception {
+        when(connection.prepareStatement(any(String.class), eq(ResultSet.TYPE_FORWARD_ONLY),
+            eq(ResultSet.CONCUR_READ_ONLY))).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenThrow(new SQLException("Lost connection"));
+
+        assertThat(ticketDao.streamClosedTickets(500, ticket -> { })).isFalse();
+    }
+}